@@ -0,0 +1,80 @@
+/**
+ *
+ */
+package net.shiild.moviemanager.customer;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmark of the latency of a login lookup, CustomerDB.verifyCustomer
+ * for a random existing customer, against the linear scan of the customer
+ * array that CustomerDB used to make.
+ *
+ * @author StephenHildebrand
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx2g"})
+public class CustomerLookupBenchmark {
+    /** Number of customers in the database */
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int customers;
+
+    /** The database under test */
+    private CustomerDB db;
+    /** The same customers in id order, as the old array held them */
+    private Customer[] list;
+    /** Ids of the customers */
+    private String[] ids;
+    /** Source of the customers looked up */
+    private Random random;
+
+    /**
+     * Fills the database. Ids are added in order, so that filling a large
+     * database does not spend its time shifting the list.
+     */
+    @Setup
+    public void setUp() {
+        db = new CustomerDB();
+        list = new Customer[customers];
+        ids = new String[customers];
+        for (int i = 0; i < customers; i++) {
+            ids[i] = String.format("member%07d", i);
+            db.addNewCustomer(ids[i], "pw", 3);
+            list[i] = db.verifyCustomer(ids[i], "pw");
+        }
+        random = new Random(15);
+    }
+
+    @Benchmark
+    public Customer verifyCustomer() {
+        return db.verifyCustomer(ids[random.nextInt(customers)], "pw");
+    }
+
+    @Benchmark
+    public Customer linearScan() {
+        String id = ids[random.nextInt(customers)];
+        for (int i = 0; i < list.length; i++) {
+            if (list[i].getId().equals(id)) {
+                return list[i];
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,84 @@
+/**
+ *
+ */
+package net.shiild.moviemanager.customer;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.shiild.moviemanager.inventory.Movie;
+import net.shiild.moviemanager.list_util.ListType;
+
+/**
+ * JMH benchmark of the reserve queue processing of Customer.login and
+ * Customer.returnDVD, for a customer allowed one movie at home with 10 to
+ * 100k reserved movies out of stock ahead of the one that can be checked out.
+ * Each login looks through the whole queue and finds nothing in stock. Each
+ * return gives back the movie at home, which was reserved again at the end of
+ * the queue just before, so the look through the queue finds it last and
+ * checks it out again; the reserve is part of the operation.
+ *
+ * @author StephenHildebrand
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CustomerQueueBenchmark {
+    /** Number of reserved movies out of stock */
+    @Param({"10", "1000", "100000"})
+    public int reserves;
+    /** Type of list the customer keeps the queues in */
+    @Param({"LINKED", "UNROLLED"})
+    public ListType listType;
+
+    /** The customer returning the movie, with it at home */
+    private Customer returning;
+    /** The movie returned and checked out again */
+    private Movie movie;
+    /** The customer logging in, with nothing at home */
+    private Customer loggingIn;
+
+    /**
+     * Reserves the movies out of stock for both customers, and checks out
+     * the one in stock to the returning customer.
+     */
+    @Setup
+    public void setUp() {
+        returning = new Customer("returning", "pw", 1, listType);
+        loggingIn = new Customer("loggingIn", "pw", 1, listType);
+        for (int i = 0; i < reserves; i++) {
+            Movie outOfStock = new Movie("0 Reserved " + i);
+            returning.reserve(outOfStock);
+            loggingIn.reserve(outOfStock);
+        }
+        movie = new Movie("1 Returned");
+        returning.reserve(movie);
+    }
+
+    @Benchmark
+    public Customer login() {
+        loggingIn.login();
+        return loggingIn;
+    }
+
+    @Benchmark
+    public Customer returnDVD() {
+        returning.reserve(movie);
+        returning.returnDVD(0);
+        return returning;
+    }
+}
@@ -0,0 +1,88 @@
+/**
+ *
+ */
+package net.shiild.moviemanager.customer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmark of changes to a CustomerDB: adding customers in random order,
+ * and cancelling one percent of them with CustomerDB.cancelAccounts against a
+ * cancelAccount call for each. Every measurement starts from a freshly filled
+ * database.
+ *
+ * @author StephenHildebrand
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgs = {"-Xmx2g"})
+public class CustomerUpdateBenchmark {
+    /** Number of customers in the database */
+    @Param({"10000", "100000"})
+    public int customers;
+
+    /** Ids of the customers, in random order */
+    private List<String> ids;
+    /** Ids of the customers to cancel */
+    private List<String> cancelled;
+    /** The filled database */
+    private CustomerDB db;
+
+    /**
+     * Chooses the ids and fills the database.
+     */
+    @Setup(Level.Iteration)
+    public void setUp() {
+        Random random = new Random(16);
+        ids = new ArrayList<String>(customers);
+        for (int i = 0; i < customers; i++) {
+            ids.add((random.nextBoolean() ? "Member" : "member") + i);
+        }
+        Collections.shuffle(ids, random);
+        cancelled = new ArrayList<String>(ids.subList(0, customers / 100));
+        db = fill();
+    }
+
+    @Benchmark
+    public CustomerDB fill() {
+        CustomerDB filled = new CustomerDB();
+        for (String id : ids) {
+            filled.addNewCustomer(id, "pw", 3);
+        }
+        return filled;
+    }
+
+    @Benchmark
+    public CustomerDB cancelEach() {
+        for (String id : cancelled) {
+            db.cancelAccount(id);
+        }
+        return db;
+    }
+
+    @Benchmark
+    public CustomerDB cancelAccounts() {
+        db.cancelAccounts(cancelled);
+        return db;
+    }
+}
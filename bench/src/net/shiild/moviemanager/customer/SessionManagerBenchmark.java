@@ -0,0 +1,180 @@
+/**
+ *
+ */
+package net.shiild.moviemanager.customer;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.BenchmarkParams;
+
+import net.shiild.moviemanager.inventory.CatalogueGenerator;
+import net.shiild.moviemanager.rental_system.MovieRentalSystem;
+import net.shiild.moviemanager.rental_system.RentalManager;
+
+/**
+ * JMH benchmark of a SessionManager with 1, 8, 64 and 512 customers logged
+ * in, each in their own session and used by a thread of their own, as a
+ * terminal would, so that the number of callers grows with the sessions.
+ * JMH cannot take a thread count as a parameter, so each count has its own
+ * benchmark method; a thread count given with -t overrides them, and one
+ * session is logged in for each thread. Each operation reserves a random
+ * movie of a generated inventory through the session's RentalManager,
+ * returning the movie or taking it off the reserve queue again, so the
+ * queues stay short. The customers are kept in memory only, or in a
+ * CustomerStore that does not force its log, whose commits the sessions
+ * share.
+ *
+ * @author StephenHildebrand
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SessionManagerBenchmark {
+    /** Number of movies in the inventory */
+    private static final int MOVIES = 10000;
+
+    /** True if the customers are kept in a CustomerStore */
+    @Param({"false", "true"})
+    public boolean store;
+
+    /** The session manager */
+    private SessionManager manager;
+    /** Tokens of the sessions, one for each thread */
+    private String[] tokens;
+    /** Index of the next token to give a thread */
+    private final AtomicInteger nextToken = new AtomicInteger();
+    /** The customer store, or null */
+    private CustomerStore customerStore;
+    /** Directory of the customer store, or null */
+    private Path directory;
+
+    /**
+     * Reads a generated inventory and logs in a customer for each thread.
+     *
+     * @param params the parameters of the run, with its thread count
+     * @throws IOException if the inventory or store cannot be written
+     */
+    @Setup(Level.Trial)
+    public void setUp(BenchmarkParams params) throws IOException {
+        File file = CatalogueGenerator.write(MOVIES, 21);
+        MovieRentalSystem rentalSystem = new MovieRentalSystem(file.getPath());
+        if (store) {
+            directory = Files.createTempDirectory("session-bench");
+            customerStore = rentalSystem.openCustomerStore(directory, false, CustomerStore.DEFAULT_COMPACT_EVERY);
+            manager = new SessionManager(rentalSystem, customerStore, SessionManager.DEFAULT_IDLE_TIMEOUT,
+                    TimeUnit.MILLISECONDS);
+        } else {
+            manager = new SessionManager(rentalSystem, new CustomerDB(), SessionManager.DEFAULT_IDLE_TIMEOUT,
+                    TimeUnit.MILLISECONDS);
+        }
+        String admin = manager.login("admin", "admin");
+        tokens = new String[params.getThreads()];
+        for (int i = 0; i < tokens.length; i++) {
+            manager.addNewCustomer(admin, "customer" + i, "pw", 2);
+            tokens[i] = manager.login("customer" + i, "pw");
+        }
+    }
+
+    /**
+     * Closes the session manager and deletes the store.
+     *
+     * @throws IOException if the store cannot be deleted
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        manager.close();
+        if (customerStore != null) {
+            customerStore.close();
+            for (File file : directory.toFile().listFiles()) {
+                Files.delete(file.toPath());
+            }
+            Files.delete(directory);
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public RentalManager sessions1(Session session) {
+        return reserveAndReturn(session.token);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public RentalManager sessions8(Session session) {
+        return reserveAndReturn(session.token);
+    }
+
+    @Benchmark
+    @Threads(64)
+    public RentalManager sessions64(Session session) {
+        return reserveAndReturn(session.token);
+    }
+
+    @Benchmark
+    @Threads(512)
+    public RentalManager sessions512(Session session) {
+        return reserveAndReturn(session.token);
+    }
+
+    /**
+     * Reserves a random movie in a session and returns it or takes it off
+     * the reserve queue again.
+     *
+     * @param token the session's token
+     * @return the session's RentalManager
+     */
+    private RentalManager reserveAndReturn(String token) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        RentalManager view = manager.getRentalManager(token);
+        view.addToCustomerQueue(random.nextInt(MOVIES));
+        if (view.traverseAtHomeQueue() != null) {
+            view.returnItemToInventory(0);
+        }
+        if (view.traverseReserveQueue() != null) {
+            view.removeSelectedFromReserves(0);
+        }
+        return view;
+    }
+
+    /**
+     * The session a thread uses.
+     */
+    @State(Scope.Thread)
+    public static class Session {
+        /** The session's token */
+        private String token;
+
+        /**
+         * Takes a session of its own for the thread.
+         *
+         * @param benchmark the benchmark, with the sessions logged in
+         */
+        @Setup(Level.Trial)
+        public void setUp(SessionManagerBenchmark benchmark) {
+            token = benchmark.tokens[benchmark.nextToken.getAndIncrement()];
+        }
+    }
+}
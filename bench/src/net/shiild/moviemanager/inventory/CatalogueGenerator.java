@@ -0,0 +1,85 @@
+/**
+ *
+ */
+package net.shiild.moviemanager.inventory;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * Writes movie inventory files of any size for benchmarks. Each line is a
+ * stock count followed by a random title of two to four words, about a third
+ * of which start with "A", "An" or "The", and some of which are repeated.
+ *
+ * @author StephenHildebrand
+ */
+public final class CatalogueGenerator {
+    /** Articles that compareToByName ignores */
+    private static final String[] ARTICLES = {"A ", "An ", "The "};
+    /** Words titles are made from */
+    private static final String[] WORDS = {"Dark", "Knight", "Frozen", "Gravity", "Dragon", "Train", "Hero",
+        "Empire", "Rise", "Night", "Day", "Star", "War", "Return", "Secret", "Life", "Love", "City", "Lost",
+        "Iron", "Man", "Games", "Hunger", "Guardians", "Galaxy", "Spider", "Amazing", "Slave", "Years", "House",
+        "River", "Mountain", "Ghost", "Shadow", "Storm", "King", "Queen", "Last", "First", "Wild"};
+
+    /**
+     * Not instantiable.
+     */
+    private CatalogueGenerator() {
+    }
+
+    /**
+     * Writes an inventory file of random movies.
+     *
+     * @param lines number of movies in the file
+     * @param seed  seed for the random titles and stock counts
+     * @return the new file, deleted when the JVM exits
+     * @throws IOException if the file cannot be written
+     */
+    public static File write(int lines, long seed) throws IOException {
+        File file = File.createTempFile("movies-" + lines + "-", ".txt");
+        file.deleteOnExit();
+        Random random = new Random(seed);
+        BufferedWriter out = new BufferedWriter(new FileWriter(file));
+        try {
+            for (int i = 0; i < lines; i++) {
+                out.write(Integer.toString(random.nextInt(5)));
+                out.write(' ');
+                out.write(title(random, i));
+                out.newLine();
+            }
+        } finally {
+            out.close();
+        }
+        return file;
+    }
+
+    /**
+     * Returns a random title.
+     *
+     * @param random source of randomness
+     * @param i      number of the line, appended to most titles to keep them
+     *               apart
+     * @return the title
+     */
+    public static String title(Random random, int i) {
+        StringBuilder title = new StringBuilder();
+        if (random.nextInt(3) == 0) {
+            title.append(ARTICLES[random.nextInt(ARTICLES.length)]);
+        }
+        int words = 2 + random.nextInt(3);
+        for (int w = 0; w < words; w++) {
+            if (w > 0) {
+                title.append(' ');
+            }
+            title.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        if (random.nextInt(10) != 0) { // leave some titles repeated
+            title.append(' ').append(i);
+        }
+        return title.toString();
+    }
+}
@@ -0,0 +1,102 @@
+/**
+ *
+ */
+package net.shiild.moviemanager.inventory;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmark of Movie.compareToByName, which compares precomputed sort
+ * keys, against the original comparison that stripped the articles from both
+ * names on every call. Run with {@code -prof gc} to see the allocation rate
+ * (gc.alloc.rate.norm) of each.
+ *
+ * @author StephenHildebrand
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MovieCompareBenchmark {
+    /** Number of movies compared, each with the next, per invocation */
+    private static final int MOVIES = 1024;
+
+    /** Movies with generated titles, about a third starting with an article */
+    private Movie[] movies;
+
+    /**
+     * Generates the movies.
+     */
+    @Setup
+    public void setUp() {
+        Random random = new Random(3);
+        movies = new Movie[MOVIES];
+        for (int i = 0; i < MOVIES; i++) {
+            movies[i] = new Movie("1 " + CatalogueGenerator.title(random, i));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MOVIES)
+    public int compareToByName() {
+        int sum = 0;
+        for (int i = 0; i < MOVIES; i++) {
+            sum += movies[i].compareToByName(movies[(i + 1) % MOVIES]);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MOVIES)
+    public int compareByStrippingNames() {
+        int sum = 0;
+        for (int i = 0; i < MOVIES; i++) {
+            sum += legacyCompareToByName(movies[i], movies[(i + 1) % MOVIES]);
+        }
+        return sum;
+    }
+
+    /**
+     * The original Movie.compareToByName.
+     *
+     * @param movie      movie to compare
+     * @param otherMovie movie to compare it to
+     * @return negative, zero or positive as movie is before, equal to or after
+     *         otherMovie
+     */
+    private static int legacyCompareToByName(Movie movie, Movie otherMovie) {
+        String name = movie.getName();
+        String movieName = name;
+        String otherMovieName = otherMovie.getName();
+        if (name.startsWith("a ") || name.startsWith("A ")) {
+            movieName = movieName.substring(2);
+        } else if (name.startsWith("an ") || name.startsWith("An ")) {
+            movieName = movieName.substring(3);
+        } else if (name.startsWith("the ") || name.startsWith("The ")) {
+            movieName = movieName.substring(4);
+        }
+        if (otherMovieName.startsWith("a ") || otherMovieName.startsWith("A ")) {
+            otherMovieName = otherMovieName.substring(2);
+        } else if (otherMovieName.startsWith("an ") || otherMovieName.startsWith("An ")) {
+            otherMovieName = otherMovieName.substring(3);
+        } else if (otherMovieName.startsWith("the ") || otherMovieName.startsWith("The ")) {
+            otherMovieName = otherMovieName.substring(4);
+        }
+        return movieName.compareTo(otherMovieName);
+    }
+}
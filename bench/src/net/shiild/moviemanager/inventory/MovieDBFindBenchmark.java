@@ -0,0 +1,67 @@
+/**
+ *
+ */
+package net.shiild.moviemanager.inventory;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.shiild.moviemanager.list_util.ListType;
+
+/**
+ * JMH benchmark of the latency of MovieDB.findItemAt for a random position,
+ * as a reserve from the inventory list makes, in inventories of 10k to 1M
+ * movies kept in each type of list.
+ *
+ * @author StephenHildebrand
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx2g"})
+public class MovieDBFindBenchmark {
+    /** Number of movies in the database */
+    @Param({"10000", "100000", "1000000"})
+    public int movies;
+    /** Type of list the database keeps its movies in */
+    @Param({"LINKED", "UNROLLED", "TREE"})
+    public ListType listType;
+
+    /** The database under test */
+    private MovieDB db;
+    /** Source of the positions found */
+    private Random random;
+
+    /**
+     * Reads a generated inventory file.
+     *
+     * @throws IOException if the file cannot be written
+     */
+    @Setup
+    public void setUp() throws IOException {
+        File file = CatalogueGenerator.write(movies, 25);
+        db = new MovieDB(file.getPath(), listType);
+        random = new Random(25);
+    }
+
+    @Benchmark
+    public Movie findItemAt() {
+        return db.findItemAt(random.nextInt(movies));
+    }
+}
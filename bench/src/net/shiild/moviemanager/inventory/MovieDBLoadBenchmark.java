@@ -0,0 +1,67 @@
+/**
+ *
+ */
+package net.shiild.moviemanager.inventory;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.shiild.moviemanager.list_util.ListType;
+
+/**
+ * JMH benchmark of constructing a MovieDB from generated inventory files of
+ * 10k to 1M lines, for each LoadStrategy. Only the TREE list is run by
+ * default, since inserting in order into the other list types is quadratic;
+ * pass for example {@code -p listType=LINKED -p lines=10000} to compare
+ * against them.
+ *
+ * @author StephenHildebrand
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class MovieDBLoadBenchmark {
+    /** Number of movies in the file */
+    @Param({"10000", "100000", "1000000"})
+    public int lines;
+    /** Type of list the database keeps its movies in */
+    @Param({"TREE"})
+    public ListType listType;
+    /** How the database builds its list */
+    @Param({"BULK_SORT", "INSERT_IN_ORDER", "PARALLEL_MAPPED"})
+    public LoadStrategy loadStrategy;
+
+    /** The generated inventory file */
+    private File file;
+
+    /**
+     * Writes the inventory file.
+     *
+     * @throws IOException if the file cannot be written
+     */
+    @Setup
+    public void setUp() throws IOException {
+        file = CatalogueGenerator.write(lines, 1);
+    }
+
+    @Benchmark
+    public MovieDB load() {
+        return new MovieDB(file.getPath(), listType, loadStrategy);
+    }
+}
@@ -0,0 +1,94 @@
+/**
+ *
+ */
+package net.shiild.moviemanager.inventory;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmark of reading the movies of an inventory file in file order with
+ * MovieFileReader, for several byte buffer sizes, against reading it line by
+ * line with a BufferedReader. Both decode UTF-8 and parse with MovieParser,
+ * so the difference is in the decoding and line splitting alone.
+ *
+ * @author StephenHildebrand
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MovieFileReadBenchmark {
+    /** Number of movies in the file */
+    @Param({"100000", "1000000"})
+    public int lines;
+    /** Size of the MovieFileReader byte buffer */
+    @Param({"8192", "65536", "1048576"})
+    public int bufferSize;
+
+    /** The generated inventory file */
+    private File file;
+    /** Reader kept across invocations, as its buffers and decoder are reused */
+    private MovieFileReader reader;
+
+    /**
+     * Writes the inventory file and creates the reader.
+     *
+     * @throws IOException if the file cannot be written
+     */
+    @Setup
+    public void setUp() throws IOException {
+        file = CatalogueGenerator.write(lines, 1);
+        reader = new MovieFileReader(StandardCharsets.UTF_8, bufferSize);
+    }
+
+    @Benchmark
+    public List<Movie> movieFileReader() throws IOException {
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            return reader.read(channel);
+        } finally {
+            channel.close();
+        }
+    }
+
+    @Benchmark
+    public List<Movie> bufferedReader() throws IOException {
+        List<Movie> movies = new ArrayList<Movie>();
+        BufferedReader input = new BufferedReader(
+                new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8));
+        try {
+            for (String line = input.readLine(); line != null; line = input.readLine()) {
+                if (line.length() > 0) {
+                    movies.add(MovieParser.parse(line));
+                }
+            }
+        } finally {
+            input.close();
+        }
+        return movies;
+    }
+}
@@ -0,0 +1,69 @@
+/**
+ *
+ */
+package net.shiild.moviemanager.inventory;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * JMH benchmark of parsing movie list file lines with MovieParser against the
+ * Scanner-based Movie(String) constructor. Run with {@code -prof gc} to see
+ * the allocation per line (gc.alloc.rate.norm) of each.
+ *
+ * @author StephenHildebrand
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MovieParseBenchmark {
+    /** Number of lines parsed per invocation */
+    private static final int LINES = 1024;
+
+    /** Lines in the format written by CatalogueGenerator */
+    private String[] lines;
+
+    /**
+     * Generates the lines.
+     */
+    @Setup
+    public void setUp() {
+        Random random = new Random(8);
+        lines = new String[LINES];
+        for (int i = 0; i < LINES; i++) {
+            lines[i] = random.nextInt(10) + " " + CatalogueGenerator.title(random, i);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LINES)
+    public void movieParser(Blackhole blackhole) {
+        for (String line : lines) {
+            blackhole.consume(MovieParser.parse(line));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LINES)
+    public void scannerConstructor(Blackhole blackhole) {
+        for (String line : lines) {
+            blackhole.consume(new Movie(line));
+        }
+    }
+}
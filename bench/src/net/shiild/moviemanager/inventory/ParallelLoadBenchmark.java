@@ -0,0 +1,108 @@
+/**
+ *
+ */
+package net.shiild.moviemanager.inventory;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmark of reading an inventory file into a sorted list of movies with
+ * ParallelCatalogueLoader in pools of 1 to 8 threads, against the
+ * single-threaded BufferedReader read and stable sort of the BULK_SORT
+ * strategy. The bufferedReader benchmark does not use the pool, so its score
+ * is the same for every thread count.
+ *
+ * @author StephenHildebrand
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ParallelLoadBenchmark {
+    /** Orders movies as Movie.compareToByName does */
+    private static final Comparator<Movie> BY_NAME = new Comparator<Movie>() {
+        @Override
+        public int compare(Movie movie, Movie otherMovie) {
+            return movie.compareToByName(otherMovie);
+        }
+    };
+
+    /** Number of movies in the file */
+    @Param({"100000", "1000000"})
+    public int lines;
+    /** Number of threads in the pool */
+    @Param({"1", "2", "4", "8"})
+    public int threads;
+
+    /** The generated inventory file */
+    private File file;
+    /** Pool the parallel loader reads in */
+    private ForkJoinPool pool;
+
+    /**
+     * Writes the inventory file and creates the pool.
+     *
+     * @throws IOException if the file cannot be written
+     */
+    @Setup
+    public void setUp() throws IOException {
+        file = CatalogueGenerator.write(lines, 1);
+        pool = new ForkJoinPool(threads);
+    }
+
+    /**
+     * Shuts the pool down.
+     */
+    @TearDown
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public List<Movie> parallelMapped() throws IOException {
+        return new ParallelCatalogueLoader(pool, ParallelCatalogueLoader.DEFAULT_MIN_CHUNK_BYTES, BY_NAME)
+                .load(file.toPath(), Charset.defaultCharset());
+    }
+
+    @Benchmark
+    public List<Movie> bufferedReader() throws IOException {
+        List<Movie> movies = new ArrayList<Movie>();
+        BufferedReader input = new BufferedReader(new FileReader(file));
+        try {
+            for (String line = input.readLine(); line != null; line = input.readLine()) {
+                if (line.length() > 0) {
+                    movies.add(MovieParser.parse(line));
+                }
+            }
+        } finally {
+            input.close();
+        }
+        Collections.sort(movies, BY_NAME);
+        return movies;
+    }
+}
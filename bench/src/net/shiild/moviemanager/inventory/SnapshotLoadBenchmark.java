@@ -0,0 +1,71 @@
+/**
+ *
+ */
+package net.shiild.moviemanager.inventory;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmark of starting up cold: loading a MovieDB from a generated
+ * inventory file of 10k to 1M lines, parsing and sorting the text, against
+ * MovieDB.load reading a fresh binary snapshot of it. There is no warmup and
+ * each fork measures only a few loads, so the first of them is a load in a
+ * JVM that has not compiled the loading code, as when the program starts.
+ *
+ * @author StephenHildebrand
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 3)
+@Fork(3)
+public class SnapshotLoadBenchmark {
+    /** Number of movies in the file */
+    @Param({"10000", "100000", "1000000"})
+    public int lines;
+
+    /** The generated inventory file */
+    private Path file;
+    /** The snapshot of the file */
+    private Path snapshot;
+
+    /**
+     * Writes the inventory file and its snapshot.
+     *
+     * @throws IOException if the files cannot be written
+     */
+    @Setup
+    public void setUp() throws IOException {
+        file = CatalogueGenerator.write(lines, 1).toPath();
+        snapshot = Paths.get(file + ".snapshot");
+        snapshot.toFile().deleteOnExit();
+        new MovieDB(file, Charset.defaultCharset()).writeSnapshot(snapshot, file, Charset.defaultCharset());
+    }
+
+    @Benchmark
+    public MovieDB text() {
+        return new MovieDB(file, Charset.defaultCharset());
+    }
+
+    @Benchmark
+    public MovieDB snapshot() {
+        return MovieDB.load(file, snapshot, Charset.defaultCharset());
+    }
+}
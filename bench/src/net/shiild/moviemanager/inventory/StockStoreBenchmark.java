@@ -0,0 +1,103 @@
+/**
+ *
+ */
+package net.shiild.moviemanager.inventory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmark of making a rental's change to the stock durable: logging it
+ * with a StockStore flush, against rewriting a snapshot of the whole
+ * inventory with MovieDB.writeSnapshot, with and without forcing to the disk.
+ *
+ * @author StephenHildebrand
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class StockStoreBenchmark {
+    /** Number of movies in the inventory */
+    @Param({"100000"})
+    public int lines;
+    /** True if changes are forced to the disk */
+    @Param({"true", "false"})
+    public boolean sync;
+
+    /** The generated inventory file */
+    private File file;
+    /** Directory of the store */
+    private Path directory;
+    /** The inventory */
+    private MovieDB inventory;
+    /** The store */
+    private StockStore store;
+    /** Chooses the movie rented */
+    private Random random;
+
+    /**
+     * Writes the inventory file and opens a store over it.
+     *
+     * @throws IOException if the files cannot be written
+     */
+    @Setup(Level.Iteration)
+    public void setUp() throws IOException {
+        if (file == null) {
+            file = CatalogueGenerator.write(lines, 1);
+        }
+        directory = Files.createTempDirectory("stock-bench");
+        inventory = new MovieDB(file.toPath(), Charset.defaultCharset());
+        store = StockStore.open(directory, inventory, sync, StockStore.DEFAULT_COMPACT_EVERY);
+        random = new Random(19);
+    }
+
+    /**
+     * Closes the store and deletes its files.
+     *
+     * @throws IOException if the files cannot be deleted
+     */
+    @TearDown(Level.Iteration)
+    public void tearDown() throws IOException {
+        store.close();
+        for (File f : directory.toFile().listFiles()) {
+            Files.delete(f.toPath());
+        }
+        Files.delete(directory);
+    }
+
+    @Benchmark
+    public StockStore logChange() throws IOException {
+        inventory.findItemAt(random.nextInt(lines)).backToInventory();
+        store.flush();
+        return store;
+    }
+
+    @Benchmark
+    public MovieDB rewriteSnapshot() throws IOException {
+        inventory.findItemAt(random.nextInt(lines)).backToInventory();
+        inventory.writeSnapshot(directory.resolve("inventory.snapshot"), file.toPath(), Charset.defaultCharset());
+        return inventory;
+    }
+}
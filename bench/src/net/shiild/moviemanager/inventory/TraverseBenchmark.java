@@ -0,0 +1,104 @@
+/**
+ *
+ */
+package net.shiild.moviemanager.inventory;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmark of rendering the inventory of 10k to 1M titles with
+ * MovieDB.traverse(), which builds one exactly sized string, and with
+ * MovieDB.traverse(Appendable) writing UTF-8 to a stream that discards it, as
+ * an export would. The original string concatenation is quadratic, so it is
+ * run on its own 10k-title inventory only.
+ *
+ * @author StephenHildebrand
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TraverseBenchmark {
+    /**
+     * An inventory of 10k to 1M titles.
+     */
+    @State(Scope.Benchmark)
+    public static class Inventory {
+        /** Number of movies in the inventory */
+        @Param({"10000", "100000", "1000000"})
+        public int lines;
+
+        /** The inventory rendered */
+        private MovieDB movieDB;
+
+        /**
+         * Loads the inventory.
+         *
+         * @throws IOException if the inventory file cannot be written
+         */
+        @Setup
+        public void setUp() throws IOException {
+            movieDB = new MovieDB(CatalogueGenerator.write(lines, 1).getPath());
+        }
+    }
+
+    /**
+     * A 10k-title inventory for the original concatenation.
+     */
+    @State(Scope.Benchmark)
+    public static class SmallInventory {
+        /** The inventory rendered */
+        private MovieDB movieDB;
+
+        /**
+         * Loads the inventory.
+         *
+         * @throws IOException if the inventory file cannot be written
+         */
+        @Setup
+        public void setUp() throws IOException {
+            movieDB = new MovieDB(CatalogueGenerator.write(10000, 1).getPath());
+        }
+    }
+
+    @Benchmark
+    public String traverseString(Inventory inventory) {
+        return inventory.movieDB.traverse();
+    }
+
+    @Benchmark
+    public void traverseWriter(Inventory inventory) throws IOException {
+        Writer out = new BufferedWriter(new OutputStreamWriter(OutputStream.nullOutputStream(),
+                StandardCharsets.UTF_8));
+        inventory.movieDB.traverse(out);
+        out.flush();
+    }
+
+    @Benchmark
+    public String concatenation10k(SmallInventory small) {
+        String stringDB = "";
+        for (int psn = 0; psn < 10000; psn++) {
+            stringDB = stringDB + small.movieDB.findItemAt(psn).getDisplayName() + "\n";
+        }
+        return stringDB;
+    }
+}
@@ -0,0 +1,119 @@
+/**
+ *
+ */
+package net.shiild.moviemanager.list_util;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH comparison of MultiPurposeList against LegacyMultiPurposeList at 1k,
+ * 100k and 1M elements. Each mutating benchmark undoes its own change so the
+ * list keeps the same size for the whole trial.
+ *
+ * @author StephenHildebrand
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MultiPurposeListBenchmark {
+    /** Number of elements in each list */
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    /** List under test */
+    private MultiPurposeList<Integer> current;
+    /** Original implementation used as the baseline */
+    private LegacyMultiPurposeList<Integer> legacy;
+    /** Position in the middle of the lists */
+    private int middle;
+    /** Element added and removed by the mutating benchmarks */
+    private Integer extra;
+
+    /**
+     * Fills both lists with the same elements. The legacy list is filled from
+     * the front because its addToRear walks the whole list.
+     */
+    @Setup
+    public void setUp() {
+        current = new MultiPurposeList<Integer>();
+        legacy = new LegacyMultiPurposeList<Integer>();
+        for (int i = 0; i < size; i++) {
+            current.addToRear(i);
+            legacy.addItem(0, size - 1 - i);
+        }
+        middle = size / 2;
+        extra = -1;
+    }
+
+    @Benchmark
+    public int sizeCurrent() {
+        return current.size();
+    }
+
+    @Benchmark
+    public int sizeLegacy() {
+        return legacy.size();
+    }
+
+    @Benchmark
+    public Integer lookAtMiddleCurrent() {
+        return current.lookAtItemN(middle);
+    }
+
+    @Benchmark
+    public Integer lookAtMiddleLegacy() {
+        return legacy.lookAtItemN(middle);
+    }
+
+    @Benchmark
+    public Integer addToRearRemoveFrontCurrent() {
+        current.addToRear(current.remove(0));
+        return current.lookAtItemN(0);
+    }
+
+    @Benchmark
+    public Integer addToRearRemoveFrontLegacy() {
+        legacy.addToRear(legacy.remove(0));
+        return legacy.lookAtItemN(0);
+    }
+
+    @Benchmark
+    public Integer addItemRemoveMiddleCurrent() {
+        current.addItem(middle, extra);
+        return current.remove(middle);
+    }
+
+    @Benchmark
+    public Integer addItemRemoveMiddleLegacy() {
+        legacy.addItem(middle, extra);
+        return legacy.remove(middle);
+    }
+
+    @Benchmark
+    public void moveAheadOneMiddleCurrent() {
+        // The second move puts the two elements back where they were
+        current.moveAheadOne(middle);
+        current.moveAheadOne(middle);
+    }
+
+    @Benchmark
+    public void moveAheadOneMiddleLegacy() {
+        legacy.moveAheadOne(middle);
+        legacy.moveAheadOne(middle);
+    }
+}
@@ -0,0 +1,83 @@
+/**
+ *
+ */
+package net.shiild.moviemanager.list_util;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * JMH comparison of scan and random-position access throughput for each
+ * ListType.
+ *
+ * @author StephenHildebrand
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PositionalListBenchmark {
+    /** Number of random positions looked at per lookAtItemN invocation */
+    private static final int LOOKUPS = 16;
+
+    /** Type of list under test */
+    @Param({"LINKED", "UNROLLED"})
+    public ListType listType;
+    /** Number of elements in the list */
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    /** List under test */
+    private PositionalList<Integer> list;
+    /** Random positions to look at */
+    private int[] positions;
+
+    /**
+     * Fills the list with the elements 0 to size - 1 and picks the positions
+     * to look at.
+     */
+    @Setup
+    public void setUp() {
+        Random random = new Random(size);
+        list = listType.newList();
+        for (int i = 0; i < size; i++) {
+            list.addToRear(Integer.valueOf(i));
+        }
+        positions = new int[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++) {
+            positions[i] = random.nextInt(size);
+        }
+    }
+
+    @Benchmark
+    public long scan() {
+        long sum = 0;
+        list.resetIterator();
+        while (list.hasNext()) {
+            sum += list.next().intValue();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public void randomLookAtItemN(Blackhole blackhole) {
+        for (int psn : positions) {
+            blackhole.consume(list.lookAtItemN(psn));
+        }
+    }
+}
@@ -0,0 +1,155 @@
+/**
+ *
+ */
+package net.shiild.moviemanager.persistence;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmark of a WriteAheadLog: a record of the size CustomerStore writes
+ * for a reserve, appended and committed by one thread and by eight threads at
+ * once, which share forces through group commit, and the replay of a log of
+ * many records as a store does when it is opened.
+ *
+ * @author StephenHildebrand
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class WriteAheadLogBenchmark {
+    /** A record about the size of a logged reserve */
+    private static final byte[] RECORD = new byte[40];
+
+    /**
+     * A log written to by the benchmark threads.
+     */
+    @State(Scope.Benchmark)
+    public static class Log {
+        /** True if commits force the log to the disk */
+        @Param({"true", "false"})
+        public boolean sync;
+
+        /** Directory of the log */
+        private Path directory;
+        /** The log */
+        private WriteAheadLog log;
+
+        /**
+         * Creates an empty log.
+         *
+         * @throws IOException if the log cannot be created
+         */
+        @Setup(Level.Iteration)
+        public void setUp() throws IOException {
+            directory = Files.createTempDirectory("wal-bench");
+            log = WriteAheadLog.create(directory.resolve("bench.log"), 0, sync);
+        }
+
+        /**
+         * Closes and deletes the log.
+         *
+         * @throws IOException if the log cannot be deleted
+         */
+        @TearDown(Level.Iteration)
+        public void tearDown() throws IOException {
+            log.close();
+            Files.delete(directory.resolve("bench.log"));
+            Files.delete(directory);
+        }
+    }
+
+    /**
+     * A log of many records, written once, to replay.
+     */
+    @State(Scope.Thread)
+    public static class Written {
+        /** Number of records in the log */
+        @Param({"100000"})
+        public int records;
+
+        /** Directory of the log */
+        private Path directory;
+        /** Path of the log */
+        private Path path;
+
+        /**
+         * Writes the log.
+         *
+         * @throws IOException if the log cannot be written
+         */
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            directory = Files.createTempDirectory("wal-bench");
+            path = directory.resolve("bench.log");
+            WriteAheadLog log = WriteAheadLog.create(path, 0, false);
+            for (int i = 0; i < records; i++) {
+                log.append(RECORD);
+            }
+            log.close();
+        }
+
+        /**
+         * Deletes the log.
+         *
+         * @throws IOException if the log cannot be deleted
+         */
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            Files.delete(path);
+            Files.delete(directory);
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public long commitOneThread(Log state) throws IOException {
+        long sequence = state.log.append(RECORD);
+        state.log.commit(sequence);
+        return sequence;
+    }
+
+    @Benchmark
+    @Threads(8)
+    public long commitEightThreads(Log state) throws IOException {
+        long sequence = state.log.append(RECORD);
+        state.log.commit(sequence);
+        return sequence;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 5)
+    @Measurement(iterations = 10)
+    public long replay(Written state) throws IOException {
+        final long[] count = new long[1];
+        WriteAheadLog log = WriteAheadLog.recover(state.path, new WriteAheadLog.RecordHandler() {
+            @Override
+            public void record(byte[] record) {
+                count[0]++;
+            }
+        }, false);
+        log.close();
+        return count[0];
+    }
+}
@@ -0,0 +1,72 @@
+/**
+ *
+ */
+package net.shiild.moviemanager.rental_system;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.shiild.moviemanager.inventory.CatalogueGenerator;
+
+/**
+ * JMH benchmark of fetching one screenful of the inventory at a random offset
+ * with RentalManager.showInventory(int, int), against rendering the whole
+ * inventory with showInventory() and splitting it into lines, as the GUI list
+ * models were filled.
+ *
+ * @author StephenHildebrand
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InventoryPageBenchmark {
+    /** Number of movies on a page */
+    private static final int PAGE = 50;
+
+    /** Number of movies in the inventory */
+    @Param({"10000", "100000", "1000000"})
+    public int lines;
+
+    /** The rental system holding the inventory */
+    private RentalManager rentalManager;
+    /** Source of page offsets */
+    private Random random;
+
+    /**
+     * Loads the inventory.
+     *
+     * @throws IOException if the inventory file cannot be written
+     */
+    @Setup
+    public void setUp() throws IOException {
+        rentalManager = new MovieRentalSystem(CatalogueGenerator.write(lines, 1).getPath());
+        random = new Random(12);
+    }
+
+    @Benchmark
+    public List<InventoryEntry> page() {
+        return rentalManager.showInventory(random.nextInt(lines - PAGE), PAGE);
+    }
+
+    @Benchmark
+    public String[] wholeInventory() {
+        return rentalManager.showInventory().split("\n");
+    }
+}
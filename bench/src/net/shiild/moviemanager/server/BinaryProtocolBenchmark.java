@@ -0,0 +1,164 @@
+/**
+ *
+ */
+package net.shiild.moviemanager.server;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.shiild.moviemanager.customer.CustomerDB;
+import net.shiild.moviemanager.customer.SessionManager;
+import net.shiild.moviemanager.inventory.CatalogueGenerator;
+import net.shiild.moviemanager.rental_system.MovieRentalSystem;
+
+/**
+ * JMH benchmark of the binary protocol over localhost, served by the
+ * Selector based BinaryServer or by BlockingBinaryServer, a thread for each
+ * connection. Four threads each connect a BinaryClient and log in as a
+ * customer of their own, then read their customer's queues either one request
+ * at a time, waiting for each answer before sending the next, or sixteen
+ * requests at a time, pipelined on the connection before any answer is read.
+ * Scores are requests per second.
+ *
+ * @author StephenHildebrand
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@Threads(4)
+public class BinaryProtocolBenchmark {
+    /** Number of movies in the inventory */
+    private static final int MOVIES = 10000;
+    /** Number of requests sent at a time by pipelined */
+    private static final int DEPTH = 16;
+
+    /** The server: nio for BinaryServer, blocking for BlockingBinaryServer */
+    @Param({"nio", "blocking"})
+    public String server;
+
+    /** The session manager served */
+    private SessionManager sessions;
+    /** The running server */
+    private Closeable running;
+    /** The server's address */
+    private InetSocketAddress address;
+    /** Number of customers added */
+    private final AtomicInteger customers = new AtomicInteger();
+
+    /**
+     * Starts the server over a generated inventory.
+     *
+     * @throws IOException if the server cannot start
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        File file = CatalogueGenerator.write(MOVIES, 23);
+        MovieRentalSystem rentalSystem = new MovieRentalSystem(file.getPath());
+        sessions = new SessionManager(rentalSystem, new CustomerDB(), SessionManager.DEFAULT_IDLE_TIMEOUT,
+                TimeUnit.MILLISECONDS);
+        InetSocketAddress any = new InetSocketAddress("localhost", 0);
+        if ("nio".equals(server)) {
+            BinaryServer nio = new BinaryServer(rentalSystem, sessions, any);
+            address = nio.getAddress();
+            running = nio;
+        } else {
+            BlockingBinaryServer blocking = new BlockingBinaryServer(rentalSystem, sessions, any);
+            address = blocking.getAddress();
+            running = blocking;
+        }
+    }
+
+    /**
+     * Stops the server.
+     *
+     * @throws IOException if the server cannot be stopped
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        running.close();
+        sessions.close();
+    }
+
+    /**
+     * A thread's connection, logged in as a customer of its own with a
+     * movie reserved.
+     */
+    @State(Scope.Thread)
+    public static class Terminal {
+        /** The connection */
+        BinaryClient client;
+        /** The customer's session token */
+        String token;
+
+        /**
+         * Connects and logs in a new customer.
+         *
+         * @param benchmark the benchmark's state
+         * @throws Exception if the customer cannot log in
+         */
+        @Setup(Level.Trial)
+        public void setUp(BinaryProtocolBenchmark benchmark) throws Exception {
+            client = new BinaryClient(benchmark.address);
+            String id = "terminal" + benchmark.customers.incrementAndGet();
+            String admin = client.login("admin", "admin").get();
+            client.addAccount(admin, id, "pw", 1).get();
+            client.logout(admin).get();
+            token = client.login(id, "pw").get();
+            client.reserve(token, 0).get();
+            client.reserve(token, 1).get();
+        }
+
+        /**
+         * Closes the connection.
+         *
+         * @throws IOException if the connection cannot be closed
+         */
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            client.close();
+        }
+    }
+
+    @Benchmark
+    public BinaryClient.Queues oneAtATime(Terminal terminal) throws Exception {
+        return terminal.client.queues(terminal.token).get();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(DEPTH)
+    public BinaryClient.Queues pipelined(Terminal terminal) throws Exception {
+        @SuppressWarnings("unchecked")
+        CompletableFuture<BinaryClient.Queues>[] answers = new CompletableFuture[DEPTH];
+        for (int i = 0; i < DEPTH; i++) {
+            answers[i] = terminal.client.queues(terminal.token);
+        }
+        for (int i = 0; i < DEPTH - 1; i++) {
+            answers[i].get();
+        }
+        return answers[DEPTH - 1].get();
+    }
+}
@@ -0,0 +1,165 @@
+/**
+ *
+ */
+package net.shiild.moviemanager.server;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import net.shiild.moviemanager.customer.SessionManager;
+import net.shiild.moviemanager.rental_system.MovieRentalSystem;
+
+/**
+ * The simple baseline BinaryServer is measured against: the same protocol
+ * and RequestHandler, served by a thread for each connection that blocks
+ * reading a request, answers it and writes the answer before reading the
+ * next one.
+ *
+ * @author StephenHildebrand
+ */
+final class BlockingBinaryServer implements Closeable {
+    /** Answers the requests */
+    private final RequestHandler handler;
+    /** Accepts the connections */
+    private final ServerSocketChannel acceptor;
+    /** The connections open */
+    private final Set<SocketChannel> connections;
+
+    /**
+     * Constructs a server of a rental system on the given address and starts
+     * it.
+     *
+     * @param rentalSystem the rental system
+     * @param sessions     the session manager of the rental system's users
+     * @param address      address to listen on
+     * @throws IOException if the server cannot listen on the address
+     */
+    BlockingBinaryServer(MovieRentalSystem rentalSystem, SessionManager sessions, InetSocketAddress address)
+            throws IOException {
+        this.handler = new RequestHandler(rentalSystem, sessions);
+        this.acceptor = ServerSocketChannel.open();
+        acceptor.bind(address);
+        this.connections = ConcurrentHashMap.newKeySet();
+        Thread accepting = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                accept();
+            }
+        }, "BlockingBinaryServer-acceptor");
+        accepting.setDaemon(true);
+        accepting.start();
+    }
+
+    /**
+     * Returns the address the server listens on.
+     *
+     * @return the address
+     * @throws IOException if the address cannot be read
+     */
+    InetSocketAddress getAddress() throws IOException {
+        return (InetSocketAddress) acceptor.getLocalAddress();
+    }
+
+    /**
+     * Stops the server and closes every connection.
+     *
+     * @throws IOException if the server's socket cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        acceptor.close();
+        for (SocketChannel channel : connections) {
+            channel.close();
+        }
+    }
+
+    /**
+     * Accepts connections, each served by a thread of its own, until the
+     * server is closed.
+     */
+    private void accept() {
+        try {
+            while (true) {
+                final SocketChannel channel = acceptor.accept();
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                connections.add(channel);
+                Thread serving = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        serve(channel);
+                    }
+                }, "BlockingBinaryServer-connection");
+                serving.setDaemon(true);
+                serving.start();
+            }
+        } catch (IOException e) {
+            // Closed
+        }
+    }
+
+    /**
+     * Answers a connection's requests one at a time until it closes.
+     *
+     * @param channel the connection
+     */
+    private void serve(SocketChannel channel) {
+        ByteBuffer in = ByteBuffer.allocateDirect(4 + Protocol.MAX_FRAME);
+        ByteBuffer out = ByteBuffer.allocateDirect(4 + Protocol.MAX_FRAME);
+        try {
+            while (true) {
+                in.clear().limit(4);
+                if (!readFully(channel, in)) {
+                    break;
+                }
+                int length = in.getInt(0);
+                if (length < 0 || length > Protocol.MAX_FRAME) {
+                    break;
+                }
+                in.limit(4 + length);
+                if (!readFully(channel, in)) {
+                    break;
+                }
+                in.position(4);
+                out.clear();
+                handler.answer(in, out);
+                out.flip();
+                while (out.hasRemaining()) {
+                    channel.write(out);
+                }
+            }
+        } catch (IOException e) {
+            // Lost
+        } finally {
+            connections.remove(channel);
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // Closed anyway
+            }
+        }
+    }
+
+    /**
+     * Reads until the buffer is full.
+     *
+     * @param channel the connection
+     * @param in      buffer to read into
+     * @return false if the connection closed first
+     * @throws IOException if the connection fails
+     */
+    private static boolean readFully(SocketChannel channel, ByteBuffer in) throws IOException {
+        while (in.hasRemaining()) {
+            if (channel.read(in) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
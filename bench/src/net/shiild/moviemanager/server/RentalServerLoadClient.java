@@ -0,0 +1,276 @@
+/**
+ *
+ */
+package net.shiild.moviemanager.server;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import net.shiild.moviemanager.customer.CustomerDB;
+import net.shiild.moviemanager.customer.SessionManager;
+import net.shiild.moviemanager.inventory.CatalogueGenerator;
+import net.shiild.moviemanager.rental_system.MovieRentalSystem;
+
+/**
+ * Drives a RentalServer from localhost and reports its requests per second
+ * and the 50th and 99th percentile latency of its requests.
+ * <p>
+ * Each client logs in as a customer of its own and then, for the length of
+ * the run, makes requests one after another in a cycle of four: a page of the
+ * inventory, a reserve of a random movie, a return and an unreserve, so that
+ * its queues stay short. Without a server URL, a server is started in this
+ * JVM over a generated inventory, with its customers in memory.
+ * <p>
+ * Usage: RentalServerLoadClient [clients] [seconds] [server URL]
+ *
+ * @author StephenHildebrand
+ */
+public final class RentalServerLoadClient {
+    /** Number of movies in a generated inventory */
+    private static final int MOVIES = 10000;
+
+    /** URL of the server, without a trailing slash */
+    private final String server;
+    /** Number of movies in the server's inventory */
+    private final int movies;
+
+    /**
+     * Constructs a client of a server.
+     *
+     * @param server URL of the server, without a trailing slash
+     * @param movies number of movies in the server's inventory
+     */
+    private RentalServerLoadClient(String server, int movies) {
+        this.server = server;
+        this.movies = movies;
+    }
+
+    /**
+     * Runs the load test.
+     *
+     * @param args number of clients, seconds to run for and URL of the server
+     * @throws Exception if the server cannot be started or a request fails
+     */
+    public static void main(String[] args) throws Exception {
+        int clients = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        RentalServer local = null;
+        SessionManager sessions = null;
+        String url;
+        int movies;
+        if (args.length > 2) {
+            url = args[2].endsWith("/") ? args[2].substring(0, args[2].length() - 1) : args[2];
+            movies = -1;
+        } else {
+            File file = CatalogueGenerator.write(MOVIES, 22);
+            MovieRentalSystem rentalSystem = new MovieRentalSystem(file.getPath());
+            sessions = new SessionManager(rentalSystem, new CustomerDB(), SessionManager.DEFAULT_IDLE_TIMEOUT,
+                    TimeUnit.MILLISECONDS);
+            local = new RentalServer(rentalSystem, sessions, new InetSocketAddress("localhost", 0));
+            url = "http://localhost:" + local.getAddress().getPort();
+            movies = MOVIES;
+        }
+        RentalServerLoadClient client = new RentalServerLoadClient(url, movies);
+        try {
+            client.run(clients, seconds);
+        } finally {
+            if (local != null) {
+                local.close();
+                sessions.close();
+            }
+        }
+    }
+
+    /**
+     * Runs the clients and prints the results.
+     *
+     * @param clients number of clients
+     * @param seconds seconds to run for
+     * @throws Exception if a request fails
+     */
+    private void run(int clients, int seconds) throws Exception {
+        int size = movies;
+        if (size < 0) {
+            String page = request("GET", "/inventory?limit=0", null, null);
+            size = Integer.parseInt(page.substring("{\"size\":".length(), page.indexOf(',')));
+        }
+        String admin = token(request("POST", "/login", null, "id=admin&password=admin"));
+        String run = Long.toString(System.currentTimeMillis(), 36);
+        for (int i = 0; i < clients; i++) {
+            request("POST", "/accounts", admin, "id=load" + run + "-" + i + "&password=pw&max=2");
+        }
+
+        final long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        final CountDownLatch start = new CountDownLatch(1);
+        Worker[] workers = new Worker[clients];
+        for (int i = 0; i < clients; i++) {
+            workers[i] = new Worker("load" + run + "-" + i, size, start, end);
+            workers[i].start();
+        }
+        long began = System.nanoTime();
+        start.countDown();
+        int total = 0;
+        for (Worker worker : workers) {
+            worker.join();
+            if (worker.failure != null) {
+                throw worker.failure;
+            }
+            total += worker.count;
+        }
+        double elapsed = (System.nanoTime() - began) / 1e9;
+        long[] latencies = new long[total];
+        int filled = 0;
+        for (Worker worker : workers) {
+            System.arraycopy(worker.latencies, 0, latencies, filled, worker.count);
+            filled += worker.count;
+        }
+        Arrays.sort(latencies);
+        System.out.printf("clients %d, requests %d in %.1f s%n", clients, total, elapsed);
+        System.out.printf("throughput %.0f requests/s%n", total / elapsed);
+        System.out.printf("latency p50 %.3f ms, p99 %.3f ms, max %.3f ms%n", percentile(latencies, 50),
+                percentile(latencies, 99), latencies.length == 0 ? 0.0 : latencies[latencies.length - 1] / 1e6);
+    }
+
+    /**
+     * Returns a percentile of sorted latencies in milliseconds.
+     *
+     * @param latencies the latencies in nanoseconds, sorted
+     * @param p         the percentile
+     * @return the latency below which p percent of the latencies are
+     */
+    private static double percentile(long[] latencies, int p) {
+        if (latencies.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(latencies.length * p / 100.0) - 1;
+        return latencies[Math.max(0, index)] / 1e6;
+    }
+
+    /**
+     * Returns the token of a session from the answer to a login.
+     *
+     * @param login the answer
+     * @return the token
+     */
+    private static String token(String login) {
+        return login.substring("{\"token\":\"".length(), login.indexOf("\","));
+    }
+
+    /**
+     * Makes a request and returns the body of the answer.
+     *
+     * @param method request method
+     * @param path   path and query
+     * @param token  session token, or null
+     * @param body   form encoded body, or null
+     * @return the body of the answer
+     * @throws IOException if the request fails or is answered with an error
+     */
+    private String request(String method, String path, String token, String body) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(server + path).openConnection();
+        connection.setRequestMethod(method);
+        if (token != null) {
+            connection.setRequestProperty("Authorization", "Bearer " + token);
+        }
+        if (body != null) {
+            connection.setDoOutput(true);
+            connection.setRequestProperty("Content-Type", "application/x-www-form-urlencoded");
+            OutputStream out = connection.getOutputStream();
+            out.write(body.getBytes(StandardCharsets.UTF_8));
+            out.close();
+        }
+        int status = connection.getResponseCode();
+        InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+        StringBuilder answer = new StringBuilder();
+        byte[] buffer = new byte[4096];
+        int n;
+        // Reading to the end lets the connection be kept alive for the next request
+        while ((n = in.read(buffer)) > 0) {
+            answer.append(new String(buffer, 0, n, StandardCharsets.UTF_8));
+        }
+        in.close();
+        if (status != 200) {
+            throw new IOException(method + " " + path + " answered " + status + ": " + answer);
+        }
+        return answer.toString();
+    }
+
+    /**
+     * A client making requests as one customer.
+     */
+    private final class Worker extends Thread {
+        /** The customer's id */
+        private final String id;
+        /** Number of movies in the inventory */
+        private final int size;
+        /** Released when every client is ready */
+        private final CountDownLatch start;
+        /** Value of System.nanoTime to stop at */
+        private final long end;
+        /** Latency of each request in nanoseconds */
+        private long[] latencies = new long[1024];
+        /** Number of requests made */
+        private int count;
+        /** Why a request failed, or null */
+        private Exception failure;
+
+        /**
+         * Constructs a client.
+         *
+         * @param id    the customer's id
+         * @param size  number of movies in the inventory
+         * @param start released when every client is ready
+         * @param end   value of System.nanoTime to stop at
+         */
+        Worker(String id, int size, CountDownLatch start, long end) {
+            super("load-" + id);
+            this.id = id;
+            this.size = size;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        public void run() {
+            try {
+                String token = token(request("POST", "/login", null, "id=" + id + "&password=pw"));
+                Random random = new Random(id.hashCode());
+                start.await();
+                for (int i = 0; System.nanoTime() < end; i++) {
+                    long began = System.nanoTime();
+                    switch (i % 4) {
+                    case 0:
+                        request("GET", "/inventory?offset=" + random.nextInt(size) + "&limit=20", null, null);
+                        break;
+                    case 1:
+                        request("POST", "/reserve", token, "position=" + random.nextInt(size));
+                        break;
+                    case 2:
+                        request("POST", "/return", token, "position=0");
+                        break;
+                    default:
+                        request("POST", "/unreserve", token, "position=0");
+                        break;
+                    }
+                    if (count == latencies.length) {
+                        latencies = Arrays.copyOf(latencies, count * 2);
+                    }
+                    latencies[count++] = System.nanoTime() - began;
+                }
+                request("POST", "/logout", token, null);
+            } catch (Exception e) {
+                failure = e;
+            }
+        }
+    }
+}
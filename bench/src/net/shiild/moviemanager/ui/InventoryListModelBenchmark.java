@@ -0,0 +1,86 @@
+/**
+ *
+ */
+package net.shiild.moviemanager.ui;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import javax.swing.DefaultListModel;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.shiild.moviemanager.inventory.CatalogueGenerator;
+import net.shiild.moviemanager.rental_system.MovieRentalSystem;
+import net.shiild.moviemanager.rental_system.RentalManager;
+
+/**
+ * JMH benchmark of the work done on the event dispatch thread to refresh the
+ * inventory list after a reserve or return: refreshing an InventoryListModel
+ * that holds a screenful of rows, against clearing a DefaultListModel and
+ * filling it again from showInventory(), as MovieSystemGUI did.
+ *
+ * @author StephenHildebrand
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InventoryListModelBenchmark {
+    /** Number of rows on the screen */
+    private static final int VISIBLE_ROWS = 30;
+
+    /** Number of movies in the inventory */
+    @Param({"10000", "100000", "1000000"})
+    public int lines;
+
+    /** The rental system holding the inventory */
+    private RentalManager rentalManager;
+    /** Paged model that has read the rows on the screen */
+    private InventoryListModel inventoryModel;
+    /** Model holding every row */
+    private DefaultListModel<String> defaultModel;
+
+    /**
+     * Loads the inventory and fills both models.
+     *
+     * @throws IOException if the inventory file cannot be written
+     */
+    @Setup
+    public void setUp() throws IOException {
+        rentalManager = new MovieRentalSystem(CatalogueGenerator.write(lines, 1).getPath());
+        inventoryModel = new InventoryListModel(rentalManager);
+        for (int i = 0; i < VISIBLE_ROWS; i++) {
+            inventoryModel.getElementAt(lines / 2 + i);
+        }
+        defaultModel = new DefaultListModel<String>();
+        fullReload();
+    }
+
+    @Benchmark
+    public InventoryListModel pagedRefresh() {
+        inventoryModel.refresh();
+        return inventoryModel;
+    }
+
+    @Benchmark
+    public DefaultListModel<String> fullReload() {
+        defaultModel.clear();
+        for (String line : rentalManager.showInventory().split("\n")) {
+            defaultModel.addElement(line);
+        }
+        return defaultModel;
+    }
+}
@@ -0,0 +1,117 @@
+/**
+ *
+ */
+package net.shiild.moviemanager.workload;
+
+/**
+ * Counts latencies in buckets that are exact below 64 ns and then split each
+ * power of two into 64, so that any percentile is within about 1.6 % of the
+ * latency recorded. Recording allocates nothing, so it does not add to the
+ * allocation the load driver measures. Not safe for use by several threads.
+ *
+ * @author StephenHildebrand
+ */
+final class LatencyHistogram {
+    /** Bits of a latency kept below its highest set bit */
+    private static final int SUB_BITS = 6;
+    /** Number of buckets in each power of two */
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+
+    /** Number of latencies in each bucket */
+    private final long[] counts = new long[(64 - SUB_BITS + 1) * SUB_BUCKETS];
+    /** Number of latencies recorded */
+    private long total;
+    /** Longest latency recorded */
+    private long max;
+
+    /**
+     * Records a latency.
+     *
+     * @param nanos the latency in nanoseconds, at least 0
+     */
+    void record(long nanos) {
+        counts[index(nanos)]++;
+        total++;
+        if (nanos > max) {
+            max = nanos;
+        }
+    }
+
+    /**
+     * Adds the latencies of another histogram to this one.
+     *
+     * @param other the other histogram
+     */
+    void add(LatencyHistogram other) {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        total += other.total;
+        max = Math.max(max, other.max);
+    }
+
+    /**
+     * Returns the number of latencies recorded.
+     *
+     * @return the count
+     */
+    long getCount() {
+        return total;
+    }
+
+    /**
+     * Returns the longest latency recorded.
+     *
+     * @return the latency in nanoseconds
+     */
+    long getMax() {
+        return max;
+    }
+
+    /**
+     * Returns the latency below which a percentage of the latencies are.
+     *
+     * @param percent the percentage, from 0 to 100
+     * @return the latency in nanoseconds, or 0 if none are recorded
+     */
+    long getPercentile(double percent) {
+        long rank = (long) Math.ceil(total * percent / 100);
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank && seen > 0) {
+                return Math.min(highest(i), max);
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Returns the bucket of a latency.
+     *
+     * @param nanos the latency
+     * @return the bucket's index
+     */
+    private static int index(long nanos) {
+        if (nanos < SUB_BUCKETS) {
+            return (int) nanos;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(nanos) - SUB_BITS;
+        return ((shift + 1) << SUB_BITS) + (int) ((nanos >>> shift) - SUB_BUCKETS);
+    }
+
+    /**
+     * Returns the highest latency of a bucket.
+     *
+     * @param index the bucket's index
+     * @return the latency
+     */
+    private static long highest(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = (index >> SUB_BITS) - 1;
+        long lowest = (long) (SUB_BUCKETS + (index & (SUB_BUCKETS - 1))) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+}
@@ -0,0 +1,384 @@
+/**
+ *
+ */
+package net.shiild.moviemanager.workload;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import net.shiild.moviemanager.customer.CustomerDB;
+import net.shiild.moviemanager.customer.SessionManager;
+import net.shiild.moviemanager.inventory.CatalogueGenerator;
+import net.shiild.moviemanager.rental_system.MovieRentalSystem;
+import net.shiild.moviemanager.rental_system.RentalManager;
+
+/**
+ * Drives the rental system in this JVM with a synthetic workload, closed
+ * loop, and reports the throughput, latency percentiles and bytes allocated
+ * of each kind of operation.
+ * <p>
+ * The inventory is a generated catalogue, or a catalogue file given, and the
+ * customers a generated population, each allowed one to five movies at home.
+ * Each thread, as a terminal would, logs in a random customer through a
+ * SessionManager, makes eight operations as that customer and logs out, over
+ * and over. Each thread draws its customers from a share of its own, every
+ * thread-count-th customer, so that no two threads act on one customer at
+ * once and the queue positions a thread reads stay valid; there are no more
+ * threads than customers. Of the operations, four in ten reserve a movie,
+ * three in ten return a movie, and the rest move a reserved movie up or take
+ * it off the reserve queue. Like a
+ * terminal, a thread reads the customer's queues to choose what to return,
+ * move or unreserve, and the reading is part of the operation. The movies
+ * reserved are drawn by popularity with Zipf's law, the most popular being
+ * spread over the whole catalogue, so popular movies run out of copies and
+ * their reserve queues grow as they would in a store. A thread starts its
+ * next operation as soon as the last one ends, so the throughput is as much
+ * as the threads can get, and the first quarter of the run is warm-up and not
+ * reported.
+ * <p>
+ * Bytes allocated are counted by the JVM for each thread, with
+ * com.sun.management.ThreadMXBean, and are reported as bytes per operation.
+ * <p>
+ * Usage: LoadDriver [movies] [customers] [threads] [seconds] [skew]
+ * [catalogue file]
+ *
+ * @author StephenHildebrand
+ */
+public final class LoadDriver {
+    /** Number of operations between a login and a logout */
+    private static final int SESSION_LENGTH = 8;
+    /** Operations out of ten that reserve a movie */
+    private static final int RESERVES = 4;
+    /** Operations out of ten that return a movie */
+    private static final int RETURNS = 3;
+    /** Operations out of ten that move a reserved movie up */
+    private static final int MOVES = 2;
+
+    /** Kinds of operation, in the order they are reported */
+    private static final String[] OPERATIONS = {"login", "reserve", "move-up", "return", "unreserve", "logout"};
+    /** Index of login in OPERATIONS */
+    private static final int LOGIN = 0;
+    /** Index of reserve in OPERATIONS */
+    private static final int RESERVE = 1;
+    /** Index of move-up in OPERATIONS */
+    private static final int MOVE_UP = 2;
+    /** Index of return in OPERATIONS */
+    private static final int RETURN = 3;
+    /** Index of unreserve in OPERATIONS */
+    private static final int UNRESERVE = 4;
+    /** Index of logout in OPERATIONS */
+    private static final int LOGOUT = 5;
+
+    /** The sessions of the customers */
+    private final SessionManager sessions;
+    /** Number of customers */
+    private final int customers;
+    /** Popularity of the movies */
+    private final ZipfDistribution popularity;
+    /** Position in the inventory of the movie of each popularity rank */
+    private final int[] byRank;
+    /** Counts the bytes each thread allocates */
+    private final com.sun.management.ThreadMXBean threads;
+
+    /**
+     * Constructs a driver.
+     *
+     * @param sessions  the sessions of the customers
+     * @param movies    number of movies in the inventory
+     * @param customers number of customers, with ids customer0 on and
+     *                  passwords pw
+     * @param skew      exponent of the Zipf law of the movies' popularity
+     * @param seed      seed for the order of popularity
+     */
+    LoadDriver(SessionManager sessions, int movies, int customers, double skew, long seed) {
+        this.sessions = sessions;
+        this.customers = customers;
+        this.popularity = new ZipfDistribution(movies, skew);
+        this.byRank = new int[movies];
+        Random random = new Random(seed);
+        for (int i = 0; i < movies; i++) {
+            int j = random.nextInt(i + 1);
+            byRank[i] = byRank[j];
+            byRank[j] = i;
+        }
+        this.threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        threads.setThreadAllocatedMemoryEnabled(true);
+    }
+
+    /**
+     * Generates the inventory and customers and runs the driver.
+     *
+     * @param args number of movies, customers and threads, seconds to run
+     *             for, skew and a catalogue file to use instead of a
+     *             generated one
+     * @throws Exception if the catalogue cannot be written or an operation fails
+     */
+    public static void main(String[] args) throws Exception {
+        int movies = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+        int customers = args.length > 1 ? Integer.parseInt(args[1]) : 10000;
+        int threadCount = args.length > 2 ? Integer.parseInt(args[2]) : 8;
+        int seconds = args.length > 3 ? Integer.parseInt(args[3]) : 20;
+        double skew = args.length > 4 ? Double.parseDouble(args[4]) : 1.0;
+        File file = args.length > 5 ? new File(args[5]) : CatalogueGenerator.write(movies, 24);
+
+        long began = System.nanoTime();
+        MovieRentalSystem rentalSystem = new MovieRentalSystem(file.getPath());
+        movies = rentalSystem.inventorySize();
+        SessionManager sessions = new SessionManager(rentalSystem, new CustomerDB(),
+                SessionManager.DEFAULT_IDLE_TIMEOUT, TimeUnit.MILLISECONDS);
+        try {
+            populate(sessions, customers, 24);
+            System.out.printf("%d movies and %d customers ready in %.1f s%n", movies, customers,
+                    (System.nanoTime() - began) / 1e9);
+            LoadDriver driver = new LoadDriver(sessions, movies, customers, skew, 24);
+            threadCount = Math.min(threadCount, customers);
+            System.out.printf("%d threads, skew %.2f, %d s after %d s of warm-up%n", threadCount, skew,
+                    seconds - seconds / 4, seconds / 4);
+            driver.run(threadCount, seconds);
+        } finally {
+            sessions.close();
+        }
+    }
+
+    /**
+     * Adds a population of customers, with ids customer0 on, passwords pw,
+     * and one to five movies allowed at home.
+     *
+     * @param sessions  the sessions to add the customers through
+     * @param customers number of customers
+     * @param seed      seed for the movies allowed at home
+     */
+    static void populate(SessionManager sessions, int customers, long seed) {
+        String admin = sessions.login("admin", "admin");
+        Random random = new Random(seed);
+        for (int i = 0; i < customers; i++) {
+            sessions.addNewCustomer(admin, "customer" + i, "pw", 1 + random.nextInt(5));
+        }
+        sessions.logout(admin);
+    }
+
+    /**
+     * Runs the threads and prints the results.
+     *
+     * @param threadCount number of threads, no more than the customers
+     * @param seconds     seconds to run for, the first quarter of them warm-up
+     * @throws Exception if an operation fails
+     */
+    void run(int threadCount, int seconds) throws Exception {
+        long start = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(100);
+        long measured = start + TimeUnit.SECONDS.toNanos(seconds / 4);
+        long end = start + TimeUnit.SECONDS.toNanos(seconds);
+        CountDownLatch ready = new CountDownLatch(threadCount);
+        Terminal[] terminals = new Terminal[threadCount];
+        for (int i = 0; i < threadCount; i++) {
+            terminals[i] = new Terminal(i, threadCount, ready, start, measured, end);
+            terminals[i].start();
+        }
+        LatencyHistogram[] latencies = new LatencyHistogram[OPERATIONS.length];
+        long[] allocated = new long[OPERATIONS.length];
+        for (int op = 0; op < OPERATIONS.length; op++) {
+            latencies[op] = new LatencyHistogram();
+        }
+        for (Terminal terminal : terminals) {
+            terminal.join();
+            if (terminal.failure != null) {
+                throw terminal.failure;
+            }
+            for (int op = 0; op < OPERATIONS.length; op++) {
+                latencies[op].add(terminal.latencies[op]);
+                allocated[op] += terminal.allocated[op];
+            }
+        }
+        double elapsed = (end - measured) / 1e9;
+        System.out.printf("%-10s %10s %10s %9s %9s %9s %9s %9s %9s%n", "operation", "count", "ops/s", "p50 us",
+                "p90 us", "p99 us", "p99.9 us", "max us", "bytes/op");
+        LatencyHistogram all = new LatencyHistogram();
+        long allAllocated = 0;
+        for (int op = 0; op < OPERATIONS.length; op++) {
+            print(OPERATIONS[op], latencies[op], allocated[op], elapsed);
+            all.add(latencies[op]);
+            allAllocated += allocated[op];
+        }
+        print("all", all, allAllocated, elapsed);
+    }
+
+    /**
+     * Prints the results of a kind of operation.
+     *
+     * @param name      the operation's name
+     * @param latencies the operation's latencies
+     * @param allocated bytes allocated by the operations
+     * @param elapsed   seconds measured
+     */
+    private static void print(String name, LatencyHistogram latencies, long allocated, double elapsed) {
+        long count = latencies.getCount();
+        System.out.printf("%-10s %10d %10.0f %9.1f %9.1f %9.1f %9.1f %9.1f %9d%n", name, count, count / elapsed,
+                latencies.getPercentile(50) / 1e3, latencies.getPercentile(90) / 1e3,
+                latencies.getPercentile(99) / 1e3, latencies.getPercentile(99.9) / 1e3, latencies.getMax() / 1e3,
+                count == 0 ? 0 : allocated / count);
+    }
+
+    /**
+     * Returns the number of lines of a queue as the RentalManager traverses
+     * it.
+     *
+     * @param queue the queue's lines, each ended by a newline, or null
+     * @return the number of lines
+     */
+    private static int lines(String queue) {
+        if (queue == null) {
+            return 0;
+        }
+        int count = 0;
+        for (int i = queue.indexOf('\n'); i >= 0; i = queue.indexOf('\n', i + 1)) {
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * A thread logging in customers and making their operations.
+     */
+    private final class Terminal extends Thread {
+        /** Index of the first customer of the terminal's share */
+        private final int first;
+        /** Number of threads, and so the distance between the customers of the share */
+        private final int stride;
+        /** Number of customers in the terminal's share */
+        private final int share;
+        /** Released once every thread is ready */
+        private final CountDownLatch ready;
+        /** Value of System.nanoTime to start at */
+        private final long start;
+        /** Value of System.nanoTime from which operations are measured */
+        private final long measured;
+        /** Value of System.nanoTime to stop at */
+        private final long end;
+        /** Latencies of each kind of operation measured */
+        private final LatencyHistogram[] latencies = new LatencyHistogram[OPERATIONS.length];
+        /** Bytes allocated by each kind of operation measured */
+        private final long[] allocated = new long[OPERATIONS.length];
+        /** Source of randomness */
+        private final Random random;
+        /** The session of the customer logged in, or null */
+        private String token;
+        /** Why an operation failed, or null */
+        private Exception failure;
+
+        /**
+         * Constructs a terminal.
+         *
+         * @param number   the terminal's number, less than the customers
+         * @param stride   number of terminals
+         * @param ready    released once every thread is ready
+         * @param start    value of System.nanoTime to start at
+         * @param measured value of System.nanoTime from which operations are measured
+         * @param end      value of System.nanoTime to stop at
+         */
+        Terminal(int number, int stride, CountDownLatch ready, long start, long measured, long end) {
+            super("LoadDriver-terminal-" + number);
+            this.first = number;
+            this.stride = stride;
+            this.share = (customers - number + stride - 1) / stride;
+            this.ready = ready;
+            this.start = start;
+            this.measured = measured;
+            this.end = end;
+            this.random = new Random(number);
+            for (int op = 0; op < OPERATIONS.length; op++) {
+                latencies[op] = new LatencyHistogram();
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                long id = getId();
+                ready.countDown();
+                ready.await();
+                while (System.nanoTime() < start) {
+                    Thread.yield();
+                }
+                while (System.nanoTime() < end) {
+                    String customer = "customer" + (first + stride * random.nextInt(share));
+                    for (int i = -1; i <= SESSION_LENGTH; i++) {
+                        int op;
+                        if (i < 0) {
+                            op = LOGIN;
+                        } else if (i == SESSION_LENGTH) {
+                            op = LOGOUT;
+                        } else {
+                            int draw = random.nextInt(10);
+                            op = draw < RESERVES ? RESERVE
+                                    : draw < RESERVES + RETURNS ? RETURN
+                                    : draw < RESERVES + RETURNS + MOVES ? MOVE_UP : UNRESERVE;
+                        }
+                        // Drawn before timing, so the draws are not measured
+                        int movie = byRank[popularity.sample(random.nextDouble())];
+                        double choice = random.nextDouble();
+                        long bytes = threads.getThreadAllocatedBytes(id);
+                        long began = System.nanoTime();
+                        operate(op, customer, movie, choice);
+                        long ended = System.nanoTime();
+                        if (began >= measured) {
+                            allocated[op] += threads.getThreadAllocatedBytes(id) - bytes;
+                            latencies[op].record(ended - began);
+                        }
+                    }
+                }
+            } catch (Exception e) {
+                failure = e;
+            }
+        }
+
+        /**
+         * Makes an operation.
+         *
+         * @param op       the operation
+         * @param customer id of the customer to log in
+         * @param movie    position of the movie to reserve
+         * @param choice   number drawn uniformly from [0, 1) to choose a movie
+         *                 of a queue with
+         */
+        private void operate(int op, String customer, int movie, double choice) {
+            RentalManager view;
+            int size;
+            switch (op) {
+            case LOGIN:
+                token = sessions.login(customer, "pw");
+                break;
+            case RESERVE:
+                sessions.getRentalManager(token).addToCustomerQueue(movie);
+                break;
+            case MOVE_UP:
+                view = sessions.getRentalManager(token);
+                size = lines(view.traverseReserveQueue());
+                if (size > 1) {
+                    view.reserveMoveAheadOne(1 + (int) (choice * (size - 1)));
+                }
+                break;
+            case RETURN:
+                view = sessions.getRentalManager(token);
+                size = lines(view.traverseAtHomeQueue());
+                if (size > 0) {
+                    view.returnItemToInventory((int) (choice * size));
+                }
+                break;
+            case UNRESERVE:
+                view = sessions.getRentalManager(token);
+                size = lines(view.traverseReserveQueue());
+                if (size > 0) {
+                    view.removeSelectedFromReserves((int) (choice * size));
+                }
+                break;
+            default:
+                sessions.logout(token);
+                token = null;
+                break;
+            }
+        }
+    }
+}
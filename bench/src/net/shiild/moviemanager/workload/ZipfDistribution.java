@@ -0,0 +1,60 @@
+/**
+ *
+ */
+package net.shiild.moviemanager.workload;
+
+/**
+ * Ranks drawn with Zipf's law: rank k of n is drawn with probability
+ * proportional to 1 / k^skew, so that with a skew of 1 the most popular title
+ * is drawn twice as often as the second and ten times as often as the tenth.
+ * A skew of 0 draws every rank equally often. The cumulative probabilities
+ * are worked out once, and each draw is a binary search of them.
+ *
+ * @author StephenHildebrand
+ */
+final class ZipfDistribution {
+    /** Probability of drawing each rank or a lower one, by rank from 0 */
+    private final double[] cumulative;
+
+    /**
+     * Constructs the distribution.
+     *
+     * @param n    number of ranks, at least 1
+     * @param skew exponent of the law, at least 0
+     * @throws IllegalArgumentException if n is less than 1 or skew is negative
+     */
+    ZipfDistribution(int n, double skew) throws IllegalArgumentException {
+        if (n < 1 || skew < 0) {
+            throw new IllegalArgumentException();
+        }
+        cumulative = new double[n];
+        double sum = 0;
+        for (int k = 0; k < n; k++) {
+            sum += 1 / Math.pow(k + 1, skew);
+            cumulative[k] = sum;
+        }
+        for (int k = 0; k < n; k++) {
+            cumulative[k] /= sum;
+        }
+    }
+
+    /**
+     * Draws a rank.
+     *
+     * @param uniform a number drawn uniformly from [0, 1)
+     * @return the rank, from 0 for the most popular
+     */
+    int sample(double uniform) {
+        int low = 0;
+        int high = cumulative.length - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (cumulative[mid] <= uniform) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
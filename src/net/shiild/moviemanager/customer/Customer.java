@@ -3,32 +3,57 @@
  */
 package net.shiild.moviemanager.customer;
 
+import java.io.IOException;
+import java.util.Iterator;
+
 import net.shiild.moviemanager.inventory.Movie;
-import net.shiild.moviemanager.list_util.MultiPurposeList;
+import net.shiild.moviemanager.list_util.ListType;
+import net.shiild.moviemanager.list_util.PositionalList;
 
 /**
  * Represents a customer in the movie system customer. Each customer has
  * an atHomeQueue and reserveQueue of movies currently at home and on reserve,
- * and depends on only the Movie and MultiPurposeList classes.
+ * and depends on only the Movie and list_util classes. The queues are
+ * MultiPurposeLists unless another ListType is given at construction.
  * <p>
  * Any element added to atHomeQueue or reserveQueue are added to the end of the
  * list.
+ * <p>
+ * Every change to the queues is made through a few private methods that also
+ * tell the customer's CustomerListener, if it has one, so that a CustomerStore
+ * can log the change, and each public method that changes the queues tells
+ * the listener when its changes begin and when they are done.
+ * <p>
+ * A customer may be used by several threads at once, as when it is logged in
+ * to more than one session. The methods that read or change the queues are
+ * synchronized on the customer, so that its operations happen one at a time;
+ * the listener is told that changes begin before the lock is taken. Once the
+ * account is closed, the methods that change the queues throw an
+ * IllegalStateException.
  *
  * @author StephenHildebrand
  */
 public class Customer {
     /** The customer's username used to login to the system */
     private String id;
+    /** The customer's id in lower case, used for ordering */
+    private String sortKey;
     /** The customer's password used to login to the system */
     private String password;
     /** The max number of movies the customer can have at home, between 1-5 */
     private int maxAtHome;
     /** The current number of movies the customer has at home */
     private int nowAtHome;
+    /** Type of list used for the queues */
+    private ListType listType;
     /** Movies that the customer currently has at home */
-    private MultiPurposeList<Movie> atHomeQueue;
+    private PositionalList<Movie> atHomeQueue;
     /** Movies that the customer has in their reserve queue */
-    private MultiPurposeList<Movie> reserveQueue;
+    private PositionalList<Movie> reserveQueue;
+    /** Told of every change to the queues, or null */
+    private CustomerListener listener;
+    /** True once the account is closed */
+    private boolean closed;
 
     /**
      * Constructs a Customer object using the id, password and the maximum
@@ -43,7 +68,24 @@ public class Customer {
      * @throws IllegalArgumentException if the parameter id or password are null or of length 0
      */
     public Customer(String id, String password, int maxAtHome) throws IllegalArgumentException {
-        if (id == null || password == null) {
+        this(id, password, maxAtHome, ListType.LINKED);
+    }
+
+    /**
+     * Constructs a Customer as described above whose atHomeQueue and
+     * reserveQueue are lists of the given type. An IllegalArgumentException is
+     * also thrown if the list type is null.
+     *
+     * @param id        the Customer's id
+     * @param password  the Customer's password
+     * @param maxAtHome the Customer's max movie limit
+     * @param listType  type of list used for the queues
+     * @throws IllegalArgumentException if the parameter id or password are null or of length 0,
+     *                                  or if listType is null
+     */
+    public Customer(String id, String password, int maxAtHome, ListType listType)
+            throws IllegalArgumentException {
+        if (id == null || password == null || listType == null) {
             throw new IllegalArgumentException();
         }
         // Trim the id and password
@@ -57,6 +99,7 @@ public class Customer {
 
         // Set this customer's id and password to the valid arguments
         this.id = id;
+        this.sortKey = id.toLowerCase();
         this.password = password;
 
         // Set maxAtHome to 0 if it is negative
@@ -67,8 +110,9 @@ public class Customer {
         }
 
         // Instantiate the customer's atHomeQueue & reserveQueue
-        atHomeQueue = new MultiPurposeList<Movie>();
-        reserveQueue = new MultiPurposeList<Movie>();
+        this.listType = listType;
+        atHomeQueue = listType.newList();
+        reserveQueue = listType.newList();
 
         nowAtHome = 0; // Each customer begins with 0 movies at home
     }
@@ -105,17 +149,25 @@ public class Customer {
      */
     public int compareToByName(Customer otherCustomer) {
         // Does null otherCustomer need to be handled???
-        String thisName = id.toLowerCase();
-        String otherName = otherCustomer.getId().toLowerCase();
-        return thisName.compareTo(otherName);
+        return sortKey.compareTo(otherCustomer.sortKey);
+    }
+
+    /**
+     * Returns the customer's id in lower case, the key customers are ordered
+     * by in compareToByName.
+     *
+     * @return the id in lower case
+     */
+    String getSortKey() {
+        return sortKey;
     }
 
     /**
      * Adjusts the customer's queues (atHome & reserve) when the customer logs
      * in to be up to date with the current state of the inventory.
      * <p>
-     * Note: There can only be one customer logged in at a time. The changes
-     * described in the login method will only occur when a customer logs in.
+     * Note: The changes described in the login method will only occur when a
+     * customer logs in.
      * <p>
      * Suppose Customer A and Customer B want Movie 1, but they were all checked
      * out so the movie shows up in the reserve Queue for both. Customer C is
@@ -125,11 +177,14 @@ public class Customer {
      * there would be no change since there is no movie in the inventory.
      */
     public void login() {
-        if (nowAtHome < maxAtHome) {
-            Movie firstAvailable = removeFirstAvailable();
-            if (firstAvailable != null) { // A movie is available
-                checkOut(firstAvailable);
+        beginChanges();
+        try {
+            synchronized (this) {
+                checkOpen();
+                checkOutFirstAvailable();
             }
+        } finally {
+            endChanges();
         }
     }
 
@@ -139,7 +194,7 @@ public class Customer {
      *
      * @return the ordered string of movie names in the reserve queue
      */
-    public String traverseReserveQueue() {
+    public synchronized String traverseReserveQueue() {
         // Handle null reserveQueue???
         return traverseQueue(reserveQueue);
     }
@@ -150,21 +205,44 @@ public class Customer {
      *
      * @return the ordered string of movie names that are at home
      */
-    public String traverseAtHomeQueue() {
+    public synchronized String traverseAtHomeQueue() {
         // Handle null atHomeQueue???
         return traverseQueue(atHomeQueue);
     }
 
+    /**
+     * Appends the names of movies in the reserve queue to out in order, each
+     * followed by a newline, as in the string traverseReserveQueue returns.
+     *
+     * @param out where to append the movie names
+     * @throws IOException if out cannot be appended to
+     */
+    public synchronized void traverseReserveQueue(Appendable out) throws IOException {
+        traverseQueue(reserveQueue, out);
+    }
+
+    /**
+     * Appends the names of movies at home to out in order, each followed by a
+     * newline, as in the string traverseAtHomeQueue returns.
+     *
+     * @param out where to append the movie names
+     * @throws IOException if out cannot be appended to
+     */
+    public synchronized void traverseAtHomeQueue(Appendable out) throws IOException {
+        traverseQueue(atHomeQueue, out);
+    }
+
     /**
      * Closes this account and returns all movies at home to the inventory
      * [UC4].
      */
-    public void closeAccount() {
+    public synchronized void closeAccount() {
+        closed = true;
         if (atHomeQueue != null && !atHomeQueue.isEmpty()) {
             for (int psn = 0; psn < atHomeQueue.size(); psn++) {
                 (atHomeQueue.remove(psn)).backToInventory();
             }
-            atHomeQueue = new MultiPurposeList<Movie>();
+            atHomeQueue = listType.newList();
         }
     }
 
@@ -176,18 +254,22 @@ public class Customer {
      * @param psn the position of the movie to be returned to inventory
      */
     public void returnDVD(int psn) {
-        if (atHomeQueue != null && !atHomeQueue.isEmpty()) {
-            if (psn < 0 || psn > atHomeQueue.size()) {
-                throw new IllegalArgumentException("Position out of bounds");
-            }
-            Movie movie = atHomeQueue.lookAtItemN(psn); // Get the Movie
-            movie.backToInventory(); // Return Movie to inventory
-            atHomeQueue.remove(psn); // Remove Movie from home queue
-            nowAtHome--; // Decrement at home movies counter
-            // Now try to send the next available movie in reserve queue
-            if (nowAtHome < maxAtHome) {
-                checkOut(removeFirstAvailable());
+        beginChanges();
+        try {
+            synchronized (this) {
+                checkOpen();
+                if (atHomeQueue != null && !atHomeQueue.isEmpty()) {
+                    if (psn < 0 || psn >= atHomeQueue.size()) {
+                        throw new IllegalArgumentException("Position out of bounds");
+                    }
+                    // Return Movie to inventory and remove it from home queue
+                    removeFromAtHome(psn, true);
+                    // Now try to send the next available movie in reserve queue
+                    checkOutFirstAvailable();
+                }
             }
+        } finally {
+            endChanges();
         }
     }
 
@@ -201,11 +283,19 @@ public class Customer {
      * @throws IllegalArgumentException when the position argument is out of range
      */
     public void moveAheadOneInReserves(int psn) {
-        if (psn < 0 || psn > reserveQueue.size()) {
-            throw new IllegalArgumentException();
-        }
-        if (psn > 0) {
-            reserveQueue.moveAheadOne(psn);
+        beginChanges();
+        try {
+            synchronized (this) {
+                checkOpen();
+                if (psn < 0 || psn > reserveQueue.size()) {
+                    throw new IllegalArgumentException();
+                }
+                if (psn > 0) {
+                    moveAheadInReserves(psn);
+                }
+            }
+        } finally {
+            endChanges();
         }
     }
 
@@ -216,11 +306,19 @@ public class Customer {
      * @param psn in the queue of the movie to be removed
      */
     public void unReserve(int psn) {
-        if (reserveQueue != null && !reserveQueue.isEmpty()) {
-            if (psn < 0 || psn > reserveQueue.size()) {
-                throw new IllegalArgumentException("Position out of bounds");
+        beginChanges();
+        try {
+            synchronized (this) {
+                checkOpen();
+                if (reserveQueue != null && !reserveQueue.isEmpty()) {
+                    if (psn < 0 || psn >= reserveQueue.size()) {
+                        throw new IllegalArgumentException("Position out of bounds");
+                    }
+                    removeFromReserves(psn);
+                }
             }
-            reserveQueue.remove(psn);
+        } finally {
+            endChanges();
         }
     }
 
@@ -235,54 +333,291 @@ public class Customer {
         if (movie == null) {
             throw new IllegalArgumentException("Movie not specified.");
         }
-        if (movie.isAvailable()) {
-            checkOut(movie);
-        } else {
-            reserveQueue.addToRear(movie);
+        beginChanges();
+        try {
+            synchronized (this) {
+                checkOpen();
+                // Reserved if none is in stock, or another customer took the last copy first
+                if (!movie.isAvailable() || (nowAtHome < maxAtHome && !checkOut(movie))) {
+                    addToReserves(movie);
+                }
+            }
+        } finally {
+            endChanges();
         }
     }
 
-    private String traverseQueue(MultiPurposeList<Movie> movies) {
-        String stringDB = null;
-        if (!movies.isEmpty()) {
-            stringDB = "";
-            movies.resetIterator();
-            while (movies.hasNext()) {
-                stringDB = stringDB + movies.next().getName() + "\n";
-            }
+    private String traverseQueue(PositionalList<Movie> movies) {
+        if (movies.isEmpty()) {
+            return null;
+        }
+        // Size the builder so that the string is copied only once
+        int length = 0;
+        for (Movie movie : movies) {
+            length += movie.getName().length() + 1;
+        }
+        StringBuilder stringDB = new StringBuilder(length);
+        try {
+            traverseQueue(movies, stringDB);
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // StringBuilder never throws
         }
-        return stringDB;
+        return stringDB.toString();
     }
 
-    private void checkOut(Movie movie) {
-        if (movie != null && nowAtHome < maxAtHome) {
-            atHomeQueue.addToRear(movie);
-            movie.removeOneCopyFromInventory();
-            nowAtHome++;
+    private void traverseQueue(PositionalList<Movie> movies, Appendable out) throws IOException {
+        for (Movie movie : movies) {
+            out.append(movie.getName()).append('\n');
         }
-
     }
 
     /**
-     * Private method used by login() to remove the first available Movie in
-     * reserveQueue. Returns null if none of the movies in the reserve queue are
-     * available.
+     * Checks out a copy of a movie if the customer may have another at home
+     * and one can be taken from the inventory. Other customers may be taking
+     * copies at the same time, so the copy is taken with
+     * Movie.tryRemoveOneCopy rather than after a check of isAvailable.
      *
-     * @return Movie first available movie in the reserveQueue
+     * @param movie the movie
+     * @return true if the movie was checked out
      */
-    private Movie removeFirstAvailable() {
-        if (reserveQueue != null) {
-            reserveQueue.resetIterator();
+    private boolean checkOut(Movie movie) {
+        if (movie != null && nowAtHome < maxAtHome && movie.tryRemoveOneCopy()) {
+            addToAtHome(movie, false);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Private method used by login() and returnDVD() to check out the first
+     * movie in reserveQueue that a copy can be taken of, if the customer may
+     * have another at home. The movie is removed from the reserve queue only
+     * once its copy has been taken, through the iterator, so the queue is
+     * looked through once.
+     */
+    private void checkOutFirstAvailable() {
+        if (reserveQueue != null && nowAtHome < maxAtHome) {
+            Iterator<Movie> reserves = reserveQueue.iterator();
             int psn = 0;
-            while (reserveQueue.hasNext()) {
-                Movie movie = reserveQueue.next();
-                if (movie.isAvailable()) { // Movie is available
-                    reserveQueue.remove(psn); // Remove from reserve queue
-                    return movie;
+            while (reserves.hasNext()) {
+                Movie movie = reserves.next();
+                if (movie.tryRemoveOneCopy()) { // Movie is available
+                    reserves.remove(); // Remove from reserve queue
+                    if (listener != null) {
+                        listener.unreserved(this, psn);
+                    }
+                    addToAtHome(movie, false);
+                    return;
                 }
                 psn++;
             }
         }
-        return null;
+    }
+
+    /**
+     * Adds a movie to the end of the reserve queue.
+     *
+     * @param movie the movie
+     */
+    private void addToReserves(Movie movie) {
+        reserveQueue.addToRear(movie);
+        if (listener != null) {
+            listener.reserved(this, movie);
+        }
+    }
+
+    /**
+     * Removes the movie in the given position from the reserve queue.
+     *
+     * @param psn position of the movie
+     */
+    private void removeFromReserves(int psn) {
+        reserveQueue.remove(psn);
+        if (listener != null) {
+            listener.unreserved(this, psn);
+        }
+    }
+
+    /**
+     * Moves the movie in the given position ahead one in the reserve queue.
+     *
+     * @param psn position of the movie
+     */
+    private void moveAheadInReserves(int psn) {
+        reserveQueue.moveAheadOne(psn);
+        if (listener != null) {
+            listener.movedAhead(this, psn);
+        }
+    }
+
+    /**
+     * Adds a movie to the end of the at home queue, taking a copy from the
+     * inventory.
+     *
+     * @param movie    the movie
+     * @param takeCopy false if the inventory's stock already counts the copy
+     *                 as out
+     */
+    private void addToAtHome(Movie movie, boolean takeCopy) {
+        atHomeQueue.addToRear(movie);
+        if (takeCopy) {
+            movie.removeOneCopyFromInventory();
+        }
+        nowAtHome++;
+        if (listener != null) {
+            listener.checkedOut(this, movie);
+        }
+    }
+
+    /**
+     * Removes the movie in the given position from the at home queue,
+     * returning the copy to the inventory.
+     *
+     * @param psn        position of the movie
+     * @param returnCopy false if the inventory's stock already counts the
+     *                   copy as back
+     */
+    private void removeFromAtHome(int psn, boolean returnCopy) {
+        Movie movie = atHomeQueue.remove(psn);
+        if (returnCopy) {
+            movie.backToInventory();
+        }
+        nowAtHome--;
+        if (listener != null) {
+            listener.returned(this, psn);
+        }
+    }
+
+    /**
+     * Throws an IllegalStateException if the account is closed.
+     *
+     * @throws IllegalStateException if the account is closed
+     */
+    private void checkOpen() throws IllegalStateException {
+        if (closed) {
+            throw new IllegalStateException("The account has been cancelled.");
+        }
+    }
+
+    /**
+     * Tells the listener that the changes of a public method begin.
+     */
+    private void beginChanges() {
+        if (listener != null) {
+            listener.changesBegun(this);
+        }
+    }
+
+    /**
+     * Tells the listener that the changes of a public method are done.
+     */
+    private void endChanges() {
+        if (listener != null) {
+            listener.changesEnded(this);
+        }
+    }
+
+    /**
+     * Sets the listener told of every change to the queues.
+     *
+     * @param listener the listener, or null for none
+     */
+    void setListener(CustomerListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Returns the customer's password.
+     *
+     * @return the password
+     */
+    String getPassword() {
+        return password;
+    }
+
+    /**
+     * Returns the most movies the customer may have at home.
+     *
+     * @return the max number of movies at home
+     */
+    int getMaxAtHome() {
+        return maxAtHome;
+    }
+
+    /**
+     * Returns the queue of movies at home, for reading only.
+     *
+     * @return the at home queue
+     */
+    PositionalList<Movie> getAtHomeQueue() {
+        return atHomeQueue;
+    }
+
+    /**
+     * Returns the queue of movies on reserve, for reading only.
+     *
+     * @return the reserve queue
+     */
+    PositionalList<Movie> getReserveQueue() {
+        return reserveQueue;
+    }
+
+    /**
+     * Adds a movie to the end of the reserve queue, as a logged change is
+     * replayed.
+     *
+     * @param movie the movie
+     */
+    void replayReserved(Movie movie) {
+        addToReserves(movie);
+    }
+
+    /**
+     * Removes the movie in the given position from the reserve queue, as a
+     * logged change is replayed.
+     *
+     * @param psn position of the movie
+     */
+    void replayUnreserved(int psn) {
+        removeFromReserves(psn);
+    }
+
+    /**
+     * Moves the movie in the given position ahead one in the reserve queue, as
+     * a logged change is replayed.
+     *
+     * @param psn position of the movie
+     */
+    void replayMovedAhead(int psn) {
+        moveAheadInReserves(psn);
+    }
+
+    /**
+     * Adds a movie to the end of the at home queue, as a logged change is
+     * replayed.
+     *
+     * @param movie    the movie
+     * @param takeCopy false if the inventory's stock is kept on disk and
+     *                 already counts the copy as out
+     * @throws IllegalStateException if a copy is to be taken and none is in
+     *                               stock, in which case the movie is not added
+     */
+    void replayCheckedOut(Movie movie, boolean takeCopy) throws IllegalStateException {
+        if (takeCopy && !movie.tryRemoveOneCopy()) {
+            throw new IllegalStateException("No copy of " + movie.getName() + " is in stock.");
+        }
+        addToAtHome(movie, false);
+    }
+
+    /**
+     * Removes the movie in the given position from the at home queue, as a
+     * logged change is replayed.
+     *
+     * @param psn        position of the movie
+     * @param returnCopy false if the inventory's stock is kept on disk and
+     *                   already counts the copy as back
+     */
+    void replayReturned(int psn, boolean returnCopy) {
+        removeFromAtHome(psn, returnCopy);
     }
 }
@@ -44,7 +44,7 @@ public interface CustomerAccountManager {
      * @param id       id/email for new customer
      * @param password new customer's password
      * @param num      number associated with this customer
-     * @throws IllegalStateException    if the database is full or the administrator is not logged in
+     * @throws IllegalStateException    if the administrator is not logged in
      * @throws IllegalArgumentException if customer with given id is already in the database
      */
     void addNewCustomer(String id, String password, int num);
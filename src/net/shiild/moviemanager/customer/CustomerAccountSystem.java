@@ -8,6 +8,8 @@ import net.shiild.moviemanager.rental_system.RentalManager;
 /**
  * Represents the customer part of the overall system and implements
  * CustomerAccountManager, allowing for customer management and use login.
+ * One person at a time may be logged in; a SessionManager lets many people
+ * use the system at once.
  *
  * @author StephenHildebrand
  */
@@ -22,6 +24,8 @@ public class CustomerAccountSystem implements CustomerAccountManager {
     private CustomerDB customerList;
     /** The rental inventory associated with the system */
     private RentalManager inventorySystem;
+    /** Store that logs every change to the customers, or null if they are kept in memory only */
+    private CustomerStore store;
 
     /**
      * Constructor for the CustomerAccountSystem.
@@ -38,6 +42,22 @@ public class CustomerAccountSystem implements CustomerAccountManager {
         }
     }
 
+    /**
+     * Constructor for a CustomerAccountSystem whose customers are kept in a
+     * CustomerStore, so that accounts and queues survive a restart.
+     *
+     * @param inventorySystem inventory of the overall system in the context of a single
+     *                        customer
+     * @param store           store of the customers, whose movies are in the inventory
+     */
+    public CustomerAccountSystem(RentalManager inventorySystem, CustomerStore store) {
+        this(inventorySystem);
+        if (inventorySystem != null && store != null) {
+            this.store = store;
+            this.customerList = store.getCustomers();
+        }
+    }
+
     @Override
     public void login(String id, String password) {
         // A user is already logged in
@@ -76,14 +96,22 @@ public class CustomerAccountSystem implements CustomerAccountManager {
     @Override
     public void addNewCustomer(String id, String password, int num) {
         if (adminLoggedIn && customerList != null) {
-            customerList.addNewCustomer(id, password, num);
+            if (store != null) {
+                store.addNewCustomer(id, password, num);
+            } else {
+                customerList.addNewCustomer(id, password, num);
+            }
         }
     }
 
     @Override
     public void cancelAccount(String id) {
         if (adminLoggedIn && customerList != null) {
-            customerList.cancelAccount(id);
+            if (store != null) {
+                store.cancelAccount(id);
+            } else {
+                customerList.cancelAccount(id);
+            }
         }
     }
 
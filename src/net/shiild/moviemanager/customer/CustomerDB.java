@@ -3,37 +3,53 @@
  */
 package net.shiild.moviemanager.customer;
 
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 /**
  * A database that maintains a list of Customers and provides the list
  * operations required to support the single-customer operations described in
  * CustomerAccountManager.
  * <p>
  * The customer list is implemented as an array-based list, using 3 variables:
- * (1) MAX_SIZE: The maximum capacity of the list (max number of customers).
- * (2) list: An array of customers (the type is Customer[]).
- * (3) size: The number of array elements that are actually customers in the database.
+ * (1) list: An array of customers (the type is Customer[]), which doubles in
+ * capacity whenever it is full, so there is no limit on the number of customers.
+ * (2) size: The number of array elements that are actually customers in the database.
+ * (3) accounts: A hash index from each customer's id to the customer.
  *
  * Unless size is 0, the index of the last customer in the database is size - 1.
- * When you add a new customer to the list, make sure to insert it in the proper
- * position relative to the other customers already in the list.
+ * The list is kept in the order of Customer.compareToByName, which is the order
+ * listAccounts returns, and the index answers the lookups by id of
+ * verifyCustomer and addNewCustomer in constant time instead of a scan of the
+ * list. Where a customer's place in the list is needed, to insert or remove
+ * it, it is found by a binary search on the lower-case id each customer keeps.
+ * <p>
+ * The database may be used by several threads at once, as when customers log
+ * in to sessions while the administrator adds accounts. The index is a
+ * concurrent map, so lookups by id take no lock, and the methods that use the
+ * list are synchronized.
  *
  * @author StephenHildebrand
  */
 public class CustomerDB {
-    /** The max number of customers that can be added to the system */
-    private static final int MAX_SIZE = 20;
+    /** The initial capacity of the list */
+    private static final int INITIAL_CAPACITY = 20;
     /** The current number of customers currently in the system */
     private int size;
-    /** The database of customers currently in the system */
+    /** The database of customers currently in the system, in order by id */
     private Customer[] list;
+    /** The customers currently in the system by id */
+    private Map<String, Customer> accounts;
 
     /**
      * Constructor for the customer database which maintains a list of
      * customers.
      */
     public CustomerDB() {
-        // Instantiate the list with the max allowed number of customers
-        list = new Customer[MAX_SIZE];
+        list = new Customer[INITIAL_CAPACITY];
+        accounts = new ConcurrentHashMap<String, Customer>();
         this.size = 0;
     }
 
@@ -52,12 +68,10 @@ public class CustomerDB {
         if (id == null || password == null) {
             throw new IllegalArgumentException("The account doesn't exist.");
         }
-        // Find the account's location in the customer list
-        int accountIndex = findMatchingAccount(id);
-        if (accountIndex < 0) { // Customer not in the list
+        Customer customer = accounts.get(id);
+        if (customer == null) { // Customer not in the list
             throw new IllegalArgumentException("No matching customer account found.");
         }
-        Customer customer = list[accountIndex]; // Customer at that psn
 
         if (customer.verifyPassword(password)) { // Correct password
             return customer;
@@ -73,12 +87,12 @@ public class CustomerDB {
      *
      * @return an ordered string of the ids of customers in the list
      */
-    public String listAccounts() {
-        String customerString = "";
+    public synchronized String listAccounts() {
+        StringBuilder customerString = new StringBuilder();
         for (int i = 0; i < size; i++) {
-            customerString = customerString + list[i].getId() + "\n";
+            customerString.append(list[i].getId()).append('\n');
         }
-        return customerString;
+        return customerString.toString();
     }
 
     /**
@@ -86,24 +100,19 @@ public class CustomerDB {
      * password is the second, and maximum allowed movies at home is the third
      * [UC3].
      * <p>
-     * Throws an�IllegalStateException�if the database is full [UC3, E1]. Throws
-     * an IllegalArgumentException�if there is whitespace in the id or password,
+     * The database grows as needed, so it is never full [UC3, E1]. Throws an
+     * IllegalArgumentException�if there is whitespace in the id or password,
      * if the id or password are empty, or if there is already a customer in the
      * database with the same id [UC3, E2-E3].
      *
      * @param id        string of the customer to be added
      * @param password  string of the customer to be added
      * @param maxAtHome max number of movies the customer is allowed at home
-     * @throws IllegalStateException    when the database is full
      * @throws IllegalArgumentException when the id or password contain whitespace or are empty, or
      *                                  if a customer with the same id is already in the database
      */
-    public void addNewCustomer(String id, String password, int maxAtHome)
-            throws IllegalStateException, IllegalArgumentException {
-        // Database full
-        if (size == MAX_SIZE) {
-            throw new IllegalStateException("There is no room for additional customers.");
-        }
+    public synchronized void addNewCustomer(String id, String password, int maxAtHome)
+            throws IllegalArgumentException {
         // Invalid id or password
         if (id == null || password == null || id.isEmpty() || password.isEmpty() || id.contains(" ")
                 || password.contains(" ")) {
@@ -126,16 +135,98 @@ public class CustomerDB {
      * @throws IllegalArgumentException if the account doesn't exist
      */
     public void cancelAccount(String id) throws IllegalArgumentException {
+        cancelAccount(id, true);
+    }
+
+    /**
+     * Removes the customer with the given id from the list, returning any
+     * movies they have at home to the inventory only if asked to, as when a
+     * logged cancel is replayed over stock that is kept on disk.
+     *
+     * @param id           the id of the customer to be removed from the list
+     * @param closeAccount true to return the movies at home to the inventory
+     * @throws IllegalArgumentException if the account doesn't exist
+     */
+    synchronized void cancelAccount(String id, boolean closeAccount) throws IllegalArgumentException {
         int accountIndex = findMatchingAccount(id);
         if (accountIndex < 0) {
             throw new IllegalArgumentException();
         }
-        list[accountIndex].closeAccount();
-
-        for (int i = accountIndex; i < size - 1; i++) {
-            list[i] = list[i + 1];
+        if (closeAccount) {
+            list[accountIndex].closeAccount();
         }
+        accounts.remove(list[accountIndex].getId());
+
+        System.arraycopy(list, accountIndex + 1, list, accountIndex, size - accountIndex - 1);
         size--; // Decrement the size by 1 since an item was removed
+        list[size] = null;
+    }
+
+    /**
+     * Removes the customers with the given ids from the list and returns any
+     * movies they have at home to the inventory, as cancelAccount does for
+     * each. The list is compacted once, however many customers are removed.
+     * Throws an IllegalArgumentException, removing no one, if any of the
+     * accounts does not exist.
+     *
+     * @param ids the ids of the customers to be removed from the list
+     * @throws IllegalArgumentException if ids is null or any of the accounts doesn't exist
+     */
+    public synchronized void cancelAccounts(Collection<String> ids) throws IllegalArgumentException {
+        if (ids == null) {
+            throw new IllegalArgumentException();
+        }
+        int[] removed = new int[ids.size()];
+        int count = 0;
+        for (String id : ids) {
+            int accountIndex = findMatchingAccount(id);
+            if (accountIndex < 0) {
+                throw new IllegalArgumentException();
+            }
+            removed[count++] = accountIndex;
+        }
+        Arrays.sort(removed, 0, count);
+
+        // Move each run of kept customers left over the removed ones before it
+        int kept = 0; // Number of customers kept so far, and where the next run goes
+        int runStart = 0; // Index of the first customer of the next run
+        for (int i = 0; i < count; i++) {
+            int accountIndex = removed[i];
+            if (i > 0 && accountIndex == removed[i - 1]) {
+                continue; // The same id given twice
+            }
+            list[accountIndex].closeAccount();
+            accounts.remove(list[accountIndex].getId());
+            System.arraycopy(list, runStart, list, kept, accountIndex - runStart);
+            kept += accountIndex - runStart;
+            runStart = accountIndex + 1;
+        }
+        System.arraycopy(list, runStart, list, kept, size - runStart);
+        kept += size - runStart;
+        Arrays.fill(list, kept, size, null);
+        size = kept;
+    }
+
+    /**
+     * Returns the customer with the given id.
+     *
+     * @param id the customer's id
+     * @return the customer, or null if there is none with the id
+     */
+    Customer findCustomer(String id) {
+        if (id == null) {
+            return null;
+        }
+        return accounts.get(id);
+    }
+
+    /**
+     * Returns the customers in the order of listAccounts.
+     *
+     * @return a new array of the customers
+     */
+    synchronized Customer[] getCustomers() {
+        return Arrays.copyOf(list, size);
     }
 
     /**
@@ -145,13 +236,7 @@ public class CustomerDB {
      * @return true if customer is new, false if it is not
      */
     private boolean isNewCustomer(String id) {
-        for (int j = 0; j < size; j++) {
-            String thisId = list[j].getId();
-            if (thisId.equals(id)) {
-                return false;
-            }
-        }
-        return true;
+        return !accounts.containsKey(id);
     }
 
     /**
@@ -160,35 +245,81 @@ public class CustomerDB {
      * @param newCustomer customer to insert into the list.
      */
     private void insert(Customer newCustomer) {
-        // Start from the right end, shifting the items right as you look for
-        //    the place to insert the item.
-        int psn = size - 1;  // Index traveling from right to left on the list
-        while (psn >= 0 && list[psn].compareToByName(newCustomer) > 0) {
-            list[psn + 1] = list[psn];
-            psn--;
-        }
-        // At this point, psn is -1 OR list[psn] <= newItem. So the newItem
-        //   goes immediately to the right of psn. 
-        list[psn + 1] = newCustomer;
+        if (size == list.length) {
+            list = Arrays.copyOf(list, list.length * 2);
+        }
+        // The newItem goes after every item <= it, so that customers whose
+        //    ids differ only in case stay in the order they were added.
+        int psn = upperBound(newCustomer.getSortKey());
+        System.arraycopy(list, psn, list, psn + 1, size - psn);
+        list[psn] = newCustomer;
         // Don't forget to change the list size. 
         size++;
+        accounts.put(newCustomer.getId(), newCustomer);
     }
 
     /**
-     * Searches through the Customer list for a matching id. If a match is found
-     * then the location of that Customer in the array is returned. If the id is
-     * not found, -1 is returned.
+     * Searches the Customer list for a matching id. If a match is found then
+     * the location of that Customer in the array is returned. If the id is not
+     * found, -1 is returned. Customers with the same id in lower case are next
+     * to each other in the list, so a binary search finds the first of them
+     * and the match is one of the few that follow.
      *
      * @param id customer's id to search for.
      * @return integer specifying the location of the target customer account
      */
     private int findMatchingAccount(String id) {
-        for (int i = 0; i < size; i++) {
-            String thisId = list[i].getId();
-            if (thisId.equals(id)) {
+        if (id == null) {
+            return -1;
+        }
+        String key = id.toLowerCase();
+        for (int i = lowerBound(key); i < size && list[i].getSortKey().equals(key); i++) {
+            if (list[i].getId().equals(id)) {
                 return i;
             }
         }
         return -1;
     }
+
+    /**
+     * Returns the index of the first customer in the list whose lower-case id
+     * is not less than the key, or size if there is none.
+     *
+     * @param key an id in lower case
+     * @return the index of the first customer not before the key
+     */
+    private int lowerBound(String key) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (list[middle].getSortKey().compareTo(key) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Returns the index of the first customer in the list whose lower-case id
+     * is greater than the key, or size if there is none.
+     *
+     * @param key an id in lower case
+     * @return the index of the first customer after the key
+     */
+    private int upperBound(String key) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (list[middle].getSortKey().compareTo(key) <= 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
 }
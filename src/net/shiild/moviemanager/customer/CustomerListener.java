@@ -0,0 +1,79 @@
+/**
+ *
+ */
+package net.shiild.moviemanager.customer;
+
+import net.shiild.moviemanager.inventory.Movie;
+
+/**
+ * Is told of each change a Customer makes to its queues, in the order the
+ * changes are made, so that the changes can be logged and replayed.
+ * <p>
+ * The changes of each operation come between a call of changesBegun and one
+ * of changesEnded, which is made even if the operation throws. The calls are
+ * made on the thread of the operation, and changesBegun before the customer
+ * is locked.
+ *
+ * @author StephenHildebrand
+ */
+interface CustomerListener {
+    /**
+     * The changes of one operation on the customer, such as a reserve or a
+     * return, begin.
+     *
+     * @param customer the customer
+     */
+    void changesBegun(Customer customer);
+
+    /**
+     * A movie was added to the end of the customer's reserve queue.
+     *
+     * @param customer the customer
+     * @param movie    the movie
+     */
+    void reserved(Customer customer, Movie movie);
+
+    /**
+     * The movie in the given position was removed from the customer's reserve
+     * queue.
+     *
+     * @param customer the customer
+     * @param psn      position the movie was in
+     */
+    void unreserved(Customer customer, int psn);
+
+    /**
+     * The movie in the given position of the customer's reserve queue was
+     * moved ahead one.
+     *
+     * @param customer the customer
+     * @param psn      position the movie was in
+     */
+    void movedAhead(Customer customer, int psn);
+
+    /**
+     * A copy of a movie was taken from the inventory and added to the end of
+     * the customer's at home queue.
+     *
+     * @param customer the customer
+     * @param movie    the movie
+     */
+    void checkedOut(Customer customer, Movie movie);
+
+    /**
+     * The movie in the given position of the customer's at home queue was
+     * returned to the inventory.
+     *
+     * @param customer the customer
+     * @param psn      position the movie was in
+     */
+    void returned(Customer customer, int psn);
+
+    /**
+     * The changes of one operation on the customer, such as a reserve or a
+     * return, are done.
+     *
+     * @param customer the customer
+     */
+    void changesEnded(Customer customer);
+}
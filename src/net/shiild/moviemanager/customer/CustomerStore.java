@@ -0,0 +1,710 @@
+/**
+ *
+ */
+package net.shiild.moviemanager.customer;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import net.shiild.moviemanager.inventory.Movie;
+import net.shiild.moviemanager.inventory.MovieDB;
+import net.shiild.moviemanager.inventory.StockStore;
+import net.shiild.moviemanager.list_util.PositionalList;
+import net.shiild.moviemanager.persistence.SnapshotFile;
+import net.shiild.moviemanager.persistence.WriteAheadLog;
+
+/**
+ * Keeps a CustomerDB on disk, so that accounts and their queues survive a
+ * restart.
+ * <p>
+ * Every change is appended to a write-ahead log in the store's directory
+ * before the operation that made it returns: new and cancelled accounts, and
+ * each change a Customer makes to its queues, which the store hears of as the
+ * customers' CustomerListener. The changes of one operation are committed
+ * together, and the log groups the commits of concurrent operations into one
+ * write to the disk. Every so many records, the whole database is written to
+ * a snapshot and the log starts again empty, so recovery never replays more
+ * than that many records after reading the snapshot.
+ * <p>
+ * Movies are recorded by their position in the inventory along with their
+ * name, and a store can only be opened with the same inventory it was written
+ * with. If the inventory's stock is kept in a StockStore, the stock is left
+ * to it: replayed checkouts and returns do not change the stock, and the
+ * StockStore is flushed before each commit of the log, so no checkout is
+ * logged before the copy it took. Otherwise, or if the StockStore is new,
+ * replaying a checkout or return takes the copy from or gives it back to the
+ * inventory again, so the movies' stock is as it was before the restart,
+ * given the inventory as it was read from its file.
+ * <p>
+ * Customers may be changed by several threads at once. Each operation on a
+ * customer holds the store's read lock from the moment the customer tells
+ * the store its changes begin until they are committed, so the changes of
+ * different customers are logged side by side and their commits grouped.
+ * Adding and cancelling accounts and taking a snapshot hold the write lock,
+ * so a snapshot never holds part of an operation and the log it replaces
+ * never misses one.
+ *
+ * @author StephenHildebrand
+ */
+public class CustomerStore implements CustomerListener, Closeable {
+    /** Name of the snapshot file in the store's directory */
+    static final String SNAPSHOT_FILE = "customers.snapshot";
+    /** Name of the log file in the store's directory */
+    static final String LOG_FILE = "customers.log";
+    /** Default number of records logged between snapshots */
+    public static final int DEFAULT_COMPACT_EVERY = 10000;
+
+    /** Magic number of a customer snapshot */
+    private static final int SNAPSHOT_MAGIC = 0x4D4D4353; // "MMCS"
+    /** Version of the snapshot format */
+    private static final int SNAPSHOT_VERSION = 1;
+
+    /** Record of a new account: id, password and max at home */
+    private static final byte ADD = 1;
+    /** Record of a cancelled account: id */
+    private static final byte CANCEL = 2;
+    /** Record of a movie added to a reserve queue: id and movie */
+    private static final byte RESERVE = 3;
+    /** Record of a movie removed from a reserve queue: id and position */
+    private static final byte UNRESERVE = 4;
+    /** Record of a movie moved ahead in a reserve queue: id and position */
+    private static final byte MOVE_AHEAD = 5;
+    /** Record of a movie checked out: id and movie */
+    private static final byte CHECK_OUT = 6;
+    /** Record of a movie returned: id and position in the at home queue */
+    private static final byte RETURN = 7;
+
+    /** Path of the snapshot file */
+    private final Path snapshotPath;
+    /** Path of the log file */
+    private final Path logPath;
+    /** True if commits force the log to the disk */
+    private final boolean sync;
+    /** Number of records logged between snapshots */
+    private final int compactEvery;
+    /** The inventory's movies by position */
+    private final Movie[] movies;
+    /** The position of each movie in the inventory */
+    private final Map<Movie, Integer> positions;
+    /** The customers kept */
+    private final CustomerDB customers;
+    /** Store keeping the inventory's stock on disk, or null */
+    private final StockStore stock;
+    /** True if replayed changes take and return copies, since the stock was not recovered */
+    private final boolean takeStock;
+    /** The log of changes since the last snapshot */
+    private WriteAheadLog log;
+    /** Number of records logged since the last snapshot */
+    private final AtomicInteger recordsSinceSnapshot = new AtomicInteger();
+    /** Read locked by operations on customers, write locked by changes to the accounts and snapshots */
+    private final ReentrantReadWriteLock changes = new ReentrantReadWriteLock();
+
+    /**
+     * Opens the store in a directory, creating the directory if needed, and
+     * recovers the customers from its snapshot and log. Commits force the log
+     * to the disk.
+     *
+     * @param directory directory of the store
+     * @param inventory the inventory the customers' movies are in
+     * @return the store
+     * @throws IOException              if the store cannot be read or does not match the inventory
+     * @throws IllegalArgumentException if directory or inventory is null
+     */
+    public static CustomerStore open(Path directory, MovieDB inventory) throws IOException {
+        return open(directory, inventory, true, DEFAULT_COMPACT_EVERY);
+    }
+
+    /**
+     * Opens the store in a directory, creating the directory if needed, and
+     * recovers the customers from its snapshot and log.
+     *
+     * @param directory    directory of the store
+     * @param inventory    the inventory the customers' movies are in
+     * @param sync         true if commits force the log to the disk; without
+     *                     it, changes survive the program stopping but not
+     *                     the machine
+     * @param compactEvery number of records logged between snapshots, at least 1
+     * @return the store
+     * @throws IOException              if the store cannot be read or does not match the inventory
+     * @throws IllegalArgumentException if directory or inventory is null or compactEvery is less than 1
+     */
+    public static CustomerStore open(Path directory, MovieDB inventory, boolean sync, int compactEvery)
+            throws IOException {
+        if (directory == null || inventory == null || compactEvery < 1) {
+            throw new IllegalArgumentException();
+        }
+        CustomerStore store = new CustomerStore(directory, inventory, sync, compactEvery);
+        store.recover();
+        return store;
+    }
+
+    /**
+     * Constructs an empty store.
+     *
+     * @param directory    directory of the store
+     * @param inventory    the inventory the customers' movies are in
+     * @param sync         true if commits force the log to the disk
+     * @param compactEvery number of records logged between snapshots
+     * @throws IOException if the directory cannot be created
+     */
+    private CustomerStore(Path directory, MovieDB inventory, boolean sync, int compactEvery) throws IOException {
+        Files.createDirectories(directory);
+        this.snapshotPath = directory.resolve(SNAPSHOT_FILE);
+        this.logPath = directory.resolve(LOG_FILE);
+        this.sync = sync;
+        this.compactEvery = compactEvery;
+        List<Movie> all = inventory.findItemsAt(0, inventory.size());
+        this.movies = all.toArray(new Movie[all.size()]);
+        this.positions = new IdentityHashMap<Movie, Integer>(movies.length);
+        for (int i = 0; i < movies.length; i++) {
+            positions.put(movies[i], i);
+        }
+        this.customers = new CustomerDB();
+        this.stock = inventory.getStockStore();
+        this.takeStock = stock == null || stock.isNew();
+    }
+
+    /**
+     * Reads the snapshot, replays the log written after it, and starts
+     * listening to the customers.
+     *
+     * @throws IOException if the store cannot be read or does not match the inventory
+     */
+    private void recover() throws IOException {
+        try {
+            replayAll();
+        } catch (IOException e) {
+            if (takeStock) {
+                returnCopies();
+            }
+            if (log != null) {
+                log.close();
+            }
+            throw e;
+        }
+        for (Customer customer : customers.getCustomers()) {
+            customer.setListener(this);
+        }
+        if (stock != null && takeStock) {
+            // The copies taken again are the new StockStore's first changes
+            stock.flush();
+        }
+    }
+
+    /**
+     * Reads the snapshot and replays the log written after it.
+     *
+     * @throws IOException if the store cannot be read or does not match the inventory
+     */
+    private void replayAll() throws IOException {
+        long generation = 0;
+        ByteBuffer snapshot = SnapshotFile.read(snapshotPath, SNAPSHOT_MAGIC, SNAPSHOT_VERSION);
+        if (snapshot != null) {
+            generation = readSnapshot(snapshot);
+        }
+        long logGeneration = WriteAheadLog.generationOf(logPath);
+        if (logGeneration == generation) {
+            log = WriteAheadLog.recover(logPath, new WriteAheadLog.RecordHandler() {
+                @Override
+                public void record(byte[] record) throws IOException {
+                    replay(record);
+                    recordsSinceSnapshot.incrementAndGet();
+                }
+            }, sync);
+        } else if (logGeneration > generation) {
+            throw new IOException("The customer log is newer than its snapshot.");
+        } else {
+            // No log yet, or one whose records the snapshot already holds
+            log = WriteAheadLog.create(logPath, generation, sync);
+        }
+    }
+
+    /**
+     * Gives back to the inventory every copy the customers read so far have
+     * at home, undoing the copies taken by a recovery that failed, so that
+     * the inventory can still be used without the store.
+     */
+    private void returnCopies() {
+        for (Customer customer : customers.getCustomers()) {
+            for (Movie movie : customer.getAtHomeQueue()) {
+                movie.backToInventory();
+            }
+        }
+    }
+
+    /**
+     * Returns the customers kept by the store. Accounts must be added and
+     * cancelled through the store, so that the changes are logged.
+     *
+     * @return the customer database
+     */
+    public CustomerDB getCustomers() {
+        return customers;
+    }
+
+    /**
+     * Adds a new customer, as CustomerDB.addNewCustomer does, and logs it.
+     *
+     * @param id        string of the customer to be added
+     * @param password  string of the customer to be added
+     * @param maxAtHome max number of movies the customer is allowed at home
+     * @throws IllegalArgumentException when the id or password contain whitespace or are empty, or
+     *                                  if a customer with the same id is already in the database
+     * @throws IllegalStateException    if the change cannot be logged
+     */
+    public void addNewCustomer(String id, String password, int maxAtHome)
+            throws IllegalArgumentException, IllegalStateException {
+        changes.writeLock().lock();
+        try {
+            customers.addNewCustomer(id, password, maxAtHome);
+            customers.findCustomer(id.trim()).setListener(this);
+            RecordWriter record = new RecordWriter(ADD);
+            record.writeUTF(id);
+            record.writeUTF(password);
+            record.writeInt(maxAtHome);
+            append(record);
+            commit();
+        } finally {
+            changes.writeLock().unlock();
+        }
+        snapshotIfDue();
+    }
+
+    /**
+     * Cancels an account, as CustomerDB.cancelAccount does, and logs it.
+     *
+     * @param id the id of the customer to be removed
+     * @throws IllegalArgumentException if the account doesn't exist
+     * @throws IllegalStateException    if the change cannot be logged
+     */
+    public void cancelAccount(String id) throws IllegalArgumentException, IllegalStateException {
+        changes.writeLock().lock();
+        try {
+            customers.cancelAccount(id);
+            appendCancel(id);
+            commit();
+        } finally {
+            changes.writeLock().unlock();
+        }
+        snapshotIfDue();
+    }
+
+    /**
+     * Cancels accounts, as CustomerDB.cancelAccounts does, and logs them with
+     * a single commit.
+     *
+     * @param ids the ids of the customers to be removed
+     * @throws IllegalArgumentException if ids is null or any of the accounts doesn't exist
+     * @throws IllegalStateException    if the change cannot be logged
+     */
+    public void cancelAccounts(Collection<String> ids) throws IllegalArgumentException, IllegalStateException {
+        changes.writeLock().lock();
+        try {
+            customers.cancelAccounts(ids);
+            for (String id : ids) {
+                appendCancel(id);
+            }
+            commit();
+        } finally {
+            changes.writeLock().unlock();
+        }
+        snapshotIfDue();
+    }
+
+    @Override
+    public void changesBegun(Customer customer) {
+        changes.readLock().lock();
+    }
+
+    @Override
+    public void reserved(Customer customer, Movie movie) {
+        RecordWriter record = new RecordWriter(RESERVE);
+        record.writeUTF(customer.getId());
+        record.writeMovie(movie);
+        append(record);
+    }
+
+    @Override
+    public void unreserved(Customer customer, int psn) {
+        appendPosition(UNRESERVE, customer, psn);
+    }
+
+    @Override
+    public void movedAhead(Customer customer, int psn) {
+        appendPosition(MOVE_AHEAD, customer, psn);
+    }
+
+    @Override
+    public void checkedOut(Customer customer, Movie movie) {
+        RecordWriter record = new RecordWriter(CHECK_OUT);
+        record.writeUTF(customer.getId());
+        record.writeMovie(movie);
+        append(record);
+    }
+
+    @Override
+    public void returned(Customer customer, int psn) {
+        appendPosition(RETURN, customer, psn);
+    }
+
+    @Override
+    public void changesEnded(Customer customer) {
+        try {
+            commit();
+        } finally {
+            changes.readLock().unlock();
+        }
+        snapshotIfDue();
+    }
+
+    /**
+     * Writes every customer to a new snapshot and starts an empty log. The
+     * snapshot is written before the log is replaced, and holds the log's next
+     * generation number, so a crash in between leaves a log that recovery
+     * knows to be already in the snapshot.
+     *
+     * @throws IOException if the snapshot or log cannot be written
+     */
+    public void snapshot() throws IOException {
+        changes.writeLock().lock();
+        try {
+            commitLog();
+            long generation = log.getGeneration() + 1;
+            SnapshotFile.write(snapshotPath, SNAPSHOT_MAGIC, SNAPSHOT_VERSION, writeSnapshot(generation));
+            log.close();
+            log = WriteAheadLog.create(logPath, generation, sync);
+            recordsSinceSnapshot.set(0);
+        } finally {
+            changes.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Commits every change and closes the log.
+     *
+     * @throws IOException if the log cannot be written or closed
+     */
+    @Override
+    public void close() throws IOException {
+        changes.writeLock().lock();
+        try {
+            log.close();
+        } finally {
+            changes.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Appends a record of a cancelled account.
+     *
+     * @param id the id of the customer
+     */
+    private void appendCancel(String id) {
+        RecordWriter record = new RecordWriter(CANCEL);
+        record.writeUTF(id);
+        append(record);
+    }
+
+    /**
+     * Appends a record of a change at a position in one of a customer's
+     * queues.
+     *
+     * @param type     type of the record
+     * @param customer the customer
+     * @param psn      the position
+     */
+    private void appendPosition(byte type, Customer customer, int psn) {
+        RecordWriter record = new RecordWriter(type);
+        record.writeUTF(customer.getId());
+        record.writeInt(psn);
+        append(record);
+    }
+
+    /**
+     * Appends a record to the log.
+     *
+     * @param record the record
+     */
+    private void append(RecordWriter record) {
+        log.append(record.toByteArray());
+        recordsSinceSnapshot.incrementAndGet();
+    }
+
+    /**
+     * Makes the records appended durable.
+     *
+     * @throws IllegalStateException if the log cannot be written
+     */
+    private void commit() throws IllegalStateException {
+        try {
+            commitLog();
+        } catch (IOException e) {
+            throw new IllegalStateException("The customer log could not be written.", e);
+        }
+    }
+
+    /**
+     * Takes a snapshot if enough records have been logged since the last one.
+     * Of several threads finding one due at once, only the first takes it. A
+     * thread still holding the read lock, in an operation within another,
+     * leaves it to the next.
+     *
+     * @throws IllegalStateException if the snapshot cannot be written
+     */
+    private void snapshotIfDue() throws IllegalStateException {
+        if (recordsSinceSnapshot.get() < compactEvery || changes.getReadHoldCount() > 0) {
+            return;
+        }
+        changes.writeLock().lock();
+        try {
+            if (recordsSinceSnapshot.get() >= compactEvery) {
+                snapshot();
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("The customer log could not be written.", e);
+        } finally {
+            changes.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Makes the records appended durable, after the changes to the stock they
+     * made if it is kept in a StockStore.
+     *
+     * @throws IOException if the stock or the log cannot be written
+     */
+    private void commitLog() throws IOException {
+        if (stock != null) {
+            stock.flush();
+        }
+        log.commit();
+    }
+
+    /**
+     * Applies one record of the log to the customers.
+     *
+     * @param bytes the record
+     * @throws IOException if the record is not valid or does not match the inventory
+     */
+    private void replay(byte[] bytes) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+        byte type = in.readByte();
+        try {
+            if (type == ADD) {
+                customers.addNewCustomer(in.readUTF(), in.readUTF(), in.readInt());
+            } else if (type == CANCEL) {
+                customers.cancelAccount(in.readUTF(), takeStock);
+            } else {
+                Customer customer = customers.findCustomer(in.readUTF());
+                if (customer == null) {
+                    throw new IOException("The customer log is not valid.");
+                }
+                if (type == RESERVE) {
+                    customer.replayReserved(readMovie(in));
+                } else if (type == UNRESERVE) {
+                    customer.replayUnreserved(in.readInt());
+                } else if (type == MOVE_AHEAD) {
+                    customer.replayMovedAhead(in.readInt());
+                } else if (type == CHECK_OUT) {
+                    customer.replayCheckedOut(readMovie(in), takeStock);
+                } else if (type == RETURN) {
+                    customer.replayReturned(in.readInt(), takeStock);
+                } else {
+                    throw new IOException("The customer log is not valid.");
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            throw new IOException("The customer log is not valid.", e);
+        } catch (IllegalStateException e) {
+            // A copy checked out is not in the inventory's stock
+            throw new IOException("The customer store does not match the inventory.", e);
+        }
+    }
+
+    /**
+     * Writes every customer and its queues.
+     *
+     * @param generation generation number of the log that follows the snapshot
+     * @return the snapshot's contents
+     */
+    private ByteBuffer writeSnapshot(long generation) {
+        RecordWriter out = new RecordWriter();
+        out.writeLong(generation);
+        Customer[] all = customers.getCustomers();
+        out.writeInt(all.length);
+        for (Customer customer : all) {
+            out.writeUTF(customer.getId());
+            out.writeUTF(customer.getPassword());
+            out.writeInt(customer.getMaxAtHome());
+            writeQueue(out, customer.getAtHomeQueue());
+            writeQueue(out, customer.getReserveQueue());
+        }
+        return ByteBuffer.wrap(out.toByteArray());
+    }
+
+    /**
+     * Writes the movies of a queue.
+     *
+     * @param out   where to write
+     * @param queue the queue
+     */
+    private void writeQueue(RecordWriter out, PositionalList<Movie> queue) {
+        out.writeInt(queue.size());
+        for (Movie movie : queue) {
+            out.writeMovie(movie);
+        }
+    }
+
+    /**
+     * Reads the customers of a snapshot into the database, taking the copies
+     * they have at home from the inventory unless its stock was recovered.
+     *
+     * @param snapshot the snapshot's contents
+     * @return generation number of the log that follows the snapshot
+     * @throws IOException if the snapshot does not match the inventory
+     */
+    private long readSnapshot(ByteBuffer snapshot) throws IOException {
+        byte[] bytes = new byte[snapshot.remaining()];
+        snapshot.get(bytes);
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+        long generation = in.readLong();
+        int count = in.readInt();
+        try {
+            for (int i = 0; i < count; i++) {
+                String id = in.readUTF();
+                customers.addNewCustomer(id, in.readUTF(), in.readInt());
+                Customer customer = customers.findCustomer(id);
+                for (int atHome = in.readInt(); atHome > 0; atHome--) {
+                    customer.replayCheckedOut(readMovie(in), takeStock);
+                }
+                for (int reserves = in.readInt(); reserves > 0; reserves--) {
+                    customer.replayReserved(readMovie(in));
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            throw new IOException("The customer snapshot is not valid.", e);
+        } catch (IllegalStateException e) {
+            // A copy at home is not in the inventory's stock
+            throw new IOException("The customer store does not match the inventory.", e);
+        }
+        return generation;
+    }
+
+    /**
+     * Reads a movie recorded by its position and name.
+     *
+     * @param in where to read
+     * @return the movie
+     * @throws IOException if there is no such movie in the inventory
+     */
+    private Movie readMovie(DataInputStream in) throws IOException {
+        int position = in.readInt();
+        String name = in.readUTF();
+        if (position < 0 || position >= movies.length || !movies[position].getName().equals(name)) {
+            throw new IOException("The customer store does not match the inventory.");
+        }
+        return movies[position];
+    }
+
+    /**
+     * Builds a record or snapshot in memory. Writing to memory cannot fail,
+     * so its methods do not throw IOException.
+     */
+    private class RecordWriter {
+        /** The bytes written */
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        /** Writes values to bytes */
+        private final DataOutputStream out = new DataOutputStream(bytes);
+
+        /**
+         * Constructs an empty writer.
+         */
+        private RecordWriter() {
+            // Nothing written yet
+        }
+
+        /**
+         * Constructs a writer of a record of the given type.
+         *
+         * @param type type of the record
+         */
+        private RecordWriter(byte type) {
+            bytes.write(type);
+        }
+
+        /**
+         * Writes an int, high byte first.
+         *
+         * @param value the int
+         */
+        void writeInt(int value) {
+            try {
+                out.writeInt(value);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        /**
+         * Writes a long, high byte first.
+         *
+         * @param value the long
+         */
+        void writeLong(long value) {
+            try {
+                out.writeLong(value);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        /**
+         * Writes a string in modified UTF-8, as DataOutputStream.writeUTF does.
+         *
+         * @param value the string
+         */
+        void writeUTF(String value) {
+            try {
+                out.writeUTF(value);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        /**
+         * Writes a movie as its position in the inventory and its name.
+         *
+         * @param movie the movie
+         */
+        void writeMovie(Movie movie) {
+            Integer position = positions.get(movie);
+            if (position == null) {
+                throw new IllegalStateException("The movie is not in the inventory.");
+            }
+            writeInt(position);
+            writeUTF(movie.getName());
+        }
+
+        /**
+         * Returns the bytes written.
+         *
+         * @return the bytes
+         */
+        byte[] toByteArray() {
+            return bytes.toByteArray();
+        }
+    }
+}
@@ -0,0 +1,370 @@
+/**
+ *
+ */
+package net.shiild.moviemanager.customer;
+
+import java.io.Closeable;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import net.shiild.moviemanager.rental_system.MovieRentalSystem;
+import net.shiild.moviemanager.rental_system.RentalManager;
+
+/**
+ * Lets many people use the rental system at once, where a
+ * CustomerAccountSystem lets one person at a time log in.
+ * <p>
+ * Each login starts a session, named by an opaque token that is hard to
+ * guess, and the sessions are kept in a concurrent map from token to session.
+ * A customer's session has its own view of the rental system, a
+ * RentalManager whose current customer is the one who logged in, so the
+ * operations of a session always change the right customer's queues. The
+ * administrator's session has no view, but may add and cancel accounts.
+ * <p>
+ * A session not used for longer than the idle timeout is evicted: it can no
+ * longer be used, and a background thread removes it from the map. Every
+ * method may be called by several threads at once; the operations of
+ * different customers run side by side, and those of one customer one at a
+ * time.
+ *
+ * @author StephenHildebrand
+ */
+public class SessionManager implements Closeable {
+    /** Default time a session may go unused before it is evicted, in milliseconds */
+    public static final long DEFAULT_IDLE_TIMEOUT = TimeUnit.MINUTES.toMillis(30);
+    /** String constant representing the administrator's id and password */
+    private static final String ADMIN = "admin";
+    /** Number of random bytes in a token */
+    private static final int TOKEN_BYTES = 16;
+
+    /** The rental system whose inventory the sessions' views share */
+    private final MovieRentalSystem rentalSystem;
+    /** Database of customers in the system */
+    private final CustomerDB customerList;
+    /** Store that logs every change to the customers, or null if they are kept in memory only */
+    private final CustomerStore store;
+    /** Time a session may go unused before it is evicted, in nanoseconds */
+    private final long idleTimeout;
+    /** The sessions by token */
+    private final ConcurrentMap<String, Session> sessions;
+    /** Source of the tokens */
+    private final SecureRandom random;
+    /** Encodes tokens as text that is safe in a URL */
+    private final Base64.Encoder encoder;
+    /** Runs evictIdle in the background */
+    private final ScheduledExecutorService evictor;
+
+    /**
+     * A logged in user's session.
+     */
+    private static final class Session {
+        /** The customer logged in, or null for the administrator */
+        private final Customer customer;
+        /** The customer's view of the rental system, or null for the administrator */
+        private final RentalManager rentalManager;
+        /** Value of System.nanoTime when the session was last used */
+        private volatile long lastUsed;
+
+        /**
+         * Constructs a session used now.
+         *
+         * @param customer      the customer logged in, or null for the administrator
+         * @param rentalManager the customer's view of the rental system, or null
+         */
+        private Session(Customer customer, RentalManager rentalManager) {
+            this.customer = customer;
+            this.rentalManager = rentalManager;
+            this.lastUsed = System.nanoTime();
+        }
+    }
+
+    /**
+     * Constructs a session manager for a rental system whose customers are
+     * kept in memory only.
+     *
+     * @param rentalSystem the rental system
+     * @param customerList database of customers in the system
+     * @param idleTimeout  time a session may go unused before it is evicted
+     * @param unit         unit of the idle timeout
+     * @throws IllegalArgumentException if an argument is null or the idle timeout is not positive
+     */
+    public SessionManager(MovieRentalSystem rentalSystem, CustomerDB customerList, long idleTimeout,
+            TimeUnit unit) throws IllegalArgumentException {
+        this(rentalSystem, customerList, null, idleTimeout, unit);
+    }
+
+    /**
+     * Constructs a session manager for a rental system whose customers are
+     * kept in a CustomerStore, so that accounts and queues survive a restart.
+     *
+     * @param rentalSystem the rental system, whose inventory the store's movies are in
+     * @param store        store of the customers
+     * @param idleTimeout  time a session may go unused before it is evicted
+     * @param unit         unit of the idle timeout
+     * @throws IllegalArgumentException if an argument is null or the idle timeout is not positive
+     */
+    public SessionManager(MovieRentalSystem rentalSystem, CustomerStore store, long idleTimeout, TimeUnit unit)
+            throws IllegalArgumentException {
+        this(rentalSystem, store == null ? null : store.getCustomers(), store, idleTimeout, unit);
+    }
+
+    /**
+     * Constructs a session manager and starts evicting idle sessions.
+     *
+     * @param rentalSystem the rental system
+     * @param customerList database of customers in the system
+     * @param store        store of the customers, or null
+     * @param idleTimeout  time a session may go unused before it is evicted
+     * @param unit         unit of the idle timeout
+     * @throws IllegalArgumentException if an argument is null or the idle timeout is not positive
+     */
+    private SessionManager(MovieRentalSystem rentalSystem, CustomerDB customerList, CustomerStore store,
+            long idleTimeout, TimeUnit unit) throws IllegalArgumentException {
+        if (rentalSystem == null || customerList == null || unit == null || idleTimeout <= 0) {
+            throw new IllegalArgumentException();
+        }
+        this.rentalSystem = rentalSystem;
+        this.customerList = customerList;
+        this.store = store;
+        this.idleTimeout = unit.toNanos(idleTimeout);
+        this.sessions = new ConcurrentHashMap<String, Session>();
+        this.random = new SecureRandom();
+        this.encoder = Base64.getUrlEncoder().withoutPadding();
+        this.evictor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "SessionManager-evictor");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        long period = Math.max(this.idleTimeout, TimeUnit.SECONDS.toNanos(1));
+        evictor.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                evictIdle();
+            }
+        }, period, period, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Logs in the administrator or a customer and starts a session for them
+     * [UC2]. A customer's queues are brought up to date with the inventory,
+     * as CustomerAccountSystem.login does. A customer may have several
+     * sessions at once.
+     *
+     * @param id       the user's id
+     * @param password the user's password
+     * @return the token of the new session
+     * @throws IllegalArgumentException if the id or password is null, or if there is no such account
+     *                                  or the password is incorrect
+     * @throws IllegalStateException    if the account is cancelled while logging in
+     */
+    public String login(String id, String password) throws IllegalArgumentException, IllegalStateException {
+        if (id == null || password == null) {
+            throw new IllegalArgumentException("The account doesn't exist.");
+        }
+        Session session;
+        if (id.equals(ADMIN) && password.equals(ADMIN)) { // Login admin
+            session = new Session(null, null);
+        } else { // Login customer
+            Customer customer = customerList.verifyCustomer(id, password);
+            customer.login();
+            session = new Session(customer, rentalSystem.newView(customer));
+        }
+        byte[] bytes = new byte[TOKEN_BYTES];
+        while (true) {
+            random.nextBytes(bytes);
+            String token = encoder.encodeToString(bytes);
+            if (sessions.putIfAbsent(token, session) == null) {
+                return token;
+            }
+        }
+    }
+
+    /**
+     * Ends a session. Nothing happens if there is no session with the token.
+     *
+     * @param token the session's token
+     */
+    public void logout(String token) {
+        if (token != null) {
+            sessions.remove(token);
+        }
+    }
+
+    /**
+     * Returns true if the session is the administrator's.
+     *
+     * @param token the session's token
+     * @return true if the administrator is logged in to the session
+     * @throws IllegalStateException if there is no such session or it was evicted
+     */
+    public boolean isAdmin(String token) throws IllegalStateException {
+        return use(token).customer == null;
+    }
+
+    /**
+     * Returns the view of the rental system of a customer's session, whose
+     * current customer is the one logged in to it.
+     *
+     * @param token the session's token
+     * @return the session's RentalManager
+     * @throws IllegalStateException if there is no such session, it was evicted or it is the
+     *                               administrator's
+     */
+    public RentalManager getRentalManager(String token) throws IllegalStateException {
+        Session session = use(token);
+        if (session.customer == null) {
+            throw new IllegalStateException("No customer is logged in.");
+        }
+        return session.rentalManager;
+    }
+
+    /**
+     * Adds a new customer, as CustomerAccountSystem.addNewCustomer does, if
+     * the session is the administrator's.
+     *
+     * @param token     the administrator's session token
+     * @param id        string of the customer to be added
+     * @param password  string of the customer to be added
+     * @param maxAtHome max number of movies the customer is allowed at home
+     * @throws IllegalArgumentException when the id or password contain whitespace or are empty, or
+     *                                  if a customer with the same id is already in the database
+     * @throws IllegalStateException    if the session is not the administrator's
+     */
+    public void addNewCustomer(String token, String id, String password, int maxAtHome)
+            throws IllegalArgumentException, IllegalStateException {
+        useAdmin(token);
+        if (store != null) {
+            store.addNewCustomer(id, password, maxAtHome);
+        } else {
+            customerList.addNewCustomer(id, password, maxAtHome);
+        }
+    }
+
+    /**
+     * Cancels an account, as CustomerAccountSystem.cancelAccount does, if the
+     * session is the administrator's, and ends the customer's sessions.
+     *
+     * @param token the administrator's session token
+     * @param id    the id of the customer to be removed
+     * @throws IllegalArgumentException if the account doesn't exist
+     * @throws IllegalStateException    if the session is not the administrator's
+     */
+    public void cancelAccount(String token, String id) throws IllegalArgumentException, IllegalStateException {
+        useAdmin(token);
+        Customer customer = customerList.findCustomer(id);
+        if (store != null) {
+            store.cancelAccount(id);
+        } else {
+            customerList.cancelAccount(id);
+        }
+        Iterator<Session> it = sessions.values().iterator();
+        while (it.hasNext()) {
+            if (it.next().customer == customer) {
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Returns a string of the ids of the customers in the system, as
+     * CustomerAccountSystem.listAccounts does.
+     *
+     * @return an ordered string of the ids of the customers
+     */
+    public String listAccounts() {
+        return customerList.listAccounts();
+    }
+
+    /**
+     * Returns the number of sessions, counting any idle ones not yet evicted.
+     *
+     * @return the number of sessions
+     */
+    public int size() {
+        return sessions.size();
+    }
+
+    /**
+     * Evicts every session that has not been used for longer than the idle
+     * timeout. This is done in the background as well.
+     *
+     * @return the number of sessions evicted
+     */
+    public int evictIdle() {
+        long now = System.nanoTime();
+        int evicted = 0;
+        for (Map.Entry<String, Session> entry : sessions.entrySet()) {
+            if (isIdle(entry.getValue(), now) && sessions.remove(entry.getKey(), entry.getValue())) {
+                evicted++;
+            }
+        }
+        return evicted;
+    }
+
+    /**
+     * Ends every session and stops evicting them in the background.
+     */
+    @Override
+    public void close() {
+        evictor.shutdownNow();
+        sessions.clear();
+    }
+
+    /**
+     * Returns a session and marks it used now. A session found idle is
+     * evicted instead.
+     *
+     * @param token the session's token
+     * @return the session
+     * @throws IllegalStateException if there is no such session or it was evicted
+     */
+    private Session use(String token) throws IllegalStateException {
+        Session session = token == null ? null : sessions.get(token);
+        if (session == null) {
+            throw new IllegalStateException("Not logged in.");
+        }
+        long now = System.nanoTime();
+        if (isIdle(session, now)) {
+            sessions.remove(token, session);
+            throw new IllegalStateException("The session has expired.");
+        }
+        session.lastUsed = now;
+        return session;
+    }
+
+    /**
+     * Marks the administrator's session used now.
+     *
+     * @param token the session's token
+     * @throws IllegalStateException if there is no such session, it was evicted or it is not the
+     *                               administrator's
+     */
+    private void useAdmin(String token) throws IllegalStateException {
+        if (use(token).customer != null) {
+            throw new IllegalStateException("The administrator is not logged in.");
+        }
+    }
+
+    /**
+     * Returns true if a session has not been used for longer than the idle
+     * timeout.
+     *
+     * @param session the session
+     * @param now     value of System.nanoTime now
+     * @return true if the session is idle
+     */
+    private boolean isIdle(Session session, long now) {
+        return now - session.lastUsed > idleTimeout;
+    }
+}
@@ -0,0 +1,171 @@
+/**
+ *
+ */
+package net.shiild.moviemanager.inventory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import net.shiild.moviemanager.persistence.SnapshotFile;
+
+/**
+ * Writes and reads a binary snapshot of the movies of a MovieDB, so that the
+ * inventory can be loaded without parsing and sorting its text file.
+ * <p>
+ * The snapshot is a SnapshotFile, whose header holds the format version and
+ * the checksum of the contents. The contents start with a stamp of the text
+ * file the movies were read from: its size, its last modified time and the
+ * name of the charset it was read in. A snapshot whose stamp does not match
+ * the text file as it is now is stale. The movies follow in the order of the
+ * database, so they are already sorted, each as its number of copies in stock
+ * and the length of its name in UTF-8 bytes, both as varints, and then the
+ * bytes of the name.
+ *
+ * @author StephenHildebrand
+ */
+final class CatalogueSnapshot {
+    /** Magic number of a catalogue snapshot */
+    private static final int MAGIC = 0x4D4D4354; // "MMCT"
+    /** Version of the contents' format */
+    private static final int VERSION = 1;
+
+    /**
+     * There is nothing to instantiate.
+     */
+    private CatalogueSnapshot() {
+        // Only static methods
+    }
+
+    /**
+     * A stamp of a text file, to tell whether a snapshot was made from the
+     * file as it is now.
+     */
+    static final class Stamp {
+        /** Size of the file in bytes */
+        private final long size;
+        /** Last modified time of the file in milliseconds */
+        private final long modified;
+        /** Name of the charset the file is read in */
+        private final String charset;
+
+        /**
+         * Constructs a stamp of the given values.
+         *
+         * @param size     size of the file in bytes
+         * @param modified last modified time of the file in milliseconds
+         * @param charset  name of the charset the file is read in
+         */
+        private Stamp(long size, long modified, String charset) {
+            this.size = size;
+            this.modified = modified;
+            this.charset = charset;
+        }
+
+        /**
+         * Takes the stamp of a text file as it is now.
+         *
+         * @param source  the text file
+         * @param charset charset the file is read in
+         * @return the stamp
+         * @throws IOException if the file's attributes cannot be read
+         */
+        static Stamp of(Path source, Charset charset) throws IOException {
+            return new Stamp(Files.size(source), Files.getLastModifiedTime(source).toMillis(), charset.name());
+        }
+
+        /**
+         * Returns true if this stamp has the same values as another.
+         *
+         * @param other the other stamp
+         * @return true if the stamps match
+         */
+        boolean matches(Stamp other) {
+            return size == other.size && modified == other.modified && charset.equals(other.charset);
+        }
+    }
+
+    /**
+     * Writes a snapshot of movies, replacing any file at the given path.
+     *
+     * @param path   path of the snapshot file
+     * @param stamp  stamp of the text file the movies were read from
+     * @param movies the movies, in the order of the database
+     * @param count  number of movies
+     * @throws IOException if the file cannot be written
+     */
+    static void write(Path path, Stamp stamp, Iterable<Movie> movies, int count) throws IOException {
+        byte[] charset = stamp.charset.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer out = ByteBuffer.allocate(8 + 8 + 5 + charset.length + 5 + count * 24);
+        out.putLong(stamp.size).putLong(stamp.modified);
+        out = putBytes(out, charset);
+        out = Varints.putVarint(out, count);
+        for (Movie movie : movies) {
+            out = Varints.putVarint(out, movie.getInStock());
+            out = putBytes(out, movie.getName().getBytes(StandardCharsets.UTF_8));
+        }
+        out.flip();
+        SnapshotFile.write(path, MAGIC, VERSION, out);
+    }
+
+    /**
+     * Reads the movies of a snapshot made from the text file as it is now.
+     * The snapshot is mapped and its contents copied out in one read, then
+     * each name is decoded from the copy.
+     *
+     * @param path  path of the snapshot file
+     * @param stamp stamp of the text file as it is now
+     * @return the movies in the order of the database, or null if there is no
+     *         snapshot or it is stale
+     * @throws IOException if the snapshot cannot be read or is not valid
+     */
+    static List<Movie> read(Path path, Stamp stamp) throws IOException {
+        ByteBuffer contents = SnapshotFile.read(path, MAGIC, VERSION);
+        if (contents == null) {
+            return null;
+        }
+        byte[] bytes = new byte[contents.remaining()];
+        contents.get(bytes);
+        ByteBuffer in = ByteBuffer.wrap(bytes);
+        try {
+            long size = in.getLong();
+            long modified = in.getLong();
+            int charsetLength = Varints.getVarint(in);
+            String charset = new String(bytes, in.position(), charsetLength, StandardCharsets.UTF_8);
+            in.position(in.position() + charsetLength);
+            if (!stamp.matches(new Stamp(size, modified, charset))) {
+                return null;
+            }
+            int count = Varints.getVarint(in);
+            List<Movie> movies = new ArrayList<Movie>(count);
+            for (int i = 0; i < count; i++) {
+                int inStock = Varints.getVarint(in);
+                int length = Varints.getVarint(in);
+                movies.add(new Movie(new String(bytes, in.position(), length, StandardCharsets.UTF_8), inStock));
+                in.position(in.position() + length);
+            }
+            return movies;
+        } catch (RuntimeException e) {
+            // The checksum matched, so only a snapshot written wrongly gets here
+            throw new IOException("The snapshot is not valid.", e);
+        }
+    }
+
+    /**
+     * Writes bytes after their length as a varint.
+     *
+     * @param out   buffer to write to
+     * @param bytes the bytes
+     * @return the buffer, or a larger copy of it if it was full
+     */
+    private static ByteBuffer putBytes(ByteBuffer out, byte[] bytes) {
+        out = Varints.putVarint(out, bytes.length);
+        out = Varints.ensureRemaining(out, bytes.length);
+        return out.put(bytes);
+    }
+}
@@ -0,0 +1,63 @@
+/**
+ *
+ */
+package net.shiild.moviemanager.inventory;
+
+/**
+ * A CharSequence over a region of a char array that can be pointed at another
+ * array, so that MovieParser can read characters decoded into a buffer without
+ * the index checks of CharBuffer, and without a CharBuffer view being created
+ * for every title taken from it.
+ *
+ * @author StephenHildebrand
+ */
+final class CharArraySequence implements CharSequence {
+    /** The characters */
+    private char[] array;
+    /** Index in the array of the first character of the sequence */
+    private int offset;
+    /** Number of characters in the sequence */
+    private int length;
+
+    /**
+     * Points the sequence at a region of an array. The array is not copied,
+     * so changes to it show in the sequence.
+     *
+     * @param array  the characters
+     * @param offset index in the array of the first character
+     * @param length number of characters
+     */
+    void set(char[] array, int offset, int length) {
+        this.array = array;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        return array[offset + index];
+    }
+
+    /**
+     * Returns the characters between two indexes as a new String, which is
+     * not affected by later changes to the array.
+     *
+     * @param start index of the first character
+     * @param end   index after the last character
+     * @return the characters as a String
+     */
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return new String(array, offset + start, end - start);
+    }
+
+    @Override
+    public String toString() {
+        return new String(array, offset, length);
+    }
+}
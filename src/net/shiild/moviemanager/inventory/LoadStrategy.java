@@ -0,0 +1,20 @@
+package net.shiild.moviemanager.inventory;
+
+/**
+ * The ways a MovieDB can build its list of movies from an inventory file. Each
+ * strategy produces the same order: movies sorted as by Movie.compareToByName,
+ * with movies that compare as equal kept in the order they appear in the file.
+ *
+ * @author StephenHildebrand
+ */
+public enum LoadStrategy {
+    /** Insert each movie into the list in order as it is read */
+    INSERT_IN_ORDER,
+    /** Read every movie first, sort them all once, then add them to the rear */
+    BULK_SORT,
+    /**
+     * Map the file into memory and parse and sort chunks of it in parallel,
+     * then merge the sorted chunks (ParallelCatalogueLoader)
+     */
+    PARALLEL_MAPPED
+}
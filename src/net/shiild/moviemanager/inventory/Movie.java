@@ -3,18 +3,36 @@
  */
 package net.shiild.moviemanager.inventory;
 
+import java.io.IOException;
 import java.util.Scanner;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 
 /**
  * A movie in the rental system inventory.
+ * <p>
+ * The stock may be changed by several threads at once, as when customers on
+ * different threads check out the same movie. It is kept in a volatile int
+ * changed with compare-and-set, so no two threads take the last copy and no
+ * lock is held.
  *
  * @author StephenHildebrand
  */
 public class Movie {
+    /** Appended to the display name of a movie that is out of stock */
+    private static final String UNAVAILABLE = " (currently unavailable)";
+
     /** The movie's name */
     private String name;
+    /** The movie's name without a leading "A", "An" or "The", used for ordering */
+    private String sortKey;
+    /** Changes inStock atomically, without an AtomicInteger object for every movie */
+    private static final AtomicIntegerFieldUpdater<Movie> IN_STOCK =
+            AtomicIntegerFieldUpdater.newUpdater(Movie.class, "inStock");
+
     /** The number of copies of the movie in stock */
-    private int inStock;
+    private volatile int inStock;
+    /** Told of every change to the stock, or null */
+    private StockListener stockListener;
 
     /**
      * Constructs a Movie from a string of the format
@@ -63,6 +81,7 @@ public class Movie {
         // Get the movie name from the unedited movie string.
         if (lineScanner.hasNext()) {
             name = lineScanner.nextLine().trim();
+            sortKey = sortKeyOf(name);
         } else {
             lineScanner.close();
             throw new IllegalArgumentException("Invalid movie list file.");
@@ -70,6 +89,19 @@ public class Movie {
         lineScanner.close();
     }
 
+    /**
+     * Constructs a Movie from a name and a number of copies that have already
+     * been read from a movie list file line, as by MovieParser.
+     *
+     * @param name    the movie's name, already trimmed
+     * @param inStock the number of copies in stock, not negative
+     */
+    Movie(String name, int inStock) {
+        this.name = name;
+        this.sortKey = sortKeyOf(name);
+        this.inStock = inStock;
+    }
+
     /**
      * Returns the movie's name.
      *
@@ -89,11 +121,37 @@ public class Movie {
      */
     public String getDisplayName() {
         if (!this.isAvailable()) {
-            return name + " (currently unavailable)";
+            return name + UNAVAILABLE;
         }
         return name;
     }
 
+    /**
+     * Returns the length of the string getDisplayName returns, without
+     * creating it.
+     *
+     * @return the length of the movie's display name
+     */
+    public int getDisplayNameLength() {
+        if (!this.isAvailable()) {
+            return name.length() + UNAVAILABLE.length();
+        }
+        return name.length();
+    }
+
+    /**
+     * Appends the string getDisplayName returns to out, without creating it.
+     *
+     * @param out where to append the display name
+     * @throws IOException if out cannot be appended to
+     */
+    public void appendDisplayName(Appendable out) throws IOException {
+        out.append(name);
+        if (!this.isAvailable()) {
+            out.append(UNAVAILABLE);
+        }
+    }
+
     /**
      * Compares titles of two movies to determine their order in the inventory
      * list [UC7,S3]. Ignores the initial articles "A", "An" or "The".
@@ -114,27 +172,36 @@ public class Movie {
      */
     public int compareToByName(Movie otherMovie) {
         // Does a null otherMovie need to be handled???
-        String movieName = name;
-        String otherMovieName = otherMovie.name;
+        return sortKey.compareTo(otherMovie.sortKey);
+    }
 
-        // If this movie's name starts with "A", "An", or "The", remove it for
-        // comparison with the other movie (regardless of case)
+    /**
+     * Returns a movie name with the initial article "A", "An" or "The" (or
+     * "a", "an" or "the") and the space after it removed. The key is computed
+     * once when the movie is constructed so that compareToByName does not
+     * create new strings on every comparison.
+     *
+     * @param name the movie's name
+     * @return the name without its initial article
+     */
+    private static String sortKeyOf(String name) {
         if (name.startsWith("a ") || name.startsWith("A ")) {
-            movieName = movieName.substring(2);
+            return name.substring(2);
         } else if (name.startsWith("an ") || name.startsWith("An ")) {
-            movieName = movieName.substring(3);
+            return name.substring(3);
         } else if (name.startsWith("the ") || name.startsWith("The ")) {
-            movieName = movieName.substring(4);
-        }
-        // Repeat with the other movie's name
-        if (otherMovieName.startsWith("a ") || otherMovieName.startsWith("A ")) {
-            otherMovieName = otherMovieName.substring(2);
-        } else if (otherMovieName.startsWith("an ") || otherMovieName.startsWith("An ")) {
-            otherMovieName = otherMovieName.substring(3);
-        } else if (otherMovieName.startsWith("the ") || otherMovieName.startsWith("The ")) {
-            otherMovieName = otherMovieName.substring(4);
+            return name.substring(4);
         }
-        return movieName.compareTo(otherMovieName);
+        return name;
+    }
+
+    /**
+     * Returns the number of copies of the movie in stock.
+     *
+     * @return the number of copies in stock
+     */
+    int getInStock() {
+        return inStock;
     }
 
     /**
@@ -153,7 +220,10 @@ public class Movie {
      * Puts a copy of the movie back into the inventory stock [UC10].
      */
     public void backToInventory() {
-        inStock++;
+        IN_STOCK.incrementAndGet(this);
+        if (stockListener != null) {
+            stockListener.stockChanged(this, 1);
+        }
     }
 
     /**
@@ -164,9 +234,50 @@ public class Movie {
      * @throws IllegalStateException if no copies are in stock
      */
     public void removeOneCopyFromInventory() throws IllegalStateException {
-        if (inStock <= 0) {
+        if (!tryRemoveOneCopy()) {
             throw new IllegalStateException();
         }
-        inStock--;
+    }
+
+    /**
+     * Removes a copy of the movie from the inventory stock if there is one,
+     * as removeOneCopyFromInventory does, but returns false instead of
+     * throwing if there is none. Of several threads trying to take the last
+     * copy at once, exactly one succeeds.
+     *
+     * @return true if a copy was removed, false if none was in stock
+     */
+    public boolean tryRemoveOneCopy() {
+        while (true) {
+            int current = inStock;
+            if (current <= 0) {
+                return false;
+            }
+            if (IN_STOCK.compareAndSet(this, current, current - 1)) {
+                if (stockListener != null) {
+                    stockListener.stockChanged(this, -1);
+                }
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Sets the number of copies in stock, as recovered by a StockStore,
+     * without telling the listener.
+     *
+     * @param inStock the number of copies in stock, not negative
+     */
+    void setInStock(int inStock) {
+        this.inStock = inStock;
+    }
+
+    /**
+     * Sets the listener told of every change to the stock.
+     *
+     * @param stockListener the listener, or null for none
+     */
+    void setStockListener(StockListener stockListener) {
+        this.stockListener = stockListener;
     }
 }
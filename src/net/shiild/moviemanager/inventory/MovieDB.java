@@ -3,19 +3,45 @@
  */
 package net.shiild.moviemanager.inventory;
 
-import java.io.*;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
-import net.shiild.moviemanager.list_util.MultiPurposeList;
+import net.shiild.moviemanager.list_util.ListType;
+import net.shiild.moviemanager.list_util.PositionalList;
 
 /**
- * An internal database of movies that uses a MultiPurposeList of Movies for
- * maintaining its collection of items.
+ * An internal database of movies that uses a PositionalList of Movies for
+ * maintaining its collection of items. The list is a TreeMultiPurposeList,
+ * which keeps the movies in title order with O(log n) insertion and lookup by
+ * position, unless another ListType is given when the database is constructed.
  *
  * @author StephenHildebrand
  */
 public class MovieDB {
+    /** Orders movies as Movie.compareToByName does */
+    private static final Comparator<Movie> BY_NAME = new Comparator<Movie>() {
+        @Override
+        public int compare(Movie movie, Movie otherMovie) {
+            return movie.compareToByName(otherMovie);
+        }
+    };
+
     /** List of Movie elements in the inventory */
-    private MultiPurposeList<Movie> movies;
+    private PositionalList<Movie> movies;
+    /** Store keeping the movies' stock on disk, or null */
+    private StockStore stockStore;
 
     /**
      * Constructs the database from a file [UC1,S3], where the parameter is the
@@ -27,8 +53,224 @@ public class MovieDB {
      * @throws IllegalArgumentException if the file cannot be read
      */
     public MovieDB(String fileName) throws IllegalArgumentException {
-        movies = new MultiPurposeList<Movie>();
-        readFromFile(fileName);
+        this(fileName, ListType.TREE);
+    }
+
+    /**
+     * Constructs the database from a file, storing the movies in a list of the
+     * given type. Throws an IllegalArgumentException if the file cannot be read
+     * or the list type is null.
+     *
+     * @param fileName name of the file to be read
+     * @param listType type of list to hold the movies
+     * @throws IllegalArgumentException if the file cannot be read or listType is null
+     */
+    public MovieDB(String fileName, ListType listType) throws IllegalArgumentException {
+        this(fileName, listType, LoadStrategy.BULK_SORT);
+    }
+
+    /**
+     * Constructs the database from a file, storing the movies in a list of the
+     * given type and building the list with the given strategy. Throws an
+     * IllegalArgumentException if the file cannot be read or the list type or
+     * strategy is null.
+     *
+     * @param fileName     name of the file to be read
+     * @param listType     type of list to hold the movies
+     * @param loadStrategy how to build the list from the file
+     * @throws IllegalArgumentException if the file cannot be read or listType or loadStrategy is null
+     */
+    public MovieDB(String fileName, ListType listType, LoadStrategy loadStrategy)
+            throws IllegalArgumentException {
+        this(listType, loadStrategy);
+        if (fileName == null) {
+            throw new IllegalArgumentException("The file could not be read.");
+        }
+        readFromFile(Paths.get(fileName), Charset.defaultCharset(), loadStrategy);
+    }
+
+    /**
+     * Constructs the database from a file encoded in the given charset. Throws
+     * an IllegalArgumentException if the file cannot be read.
+     *
+     * @param path    path of the file to be read
+     * @param charset charset the file is encoded in
+     * @throws IllegalArgumentException if the file cannot be read or path or charset is null
+     */
+    public MovieDB(Path path, Charset charset) throws IllegalArgumentException {
+        this(ListType.TREE, LoadStrategy.BULK_SORT);
+        if (path == null) {
+            throw new IllegalArgumentException("The file could not be read.");
+        }
+        if (charset == null) {
+            throw new IllegalArgumentException("Charset not specified.");
+        }
+        readFromFile(path, charset, LoadStrategy.BULK_SORT);
+    }
+
+    /**
+     * Constructs the database from a stream of a movie list in the given
+     * charset, such as a network or classpath resource, reading the stream to
+     * its end. The stream is not closed. Throws an IllegalArgumentException if
+     * the stream cannot be read.
+     *
+     * @param in      stream to be read
+     * @param charset charset the stream is encoded in
+     * @throws IllegalArgumentException if the stream cannot be read or in or charset is null
+     */
+    public MovieDB(InputStream in, Charset charset) throws IllegalArgumentException {
+        this(in, charset, MovieFileReader.DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Constructs the database from a stream of a movie list in the given
+     * charset, reading it through a buffer of the given number of bytes. The
+     * stream is not closed. Throws an IllegalArgumentException if the stream
+     * cannot be read.
+     *
+     * @param in         stream to be read
+     * @param charset    charset the stream is encoded in
+     * @param bufferSize number of bytes to read from the stream at a time, at
+     *                   least 16
+     * @throws IllegalArgumentException if the stream cannot be read, in or charset is null or bufferSize is less than 16
+     */
+    public MovieDB(InputStream in, Charset charset, int bufferSize) throws IllegalArgumentException {
+        this(ListType.TREE, LoadStrategy.BULK_SORT);
+        if (in == null) {
+            throw new IllegalArgumentException("The stream could not be read.");
+        }
+        MovieFileReader reader = new MovieFileReader(charset, bufferSize);
+        try {
+            addAll(reader.read(Channels.newChannel(in)), LoadStrategy.BULK_SORT);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("The stream could not be read.");
+        }
+    }
+
+    /**
+     * Loads the database from the text file at the given path, reading a
+     * binary snapshot of it instead if there is one made from the file as it
+     * is now. The snapshot holds the movies already sorted, so loading it is
+     * one mapped read with no parsing or sorting. If there is no snapshot, or
+     * it is stale or not valid, the text file is read and a new snapshot of
+     * it is written for the next load; if the snapshot cannot be written, the
+     * database is returned all the same. Throws an IllegalArgumentException if
+     * the text file cannot be read.
+     *
+     * @param path     path of the text file
+     * @param snapshot path of the snapshot
+     * @param charset  charset the text file is encoded in
+     * @return the database
+     * @throws IllegalArgumentException if the file cannot be read or path, snapshot or charset is null
+     */
+    public static MovieDB load(Path path, Path snapshot, Charset charset) throws IllegalArgumentException {
+        if (path == null || snapshot == null) {
+            throw new IllegalArgumentException("The file could not be read.");
+        }
+        if (charset == null) {
+            throw new IllegalArgumentException("Charset not specified.");
+        }
+        CatalogueSnapshot.Stamp stamp;
+        try {
+            // Taken before reading, so a file changed while it is read leaves a stale snapshot
+            stamp = CatalogueSnapshot.Stamp.of(path, charset);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("The file could not be read.");
+        }
+        try {
+            List<Movie> snapshotMovies = CatalogueSnapshot.read(snapshot, stamp);
+            if (snapshotMovies != null) {
+                MovieDB db = new MovieDB(ListType.TREE, LoadStrategy.BULK_SORT);
+                for (Movie movie : snapshotMovies) {
+                    db.movies.addToRear(movie);
+                }
+                return db;
+            }
+        } catch (IOException e) {
+            // Not valid, so read the text file and replace it
+        }
+        MovieDB db = new MovieDB(path, charset);
+        try {
+            CatalogueSnapshot.write(snapshot, stamp, db.movies, db.size());
+        } catch (IOException e) {
+            // The next load reads the text file again
+        }
+        return db;
+    }
+
+    /**
+     * Reads the database from a stream of the text file at the given path,
+     * such as one that reports its progress, as load does when there is no
+     * current snapshot, and writes a snapshot of it for the next load. The
+     * file is stamped before the stream is read, so a file changed while it
+     * is read leaves a stale snapshot. If the snapshot cannot be written, the
+     * database is returned all the same. The stream is not closed.
+     *
+     * @param in       stream of the text file
+     * @param path     path of the text file
+     * @param snapshot path of the snapshot
+     * @param charset  charset the text file is encoded in
+     * @return the database
+     * @throws IllegalArgumentException if the stream or file cannot be read or an argument is null
+     */
+    public static MovieDB load(InputStream in, Path path, Path snapshot, Charset charset)
+            throws IllegalArgumentException {
+        if (path == null || snapshot == null) {
+            throw new IllegalArgumentException("The file could not be read.");
+        }
+        if (charset == null) {
+            throw new IllegalArgumentException("Charset not specified.");
+        }
+        CatalogueSnapshot.Stamp stamp;
+        try {
+            stamp = CatalogueSnapshot.Stamp.of(path, charset);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("The file could not be read.");
+        }
+        MovieDB db = new MovieDB(in, charset);
+        try {
+            CatalogueSnapshot.write(snapshot, stamp, db.movies, db.size());
+        } catch (IOException e) {
+            // The next load reads the text file again
+        }
+        return db;
+    }
+
+    /**
+     * Writes a binary snapshot of the database for load to read instead of
+     * the text file it was read from. The movies are written with the stock
+     * they have now, so the snapshot should be written right after the
+     * database is read, before any copies are checked out.
+     *
+     * @param snapshot path of the snapshot
+     * @param path     path of the text file the database was read from
+     * @param charset  charset the text file is encoded in
+     * @throws IOException              if the snapshot cannot be written or the text file's attributes read
+     * @throws IllegalArgumentException if snapshot, path or charset is null
+     */
+    public void writeSnapshot(Path snapshot, Path path, Charset charset) throws IOException, IllegalArgumentException {
+        if (snapshot == null || path == null || charset == null) {
+            throw new IllegalArgumentException();
+        }
+        CatalogueSnapshot.write(snapshot, CatalogueSnapshot.Stamp.of(path, charset), movies, movies.size());
+    }
+
+    /**
+     * Constructs an empty database with a list of the given type, to be filled
+     * with the given strategy.
+     *
+     * @param listType     type of list to hold the movies
+     * @param loadStrategy how the list will be built
+     * @throws IllegalArgumentException if listType or loadStrategy is null
+     */
+    private MovieDB(ListType listType, LoadStrategy loadStrategy) throws IllegalArgumentException {
+        if (listType == null) {
+            throw new IllegalArgumentException("List type not specified.");
+        }
+        if (loadStrategy == null) {
+            throw new IllegalArgumentException("Load strategy not specified.");
+        }
+        movies = listType.newList();
     }
 
     /**
@@ -40,15 +282,38 @@ public class MovieDB {
      * @return String corresponding to the database movies in order
      */
     public String traverse() {
-        String stringDB = null;
-        if (!movies.isEmpty()) {
-            stringDB = "";
-            movies.resetIterator();
-            while (movies.hasNext()) {
-                stringDB = stringDB + movies.next().getDisplayName() + "\n";
-            }
+        if (movies.isEmpty()) {
+            return null;
+        }
+        // Size the builder exactly so that the string is copied only once
+        int length = 0;
+        for (Movie movie : movies) {
+            length += movie.getDisplayNameLength() + 1;
+        }
+        StringBuilder stringDB = new StringBuilder(length);
+        try {
+            traverse(stringDB);
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // StringBuilder never throws
+        }
+        return stringDB.toString();
+    }
+
+    /**
+     * Appends the display names of the movies in the database to out in the
+     * proper order, each followed by a newline, as in the string traverse
+     * returns. Nothing is appended if the database is empty. Writing to a
+     * Writer this way never holds the names of the whole inventory in memory
+     * at once.
+     *
+     * @param out where to append the movies
+     * @throws IOException if out cannot be appended to
+     */
+    public void traverse(Appendable out) throws IOException {
+        for (Movie movie : movies) {
+            movie.appendDisplayName(out);
+            out.append('\n');
         }
-        return stringDB;
     }
 
     /**
@@ -68,30 +333,122 @@ public class MovieDB {
     }
 
     /**
-     * Reads the file with the given file name.
+     * Returns the movies at count consecutive positions, starting at the given
+     * position, or fewer if the end of the database comes first. The movies
+     * are found with a single iterator starting at the position, so a page of
+     * a large database costs about as much as finding its first movie, instead
+     * of a search from the front of the list for each movie. Throws an
+     * IllegalArgumentException if the position is less than 0 or greater than
+     * the size, or the count is negative.
      *
-     * @param fileName the name of the file to read
+     * @param psn   position of the first movie
+     * @param count the greatest number of movies to return
+     * @return the movies in order, from position psn on
+     * @throws IllegalArgumentException if psn is less than 0 or greater than size, or count is negative
      */
-    private void readFromFile(String fileName) throws IllegalArgumentException {
+    public List<Movie> findItemsAt(int psn, int count) throws IllegalArgumentException {
+        if (psn < 0 || psn > movies.size() || count < 0) {
+            throw new IllegalArgumentException();
+        }
+        List<Movie> page = new ArrayList<Movie>(Math.min(count, movies.size() - psn));
+        Iterator<Movie> it = movies.iterator(psn);
+        while (page.size() < count && it.hasNext()) {
+            page.add(it.next());
+        }
+        return page;
+    }
+
+    /**
+     * Returns the number of movies in the database.
+     *
+     * @return the number of movies
+     */
+    public int size() {
+        return movies.size();
+    }
+
+    /**
+     * Returns the store keeping the movies' stock on disk.
+     *
+     * @return the StockStore opened over the database, or null if the stock
+     *         is kept in memory only
+     */
+    public StockStore getStockStore() {
+        return stockStore;
+    }
+
+    /**
+     * Sets the store keeping the movies' stock on disk.
+     *
+     * @param stockStore the store
+     */
+    void setStockStore(StockStore stockStore) {
+        this.stockStore = stockStore;
+    }
+
+    /**
+     * Reads the file at the given path, building the list of movies with the
+     * given strategy.
+     *
+     * @param path         path of the file to read
+     * @param charset      charset the file is encoded in
+     * @param loadStrategy how to build the list from the file
+     */
+    private void readFromFile(Path path, Charset charset, LoadStrategy loadStrategy)
+            throws IllegalArgumentException {
         try {
-            // Create a BufferedReader from the file name
-            BufferedReader input = new BufferedReader(new FileReader(fileName));
-            // Read the first BufferedReader line
-            String line = input.readLine();
-            while (line != null) {
-                if (line.length() > 0) { // line is not empty
-                    insertInOrder(new Movie(line));
+            if (loadStrategy == LoadStrategy.PARALLEL_MAPPED) {
+                ParallelCatalogueLoader loader = new ParallelCatalogueLoader(ForkJoinPool.commonPool(),
+                        ParallelCatalogueLoader.DEFAULT_MIN_CHUNK_BYTES, BY_NAME);
+                // The movies come back sorted
+                for (Movie movie : loader.load(path, charset)) {
+                    movies.addToRear(movie);
                 }
-                line = input.readLine();
+                return;
+            }
+            FileChannel input = FileChannel.open(path, StandardOpenOption.READ);
+            try {
+                MovieFileReader reader = new MovieFileReader(charset, MovieFileReader.DEFAULT_BUFFER_SIZE);
+                addAll(reader.read(input), loadStrategy);
+            } finally {
+                input.close();
             }
-            input.close();
-        } catch (FileNotFoundException e) {
-            throw new IllegalArgumentException("The file could not be read.");
         } catch (IOException e) {
             throw new IllegalArgumentException("The file could not be read.");
         }
     }
 
+    /**
+     * Adds movies read from a file to the movieDB, building the list with the
+     * given strategy.
+     *
+     * @param fileMovies   movies in the order they were read
+     * @param loadStrategy how to build the list
+     */
+    private void addAll(List<Movie> fileMovies, LoadStrategy loadStrategy) {
+        if (loadStrategy == LoadStrategy.INSERT_IN_ORDER) {
+            for (Movie movie : fileMovies) {
+                insertInOrder(movie);
+            }
+        } else {
+            addAllInOrder(fileMovies);
+        }
+    }
+
+    /**
+     * Sorts movies and adds them to the rear of the movieDB. The sort is
+     * stable, so movies that compare as equal keep their order, just as
+     * insertInOrder places a movie after the equal movies already inserted.
+     *
+     * @param newMovies movies to be added
+     */
+    private void addAllInOrder(List<Movie> newMovies) {
+        Collections.sort(newMovies, BY_NAME);
+        for (Movie movie : newMovies) {
+            movies.addToRear(movie);
+        }
+    }
+
     /**
      * Inserts a movie into the movieDB in the appropriate location based on its
      * lexicographic value.
@@ -100,26 +457,9 @@ public class MovieDB {
      */
     private void insertInOrder(Movie newMovie) {
         if (movies != null & newMovie != null) { // movies is instantiated
-            movies.resetIterator(); // Reset iterator to position 0
-            int psn = 0; // Tracker for the current position
-            boolean found = false;
-            // -----------------------------
-            // While the next element after iterator is not null
-            while (movies.hasNext() && !found) {
-                // Return the current movie and move to the next element
-                Movie currentMovie = movies.next();
-                // If the current movie is lexically larger than the new movie,
-                // the new movie belongs in front of it.
-                if (currentMovie.compareToByName(newMovie) > 0) {
-                    movies.addItem(psn, newMovie);
-                    found = true;
-                }
-                psn++; // Increment position by one
-            }
-            // If the end of the list is reached and no match was found
-            if (!movies.hasNext() && !found) {
-                movies.addItem(psn, newMovie);
-            }
+            // The new movie belongs in front of the first movie that is
+            // lexically larger than it
+            movies.addInOrder(newMovie, BY_NAME);
         }
     }
 }
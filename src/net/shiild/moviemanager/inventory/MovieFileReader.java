@@ -0,0 +1,162 @@
+/**
+ *
+ */
+package net.shiild.moviemanager.inventory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads the movies of a movie list file from a channel in a given charset.
+ * <p>
+ * Bytes are read into one byte buffer and decoded by one CharsetDecoder into
+ * one character buffer, all of which are kept and reused for every read, and
+ * each line is parsed with MovieParser where it lies in the character buffer.
+ * The only objects created per line are therefore the title and the Movie,
+ * where a BufferedReader also creates a String for every line. The byte
+ * buffer is a heap buffer rather than a direct one: the JDK's decoders only
+ * take their fast path when both buffers are backed by arrays, and decoding
+ * from a direct buffer was measured to cost more than the copy it saves. Lines end with
+ * "\n", "\r" or "\r\n", as for BufferedReader.readLine, and empty lines are
+ * skipped. Bytes that are not valid in the charset are read as the
+ * replacement character, as by an InputStreamReader.
+ * <p>
+ * A reader is meant for one thread at a time.
+ *
+ * @author StephenHildebrand
+ */
+class MovieFileReader {
+    /** Default size of the byte buffer */
+    static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+    /** Smallest allowed size of the byte buffer */
+    static final int MIN_BUFFER_SIZE = 16;
+
+    /** Decoder for the charset of the files read */
+    private final CharsetDecoder decoder;
+    /** Bytes read but not yet decoded */
+    private final ByteBuffer bytes;
+    /** Characters decoded but not yet parsed, grown to fit the longest line */
+    private CharBuffer chars;
+    /** View of the character buffer's array passed to MovieParser */
+    private final CharArraySequence text = new CharArraySequence();
+    /** True if the last line ended with '\r', so a '\n' next is part of it */
+    private boolean skipLF;
+
+    /**
+     * Constructs a reader of files in the given charset.
+     *
+     * @param charset    charset the files are encoded in
+     * @param bufferSize size of the byte buffer, at least MIN_BUFFER_SIZE
+     * @throws IllegalArgumentException if charset is null or bufferSize is too small
+     */
+    MovieFileReader(Charset charset, int bufferSize) throws IllegalArgumentException {
+        if (charset == null) {
+            throw new IllegalArgumentException("Charset not specified.");
+        }
+        if (bufferSize < MIN_BUFFER_SIZE) {
+            throw new IllegalArgumentException("Buffer size too small.");
+        }
+        decoder = charset.newDecoder().onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        bytes = ByteBuffer.allocate(bufferSize);
+        chars = CharBuffer.allocate((int) Math.ceil(bufferSize * (double) decoder.maxCharsPerByte()));
+    }
+
+    /**
+     * Reads every movie from a channel until the end of its input. The
+     * channel is not closed.
+     *
+     * @param channel channel to read from
+     * @return the movies in the order they were read
+     * @throws IOException              if the channel cannot be read
+     * @throws IllegalArgumentException if a line is not a valid movie
+     */
+    List<Movie> read(ReadableByteChannel channel) throws IOException, IllegalArgumentException {
+        List<Movie> movies = new ArrayList<Movie>();
+        decoder.reset();
+        bytes.clear();
+        chars.clear();
+        skipLF = false;
+        boolean eof = false;
+        boolean done = false;
+        while (!done) {
+            if (!eof) {
+                eof = channel.read(bytes) < 0;
+            }
+            bytes.flip();
+            CoderResult result = decoder.decode(bytes, chars, eof);
+            bytes.compact();
+            if (eof && result.isUnderflow()) {
+                while (decoder.flush(chars).isOverflow()) {
+                    grow();
+                }
+                done = true;
+            }
+            chars.flip();
+            chars.position(parseLines(movies, done));
+            chars.compact();
+            if (!done && !chars.hasRemaining()) {
+                grow(); // a line longer than the buffer
+            }
+        }
+        return movies;
+    }
+
+    /**
+     * Parses each complete line in the character buffer, which is ready to be
+     * read from position 0.
+     *
+     * @param movies list to add the movies to
+     * @param done   true if the input has ended, so that the last line is
+     *               complete even without a line ending
+     * @return index of the first character not yet parsed
+     */
+    private int parseLines(List<Movie> movies, boolean done) {
+        char[] array = chars.array();
+        int offset = chars.arrayOffset();
+        int limit = chars.limit();
+        text.set(array, offset, limit);
+        int lineStart = 0;
+        for (int i = 0; i < limit; i++) {
+            char c = array[offset + i];
+            if (skipLF) {
+                skipLF = false;
+                if (c == '\n') {
+                    lineStart = i + 1;
+                    continue;
+                }
+            }
+            if (c == '\n' || c == '\r') {
+                if (i > lineStart) {
+                    movies.add(MovieParser.parse(text, lineStart, i));
+                }
+                skipLF = c == '\r';
+                lineStart = i + 1;
+            }
+        }
+        if (done && limit > lineStart) {
+            movies.add(MovieParser.parse(text, lineStart, limit));
+            lineStart = limit;
+        }
+        return lineStart;
+    }
+
+    /**
+     * Doubles the capacity of the character buffer, which is ready to be
+     * written to, keeping its contents.
+     */
+    private void grow() {
+        CharBuffer larger = CharBuffer.allocate(chars.capacity() * 2);
+        chars.flip();
+        larger.put(chars);
+        chars = larger;
+    }
+}
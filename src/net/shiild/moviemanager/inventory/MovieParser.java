@@ -0,0 +1,211 @@
+/**
+ *
+ */
+package net.shiild.moviemanager.inventory;
+
+import java.text.DecimalFormatSymbols;
+import java.util.Locale;
+
+/**
+ * Parses movie list file lines of the format
+ * <number-in-stock><whitespace><movie-title> into Movies without a Scanner.
+ * <p>
+ * The Movie(String) constructor creates a Scanner, with its regular
+ * expressions and buffers, for every line, and reading a large movie list file
+ * spends most of its time there. This parser reads the number and finds the
+ * title by walking the characters of the line once, so the only objects it
+ * creates for a valid line are the title string and the Movie.
+ * <p>
+ * It accepts and rejects exactly the lines the constructor does, and reads the
+ * same number and title from them:
+ * <ul>
+ * <li>the line is trimmed as by String.trim, and the number is the first
+ * token separated by whitespace (Character.isWhitespace)</li>
+ * <li>the number is an optional '+' or '-' followed by decimal digits, which
+ * may be grouped in threes by the default locale's grouping separator, as
+ * Scanner.nextInt reads it; a number outside the range of an int rejects the
+ * line</li>
+ * <li>a negative number of copies in stock is read as 0</li>
+ * <li>a line with nothing but whitespace after the number rejects; otherwise
+ * the title is the rest of the line up to any line terminator, trimmed, as
+ * Scanner.nextLine reads it</li>
+ * </ul>
+ *
+ * @author StephenHildebrand
+ */
+public final class MovieParser {
+    /** Grouping separator of the default locale, as used by Scanner */
+    private static final char GROUPING_SEPARATOR = DecimalFormatSymbols
+            .getInstance(Locale.getDefault(Locale.Category.FORMAT)).getGroupingSeparator();
+
+    /**
+     * The parser has no state, so it is never instantiated.
+     */
+    private MovieParser() {
+        // Only static methods
+    }
+
+    /**
+     * Parses a Movie from a movie list file line.
+     *
+     * @param line an unedited line from a movie list file
+     * @return the movie the line describes
+     * @throws IllegalArgumentException if the line is null or is not valid
+     */
+    public static Movie parse(CharSequence line) throws IllegalArgumentException {
+        if (line == null) {
+            throw new IllegalArgumentException();
+        }
+        return parse(line, 0, line.length());
+    }
+
+    /**
+     * Parses a Movie from the characters of a movie list file line that lie
+     * between two indexes of a larger sequence, such as a buffer of a file's
+     * contents.
+     *
+     * @param text  the characters holding the line
+     * @param start index of the first character of the line
+     * @param end   index after the last character of the line
+     * @return the movie the line describes
+     * @throws IllegalArgumentException if the line is not valid
+     */
+    public static Movie parse(CharSequence text, int start, int end) throws IllegalArgumentException {
+        // Trim as String.trim does
+        while (start < end && text.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && text.charAt(end - 1) <= ' ') {
+            end--;
+        }
+
+        // Find the number token, skipping any whitespace that trim left
+        int tokenStart = start;
+        while (tokenStart < end && Character.isWhitespace(text.charAt(tokenStart))) {
+            tokenStart++;
+        }
+        if (tokenStart == end) {
+            throw new IllegalArgumentException("Invalid movie list file.");
+        }
+        int tokenEnd = tokenStart;
+        while (tokenEnd < end && !Character.isWhitespace(text.charAt(tokenEnd))) {
+            tokenEnd++;
+        }
+        int numberInStock = parseInt(text, tokenStart, tokenEnd);
+
+        // There must be more than whitespace after the number
+        int rest = tokenEnd;
+        while (rest < end && Character.isWhitespace(text.charAt(rest))) {
+            rest++;
+        }
+        if (rest == end) {
+            throw new IllegalArgumentException("Invalid movie list file.");
+        }
+
+        // The title is the rest of the line up to a line terminator, trimmed
+        int nameStart = tokenEnd;
+        int nameEnd = nameStart;
+        while (nameEnd < end && !isLineTerminator(text.charAt(nameEnd))) {
+            nameEnd++;
+        }
+        while (nameStart < nameEnd && text.charAt(nameStart) <= ' ') {
+            nameStart++;
+        }
+        while (nameEnd > nameStart && text.charAt(nameEnd - 1) <= ' ') {
+            nameEnd--;
+        }
+        String name = text.subSequence(nameStart, nameEnd).toString();
+        return new Movie(name, Math.max(0, numberInStock));
+    }
+
+    /**
+     * Reads a token as Scanner.nextInt does: an optional sign followed either
+     * by digits or by digits grouped in threes by the grouping separator.
+     *
+     * @param text  the characters holding the token
+     * @param start index of the first character of the token
+     * @param end   index after the last character of the token
+     * @return the number
+     * @throws IllegalArgumentException if the token is not an int
+     */
+    private static int parseInt(CharSequence text, int start, int end) throws IllegalArgumentException {
+        boolean negative = false;
+        int i = start;
+        char first = text.charAt(i);
+        if (first == '-' || first == '+') {
+            negative = first == '-';
+            i++;
+        }
+        if (i == end) {
+            throw new IllegalArgumentException("Invalid movie list file.");
+        }
+        // A grouped number starts with one to three digits, the first not '0'
+        boolean grouped = false;
+        for (int j = i; j < end; j++) {
+            if (text.charAt(j) == GROUPING_SEPARATOR) {
+                grouped = true;
+                break;
+            }
+        }
+        if (grouped && !isGroupedNumeral(text, i, end)) {
+            throw new IllegalArgumentException("Invalid movie list file.");
+        }
+
+        // The magnitude of Integer.MIN_VALUE is one more than Integer.MAX_VALUE
+        long limit = negative ? -(long) Integer.MIN_VALUE : Integer.MAX_VALUE;
+        long value = 0;
+        for (; i < end; i++) {
+            char c = text.charAt(i);
+            if (c == GROUPING_SEPARATOR) {
+                continue;
+            }
+            if (!Character.isDigit(c)) {
+                throw new IllegalArgumentException("Invalid movie list file.");
+            }
+            value = value * 10 + Character.digit(c, 10);
+            if (value > limit) {
+                throw new IllegalArgumentException("Invalid movie list file.");
+            }
+        }
+        return (int) (negative ? -value : value);
+    }
+
+    /**
+     * Returns true if the characters are one to three digits, the first not
+     * '0', followed by one or more groups of a grouping separator and three
+     * digits.
+     *
+     * @param text  the characters to check
+     * @param start index of the first character
+     * @param end   index after the last character
+     * @return true if the characters are a grouped number
+     */
+    private static boolean isGroupedNumeral(CharSequence text, int start, int end) {
+        int lead = start;
+        while (lead < end && Character.isDigit(text.charAt(lead))) {
+            lead++;
+        }
+        if (lead == start || lead - start > 3 || text.charAt(start) == '0') {
+            return false;
+        }
+        int groups = 0;
+        for (int i = lead; i < end; i += 4) {
+            if (end - i < 4 || text.charAt(i) != GROUPING_SEPARATOR || !Character.isDigit(text.charAt(i + 1))
+                    || !Character.isDigit(text.charAt(i + 2)) || !Character.isDigit(text.charAt(i + 3))) {
+                return false;
+            }
+            groups++;
+        }
+        return groups > 0;
+    }
+
+    /**
+     * Returns true if the character ends a line for Scanner.nextLine.
+     *
+     * @param c the character
+     * @return true if c is a line terminator
+     */
+    private static boolean isLineTerminator(char c) {
+        return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+    }
+}
@@ -0,0 +1,256 @@
+/**
+ *
+ */
+package net.shiild.moviemanager.inventory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Reads a movie inventory file into a sorted list of movies using several
+ * threads, for the LoadStrategy PARALLEL_MAPPED.
+ * <p>
+ * The file is split into chunks that end just after a newline, so that every
+ * line lies in exactly one chunk. Each chunk is memory mapped with
+ * FileChannel.map, decoded, parsed with MovieParser and sorted on its own in a
+ * ForkJoinPool, and the sorted chunks are then merged in pairs. Both the sorts
+ * and the merges are stable, and a merge takes movies that compare as equal
+ * from the earlier chunk first, so the result is in exactly the order a stable
+ * sort of the whole file would give.
+ * <p>
+ * Splitting at newline bytes only works for charsets that encode '\n' as that
+ * single byte and never use it inside another character, such as UTF-8 and
+ * ISO-8859-1. A file in any other charset is read as one chunk.
+ *
+ * @author StephenHildebrand
+ */
+class ParallelCatalogueLoader {
+    /** Default smallest chunk worth handing to a thread, in bytes */
+    static final int DEFAULT_MIN_CHUNK_BYTES = 1 << 20;
+    /** Chunks per pool thread, so that threads that finish early can help */
+    private static final int CHUNKS_PER_THREAD = 4;
+    /** Bytes read at a time while looking for the newline that ends a chunk */
+    private static final int SCAN_BYTES = 256;
+
+    /** Pool the chunks are read and merged in */
+    private final ForkJoinPool pool;
+    /** Smallest number of bytes in a chunk, except the last */
+    private final int minChunkBytes;
+    /** Order the movies are sorted in */
+    private final Comparator<Movie> order;
+
+    /**
+     * Constructs a loader that reads in the given pool.
+     *
+     * @param pool          pool the chunks are read and merged in
+     * @param minChunkBytes smallest number of bytes in a chunk, at least 1
+     * @param order         order to sort the movies in
+     * @throws IllegalArgumentException if pool or order is null or minChunkBytes is less than 1
+     */
+    ParallelCatalogueLoader(ForkJoinPool pool, int minChunkBytes, Comparator<Movie> order)
+            throws IllegalArgumentException {
+        if (pool == null || order == null || minChunkBytes < 1) {
+            throw new IllegalArgumentException();
+        }
+        this.pool = pool;
+        this.minChunkBytes = minChunkBytes;
+        this.order = order;
+    }
+
+    /**
+     * Reads every movie in a file, skipping empty lines, and returns them
+     * sorted.
+     *
+     * @param path    path of the file to read
+     * @param charset charset the file is encoded in
+     * @return the movies in the file, sorted
+     * @throws IOException              if the file cannot be read
+     * @throws IllegalArgumentException if a line of the file is not a valid movie
+     */
+    List<Movie> load(Path path, Charset charset) throws IOException, IllegalArgumentException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            long[] bounds = split(channel, charset);
+            Movie[] movies = pool.invoke(new ChunkTask(channel, charset, bounds, 0, bounds.length - 1));
+            return Arrays.asList(movies);
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Divides a file into chunks that each end just after a newline, or at
+     * the end of the file.
+     *
+     * @param channel the open file
+     * @param charset charset the file is encoded in
+     * @return offsets of the chunk boundaries, from 0 to the file size
+     * @throws IOException if the file cannot be read
+     */
+    private long[] split(FileChannel channel, Charset charset) throws IOException {
+        long size = channel.size();
+        long chunks = Math.min(size / minChunkBytes, (long) pool.getParallelism() * CHUNKS_PER_THREAD);
+        if (chunks < 1 || !Arrays.equals("\n".getBytes(charset), new byte[] {'\n'})) {
+            chunks = 1;
+        }
+        long[] bounds = new long[(int) chunks + 1];
+        ByteBuffer scan = ByteBuffer.allocate(SCAN_BYTES);
+        for (int i = 1; i < chunks; i++) {
+            long boundary = Math.max(bounds[i - 1], size / chunks * i);
+            // Move the boundary to just after the next newline
+            boolean found = false;
+            while (!found && boundary < size) {
+                scan.clear();
+                int read = channel.read(scan, boundary);
+                for (int j = 0; j < read && !found; j++) {
+                    boundary++;
+                    found = scan.get(j) == '\n';
+                }
+            }
+            bounds[i] = boundary;
+        }
+        bounds[(int) chunks] = size;
+        return bounds;
+    }
+
+    /**
+     * Reads the movies of a run of chunks, reading the two halves of the run
+     * in parallel and merging them.
+     */
+    private class ChunkTask extends RecursiveTask<Movie[]> {
+        /** Serialization version */
+        private static final long serialVersionUID = 1L;
+        /** The open file */
+        private final FileChannel channel;
+        /** Charset the file is encoded in */
+        private final Charset charset;
+        /** Offsets of all the chunk boundaries */
+        private final long[] bounds;
+        /** Index of the first chunk in the run */
+        private final int first;
+        /** Index after the last chunk in the run */
+        private final int last;
+
+        /**
+         * Constructs a task reading the chunks from first to last.
+         *
+         * @param channel the open file
+         * @param charset charset the file is encoded in
+         * @param bounds  offsets of all the chunk boundaries
+         * @param first   index of the first chunk in the run
+         * @param last    index after the last chunk in the run
+         */
+        private ChunkTask(FileChannel channel, Charset charset, long[] bounds, int first, int last) {
+            this.channel = channel;
+            this.charset = charset;
+            this.bounds = bounds;
+            this.first = first;
+            this.last = last;
+        }
+
+        @Override
+        protected Movie[] compute() {
+            if (last - first == 1) {
+                try {
+                    return readChunk(bounds[first], bounds[last]);
+                } catch (IOException e) {
+                    throw new IllegalArgumentException("The file could not be read.");
+                }
+            }
+            int middle = (first + last) >>> 1;
+            ChunkTask left = new ChunkTask(channel, charset, bounds, first, middle);
+            left.fork();
+            Movie[] right = new ChunkTask(channel, charset, bounds, middle, last).compute();
+            return merge(left.join(), right);
+        }
+
+        /**
+         * Maps, decodes and parses one chunk and sorts its movies.
+         *
+         * @param start offset of the first byte of the chunk
+         * @param end   offset after the last byte of the chunk
+         * @return the movies in the chunk, sorted
+         * @throws IOException if the chunk cannot be read
+         */
+        private Movie[] readChunk(long start, long end) throws IOException {
+            if (start == end) {
+                return new Movie[0];
+            }
+            MappedByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+            CharsetDecoder decoder = charset.newDecoder().onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+            CharBuffer text;
+            try {
+                text = decoder.decode(bytes);
+            } catch (CharacterCodingException e) {
+                throw new IOException(e); // not thrown when errors are replaced
+            }
+            List<Movie> movies = new ArrayList<Movie>();
+            char[] array = text.array();
+            int offset = text.arrayOffset() + text.position();
+            int length = text.remaining();
+            CharArraySequence line = new CharArraySequence();
+            line.set(array, offset, length);
+            int lineStart = 0;
+            // Lines end with "\n", "\r" or "\r\n", as for BufferedReader.readLine
+            for (int i = 0; i < length; i++) {
+                char c = array[offset + i];
+                if (c == '\n' || c == '\r') {
+                    if (i > lineStart) {
+                        movies.add(MovieParser.parse(line, lineStart, i));
+                    }
+                    if (c == '\r' && i + 1 < length && array[offset + i + 1] == '\n') {
+                        i++;
+                    }
+                    lineStart = i + 1;
+                }
+            }
+            if (length > lineStart) {
+                movies.add(MovieParser.parse(line, lineStart, length));
+            }
+            Movie[] sorted = movies.toArray(new Movie[movies.size()]);
+            Arrays.sort(sorted, order);
+            return sorted;
+        }
+
+        /**
+         * Merges two sorted runs, taking movies that compare as equal from the
+         * left run first.
+         *
+         * @param left  the earlier run
+         * @param right the later run
+         * @return the merged run
+         */
+        private Movie[] merge(Movie[] left, Movie[] right) {
+            Movie[] merged = new Movie[left.length + right.length];
+            int i = 0;
+            int j = 0;
+            int k = 0;
+            while (i < left.length && j < right.length) {
+                if (order.compare(right[j], left[i]) < 0) {
+                    merged[k++] = right[j++];
+                } else {
+                    merged[k++] = left[i++];
+                }
+            }
+            System.arraycopy(left, i, merged, k, left.length - i);
+            System.arraycopy(right, j, merged, k + left.length - i, right.length - j);
+            return merged;
+        }
+    }
+}
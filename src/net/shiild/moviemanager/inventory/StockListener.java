@@ -0,0 +1,20 @@
+/**
+ *
+ */
+package net.shiild.moviemanager.inventory;
+
+/**
+ * Is told of each change to the stock of a Movie, so that the change can be
+ * logged.
+ *
+ * @author StephenHildebrand
+ */
+interface StockListener {
+    /**
+     * The number of copies of a movie in stock changed.
+     *
+     * @param movie the movie
+     * @param delta the change, 1 for a copy back and -1 for a copy taken
+     */
+    void stockChanged(Movie movie, int delta);
+}
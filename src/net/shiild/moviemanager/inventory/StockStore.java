@@ -0,0 +1,513 @@
+/**
+ *
+ */
+package net.shiild.moviemanager.inventory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+import net.shiild.moviemanager.persistence.SnapshotFile;
+import net.shiild.moviemanager.persistence.WriteAheadLog;
+
+/**
+ * Keeps the stock of the movies of a MovieDB on disk, so that copies taken by
+ * customers are still out after a restart, rather than the stock going back
+ * to what the inventory file says.
+ * <p>
+ * The store is told of every change to a movie's stock as the movie's
+ * StockListener. Changes are gathered in memory, adding up the changes to each
+ * movie, until flush writes them all as one record to a write-ahead log, so a
+ * rental costs a few bytes appended to the log rather than a rewrite of the
+ * inventory. The store is opened over the inventory as read from its file,
+ * the base catalogue, and the logged changes are applied over it.
+ * <p>
+ * Every so many flushes, the store moves on to a new log and writes the stock
+ * of every movie to a snapshot on a background thread, after which the older
+ * logs are deleted. Each log is named after its generation, and a snapshot
+ * holds every log before its generation, so a crash at any point leaves
+ * either the snapshot and logs after it, or the previous snapshot and every
+ * log since.
+ * <p>
+ * The first record of each log, and every snapshot, holds a checksum of the
+ * names of the base catalogue in order, and a store can only be opened over
+ * the same titles. Snapshots, like the logs, hold each movie's change from
+ * its stock in the file rather than the stock itself, so copies added to or
+ * taken from a title in the file, as when the store is restocked, are added
+ * to or taken from the stock recovered. A CustomerStore opened over an
+ * inventory with a StockStore leaves the stock to it, and flushes it before
+ * each commit of its own.
+ *
+ * @author StephenHildebrand
+ */
+public class StockStore implements StockListener, Closeable {
+    /** Name of the snapshot file in the store's directory */
+    static final String SNAPSHOT_FILE = "stock.snapshot";
+    /** Start of the names of the log files, which end with the generation */
+    static final String LOG_PREFIX = "stock.";
+    /** End of the names of the log files */
+    static final String LOG_SUFFIX = ".log";
+    /** Default number of flushes between snapshots */
+    public static final int DEFAULT_COMPACT_EVERY = 1000;
+
+    /** Magic number of a stock snapshot */
+    private static final int SNAPSHOT_MAGIC = 0x4D4D5354; // "MMST"
+    /** Version of the snapshot format */
+    private static final int SNAPSHOT_VERSION = 2;
+    /** Record of the catalogue a log belongs to: count and checksum */
+    private static final byte CATALOGUE = 1;
+    /** Record of changes to the stock: count, then position and change of each */
+    private static final byte CHANGES = 2;
+
+    /** Directory of the store */
+    private final Path directory;
+    /** True if flushes force the log to the disk */
+    private final boolean sync;
+    /** Number of flushes between snapshots */
+    private final int compactEvery;
+    /** The inventory's movies by position */
+    private final Movie[] movies;
+    /** The position of each movie in the inventory */
+    private final Map<Movie, Integer> positions;
+    /** Checksum of the names of the base catalogue, in order */
+    private final int catalogue;
+    /** Stock of each movie in the base catalogue, by position */
+    private final int[] base;
+    /** Writes snapshots in the background */
+    private final ExecutorService compactor;
+
+    /** Guards the changes not yet flushed */
+    private final Object pendingLock = new Object();
+    /** Change to each movie's stock not yet flushed, by position */
+    private final int[] pending;
+    /** True for each position in changed */
+    private final boolean[] marked;
+    /** Positions with changes not yet flushed, in the order they were first changed */
+    private int[] changed = new int[16];
+    /** Number of positions in changed */
+    private int changedCount;
+
+    /** Guards the log and the stock made durable */
+    private final Object flushLock = new Object();
+    /** Stock of each movie as of the last flush, by position */
+    private final int[] durable;
+    /** The log being appended to */
+    private WriteAheadLog log;
+    /** Number of flushes to the current log */
+    private int flushes;
+    /** True while a snapshot is being written */
+    private boolean compacting;
+    /** Held while a snapshot is written, so that no two overlap */
+    private final Object compactLock = new Object();
+    /** True if any stock was recovered from disk when the store was opened */
+    private final boolean recovered;
+
+    /**
+     * Opens the store in a directory over an inventory just read from its
+     * file, creating the directory if needed, and sets the movies' stock to
+     * what was recovered. Flushes force the log to the disk.
+     *
+     * @param directory directory of the store
+     * @param inventory the inventory, with the stock read from its file
+     * @return the store
+     * @throws IOException              if the store cannot be read or does not match the inventory
+     * @throws IllegalArgumentException if directory or inventory is null
+     */
+    public static StockStore open(Path directory, MovieDB inventory) throws IOException {
+        return open(directory, inventory, true, DEFAULT_COMPACT_EVERY);
+    }
+
+    /**
+     * Opens the store in a directory over an inventory just read from its
+     * file, creating the directory if needed, and sets the movies' stock to
+     * what was recovered.
+     *
+     * @param directory    directory of the store
+     * @param inventory    the inventory, with the stock read from its file
+     * @param sync         true if flushes force the log to the disk
+     * @param compactEvery number of flushes between snapshots, at least 1
+     * @return the store
+     * @throws IOException              if the store cannot be read or does not match the inventory
+     * @throws IllegalArgumentException if directory or inventory is null or compactEvery is less than 1
+     */
+    public static StockStore open(Path directory, MovieDB inventory, boolean sync, int compactEvery)
+            throws IOException {
+        if (directory == null || inventory == null || compactEvery < 1) {
+            throw new IllegalArgumentException();
+        }
+        Files.createDirectories(directory);
+        StockStore store = new StockStore(directory, inventory, sync, compactEvery);
+        inventory.setStockStore(store);
+        return store;
+    }
+
+    /**
+     * Constructs the store, recovering the stock from its snapshot and logs.
+     *
+     * @param directory    directory of the store
+     * @param inventory    the inventory
+     * @param sync         true if flushes force the log to the disk
+     * @param compactEvery number of flushes between snapshots
+     * @throws IOException if the store cannot be read or does not match the inventory
+     */
+    private StockStore(Path directory, MovieDB inventory, boolean sync, int compactEvery) throws IOException {
+        this.directory = directory;
+        this.sync = sync;
+        this.compactEvery = compactEvery;
+        List<Movie> all = inventory.findItemsAt(0, inventory.size());
+        this.movies = all.toArray(new Movie[all.size()]);
+        this.positions = new IdentityHashMap<Movie, Integer>(movies.length);
+        this.durable = new int[movies.length];
+        this.base = new int[movies.length];
+        CRC32 crc = new CRC32();
+        for (int i = 0; i < movies.length; i++) {
+            positions.put(movies[i], i);
+            base[i] = movies[i].getInStock();
+            durable[i] = base[i];
+            byte[] name = movies[i].getName().getBytes(StandardCharsets.UTF_8);
+            crc.update(name, 0, name.length);
+            crc.update(0);
+        }
+        this.catalogue = (int) crc.getValue();
+        this.pending = new int[movies.length];
+        this.marked = new boolean[movies.length];
+        this.recovered = recover();
+        for (int i = 0; i < movies.length; i++) {
+            movies[i].setInStock(durable[i]);
+            movies[i].setStockListener(this);
+        }
+        this.compactor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "StockStore-compactor");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Reads the snapshot and replays the logs after it into durable, deletes
+     * logs the snapshot holds, and opens the newest log for appending.
+     *
+     * @return true if there was a snapshot or any change logged
+     * @throws IOException if the store cannot be read or does not match the inventory
+     */
+    private boolean recover() throws IOException {
+        boolean found = false;
+        long generation = 0;
+        ByteBuffer snapshot = SnapshotFile.read(directory.resolve(SNAPSHOT_FILE), SNAPSHOT_MAGIC, SNAPSHOT_VERSION);
+        if (snapshot != null) {
+            generation = readSnapshot(snapshot);
+            found = true;
+        }
+        final boolean[] changes = new boolean[1];
+        final boolean[] checked = new boolean[1];
+        for (long logGeneration : logGenerations()) {
+            if (logGeneration < generation) {
+                Files.delete(logPath(logGeneration));
+                continue;
+            }
+            if (log != null) {
+                log.close();
+            }
+            checked[0] = false;
+            log = WriteAheadLog.recover(logPath(logGeneration), new WriteAheadLog.RecordHandler() {
+                @Override
+                public void record(byte[] record) throws IOException {
+                    replay(ByteBuffer.wrap(record), checked, changes);
+                }
+            }, sync);
+        }
+        if (log == null) {
+            log = createLog(generation);
+        } else if (!checked[0]) {
+            // A log left with only its header, by a version that wrote the
+            // catalogue record after creating the file
+            log.append(catalogueRecord());
+            log.commit();
+        }
+        return found || changes[0];
+    }
+
+    /**
+     * Returns the generations of the log files in the directory.
+     *
+     * @return the generations, in order
+     * @throws IOException if the directory cannot be read
+     */
+    private List<Long> logGenerations() throws IOException {
+        List<Long> generations = new ArrayList<Long>();
+        DirectoryStream<Path> files = Files.newDirectoryStream(directory, LOG_PREFIX + "*" + LOG_SUFFIX);
+        try {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    generations.add(Long.parseLong(
+                            name.substring(LOG_PREFIX.length(), name.length() - LOG_SUFFIX.length())));
+                } catch (NumberFormatException e) {
+                    // Not a log of this store
+                }
+            }
+        } finally {
+            files.close();
+        }
+        Collections.sort(generations);
+        return generations;
+    }
+
+    /**
+     * Returns the path of the log of a generation.
+     *
+     * @param generation the generation
+     * @return the path
+     */
+    private Path logPath(long generation) {
+        return directory.resolve(LOG_PREFIX + generation + LOG_SUFFIX);
+    }
+
+    /**
+     * Creates a log of a generation holding only the record of the
+     * catalogue, which is written with the file so that no log is ever
+     * without it.
+     *
+     * @param generation the generation
+     * @return the log
+     * @throws IOException if the log cannot be written
+     */
+    private WriteAheadLog createLog(long generation) throws IOException {
+        return WriteAheadLog.create(logPath(generation), generation, sync, catalogueRecord());
+    }
+
+    /**
+     * Returns the record of the catalogue that starts each log.
+     *
+     * @return the record
+     */
+    private byte[] catalogueRecord() {
+        ByteBuffer record = ByteBuffer.allocate(1 + 5 + 4);
+        record.put(CATALOGUE);
+        record = Varints.putVarint(record, movies.length);
+        record.putInt(catalogue);
+        return Arrays.copyOf(record.array(), record.position());
+    }
+
+    /**
+     * Applies one record of a log to durable.
+     *
+     * @param in      the record
+     * @param checked whether the log's catalogue record has been read
+     * @param changes set to true if a change is applied
+     * @throws IOException if the record is not valid or the log belongs to another catalogue
+     */
+    private void replay(ByteBuffer in, boolean[] checked, boolean[] changes) throws IOException {
+        try {
+            byte type = in.get();
+            if (type == CATALOGUE) {
+                if (Varints.getVarint(in) != movies.length || in.getInt() != catalogue) {
+                    throw new IOException("The stock store does not match the inventory.");
+                }
+                checked[0] = true;
+            } else if (type == CHANGES && checked[0]) {
+                int count = Varints.getVarint(in);
+                for (int i = 0; i < count; i++) {
+                    int position = Varints.getVarint(in);
+                    durable[position] += Varints.getSignedVarint(in);
+                }
+                changes[0] = true;
+            } else {
+                throw new IOException("The stock log is not valid.");
+            }
+        } catch (RuntimeException e) {
+            throw new IOException("The stock log is not valid.", e);
+        }
+    }
+
+    /**
+     * Reads a snapshot into durable.
+     *
+     * @param in the snapshot's contents
+     * @return the generation of the first log after the snapshot
+     * @throws IOException if the snapshot belongs to another catalogue
+     */
+    private long readSnapshot(ByteBuffer in) throws IOException {
+        try {
+            long generation = in.getLong();
+            if (in.getInt() != movies.length || in.getInt() != catalogue) {
+                throw new IOException("The stock store does not match the inventory.");
+            }
+            for (int i = 0; i < movies.length; i++) {
+                durable[i] = base[i] + Varints.getSignedVarint(in);
+            }
+            return generation;
+        } catch (RuntimeException e) {
+            throw new IOException("The stock snapshot is not valid.", e);
+        }
+    }
+
+    /**
+     * Returns true if the store was empty when it was opened, with no
+     * snapshot and no change logged, so that the stock is as read from the
+     * file. A CustomerStore opened over a new StockStore takes the copies its
+     * customers have at home once more, which the StockStore then logs.
+     *
+     * @return true if nothing was recovered
+     */
+    public boolean isNew() {
+        return !recovered;
+    }
+
+    @Override
+    public void stockChanged(Movie movie, int delta) {
+        Integer position = positions.get(movie);
+        if (position == null) {
+            return; // Not a movie of this inventory
+        }
+        synchronized (pendingLock) {
+            pending[position] += delta;
+            if (!marked[position]) {
+                marked[position] = true;
+                if (changedCount == changed.length) {
+                    changed = Arrays.copyOf(changed, changedCount * 2);
+                }
+                changed[changedCount++] = position;
+            }
+        }
+    }
+
+    /**
+     * Makes every change to the stock so far durable, as one record holding
+     * the net change to each movie that changed. Does nothing if there are no
+     * changes. Every so many flushes, a snapshot is started in the background.
+     *
+     * @throws IOException if the log cannot be written
+     */
+    public void flush() throws IOException {
+        synchronized (flushLock) {
+            ByteBuffer record;
+            synchronized (pendingLock) {
+                if (changedCount == 0) {
+                    return;
+                }
+                record = ByteBuffer.allocate(1 + 5 + changedCount * 10);
+                record.put(CHANGES);
+                record = Varints.putVarint(record, changedCount);
+                for (int i = 0; i < changedCount; i++) {
+                    int position = changed[i];
+                    record = Varints.putVarint(record, position);
+                    record = Varints.putSignedVarint(record, pending[position]);
+                    durable[position] += pending[position];
+                    pending[position] = 0;
+                    marked[position] = false;
+                }
+                changedCount = 0;
+            }
+            log.append(Arrays.copyOf(record.array(), record.position()));
+            log.commit();
+            if (++flushes >= compactEvery && !compacting) {
+                compacting = true;
+                compactor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            compact();
+                        } catch (IOException e) {
+                            // The logs are kept, so nothing is lost; the next snapshot tries again
+                        }
+                    }
+                });
+            }
+        }
+    }
+
+    /**
+     * Moves on to a new log and writes a snapshot of the stock made durable
+     * so far, then deletes the logs before it. Only the move to the new log
+     * holds up flushes; the snapshot is written while they go on. A snapshot
+     * already being written in the background is waited for first.
+     *
+     * @throws IOException if the new log or the snapshot cannot be written
+     */
+    public void compact() throws IOException {
+        synchronized (compactLock) {
+            writeSnapshot();
+        }
+    }
+
+    /**
+     * Moves on to a new log and writes a snapshot, holding compactLock.
+     *
+     * @throws IOException if the new log or the snapshot cannot be written
+     */
+    private void writeSnapshot() throws IOException {
+        int[] stock;
+        long generation;
+        try {
+            synchronized (flushLock) {
+                stock = durable.clone();
+                generation = log.getGeneration() + 1;
+                WriteAheadLog next = createLog(generation);
+                log.close();
+                log = next;
+                flushes = 0;
+            }
+            ByteBuffer contents = ByteBuffer.allocate(8 + 4 + 4 + stock.length * 2);
+            contents.putLong(generation).putInt(stock.length).putInt(catalogue);
+            for (int i = 0; i < stock.length; i++) {
+                contents = Varints.putSignedVarint(contents, stock[i] - base[i]);
+            }
+            contents.flip();
+            SnapshotFile.write(directory.resolve(SNAPSHOT_FILE), SNAPSHOT_MAGIC, SNAPSHOT_VERSION, contents);
+            for (long logGeneration : logGenerations()) {
+                if (logGeneration < generation) {
+                    Files.deleteIfExists(logPath(logGeneration));
+                }
+            }
+        } finally {
+            synchronized (flushLock) {
+                compacting = false;
+            }
+        }
+    }
+
+    /**
+     * Flushes every change, waits for a snapshot being written, and closes the
+     * log. Changes made after the store is closed are not logged.
+     *
+     * @throws IOException if the log cannot be written or closed
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            compactor.shutdown();
+            try {
+                compactor.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            for (Movie movie : movies) {
+                movie.setStockListener(null);
+            }
+            synchronized (flushLock) {
+                log.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,100 @@
+/**
+ *
+ */
+package net.shiild.moviemanager.inventory;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Writes and reads varints, the compact encoding of ints the catalogue and
+ * stock snapshots and the stock log use, in ByteBuffers that grow as they are
+ * written.
+ *
+ * @author StephenHildebrand
+ */
+final class Varints {
+    /**
+     * There is nothing to instantiate.
+     */
+    private Varints() {
+        // Only static methods
+    }
+
+    /**
+     * Writes an int that is not negative in as few bytes as it needs, seven
+     * bits to a byte, lowest first, with the high bit set on every byte but
+     * the last.
+     *
+     * @param out   buffer to write to
+     * @param value the int
+     * @return the buffer, or a larger copy of it if it was full
+     */
+    static ByteBuffer putVarint(ByteBuffer out, int value) {
+        out = ensureRemaining(out, 5);
+        while ((value & ~0x7F) != 0) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        return out.put((byte) value);
+    }
+
+    /**
+     * Reads an int written by putVarint.
+     *
+     * @param in buffer to read from
+     * @return the int
+     * @throws IllegalArgumentException if the varint is longer than an int
+     */
+    static int getVarint(ByteBuffer in) throws IllegalArgumentException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte b = in.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Varint too long.");
+    }
+
+    /**
+     * Returns a buffer with room for at least the given number of bytes,
+     * copying the buffer into one twice as large if it has too little.
+     *
+     * @param out    the buffer
+     * @param needed number of bytes needed
+     * @return the buffer or its larger copy
+     */
+    static ByteBuffer ensureRemaining(ByteBuffer out, int needed) {
+        if (out.remaining() >= needed) {
+            return out;
+        }
+        ByteBuffer larger = ByteBuffer.allocate(Math.max(out.capacity() * 2, out.position() + needed));
+        out.flip();
+        return larger.put(out);
+    }
+
+    /**
+     * Writes an int that may be negative as a varint, mapping small negative
+     * and positive values alike to small unsigned ones.
+     *
+     * @param out   buffer to write to
+     * @param value the int
+     * @return the buffer, or a larger copy of it if it was full
+     */
+    static ByteBuffer putSignedVarint(ByteBuffer out, int value) {
+        return putVarint(out, (value << 1) ^ (value >> 31));
+    }
+
+    /**
+     * Reads an int written by putSignedVarint.
+     *
+     * @param in buffer to read from
+     * @return the int
+     * @throws IllegalArgumentException if the varint is longer than an int
+     */
+    static int getSignedVarint(ByteBuffer in) throws IllegalArgumentException {
+        int value = getVarint(in);
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
@@ -0,0 +1,262 @@
+/**
+ *
+ */
+package net.shiild.moviemanager.list_util;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A thread-safe, lock-free PositionalList for lists that several threads change
+ * at once, such as a customer's reserve and at-home queues when more than one
+ * terminal is in use.
+ * <p>
+ * The list contents are an immutable array held in an AtomicReference. Every
+ * change, positional or not, copies the current array with the change applied
+ * and publishes the copy with a single compareAndSet, retrying if another
+ * thread published first. Each method therefore takes effect atomically at its
+ * successful compareAndSet (or, for reads, at the moment it reads the array),
+ * so the list is linearizable, and no thread ever waits for another.
+ * <p>
+ * A Michael-Scott linked queue would make addToRear and removal from the front
+ * constant time, but moveAheadOne and remove(int) change links in the middle of
+ * the list, which cannot be done together with lock-free appends and front
+ * removals in one compareAndSet. Customer queues are short and are read (on
+ * every login and queue refresh) far more often than they are changed, so
+ * copying the array on change and never locking on read is the better trade.
+ * <p>
+ * Iterators traverse the array that was current when they were created and
+ * never throw ConcurrentModificationException. Removing through an iterator
+ * removes the first occurrence of the element last returned from the current
+ * list, if it is still there. The built-in cursor is meant for one thread at a
+ * time, like the one in MultiPurposeList.
+ *
+ * @param <T> type of the list elements
+ * @author StephenHildebrand
+ */
+public class ConcurrentMultiPurposeList<T> implements PositionalList<T> {
+    /** Array of no elements shared by all empty lists */
+    private static final Object[] EMPTY = new Object[0];
+
+    /** The current list elements, never changed once published */
+    private final AtomicReference<Object[]> elements = new AtomicReference<Object[]>(EMPTY);
+    /** Array the built-in cursor traverses */
+    private Object[] iteratorElements = EMPTY;
+    /** Index in iteratorElements of the next element to be visited */
+    private int iteratorIndex;
+
+    /**
+     * Constructs an empty list.
+     */
+    public ConcurrentMultiPurposeList() {
+        // No tasks performed here to create empty list.
+    }
+
+    @Override
+    public void resetIterator() {
+        iteratorElements = elements.get();
+        iteratorIndex = 0;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return iteratorIndex < iteratorElements.length;
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            return null;
+        }
+        return elementAt(iteratorElements, iteratorIndex++);
+    }
+
+    @Override
+    public void addItem(int psn, T e) {
+        if (e != null) {
+            Object[] current;
+            Object[] changed;
+            do {
+                current = elements.get();
+                int at = Math.max(0, Math.min(psn, current.length));
+                changed = new Object[current.length + 1];
+                System.arraycopy(current, 0, changed, 0, at);
+                changed[at] = e;
+                System.arraycopy(current, at, changed, at + 1, current.length - at);
+            } while (!elements.compareAndSet(current, changed));
+        }
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return elements.get().length == 0;
+    }
+
+    @Override
+    public T lookAtItemN(int psn) {
+        Object[] current = elements.get();
+        if (psn < 0 || psn >= current.length) {
+            return null;
+        }
+        return elementAt(current, psn);
+    }
+
+    @Override
+    public void addToRear(T e) {
+        if (e != null) {
+            Object[] current;
+            Object[] changed;
+            do {
+                current = elements.get();
+                changed = Arrays.copyOf(current, current.length + 1);
+                changed[current.length] = e;
+            } while (!elements.compareAndSet(current, changed));
+        }
+    }
+
+    @Override
+    public T remove(int psn) {
+        Object[] current;
+        Object[] changed;
+        do {
+            current = elements.get();
+            if (psn < 0 || psn >= current.length) {
+                return null;
+            }
+            changed = without(current, psn);
+        } while (!elements.compareAndSet(current, changed));
+        return elementAt(current, psn);
+    }
+
+    @Override
+    public void moveAheadOne(int psn) {
+        Object[] current;
+        Object[] changed;
+        do {
+            current = elements.get();
+            if (psn <= 0 || psn >= current.length) {
+                return;
+            }
+            changed = current.clone();
+            changed[psn - 1] = current[psn];
+            changed[psn] = current[psn - 1];
+        } while (!elements.compareAndSet(current, changed));
+    }
+
+    @Override
+    public int size() {
+        return elements.get().length;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return new Itr(elements.get(), 0);
+    }
+
+    @Override
+    public Iterator<T> iterator(int psn) {
+        Object[] snapshot = elements.get();
+        return new Itr(snapshot, Math.max(0, Math.min(psn, snapshot.length)));
+    }
+
+    /**
+     * Removes the first occurrence of the given element, compared by identity.
+     *
+     * @param e the element to remove
+     * @return true if the element was in the list and has been removed
+     */
+    private boolean removeElement(Object e) {
+        Object[] current;
+        Object[] changed;
+        do {
+            current = elements.get();
+            int psn = 0;
+            while (psn < current.length && current[psn] != e) {
+                psn++;
+            }
+            if (psn == current.length) {
+                return false;
+            }
+            changed = without(current, psn);
+        } while (!elements.compareAndSet(current, changed));
+        return true;
+    }
+
+    /**
+     * Returns a copy of an array with the element in the given position left
+     * out.
+     *
+     * @param current the array to copy
+     * @param psn     position of the element to leave out
+     * @return the shorter copy
+     */
+    private static Object[] without(Object[] current, int psn) {
+        if (current.length == 1) {
+            return EMPTY;
+        }
+        Object[] changed = new Object[current.length - 1];
+        System.arraycopy(current, 0, changed, 0, psn);
+        System.arraycopy(current, psn + 1, changed, psn, current.length - psn - 1);
+        return changed;
+    }
+
+    /**
+     * Returns the element at an index of an array of list elements.
+     *
+     * @param array the array of list elements
+     * @param index the index of the element
+     * @return the element
+     */
+    @SuppressWarnings("unchecked")
+    private T elementAt(Object[] array, int index) {
+        return (T) array[index];
+    }
+
+    /**
+     * An iterator over the list elements as they were when it was created.
+     */
+    private class Itr implements Iterator<T> {
+        /** The elements being traversed */
+        private final Object[] snapshot;
+        /** Index in snapshot of the next element to be returned */
+        private int index;
+        /** The element last returned, or null if it was removed or none has been */
+        private Object lastReturned;
+
+        /**
+         * Constructs an iterator over the given elements.
+         *
+         * @param snapshot the elements to traverse
+         * @param index    index in snapshot of the first element to return
+         */
+        private Itr(Object[] snapshot, int index) {
+            this.snapshot = snapshot;
+            this.index = index;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return index < snapshot.length;
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            lastReturned = snapshot[index];
+            return elementAt(snapshot, index++);
+        }
+
+        @Override
+        public void remove() {
+            if (lastReturned == null) {
+                throw new IllegalStateException();
+            }
+            removeElement(lastReturned);
+            lastReturned = null;
+        }
+    }
+}
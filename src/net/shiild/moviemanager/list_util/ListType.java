@@ -0,0 +1,46 @@
+package net.shiild.moviemanager.list_util;
+
+/**
+ * The PositionalList implementations that a MovieDB or Customer can be
+ * constructed with.
+ *
+ * @author StephenHildebrand
+ */
+public enum ListType {
+    /** Singly linked nodes (MultiPurposeList) */
+    LINKED {
+        @Override
+        public <T> PositionalList<T> newList() {
+            return new MultiPurposeList<T>();
+        }
+    },
+    /** Linked chunks of array slots (UnrolledMultiPurposeList) */
+    UNROLLED {
+        @Override
+        public <T> PositionalList<T> newList() {
+            return new UnrolledMultiPurposeList<T>();
+        }
+    },
+    /** Balanced tree indexed by position (TreeMultiPurposeList) */
+    TREE {
+        @Override
+        public <T> PositionalList<T> newList() {
+            return new TreeMultiPurposeList<T>();
+        }
+    },
+    /** Thread-safe, lock-free copy-on-write array (ConcurrentMultiPurposeList) */
+    CONCURRENT {
+        @Override
+        public <T> PositionalList<T> newList() {
+            return new ConcurrentMultiPurposeList<T>();
+        }
+    };
+
+    /**
+     * Constructs an empty list of this type.
+     *
+     * @param <T> type of the list elements
+     * @return a new empty list
+     */
+    public abstract <T> PositionalList<T> newList();
+}
@@ -3,9 +3,15 @@
  */
 package net.shiild.moviemanager.list_util;
 
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
 /**
  * A generic class that supports the underlying list operations for the movie
- * inventory, reserve queues, and at-home queues. T is determined when the class
+ * inventory, reserve queues, and at-home queues, implementing PositionalList
+ * with singly linked nodes. T is determined when the class
  * is instantiated as a Movie in the case of this project). Instantiation of the
  * class occurs in three places:
  * (1) MovieDB.movies
@@ -18,18 +24,29 @@ package net.shiild.moviemanager.list_util;
  * None of the methods throw exceptions.
  *
  * MultiPurposeList uses a nested class named Node for its implementation. It
- * has two Node type data members: head, which points to the front of the list,
- * and iterator, which can traverse through the list elements. You can think of
- * an iterator as a cursor to the list, pointing to the "next" element to be
- * visited.
+ * has three Node type data members: head, which points to the front of the
+ * list, tail, which points to the last element, and iterator, which can
+ * traverse through the list elements. You can think of an iterator as a cursor
+ * to the list, pointing to the "next" element to be visited.
+ * <p>
+ * The number of elements is maintained in size as the list changes, so size(),
+ * isEmpty() and addToRear() run in constant time and the positional methods
+ * walk the list at most once. Every change to the links is counted in
+ * modCount so that the iterators returned by iterator() can fail fast.
  * </p>
  *
  * @param <T> element list to be iterated through
  * @author StephenHildebrand
  */
-public class MultiPurposeList<T> {
+public class MultiPurposeList<T> implements PositionalList<T> {
     /** Node that points to the front of the list */
     private Node head;
+    /** Node that points to the last element of the list */
+    private Node tail;
+    /** The number of elements in the list */
+    private int size;
+    /** The number of times the links of the list have been changed */
+    private int modCount;
     /** Node used as a cursor to traverse through the list elements */
     private Node iterator;
 
@@ -69,6 +86,7 @@ public class MultiPurposeList<T> {
     /**
      * Sets iterator to point to the first element in the list.
      */
+    @Override
     public void resetIterator() {
         iterator = head;
     }
@@ -79,6 +97,7 @@ public class MultiPurposeList<T> {
      * @return true when the iterator is pointing to a list element, return
      * false when it does not
      */
+    @Override
     public boolean hasNext() {
         return iterator != null;
     }
@@ -90,6 +109,7 @@ public class MultiPurposeList<T> {
      * @return element that the iterator is pointing to prior to being moved, or
      * returns null if the iterator is null
      */
+    @Override
     public T next() {
         if (iterator == null) {
             return null;
@@ -107,38 +127,71 @@ public class MultiPurposeList<T> {
      * @param psn the position at which to add the element
      * @param e   the element to be added
      */
+    @Override
     public void addItem(int psn, T e) {
         if (e != null) {
             if (psn <= 0) { // Add element to front of list
                 head = new Node(e, head);
-            } else if (psn > this.size()) { // Add element to end of list
-                this.addToRear(e);
-            } else if (e != null && psn > 0) { // Add element at this psn
-                Node pntr = head;
-                while (pntr != null && psn > 1) {
-                    pntr = pntr.link;
-                    psn--;
-                }
-                // If pointer hasn't run off the end of the list, then position
-                // has decremented to 1 and pointer belongs at the next node
-                // (where distance would be equal 0)
-                if (pntr != null) {
-                    // Create a new node just after cursor with the element and
-                    // a
-                    // link to the node previously at that location
-                    pntr.link = new Node(e, pntr.link);
+                if (tail == null) { // e is the first element to be added
+                    tail = head;
                 }
+                size++;
+                modCount++;
+            } else if (psn >= size) { // Add element to end of list
+                this.addToRear(e);
+            } else { // Add element at this psn
+                // Create a new node just after the node at psn - 1 with the
+                // element and a link to the node previously at that location
+                Node previous = nodeAt(psn - 1);
+                previous.link = new Node(e, previous.link);
+                size++;
+                modCount++;
             }
         }
     }
 
+    /**
+     * Adds an element after every element that is not greater than it,
+     * assuming the list is already in the given order, in a single walk of the
+     * list.
+     *
+     * @param e     the element to be added, ignored if null
+     * @param order the order the list is kept in
+     * @return the position at which the element was added, or -1 if it is null
+     */
+    @Override
+    public int addInOrder(T e, Comparator<? super T> order) {
+        if (e == null) {
+            return -1;
+        }
+        int psn = 0;
+        Node previous = null;
+        Node current = head;
+        while (current != null && order.compare(current.data, e) <= 0) {
+            previous = current;
+            current = current.link;
+            psn++;
+        }
+        if (previous == null) { // e belongs at the front
+            addItem(0, e);
+        } else if (current == null) { // e belongs at the rear
+            addToRear(e);
+        } else {
+            previous.link = new Node(e, current);
+            size++;
+            modCount++;
+        }
+        return psn;
+    }
+
     /**
      * Returns true if the list contains no elements, false if it does contain elements.
      *
      * @return true if the list has no elements, false if it has elements
      */
+    @Override
     public boolean isEmpty() {
-        return head == null;
+        return size == 0;
     }
 
     /**
@@ -148,17 +201,11 @@ public class MultiPurposeList<T> {
      * @param psn the position of the element to be returned
      * @return the element at the given position, null if out of range
      */
+    @Override
     public T lookAtItemN(int psn) {
-        // Check that the list the list is not empty, and psn is within range
-        if (head != null && psn >= 0 && psn <= this.size()) {
-            Node pntr = head;
-            while (pntr != null && psn > 0) {
-                pntr = pntr.link;
-                psn--;
-            }
-            if (pntr != null) { // pntr points to the target item
-                return pntr.data;
-            }
+        // Check that psn is within range
+        if (psn >= 0 && psn < size) {
+            return nodeAt(psn).data;
         }
         return null; // psn was out of range
     }
@@ -168,20 +215,18 @@ public class MultiPurposeList<T> {
      *
      * @param e to be added to the end of the list
      */
+    @Override
     public void addToRear(T e) {
         if (e != null) { // e has been initialized
-            Node cursor = head;
-            Node previous = null;
-            // Iterate through the list until cursor reaches the list's end
-            while (cursor != null) {
-                previous = cursor;
-                cursor = cursor.link;
-            }
-            if (cursor == head) { // e is the first element to be added
-                head = new Node(e, head);
+            Node newNode = new Node(e, null);
+            if (tail == null) { // e is the first element to be added
+                head = newNode;
             } else { // e is not the first element to be added
-                previous.link = new Node(e, cursor);
+                tail.link = newNode;
             }
+            tail = newNode;
+            size++;
+            modCount++;
         }
     }
 
@@ -193,30 +238,28 @@ public class MultiPurposeList<T> {
      * @return the element at the position parameter or null if the position is
      * out of range.
      */
+    @Override
     public T remove(int psn) {
         T removedData = null;
-        if (head != null && psn >= 0 && psn <= this.size()) {
-            Node current = head;
-            Node previous = null;
-            // Distance remaining between cursor and target psn
-            int distanceToPsn = psn;
-
-            // Decrement distance until current reaches the end or the location
-            // just before the target element while storing the previous node
-            while (current != null && distanceToPsn > 0) {
-                previous = current;
-                current = current.link;
-                distanceToPsn--;
-            }
-            if (current != null) { // current is at target element
-                if (current == head) { // current is at head
-                    removedData = current.data;
-                    head = head.link;
-                } else { // current is not at head
-                    removedData = current.data;
-                    previous.link = current.link;
+        if (psn >= 0 && psn < size) {
+            Node current;
+            if (psn == 0) { // current is at head
+                current = head;
+                head = head.link;
+                if (head == null) { // list is now empty
+                    tail = null;
+                }
+            } else { // current is not at head
+                Node previous = nodeAt(psn - 1);
+                current = previous.link;
+                previous.link = current.link;
+                if (current == tail) { // current was the last element
+                    tail = previous;
                 }
             }
+            removedData = current.data;
+            size--;
+            modCount++;
         }
         return removedData;
     }
@@ -228,36 +271,35 @@ public class MultiPurposeList<T> {
      *
      * @param psn of the element to be moved ahead
      */
+    @Override
     public void moveAheadOne(int psn) {
-
-        if (head != null && psn > 0 && psn <= this.size()) {
-            Node pntr = head;
-            Node onePrevious = null;
+        if (psn > 0 && psn < size) {
             Node twoPrevious = null;
+            Node onePrevious = head;
+            // Iterate through the list until onePrevious is just before the
+            // target element
+            for (int i = 1; i < psn; i++) {
+                twoPrevious = onePrevious;
+                onePrevious = onePrevious.link;
+            }
+            Node pntr = onePrevious.link; // pntr is at the target element
 
-            if (pntr != null && psn > 0) {
-                // Iterate through the list until pointer reaches target element
-                while (pntr != null && psn > 0) {
-                    twoPrevious = onePrevious;
-                    onePrevious = pntr;
-                    pntr = pntr.link;
-                    psn--;
-                }
-                // Switches the target element with the one before it
-                if (pntr != null) { // current is at the target element
-                    // When onePrevious points to head, twoPrevious isn't needed
-                    if (onePrevious == head) {
-                        head = pntr;
-                    } else {
-                        // point the two previous link to target (current)
-                        twoPrevious.link = pntr;
-                    }
-                    // point one previous link to the element after target
-                    onePrevious.link = pntr.link;
-                    // point target link to the one previous element
-                    pntr.link = onePrevious;
-                }
+            // Switches the target element with the one before it.
+            // When onePrevious points to head, twoPrevious isn't needed
+            if (twoPrevious == null) {
+                head = pntr;
+            } else {
+                // point the two previous link to target (pntr)
+                twoPrevious.link = pntr;
+            }
+            // point one previous link to the element after target
+            onePrevious.link = pntr.link;
+            // point target link to the one previous element
+            pntr.link = onePrevious;
+            if (pntr == tail) { // onePrevious is now the last element
+                tail = onePrevious;
             }
+            modCount++;
         }
     }
 
@@ -266,16 +308,112 @@ public class MultiPurposeList<T> {
      *
      * @return the number of list elements
      */
+    @Override
     public int size() {
-        int count = 0;
-        Node cursor = head;
+        return size;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return new Itr(0);
+    }
+
+    @Override
+    public Iterator<T> iterator(int psn) {
+        return new Itr(psn);
+    }
 
-        // Iterate through the list until cursor reaches the list's end
-        while (cursor != null) {
-            cursor = cursor.link;
-            count++; // Increment count with each iteration
+    /**
+     * Returns the node at the given position, which must be in range. The last
+     * position is answered from tail without walking the list.
+     *
+     * @param psn position of the target node, between 0 and size - 1
+     * @return the node at the given position
+     */
+    private Node nodeAt(int psn) {
+        if (psn == size - 1) {
+            return tail;
+        }
+        Node pntr = head;
+        while (psn > 0) {
+            pntr = pntr.link;
+            psn--;
         }
-        return count;
+        return pntr;
     }
 
+    /**
+     * An independent cursor over the list. It remembers the node before the
+     * one last returned so that remove() can unlink in place.
+     */
+    private class Itr implements Iterator<T> {
+        /** The node to be returned by the next call to next() */
+        private Node nextNode = head;
+        /** The node last returned, or null if it was removed or none has been */
+        private Node lastReturned;
+        /** The node before lastReturned (before nextNode once it is removed) */
+        private Node beforeLast;
+        /** The modCount of the list this iterator agrees with */
+        private int expectedModCount = modCount;
+
+        /**
+         * Constructs an iterator whose first element is at the given position.
+         *
+         * @param psn position of the first element, clamped to 0 to size
+         */
+        private Itr(int psn) {
+            if (psn > 0 && size > 0) {
+                beforeLast = nodeAt(Math.min(psn, size) - 1);
+                nextNode = beforeLast.link;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return nextNode != null;
+        }
+
+        @Override
+        public T next() {
+            checkForModification();
+            if (nextNode == null) {
+                throw new NoSuchElementException();
+            }
+            if (lastReturned != null) {
+                beforeLast = lastReturned;
+            }
+            lastReturned = nextNode;
+            nextNode = nextNode.link;
+            return lastReturned.data;
+        }
+
+        @Override
+        public void remove() {
+            if (lastReturned == null) {
+                throw new IllegalStateException();
+            }
+            checkForModification();
+            if (beforeLast == null) { // lastReturned is at head
+                head = nextNode;
+            } else {
+                beforeLast.link = nextNode;
+            }
+            if (tail == lastReturned) {
+                tail = beforeLast;
+            }
+            lastReturned = null;
+            size--;
+            expectedModCount = ++modCount;
+        }
+
+        /**
+         * Throws a ConcurrentModificationException if the list has been
+         * changed other than through this iterator.
+         */
+        private void checkForModification() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+        }
+    }
 }
@@ -0,0 +1,149 @@
+package net.shiild.moviemanager.list_util;
+
+import java.util.Comparator;
+import java.util.Iterator;
+
+/**
+ * Describes the position based list operations used for the movie inventory,
+ * reserve queues, and at-home queues. The position of the first element is 0,
+ * the second is 1, and so on. None of the methods throw exceptions, and null
+ * elements are never stored.
+ * <p>
+ * Each list also has a single built-in cursor, moved with resetIterator(),
+ * hasNext() and next(), pointing to the "next" element to be visited. Because
+ * that cursor is shared by everyone using the list, code that traverses a list
+ * should use iterator() instead, which returns an independent cursor each time
+ * it is called.
+ *
+ * @param <T> type of the list elements
+ * @author StephenHildebrand
+ */
+public interface PositionalList<T> extends Iterable<T> {
+
+    /**
+     * Sets the cursor to point to the first element in the list.
+     */
+    void resetIterator();
+
+    /**
+     * Is the cursor pointing to a list element?
+     *
+     * @return true if yes, false if no
+     */
+    boolean hasNext();
+
+    /**
+     * Returns the element the cursor is pointing to, then moves the cursor to
+     * the next element in the list.
+     *
+     * @return element the cursor pointed to, or null if there is none
+     */
+    T next();
+
+    /**
+     * Adds an element at the given position. Negative positions add to the
+     * front of the list, and positions past the end add to the end.
+     *
+     * @param psn the position at which to add the element
+     * @param e   the element to be added, ignored if null
+     */
+    void addItem(int psn, T e);
+
+    /**
+     * Does the list contain no elements?
+     *
+     * @return true if yes, false if no
+     */
+    boolean isEmpty();
+
+    /**
+     * Returns the element at the given position.
+     *
+     * @param psn the position of the element to be returned
+     * @return the element at the given position, null if out of range
+     */
+    T lookAtItemN(int psn);
+
+    /**
+     * Adds an element to the rear of the list.
+     *
+     * @param e the element to be added, ignored if null
+     */
+    void addToRear(T e);
+
+    /**
+     * Removes and returns the element in the given position.
+     *
+     * @param psn position of the element to be removed
+     * @return the removed element, or null if the position is out of range
+     */
+    T remove(int psn);
+
+    /**
+     * Moves the element at the given position ahead one position. Does nothing
+     * if the element is already at the front or the position is out of range.
+     *
+     * @param psn position of the element to be moved ahead
+     */
+    void moveAheadOne(int psn);
+
+    /**
+     * Returns the number of elements in the list.
+     *
+     * @return the number of list elements
+     */
+    int size();
+
+    /**
+     * Adds an element after every element that is not greater than it,
+     * assuming the list is already in the given order. Elements that compare
+     * as equal therefore stay in the order they were added. This default
+     * compares the element with each list element from the front until it
+     * finds a greater one; implementations may find the position faster.
+     *
+     * @param e     the element to be added, ignored if null
+     * @param order the order the list is kept in
+     * @return the position at which the element was added, or -1 if it is null
+     */
+    default int addInOrder(T e, Comparator<? super T> order) {
+        if (e == null) {
+            return -1;
+        }
+        int psn = 0;
+        for (T current : this) {
+            if (order.compare(current, e) > 0) {
+                break;
+            }
+            psn++;
+        }
+        addItem(psn, e);
+        return psn;
+    }
+
+    /**
+     * Returns a new iterator over the list elements from front to rear. Any
+     * number of iterators may traverse the list at once, and none of them
+     * affect the built-in cursor. Unless the implementation says otherwise, an
+     * iterator fails fast with a ConcurrentModificationException once the list
+     * is changed other than through its own remove() method, and remove()
+     * unlinks the element last returned without traversing the list again.
+     *
+     * @return an iterator over the list elements
+     */
+    @Override
+    Iterator<T> iterator();
+
+    /**
+     * Returns a new iterator over the list elements from the given position
+     * to the rear, which behaves as iterator() does once the elements before
+     * the position have been passed. A position less than 0 is taken as 0, and
+     * one greater than the size as the size, so the iterator has no elements.
+     * Implementations find the position without passing the elements before
+     * it one at a time where they can.
+     *
+     * @param psn position of the first element to be returned
+     * @return an iterator over the list elements from the position on
+     */
+    Iterator<T> iterator(int psn);
+
+}
@@ -0,0 +1,431 @@
+/**
+ *
+ */
+package net.shiild.moviemanager.list_util;
+
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A PositionalList stored in a balanced (AVL) binary tree in which each node
+ * also records the number of nodes in its subtree. The position of an element
+ * is the number of elements to its left in the tree, so every positional
+ * method finds its position by descending from the root in O(log n) steps
+ * instead of walking from the front of the list.
+ * <p>
+ * When the elements are kept in order, addInOrder finds an element's place in
+ * the order by comparing it with O(log n) elements, which lets MovieDB insert
+ * each movie read from a file in logarithmic time.
+ *
+ * @param <T> type of the list elements
+ * @author StephenHildebrand
+ */
+public class TreeMultiPurposeList<T> implements PositionalList<T> {
+    /** Root of the tree */
+    private Node root;
+    /** The number of times the list has been changed */
+    private int modCount;
+    /** Position of the next element to be visited by the built-in cursor */
+    private int iteratorIndex;
+
+    /**
+     * A tree node holding one list element.
+     */
+    private final class Node {
+        /** The element */
+        private T data;
+        /** Subtree of the elements before this one */
+        private Node left;
+        /** Subtree of the elements after this one */
+        private Node right;
+        /** Height of this subtree; a leaf has height 1 */
+        private int height = 1;
+        /** Number of nodes in this subtree */
+        private int size = 1;
+
+        /**
+         * Constructs a leaf holding the given element.
+         *
+         * @param data the element
+         */
+        private Node(T data) {
+            this.data = data;
+        }
+    }
+
+    /**
+     * Constructs an empty list.
+     */
+    public TreeMultiPurposeList() {
+        // No tasks performed here to create empty list.
+    }
+
+    @Override
+    public void resetIterator() {
+        iteratorIndex = 0;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return iteratorIndex < size();
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            return null;
+        }
+        return nodeAt(iteratorIndex++).data;
+    }
+
+    @Override
+    public void addItem(int psn, T e) {
+        if (e != null) {
+            root = insert(root, Math.max(0, Math.min(psn, size())), e);
+            modCount++;
+        }
+    }
+
+    /**
+     * Adds an element after every element that is not greater than it,
+     * assuming the list is already in the given order. Elements that compare
+     * as equal therefore stay in the order they were added.
+     *
+     * @param e     the element to be added, ignored if null
+     * @param order the order the list is kept in
+     * @return the position at which the element was added, or -1 if it is null
+     */
+    @Override
+    public int addInOrder(T e, Comparator<? super T> order) {
+        if (e == null) {
+            return -1;
+        }
+        // Count the elements that are not greater than e
+        int psn = 0;
+        Node node = root;
+        while (node != null) {
+            if (order.compare(node.data, e) > 0) {
+                node = node.left;
+            } else {
+                psn += size(node.left) + 1;
+                node = node.right;
+            }
+        }
+        root = insert(root, psn, e);
+        modCount++;
+        return psn;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return root == null;
+    }
+
+    @Override
+    public T lookAtItemN(int psn) {
+        if (psn < 0 || psn >= size()) {
+            return null;
+        }
+        return nodeAt(psn).data;
+    }
+
+    @Override
+    public void addToRear(T e) {
+        addItem(size(), e);
+    }
+
+    @Override
+    public T remove(int psn) {
+        if (psn < 0 || psn >= size()) {
+            return null;
+        }
+        T removedData = nodeAt(psn).data;
+        root = delete(root, psn);
+        modCount++;
+        return removedData;
+    }
+
+    @Override
+    public void moveAheadOne(int psn) {
+        if (psn > 0 && psn < size()) {
+            Node ahead = nodeAt(psn - 1);
+            Node target = nodeAt(psn);
+            T swap = ahead.data;
+            ahead.data = target.data;
+            target.data = swap;
+            modCount++;
+        }
+    }
+
+    @Override
+    public int size() {
+        return size(root);
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return new Itr(0);
+    }
+
+    /**
+     * Returns an iterator from the given position, which finds the position
+     * by descending from the root in O(log n) steps.
+     *
+     * @param psn position of the first element to be returned
+     * @return an iterator over the list elements from the position on
+     */
+    @Override
+    public Iterator<T> iterator(int psn) {
+        return new Itr(psn);
+    }
+
+    /**
+     * Returns the node at the given position, which must be in range.
+     *
+     * @param psn position of the target node
+     * @return the node at the given position
+     */
+    private Node nodeAt(int psn) {
+        Node node = root;
+        while (true) {
+            int leftSize = size(node.left);
+            if (psn < leftSize) {
+                node = node.left;
+            } else if (psn == leftSize) {
+                return node;
+            } else {
+                psn -= leftSize + 1;
+                node = node.right;
+            }
+        }
+    }
+
+    /**
+     * Inserts an element at a position of a subtree.
+     *
+     * @param node root of the subtree, or null if it is empty
+     * @param psn  position within the subtree, from 0 to its size
+     * @param e    the element to insert
+     * @return the new root of the subtree
+     */
+    private Node insert(Node node, int psn, T e) {
+        if (node == null) {
+            return new Node(e);
+        }
+        int leftSize = size(node.left);
+        if (psn <= leftSize) {
+            node.left = insert(node.left, psn, e);
+        } else {
+            node.right = insert(node.right, psn - leftSize - 1, e);
+        }
+        return rebalance(node);
+    }
+
+    /**
+     * Deletes the node at a position of a subtree.
+     *
+     * @param node root of the subtree
+     * @param psn  position within the subtree of the node to delete
+     * @return the new root of the subtree
+     */
+    private Node delete(Node node, int psn) {
+        int leftSize = size(node.left);
+        if (psn < leftSize) {
+            node.left = delete(node.left, psn);
+        } else if (psn > leftSize) {
+            node.right = delete(node.right, psn - leftSize - 1);
+        } else if (node.left == null) {
+            return node.right;
+        } else if (node.right == null) {
+            return node.left;
+        } else { // Replace node with the first node of its right subtree
+            Node successor = node.right;
+            while (successor.left != null) {
+                successor = successor.left;
+            }
+            successor.right = delete(node.right, 0);
+            successor.left = node.left;
+            node = successor;
+        }
+        return rebalance(node);
+    }
+
+    /**
+     * Updates the height and size of a node whose subtrees may have changed,
+     * and rotates it if its subtrees' heights differ by more than one.
+     *
+     * @param node the node to rebalance
+     * @return the new root of the node's subtree
+     */
+    private Node rebalance(Node node) {
+        update(node);
+        int balance = height(node.left) - height(node.right);
+        if (balance > 1) {
+            if (height(node.left.left) < height(node.left.right)) {
+                node.left = rotateLeft(node.left);
+            }
+            return rotateRight(node);
+        }
+        if (balance < -1) {
+            if (height(node.right.right) < height(node.right.left)) {
+                node.right = rotateRight(node.right);
+            }
+            return rotateLeft(node);
+        }
+        return node;
+    }
+
+    /**
+     * Rotates a node down to the left of its right child.
+     *
+     * @param node the node to rotate
+     * @return the new root of the subtree
+     */
+    private Node rotateLeft(Node node) {
+        Node top = node.right;
+        node.right = top.left;
+        top.left = node;
+        update(node);
+        update(top);
+        return top;
+    }
+
+    /**
+     * Rotates a node down to the right of its left child.
+     *
+     * @param node the node to rotate
+     * @return the new root of the subtree
+     */
+    private Node rotateRight(Node node) {
+        Node top = node.left;
+        node.left = top.right;
+        top.right = node;
+        update(node);
+        update(top);
+        return top;
+    }
+
+    /**
+     * Recomputes the height and size of a node from its subtrees.
+     *
+     * @param node the node to update
+     */
+    private void update(Node node) {
+        node.height = Math.max(height(node.left), height(node.right)) + 1;
+        node.size = size(node.left) + size(node.right) + 1;
+    }
+
+    /**
+     * Returns the height of a subtree.
+     *
+     * @param node root of the subtree, or null if it is empty
+     * @return the height, 0 if empty
+     */
+    private int height(Node node) {
+        return node == null ? 0 : node.height;
+    }
+
+    /**
+     * Returns the number of nodes in a subtree.
+     *
+     * @param node root of the subtree, or null if it is empty
+     * @return the number of nodes, 0 if empty
+     */
+    private int size(Node node) {
+        return node == null ? 0 : node.size;
+    }
+
+    /**
+     * An independent in-order cursor over the tree. It keeps the path of
+     * nodes whose elements are still to be visited on a stack, so each call to
+     * next() takes constant amortized time. Removing through it deletes by
+     * position and then finds its place again from the root.
+     */
+    private class Itr implements Iterator<T> {
+        /** Nodes still to be visited, the next one on top */
+        private Object[] stack;
+        /** The number of nodes on the stack */
+        private int depth;
+        /** Position of the next element to be returned */
+        private int nextIndex;
+        /** True if the element last returned may be removed */
+        private boolean canRemove;
+        /** The modCount of the list this iterator agrees with */
+        private int expectedModCount = modCount;
+
+        /**
+         * Constructs an iterator whose first element is at the given position.
+         *
+         * @param psn position of the first element, clamped to 0 to size
+         */
+        private Itr(int psn) {
+            nextIndex = Math.max(0, Math.min(psn, size()));
+            stack = new Object[height(root)];
+            pushFrom(nextIndex);
+        }
+
+        @Override
+        public boolean hasNext() {
+            return depth > 0;
+        }
+
+        @Override
+        public T next() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (depth == 0) {
+                throw new NoSuchElementException();
+            }
+            @SuppressWarnings("unchecked")
+            Node node = (Node) stack[--depth];
+            stack[depth] = null;
+            // The elements after node in its subtree come next
+            for (Node n = node.right; n != null; n = n.left) {
+                stack[depth++] = n;
+            }
+            nextIndex++;
+            canRemove = true;
+            return node.data;
+        }
+
+        @Override
+        public void remove() {
+            if (!canRemove) {
+                throw new IllegalStateException();
+            }
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            nextIndex--;
+            root = delete(root, nextIndex);
+            expectedModCount = ++modCount;
+            canRemove = false;
+            stack = new Object[height(root)];
+            pushFrom(nextIndex);
+        }
+
+        /**
+         * Fills the stack with the path to the node at the given position,
+         * keeping only the nodes that come at or after it.
+         *
+         * @param psn position of the next element to be returned
+         */
+        private void pushFrom(int psn) {
+            depth = 0;
+            Node node = root;
+            while (node != null) {
+                int leftSize = size(node.left);
+                if (psn <= leftSize) {
+                    stack[depth++] = node;
+                    node = node.left;
+                } else {
+                    psn -= leftSize + 1;
+                    node = node.right;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,397 @@
+/**
+ *
+ */
+package net.shiild.moviemanager.list_util;
+
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * An unrolled linked list: a PositionalList whose elements are stored in
+ * fixed-size arrays (chunks) that are linked together, rather than one Node per
+ * element as in MultiPurposeList. Scanning the list reads neighboring array
+ * slots instead of following a pointer for every element, and finding a
+ * position skips a whole chunk at a time.
+ * <p>
+ * A full chunk is split in half when an element is added to it, and a chunk
+ * left less than half full by remove(int) is merged with a neighboring chunk
+ * whenever their elements fit in one chunk. Removing through an iterator only
+ * unlinks chunks that become empty, so that it never moves elements the
+ * iterator has yet to visit into another chunk.
+ *
+ * @param <T> type of the list elements
+ * @author StephenHildebrand
+ */
+public class UnrolledMultiPurposeList<T> implements PositionalList<T> {
+    /** Number of element slots in each chunk when none is given */
+    public static final int DEFAULT_CHUNK_CAPACITY = 64;
+
+    /** Number of element slots in each chunk */
+    private final int chunkCapacity;
+    /** Chunk holding the front of the list */
+    private Chunk head;
+    /** Chunk holding the rear of the list */
+    private Chunk tail;
+    /** The number of elements in the list */
+    private int size;
+    /** The number of times the elements of the list have been changed */
+    private int modCount;
+    /** Chunk the cursor is in */
+    private Chunk iteratorChunk;
+    /** Slot in iteratorChunk of the next element to be visited */
+    private int iteratorIndex;
+
+    /**
+     * A run of consecutive list elements stored in an array.
+     */
+    private final class Chunk {
+        /** Elements of this chunk, in slots 0 to count - 1 */
+        private final Object[] items = new Object[chunkCapacity];
+        /** The number of slots in use */
+        private int count;
+        /** The next chunk in the list */
+        private Chunk link;
+    }
+
+    /**
+     * Constructs an empty list with the default chunk capacity.
+     */
+    public UnrolledMultiPurposeList() {
+        this(DEFAULT_CHUNK_CAPACITY);
+    }
+
+    /**
+     * Constructs an empty list whose chunks hold the given number of elements.
+     *
+     * @param chunkCapacity number of elements in each chunk, at least 2
+     * @throws IllegalArgumentException if chunkCapacity is less than 2
+     */
+    public UnrolledMultiPurposeList(int chunkCapacity) {
+        if (chunkCapacity < 2) {
+            throw new IllegalArgumentException("Chunk capacity must be at least 2.");
+        }
+        this.chunkCapacity = chunkCapacity;
+    }
+
+    @Override
+    public void resetIterator() {
+        iteratorChunk = head;
+        iteratorIndex = 0;
+    }
+
+    @Override
+    public boolean hasNext() {
+        // Skip past the end of the cursor's chunk, which can happen after the
+        // list has been changed since the cursor was last moved
+        while (iteratorChunk != null && iteratorIndex >= iteratorChunk.count) {
+            iteratorChunk = iteratorChunk.link;
+            iteratorIndex = 0;
+        }
+        return iteratorChunk != null;
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            return null;
+        }
+        return elementAt(iteratorChunk, iteratorIndex++);
+    }
+
+    @Override
+    public void addItem(int psn, T e) {
+        if (e != null) {
+            if (psn >= size) { // Add element to end of list
+                addToRear(e);
+            } else {
+                if (psn < 0) { // Add element to front of list
+                    psn = 0;
+                }
+                // Find the chunk holding psn and the slot within it
+                Chunk chunk = head;
+                while (psn >= chunk.count) {
+                    psn -= chunk.count;
+                    chunk = chunk.link;
+                }
+                if (chunk.count == chunkCapacity) {
+                    Chunk second = split(chunk);
+                    if (psn > chunk.count) {
+                        psn -= chunk.count;
+                        chunk = second;
+                    }
+                }
+                System.arraycopy(chunk.items, psn, chunk.items, psn + 1, chunk.count - psn);
+                chunk.items[psn] = e;
+                chunk.count++;
+                size++;
+                modCount++;
+            }
+        }
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public T lookAtItemN(int psn) {
+        if (psn < 0 || psn >= size) {
+            return null;
+        }
+        if (psn >= size - tail.count) { // psn is in the last chunk
+            return elementAt(tail, psn - (size - tail.count));
+        }
+        Chunk chunk = head;
+        while (psn >= chunk.count) {
+            psn -= chunk.count;
+            chunk = chunk.link;
+        }
+        return elementAt(chunk, psn);
+    }
+
+    @Override
+    public void addToRear(T e) {
+        if (e != null) {
+            if (tail == null || tail.count == chunkCapacity) {
+                Chunk chunk = new Chunk();
+                if (tail == null) { // e is the first element to be added
+                    head = chunk;
+                } else {
+                    tail.link = chunk;
+                }
+                tail = chunk;
+            }
+            tail.items[tail.count++] = e;
+            size++;
+            modCount++;
+        }
+    }
+
+    @Override
+    public T remove(int psn) {
+        if (psn < 0 || psn >= size) {
+            return null;
+        }
+        Chunk previous = null;
+        Chunk chunk = head;
+        while (psn >= chunk.count) {
+            psn -= chunk.count;
+            previous = chunk;
+            chunk = chunk.link;
+        }
+        T removedData = elementAt(chunk, psn);
+        chunk.count--;
+        System.arraycopy(chunk.items, psn + 1, chunk.items, psn, chunk.count - psn);
+        chunk.items[chunk.count] = null;
+        size--;
+        modCount++;
+
+        if (chunk.count == 0) { // Unlink the empty chunk
+            unlink(previous, chunk);
+        } else if (chunk.count < chunkCapacity / 2) {
+            if (previous != null && previous.count + chunk.count <= chunkCapacity) {
+                merge(previous, chunk);
+            } else if (chunk.link != null && chunk.count + chunk.link.count <= chunkCapacity) {
+                merge(chunk, chunk.link);
+            }
+        }
+        return removedData;
+    }
+
+    @Override
+    public void moveAheadOne(int psn) {
+        if (psn > 0 && psn < size) {
+            // Find the element just before the target
+            int ahead = psn - 1;
+            Chunk chunk = head;
+            while (ahead >= chunk.count) {
+                ahead -= chunk.count;
+                chunk = chunk.link;
+            }
+            // The target is in the next slot, or first in the next chunk
+            Chunk targetChunk = chunk;
+            int target = ahead + 1;
+            if (target == chunk.count) {
+                targetChunk = chunk.link;
+                target = 0;
+            }
+            Object swap = chunk.items[ahead];
+            chunk.items[ahead] = targetChunk.items[target];
+            targetChunk.items[target] = swap;
+            modCount++;
+        }
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return new Itr(0);
+    }
+
+    @Override
+    public Iterator<T> iterator(int psn) {
+        return new Itr(psn);
+    }
+
+    /**
+     * Moves the back half of a full chunk into a new chunk linked after it.
+     *
+     * @param chunk the chunk to split
+     * @return the new chunk
+     */
+    private Chunk split(Chunk chunk) {
+        Chunk second = new Chunk();
+        int keep = chunk.count / 2;
+        second.count = chunk.count - keep;
+        System.arraycopy(chunk.items, keep, second.items, 0, second.count);
+        for (int i = keep; i < chunk.count; i++) {
+            chunk.items[i] = null;
+        }
+        chunk.count = keep;
+        second.link = chunk.link;
+        chunk.link = second;
+        if (tail == chunk) {
+            tail = second;
+        }
+        return second;
+    }
+
+    /**
+     * Appends the elements of a chunk to the chunk before it and unlinks it.
+     *
+     * @param first  the chunk to append to
+     * @param second the chunk after first
+     */
+    private void merge(Chunk first, Chunk second) {
+        if (iteratorChunk == second) { // Keep the cursor on the same element
+            iteratorChunk = first;
+            iteratorIndex += first.count;
+        }
+        System.arraycopy(second.items, 0, first.items, first.count, second.count);
+        first.count += second.count;
+        unlink(first, second);
+    }
+
+    /**
+     * Removes a chunk from the chain of chunks.
+     *
+     * @param previous the chunk before chunk, or null if chunk is the head
+     * @param chunk    the chunk to remove
+     */
+    private void unlink(Chunk previous, Chunk chunk) {
+        if (previous == null) {
+            head = chunk.link;
+        } else {
+            previous.link = chunk.link;
+        }
+        if (tail == chunk) {
+            tail = previous;
+        }
+        if (iteratorChunk == chunk) { // Keep the cursor on a linked chunk
+            iteratorChunk = chunk.link;
+            iteratorIndex = 0;
+        }
+    }
+
+    /**
+     * Returns the element in the given slot of a chunk.
+     *
+     * @param chunk the chunk holding the element
+     * @param slot  the slot of the element
+     * @return the element
+     */
+    @SuppressWarnings("unchecked")
+    private T elementAt(Chunk chunk, int slot) {
+        return (T) chunk.items[slot];
+    }
+
+    /**
+     * An independent cursor over the list. After each call to next() the
+     * element returned is in slot index - 1 of chunk, so remove() can shift
+     * it out of its chunk in place.
+     */
+    private class Itr implements Iterator<T> {
+        /** The chunk before chunk, or null if chunk is the head */
+        private Chunk previous;
+        /** The chunk holding the next element to be returned */
+        private Chunk chunk = head;
+        /** Slot in chunk of the next element to be returned */
+        private int index;
+        /** True if the element last returned may be removed */
+        private boolean canRemove;
+        /** The modCount of the list this iterator agrees with */
+        private int expectedModCount = modCount;
+
+        /**
+         * Constructs an iterator whose first element is at the given position,
+         * skipping whole chunks to reach it.
+         *
+         * @param psn position of the first element, clamped to 0 to size
+         */
+        private Itr(int psn) {
+            int remaining = Math.max(0, Math.min(psn, size));
+            while (chunk != null && remaining > chunk.count) {
+                remaining -= chunk.count;
+                previous = chunk;
+                chunk = chunk.link;
+            }
+            index = remaining;
+        }
+
+        @Override
+        public boolean hasNext() {
+            // Chunks are never empty, so any chunk after this one has elements
+            return chunk != null && (index < chunk.count || chunk.link != null);
+        }
+
+        @Override
+        public T next() {
+            checkForModification();
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            if (index == chunk.count) { // Move on to the next chunk
+                previous = chunk;
+                chunk = chunk.link;
+                index = 0;
+            }
+            canRemove = true;
+            return elementAt(chunk, index++);
+        }
+
+        @Override
+        public void remove() {
+            if (!canRemove) {
+                throw new IllegalStateException();
+            }
+            checkForModification();
+            index--;
+            chunk.count--;
+            System.arraycopy(chunk.items, index + 1, chunk.items, index, chunk.count - index);
+            chunk.items[chunk.count] = null;
+            if (chunk.count == 0) { // Unlink the empty chunk
+                unlink(previous, chunk);
+                chunk = chunk.link;
+            }
+            canRemove = false;
+            size--;
+            expectedModCount = ++modCount;
+        }
+
+        /**
+         * Throws a ConcurrentModificationException if the list has been
+         * changed other than through this iterator.
+         */
+        private void checkForModification() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+        }
+    }
+}
@@ -0,0 +1,79 @@
+/**
+ *
+ */
+package net.shiild.moviemanager.persistence;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Replaces files so that a crash leaves either the whole old file or the
+ * whole new one: the new contents are written and forced to a temporary file
+ * in the same directory, which is then moved over the old file in one step.
+ *
+ * @author StephenHildebrand
+ */
+final class AtomicFiles {
+    /** Suffix of the temporary file */
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+
+    /**
+     * There is nothing to instantiate.
+     */
+    private AtomicFiles() {
+        // Only static methods
+    }
+
+    /**
+     * Replaces a file with the given contents.
+     *
+     * @param path     path of the file
+     * @param contents buffers holding the new contents, written in order
+     * @throws IOException if the file cannot be written
+     */
+    static void write(Path path, ByteBuffer... contents) throws IOException {
+        Path temporary = path.resolveSibling(path.getFileName() + TEMPORARY_SUFFIX);
+        FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        try {
+            for (ByteBuffer content : contents) {
+                while (content.hasRemaining()) {
+                    channel.write(content);
+                }
+            }
+            channel.force(true);
+        } finally {
+            channel.close();
+        }
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        syncDirectory(path.toAbsolutePath().getParent());
+    }
+
+    /**
+     * Forces a directory's entries to the disk, so that a move into it is
+     * durable. Not every platform can open a directory, in which case the
+     * move is left to the file system.
+     *
+     * @param directory the directory
+     */
+    private static void syncDirectory(Path directory) {
+        if (directory == null) {
+            return;
+        }
+        try {
+            FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ);
+            try {
+                channel.force(true);
+            } finally {
+                channel.close();
+            }
+        } catch (IOException e) {
+            // Directories cannot be opened on this platform
+        }
+    }
+}
@@ -0,0 +1,91 @@
+/**
+ *
+ */
+package net.shiild.moviemanager.persistence;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Writes and reads a snapshot: a file holding one block of contents after a
+ * header of a magic number naming the kind of snapshot, the version of its
+ * format, the length of the contents and their CRC-32. Snapshots are
+ * replaced atomically, and are read with one mapping of the file, so a
+ * snapshot that is read back is whole and exactly as it was written.
+ *
+ * @author StephenHildebrand
+ */
+public final class SnapshotFile {
+    /** Size of the header: magic number, version, length and checksum */
+    private static final int HEADER_SIZE = 4 + 4 + 8 + 4;
+
+    /**
+     * There is nothing to instantiate.
+     */
+    private SnapshotFile() {
+        // Only static methods
+    }
+
+    /**
+     * Writes a snapshot, replacing any file at the given path.
+     *
+     * @param path     path of the snapshot file
+     * @param magic    magic number naming the kind of snapshot
+     * @param version  version of the contents' format
+     * @param contents the contents, from position to limit
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(Path path, int magic, int version, ByteBuffer contents) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(contents.duplicate());
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(magic).putInt(version).putLong(contents.remaining()).putInt((int) crc.getValue()).flip();
+        AtomicFiles.write(path, header, contents);
+    }
+
+    /**
+     * Reads a snapshot, checking its header and checksum.
+     *
+     * @param path    path of the snapshot file
+     * @param magic   magic number naming the kind of snapshot expected
+     * @param version version of the contents' format expected
+     * @return the contents, mapped from the file, or null if there is no file
+     * @throws IOException if the file cannot be read, is of another kind or
+     *                     version, or does not match its checksum
+     */
+    public static ByteBuffer read(Path path, int magic, int version) throws IOException {
+        if (!Files.exists(path)) {
+            return null;
+        }
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size < HEADER_SIZE) {
+                throw new IOException("The snapshot is not valid.");
+            }
+            ByteBuffer file = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (file.getInt() != magic || file.getInt() != version) {
+                throw new IOException("The snapshot is not valid.");
+            }
+            long length = file.getLong();
+            int checksum = file.getInt();
+            if (length != size - HEADER_SIZE) {
+                throw new IOException("The snapshot is not valid.");
+            }
+            ByteBuffer contents = file.slice();
+            CRC32 crc = new CRC32();
+            crc.update(contents.duplicate());
+            if ((int) crc.getValue() != checksum) {
+                throw new IOException("The snapshot is not valid.");
+            }
+            return contents;
+        } finally {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,445 @@
+/**
+ *
+ */
+package net.shiild.moviemanager.persistence;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only log of records that are made durable before the changes
+ * they describe are acknowledged.
+ * <p>
+ * The file starts with a header holding a magic number, the format version
+ * and a generation number, which ties the log to the snapshot it continues
+ * from. Each record follows as its length, the CRC-32 of its bytes and the
+ * bytes themselves. A record that was only partly written when the program
+ * stopped, or whose checksum does not match, ends the log: recovery replays
+ * the records before it and cuts the file there.
+ * <p>
+ * Appending a record only buffers it. commit writes every buffered record
+ * and forces it to the disk, and commits are grouped: while one thread is
+ * writing and forcing a batch, the records other threads append gather in
+ * the buffer, and the next thread to commit writes them all as one batch
+ * with one force. Many threads committing at once therefore share the cost
+ * of each force, rather than waiting for one force each.
+ * <p>
+ * A log may be used by several threads at once.
+ *
+ * @author StephenHildebrand
+ */
+public final class WriteAheadLog implements Closeable {
+    /** Magic number at the start of every log file */
+    private static final int MAGIC = 0x4D4D574C; // "MMWL"
+    /** Version of the file format */
+    private static final int VERSION = 1;
+    /** Size of the file header: magic number, version and generation */
+    private static final int HEADER_SIZE = 4 + 4 + 8;
+    /** Size of the length and checksum before each record */
+    private static final int RECORD_HEADER_SIZE = 4 + 4;
+    /** Largest record that is read back, to stop at a corrupt length */
+    public static final int MAX_RECORD_SIZE = 1 << 24;
+
+    /**
+     * Receives the records of a log as it is replayed.
+     */
+    public interface RecordHandler {
+        /**
+         * Handles one record.
+         *
+         * @param record the record's bytes
+         * @throws IOException if the record cannot be handled
+         */
+        void record(byte[] record) throws IOException;
+    }
+
+    /** The open log file */
+    private final FileChannel channel;
+    /** Generation number in the file's header */
+    private final long generation;
+    /** True if commits force the records to the disk */
+    private final boolean sync;
+    /** Guards the fields below */
+    private final Object lock = new Object();
+    /** Records appended but not yet written */
+    private ByteArrayOutputStream pending = new ByteArrayOutputStream();
+    /** Buffer the committing thread is writing, swapped with pending for each batch */
+    private ByteArrayOutputStream writing = new ByteArrayOutputStream();
+    /** Sequence number of the last record appended */
+    private long appended;
+    /** Sequence number of the last record made durable */
+    private long durable;
+    /** True while a thread is writing a batch */
+    private boolean flushing;
+    /** Number of batches written */
+    private long batches;
+    /** Error from a batch that could not be written, after which the log is unusable */
+    private IOException failure;
+    /** True once the log has been closed */
+    private boolean closed;
+
+    /**
+     * Constructs a log around an open file positioned at its end.
+     *
+     * @param channel    the open log file
+     * @param generation generation number in the file's header
+     * @param sync       true if commits force the records to the disk
+     */
+    private WriteAheadLog(FileChannel channel, long generation, boolean sync) {
+        this.channel = channel;
+        this.generation = generation;
+        this.sync = sync;
+    }
+
+    /**
+     * Creates a new log holding the given records, replacing any file at the
+     * given path. The file is written next to the path and then moved over
+     * it, so a crash leaves either the old log or the new one with every one
+     * of its first records.
+     *
+     * @param path       path of the log file
+     * @param generation generation number for the header
+     * @param sync       true if commits force the records to the disk
+     * @param records    the log's first records, if any
+     * @return the log, open for appending
+     * @throws IOException              if the file cannot be written
+     * @throws IllegalArgumentException if a record is null or too large
+     */
+    public static WriteAheadLog create(Path path, long generation, boolean sync, byte[]... records)
+            throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).putInt(VERSION).putLong(generation);
+        ByteArrayOutputStream contents = new ByteArrayOutputStream();
+        contents.write(header.array(), 0, HEADER_SIZE);
+        for (byte[] record : records) {
+            writeRecord(contents, record);
+        }
+        AtomicFiles.write(path, ByteBuffer.wrap(contents.toByteArray()));
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        channel.position(channel.size());
+        return new WriteAheadLog(channel, generation, sync);
+    }
+
+    /**
+     * Returns the generation number of a log file.
+     *
+     * @param path path of the log file
+     * @return the generation number, or -1 if there is no log file or its
+     *         header is not valid
+     * @throws IOException if the file cannot be read
+     */
+    public static long generationOf(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return -1;
+        }
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            return readHeader(channel);
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Replays every valid record of a log to a handler, cuts off anything
+     * after the last valid record, and opens the log for appending.
+     *
+     * @param path    path of the log file
+     * @param handler receives each valid record in order
+     * @param sync    true if commits force the records to the disk
+     * @return the log, open for appending after its last valid record
+     * @throws IOException if the file cannot be read or its header is not
+     *                     valid, or the handler throws it
+     */
+    public static WriteAheadLog recover(Path path, RecordHandler handler, boolean sync) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        boolean opened = false;
+        try {
+            long generation = readHeader(channel);
+            if (generation < 0) {
+                throw new IOException("The log file is not valid.");
+            }
+            long end = replay(channel, handler);
+            if (end < channel.size()) {
+                channel.truncate(end);
+                channel.force(false);
+            }
+            channel.position(end);
+            opened = true;
+            return new WriteAheadLog(channel, generation, sync);
+        } finally {
+            if (!opened) {
+                channel.close();
+            }
+        }
+    }
+
+    /**
+     * Reads the header of a log file.
+     *
+     * @param channel the open log file
+     * @return the generation number, or -1 if the header is not valid
+     * @throws IOException if the file cannot be read
+     */
+    private static long readHeader(FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        readFully(channel, header, 0);
+        if (header.hasRemaining()) {
+            return -1;
+        }
+        header.flip();
+        if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+            return -1;
+        }
+        return header.getLong();
+    }
+
+    /**
+     * Replays the records after the header.
+     *
+     * @param channel the open log file
+     * @param handler receives each valid record in order
+     * @return offset after the last valid record
+     * @throws IOException if the file cannot be read or the handler throws it
+     */
+    private static long replay(FileChannel channel, RecordHandler handler) throws IOException {
+        long size = channel.size();
+        long offset = HEADER_SIZE;
+        ByteBuffer recordHeader = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+        CRC32 crc = new CRC32();
+        while (offset + RECORD_HEADER_SIZE <= size) {
+            recordHeader.clear();
+            readFully(channel, recordHeader, offset);
+            recordHeader.flip();
+            int length = recordHeader.getInt();
+            int checksum = recordHeader.getInt();
+            if (length < 0 || length > MAX_RECORD_SIZE || offset + RECORD_HEADER_SIZE + length > size) {
+                break; // a torn or corrupt record
+            }
+            ByteBuffer record = ByteBuffer.allocate(length);
+            readFully(channel, record, offset + RECORD_HEADER_SIZE);
+            crc.reset();
+            crc.update(record.array(), 0, length);
+            if ((int) crc.getValue() != checksum) {
+                break;
+            }
+            handler.record(record.array());
+            offset += RECORD_HEADER_SIZE + length;
+        }
+        return offset;
+    }
+
+    /**
+     * Reads from a file at an offset until the buffer is full or the file
+     * ends.
+     *
+     * @param channel the open file
+     * @param buffer  buffer to fill
+     * @param offset  offset to read from
+     * @throws IOException if the file cannot be read
+     */
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long offset) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, offset);
+            if (read < 0) {
+                return;
+            }
+            offset += read;
+        }
+    }
+
+    /**
+     * Returns the generation number in the log's header.
+     *
+     * @return the generation number
+     */
+    public long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Appends a record to the log. The record is not durable until a commit
+     * of its sequence number or a later one returns.
+     *
+     * @param record the record's bytes
+     * @return the record's sequence number
+     * @throws IllegalArgumentException if record is null or too large
+     * @throws IllegalStateException    if the log is closed or a write has failed
+     */
+    public long append(byte[] record) throws IllegalArgumentException, IllegalStateException {
+        if (record == null || record.length > MAX_RECORD_SIZE) {
+            throw new IllegalArgumentException();
+        }
+        synchronized (lock) {
+            if (closed || failure != null) {
+                throw new IllegalStateException("The log is not open.");
+            }
+            writeRecord(pending, record);
+            return ++appended;
+        }
+    }
+
+    /**
+     * Makes every record appended so far durable.
+     *
+     * @throws IOException if the records cannot be written
+     */
+    public void commit() throws IOException {
+        long sequence;
+        synchronized (lock) {
+            sequence = appended;
+        }
+        commit(sequence);
+    }
+
+    /**
+     * Makes the records up to the given sequence number durable, writing them
+     * together with any others appended by then.
+     *
+     * @param sequence sequence number of the last record to make durable
+     * @throws IOException if the records cannot be written
+     */
+    public void commit(long sequence) throws IOException {
+        ByteArrayOutputStream batch;
+        long batchEnd;
+        synchronized (lock) {
+            while (true) {
+                if (durable >= sequence) {
+                    return;
+                }
+                if (failure != null) {
+                    throw new IOException("The log could not be written.", failure);
+                }
+                if (!flushing) {
+                    break;
+                }
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException();
+                }
+            }
+            // Become the thread that writes everything appended so far
+            flushing = true;
+            batch = pending;
+            pending = writing;
+            writing = batch;
+            batchEnd = appended;
+        }
+        IOException error = null;
+        try {
+            ByteBuffer bytes = ByteBuffer.wrap(batch.toByteArray());
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+            if (sync) {
+                channel.force(false);
+            }
+        } catch (IOException e) {
+            error = e;
+        } finally {
+            synchronized (lock) {
+                batch.reset();
+                flushing = false;
+                if (error == null) {
+                    durable = batchEnd;
+                    batches++;
+                } else {
+                    failure = error;
+                }
+                lock.notifyAll();
+            }
+        }
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    /**
+     * Returns the number of batches written, each with one force of the file,
+     * which is at most the number of commits that had records to write.
+     *
+     * @return the number of batches written
+     */
+    public long getBatchCount() {
+        synchronized (lock) {
+            return batches;
+        }
+    }
+
+    /**
+     * Returns the size of the log file.
+     *
+     * @return the size in bytes, not counting records not yet committed
+     * @throws IOException if the size cannot be read
+     */
+    public long size() throws IOException {
+        return channel.size();
+    }
+
+    /**
+     * Commits every record appended and closes the file.
+     *
+     * @throws IOException if the records cannot be written or the file closed
+     */
+    @Override
+    public void close() throws IOException {
+        boolean failed;
+        synchronized (lock) {
+            if (closed) {
+                return;
+            }
+            failed = failure != null;
+        }
+        try {
+            if (!failed) {
+                commit();
+            }
+        } finally {
+            synchronized (lock) {
+                closed = true;
+            }
+            channel.close();
+        }
+    }
+
+    /**
+     * Writes a record to a stream as its length, checksum and bytes.
+     *
+     * @param out    the stream
+     * @param record the record's bytes
+     * @throws IllegalArgumentException if record is null or too large
+     */
+    private static void writeRecord(ByteArrayOutputStream out, byte[] record) throws IllegalArgumentException {
+        if (record == null || record.length > MAX_RECORD_SIZE) {
+            throw new IllegalArgumentException();
+        }
+        CRC32 crc = new CRC32();
+        crc.update(record, 0, record.length);
+        writeInt(out, record.length);
+        writeInt(out, (int) crc.getValue());
+        out.write(record, 0, record.length);
+    }
+
+    /**
+     * Writes an int to a stream, high byte first.
+     *
+     * @param out   the stream
+     * @param value the int
+     */
+    private static void writeInt(ByteArrayOutputStream out, int value) {
+        out.write(value >>> 24);
+        out.write(value >>> 16);
+        out.write(value >>> 8);
+        out.write(value);
+    }
+}
@@ -0,0 +1,95 @@
+package net.shiild.moviemanager.rental_system;
+
+import net.shiild.moviemanager.inventory.Movie;
+
+/**
+ * One movie of a page of the inventory, as returned by
+ * RentalManager.showInventory(int, int). An entry records the movie's
+ * position in the inventory, which does not change while the system runs and
+ * can be passed to addToCustomerQueue, and its title and availability at the
+ * time the page was read.
+ *
+ * @author StephenHildebrand
+ */
+public final class InventoryEntry {
+    /** Position of the movie in the inventory */
+    private final int position;
+    /** The movie's title */
+    private final String title;
+    /** The movie's title, marked as unavailable if it was out of stock */
+    private final String displayName;
+    /** True if copies of the movie were in stock */
+    private final boolean available;
+
+    /**
+     * Constructs an entry for the movie at the given position.
+     *
+     * @param position position of the movie in the inventory
+     * @param movie    the movie
+     */
+    InventoryEntry(int position, Movie movie) {
+        this.position = position;
+        this.title = movie.getName();
+        this.displayName = movie.getDisplayName();
+        this.available = movie.isAvailable();
+    }
+
+    /**
+     * Constructs an entry from values already read from a movie, as when a
+     * page of the inventory is received from a server.
+     *
+     * @param position    position of the movie in the inventory
+     * @param title       the movie's title
+     * @param displayName the movie's display name
+     * @param available   true if copies of the movie were in stock
+     */
+    public InventoryEntry(int position, String title, String displayName, boolean available) {
+        this.position = position;
+        this.title = title;
+        this.displayName = displayName;
+        this.available = available;
+    }
+
+    /**
+     * Returns the position of the movie in the inventory.
+     *
+     * @return the movie's position
+     */
+    public int getPosition() {
+        return position;
+    }
+
+    /**
+     * Returns the movie's title.
+     *
+     * @return the movie's title
+     */
+    public String getTitle() {
+        return title;
+    }
+
+    /**
+     * Returns the movie's title as shown in the inventory, with
+     * "(currently unavailable)" appended if it was out of stock.
+     *
+     * @return the movie's display name
+     */
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    /**
+     * Returns true if copies of the movie were in stock when the entry was
+     * read.
+     *
+     * @return true if the movie was available
+     */
+    public boolean isAvailable() {
+        return available;
+    }
+
+    @Override
+    public String toString() {
+        return position + ": " + displayName;
+    }
+}
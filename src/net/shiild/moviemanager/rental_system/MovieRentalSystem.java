@@ -3,19 +3,32 @@
  */
 package net.shiild.moviemanager.rental_system;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
 import net.shiild.moviemanager.customer.Customer;
+import net.shiild.moviemanager.customer.CustomerStore;
 import net.shiild.moviemanager.inventory.Movie;
 import net.shiild.moviemanager.inventory.MovieDB;
+import net.shiild.moviemanager.inventory.StockStore;
 
 /**
  * Represents the inventory part of the overall system in the context of a
  * single customer and implements the RentalManager interface.
+ * <p>
+ * Several customers can use the inventory at once, each through a view of
+ * the system made by newView, which shares the inventory but has its own
+ * current customer.
  *
  * @author StephenHildebrand
  */
 public class MovieRentalSystem implements RentalManager {
     /** The customer currently logged into the system */
-    private Customer currentCustomer;
+    private volatile Customer currentCustomer;
     /** The database of movies in the system */
     private MovieDB inventory;
 
@@ -30,6 +43,130 @@ public class MovieRentalSystem implements RentalManager {
         }
     }
 
+    /**
+     * Constructor for MovieRentalSystem reading the inventory from a stream
+     * of a movie list in the given charset. The stream is not closed.
+     *
+     * @param in      stream of the movie inventory
+     * @param charset charset the stream is encoded in
+     * @throws IllegalArgumentException if the stream cannot be read or in or charset is null
+     */
+    public MovieRentalSystem(InputStream in, Charset charset) throws IllegalArgumentException {
+        inventory = new MovieDB(in, charset);
+    }
+
+    /**
+     * Constructor for MovieRentalSystem reading the inventory from a stream
+     * of the movie list file, such as one that reports its progress, and
+     * writing a binary snapshot of it for the three argument constructor to
+     * read next time, as MovieDB.load does. The stream is not closed.
+     *
+     * @param in       stream of the movie inventory file
+     * @param file     path of the movie inventory file
+     * @param snapshot path of the snapshot of the file
+     * @param charset  charset the file is encoded in
+     * @throws IllegalArgumentException if the stream or file cannot be read or an argument is null
+     */
+    public MovieRentalSystem(InputStream in, Path file, Path snapshot, Charset charset)
+            throws IllegalArgumentException {
+        inventory = MovieDB.load(in, file, snapshot, charset);
+    }
+
+    /**
+     * Constructor for MovieRentalSystem reading the inventory from a binary
+     * snapshot of the movie list file, or from the file itself if the
+     * snapshot is missing or stale, as MovieDB.load does.
+     *
+     * @param file     path of the movie inventory file
+     * @param snapshot path of the snapshot of the file
+     * @param charset  charset the file is encoded in
+     * @throws IllegalArgumentException if the file cannot be read or an argument is null
+     */
+    public MovieRentalSystem(Path file, Path snapshot, Charset charset) throws IllegalArgumentException {
+        inventory = MovieDB.load(file, snapshot, charset);
+    }
+
+    /**
+     * Constructs a view of an inventory for one customer.
+     *
+     * @param inventory the inventory
+     * @param customer  the current customer, or null
+     */
+    private MovieRentalSystem(MovieDB inventory, Customer customer) {
+        this.inventory = inventory;
+        this.currentCustomer = customer;
+    }
+
+    /**
+     * Returns a new view of this system's inventory whose current customer is
+     * the given one, so that each customer using the inventory at once has
+     * their own RentalManager. Setting the customer of one view does not
+     * change that of another.
+     *
+     * @param customer the current customer of the view, or null
+     * @return the view
+     */
+    public MovieRentalSystem newView(Customer customer) {
+        return new MovieRentalSystem(inventory, customer);
+    }
+
+    /**
+     * Opens the store of the inventory's stock kept in the given directory,
+     * so that changes to the stock are kept on disk, and sets the stock to
+     * what was recovered. It should be opened once, right after the inventory
+     * is read, and before openCustomerStore.
+     *
+     * @param directory directory of the store
+     * @return the store
+     * @throws IOException           if the store cannot be read or does not match the inventory
+     * @throws IllegalStateException if there is no inventory
+     */
+    public StockStore openStockStore(Path directory) throws IOException, IllegalStateException {
+        if (inventory == null) {
+            throw new IllegalStateException("There is no inventory.");
+        }
+        return StockStore.open(directory, inventory);
+    }
+
+    /**
+     * Opens the store of customer accounts kept in the given directory, whose
+     * movies are in this system's inventory. Unless the stock is kept in a
+     * StockStore, recovering the customers takes the copies they have at home
+     * from the inventory again, so it should be opened once, right after the
+     * inventory is read.
+     *
+     * @param directory directory of the store
+     * @return the store
+     * @throws IOException           if the store cannot be read or does not match the inventory
+     * @throws IllegalStateException if there is no inventory
+     */
+    public CustomerStore openCustomerStore(Path directory) throws IOException, IllegalStateException {
+        if (inventory == null) {
+            throw new IllegalStateException("There is no inventory.");
+        }
+        return CustomerStore.open(directory, inventory);
+    }
+
+    /**
+     * Opens the store of customer accounts kept in the given directory, as
+     * the one argument openCustomerStore does, with the given options.
+     *
+     * @param directory    directory of the store
+     * @param sync         true if commits force the log to the disk
+     * @param compactEvery number of records logged between snapshots, at least 1
+     * @return the store
+     * @throws IOException              if the store cannot be read or does not match the inventory
+     * @throws IllegalArgumentException if compactEvery is less than 1
+     * @throws IllegalStateException    if there is no inventory
+     */
+    public CustomerStore openCustomerStore(Path directory, boolean sync, int compactEvery)
+            throws IOException, IllegalArgumentException, IllegalStateException {
+        if (inventory == null) {
+            throw new IllegalStateException("There is no inventory.");
+        }
+        return CustomerStore.open(directory, inventory, sync, compactEvery);
+    }
+
     @Override
     public String showInventory() {
         if (inventory != null) {
@@ -38,6 +175,36 @@ public class MovieRentalSystem implements RentalManager {
         return null;
     }
 
+    @Override
+    public void showInventory(Appendable out) throws IOException {
+        if (inventory != null) {
+            inventory.traverse(out);
+        }
+    }
+
+    @Override
+    public List<InventoryEntry> showInventory(int offset, int limit) {
+        if (offset < 0 || limit < 0) {
+            throw new IllegalArgumentException();
+        }
+        List<InventoryEntry> page = new ArrayList<InventoryEntry>();
+        if (inventory != null && offset < inventory.size()) {
+            int position = offset;
+            for (Movie movie : inventory.findItemsAt(offset, limit)) {
+                page.add(new InventoryEntry(position++, movie));
+            }
+        }
+        return page;
+    }
+
+    @Override
+    public int inventorySize() {
+        if (inventory != null) {
+            return inventory.size();
+        }
+        return 0;
+    }
+
     @Override
     public void setCustomer(Customer c) {
         currentCustomer = c;
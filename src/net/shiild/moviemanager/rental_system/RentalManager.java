@@ -1,5 +1,8 @@
 package net.shiild.moviemanager.rental_system;
 
+import java.io.IOException;
+import java.util.List;
+
 import net.shiild.moviemanager.customer.Customer;
 
 /**
@@ -19,6 +22,35 @@ public interface RentalManager {
      */
     String showInventory();
 
+    /**
+     * Traverse all items in the inventory, appending them to out in the same
+     * form as showInventory returns them, without building the whole string.
+     *
+     * @param out where to append the items
+     * @throws IOException if out cannot be appended to
+     */
+    void showInventory(Appendable out) throws IOException;
+
+    /**
+     * Get a page of the items in the inventory: up to limit items starting at
+     * the given offset, with their positions, names and availability, so that
+     * a client need only fetch the items it shows.
+     *
+     * @param offset position of the first item of the page
+     * @param limit  the greatest number of items in the page
+     * @return the items in the page in inventory order, empty if offset is
+     *         at or past the end of the inventory
+     * @throws IllegalArgumentException if offset or limit is negative
+     */
+    List<InventoryEntry> showInventory(int offset, int limit);
+
+    /**
+     * Get the number of items in the inventory.
+     *
+     * @return the number of items in the inventory
+     */
+    int inventorySize();
+
     /**
      * Set the customer for the current context to a given value.
      *
@@ -0,0 +1,476 @@
+/**
+ *
+ */
+package net.shiild.moviemanager.server;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+import net.shiild.moviemanager.rental_system.InventoryEntry;
+
+/**
+ * A terminal's connection to a BinaryServer.
+ * <p>
+ * Each method sends its request at once and returns a future of the answer,
+ * without waiting for the answers to the requests before it, so that a
+ * terminal may have many requests on their way over the one connection; a
+ * thread of the client reads the answers and completes the futures. A future
+ * fails with an IllegalArgumentException if the server found the request's
+ * arguments not valid, with an IllegalStateException if the server refused
+ * the request for any other reason, and with an IOException if the connection
+ * was lost. The methods may be called on several threads at once.
+ *
+ * @author StephenHildebrand
+ */
+public class BinaryClient implements Closeable {
+    /** The connection to the server */
+    private final SocketChannel channel;
+    /** Buffer the requests are written in, guarded by writing */
+    private final ByteBuffer out;
+    /** Held while a request is written and sent */
+    private final ReentrantLock writing;
+    /** The requests sent and not yet answered, by id */
+    private final Map<Integer, Pending> pending;
+    /** The id of the last request sent */
+    private final AtomicInteger lastId;
+    /** Reads the answers */
+    private final Thread reader;
+    /** False once the connection is closed */
+    private volatile boolean open;
+
+    /**
+     * Connects to a server.
+     *
+     * @param address the server's address
+     * @throws IOException if the connection cannot be made
+     */
+    public BinaryClient(InetSocketAddress address) throws IOException {
+        this.channel = SocketChannel.open(address);
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        this.out = ByteBuffer.allocateDirect(4 + Protocol.MAX_FRAME);
+        this.writing = new ReentrantLock();
+        this.pending = new ConcurrentHashMap<Integer, Pending>();
+        this.lastId = new AtomicInteger();
+        this.open = true;
+        this.reader = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                read();
+            }
+        }, "BinaryClient-reader");
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    /**
+     * Logs in.
+     *
+     * @param id       the customer's id, or "admin"
+     * @param password the password
+     * @return a future of the session's token, failing with an
+     *         IllegalStateException if the id or password is not right
+     */
+    public CompletableFuture<String> login(String id, String password) {
+        return send(Protocol.LOGIN, id, password);
+    }
+
+    /**
+     * Ends a session.
+     *
+     * @param token the session's token
+     * @return a future completed once the session has ended
+     */
+    public CompletableFuture<Void> logout(String token) {
+        return send(Protocol.LOGOUT, token);
+    }
+
+    /**
+     * Reads a page of the inventory. The page may hold fewer movies than the
+     * limit if they would not fit in one answer.
+     *
+     * @param offset position of the page's first movie
+     * @param limit  most movies on the page
+     * @return a future of the page
+     */
+    public CompletableFuture<Page> inventory(int offset, int limit) {
+        return send(Protocol.INVENTORY, offset, limit);
+    }
+
+    /**
+     * Reads a customer's queues.
+     *
+     * @param token the customer's session token
+     * @return a future of the queues
+     */
+    public CompletableFuture<Queues> queues(String token) {
+        return send(Protocol.QUEUES, token);
+    }
+
+    /**
+     * Reserves a movie, as RentalManager.addToCustomerQueue does.
+     *
+     * @param token    the customer's session token
+     * @param position the movie's position in the inventory
+     * @return a future of the customer's queues after the change
+     */
+    public CompletableFuture<Queues> reserve(String token, int position) {
+        return send(Protocol.RESERVE, token, position);
+    }
+
+    /**
+     * Moves a reserved movie ahead one, as RentalManager.reserveMoveAheadOne
+     * does.
+     *
+     * @param token    the customer's session token
+     * @param position the movie's position in the reserve queue
+     * @return a future of the customer's queues after the change
+     */
+    public CompletableFuture<Queues> moveUp(String token, int position) {
+        return send(Protocol.MOVE_UP, token, position);
+    }
+
+    /**
+     * Removes a reserved movie, as RentalManager.removeSelectedFromReserves
+     * does.
+     *
+     * @param token    the customer's session token
+     * @param position the movie's position in the reserve queue
+     * @return a future of the customer's queues after the change
+     */
+    public CompletableFuture<Queues> unreserve(String token, int position) {
+        return send(Protocol.UNRESERVE, token, position);
+    }
+
+    /**
+     * Returns a movie, as RentalManager.returnItemToInventory does.
+     *
+     * @param token    the customer's session token
+     * @param position the movie's position in the at home queue
+     * @return a future of the customer's queues after the change
+     */
+    public CompletableFuture<Queues> returnItem(String token, int position) {
+        return send(Protocol.RETURN, token, position);
+    }
+
+    /**
+     * Adds a customer.
+     *
+     * @param token    the administrator's session token
+     * @param id       the new customer's id
+     * @param password the new customer's password
+     * @param maxAtHome most movies the customer may have at home
+     * @return a future completed once the customer is added
+     */
+    public CompletableFuture<Void> addAccount(String token, String id, String password, int maxAtHome) {
+        return send(Protocol.ADD_ACCOUNT, token, id, password, maxAtHome);
+    }
+
+    /**
+     * Closes the connection. The requests not yet answered fail.
+     *
+     * @throws IOException if the connection cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        open = false;
+        channel.close();
+        try {
+            reader.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        failPending(new IOException("The connection is closed."));
+    }
+
+    /**
+     * Sends a request.
+     *
+     * @param opcode    the request's opcode
+     * @param arguments the request's arguments, each a String or an Integer
+     * @return a future of the answer, failing with an IllegalArgumentException
+     *         if the arguments do not fit in a frame
+     */
+    @SuppressWarnings("unchecked")
+    private <T> CompletableFuture<T> send(byte opcode, Object... arguments) {
+        Pending request = new Pending(opcode);
+        writing.lock();
+        try {
+            out.clear();
+            out.putInt(0).putInt(0).put(opcode);
+            for (Object argument : arguments) {
+                if (argument instanceof Integer) {
+                    out.putInt((Integer) argument);
+                } else {
+                    Protocol.putString(out, (String) argument);
+                }
+            }
+            int id = lastId.incrementAndGet();
+            out.putInt(0, out.position() - 4).putInt(4, id);
+            pending.put(id, request);
+            if (!open) {
+                pending.remove(id);
+                request.result.completeExceptionally(new IOException("The connection is closed."));
+            } else {
+                out.flip();
+                while (out.hasRemaining()) {
+                    channel.write(out);
+                }
+            }
+        } catch (BufferOverflowException e) {
+            request.result.completeExceptionally(new IllegalArgumentException("The request is too long."));
+        } catch (IllegalArgumentException e) {
+            request.result.completeExceptionally(e);
+        } catch (IOException e) {
+            request.result.completeExceptionally(e);
+        } finally {
+            writing.unlock();
+        }
+        return (CompletableFuture<T>) request.result;
+    }
+
+    /**
+     * Reads answers and completes their futures until the connection is
+     * closed.
+     */
+    private void read() {
+        ByteBuffer in = ByteBuffer.allocateDirect(2 * Protocol.MAX_FRAME);
+        try {
+            while (channel.read(in) >= 0) {
+                in.flip();
+                while (in.remaining() >= 4) {
+                    int length = in.getInt(in.position());
+                    if (length < 5 || length > Protocol.MAX_FRAME) {
+                        throw new IOException("The server sent a frame that is not valid.");
+                    }
+                    if (in.remaining() < 4 + length) {
+                        break;
+                    }
+                    int frameEnd = in.position() + 4 + length;
+                    int limit = in.limit();
+                    in.position(in.position() + 4).limit(frameEnd);
+                    complete(in);
+                    in.limit(limit).position(frameEnd);
+                }
+                in.compact();
+            }
+            failPending(new IOException("The server closed the connection."));
+        } catch (IOException e) {
+            failPending(open ? e : new IOException("The connection is closed."));
+        }
+    }
+
+    /**
+     * Completes the future of an answer.
+     *
+     * @param in the answer from its id on, limited to the end of its frame
+     */
+    private void complete(ByteBuffer in) {
+        Pending request = pending.remove(in.getInt());
+        if (request == null) {
+            return;
+        }
+        try {
+            byte status = in.get();
+            if (status == Protocol.BAD_REQUEST) {
+                throw new IllegalArgumentException(Protocol.getString(in));
+            } else if (status != Protocol.OK) {
+                throw new IllegalStateException(Protocol.getString(in));
+            }
+            request.result.complete(result(request.opcode, in));
+        } catch (RuntimeException e) {
+            request.result.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * Reads the result of a request answered OK.
+     *
+     * @param opcode the request's opcode
+     * @param in     the result
+     * @return the result, or null for none
+     * @throws BufferUnderflowException if the result is cut short
+     */
+    private static Object result(byte opcode, ByteBuffer in) throws BufferUnderflowException {
+        switch (opcode) {
+        case Protocol.LOGIN:
+            return Protocol.getString(in);
+        case Protocol.INVENTORY:
+            int size = in.getInt();
+            int count = in.getInt();
+            List<InventoryEntry> entries = new ArrayList<InventoryEntry>(Math.min(count, in.remaining() / 9));
+            for (int i = 0; i < count; i++) {
+                int position = in.getInt();
+                boolean available = in.get() != 0;
+                String title = Protocol.getString(in);
+                entries.add(new InventoryEntry(position, title, Protocol.getString(in), available));
+            }
+            return new Page(size, entries);
+        case Protocol.QUEUES:
+        case Protocol.RESERVE:
+        case Protocol.MOVE_UP:
+        case Protocol.UNRESERVE:
+        case Protocol.RETURN:
+            List<String> atHome = strings(in);
+            List<String> reserves = strings(in);
+            return new Queues(atHome, reserves, in.get() != 0);
+        default:
+            return null;
+        }
+    }
+
+    /**
+     * Reads a count and that many strings.
+     *
+     * @param in buffer to read from
+     * @return the strings
+     */
+    private static List<String> strings(ByteBuffer in) {
+        int count = in.getInt();
+        List<String> strings = new ArrayList<String>(Math.min(count, in.remaining() / 2));
+        for (int i = 0; i < count; i++) {
+            strings.add(Protocol.getString(in));
+        }
+        return strings;
+    }
+
+    /**
+     * Fails every request not yet answered.
+     *
+     * @param cause why they fail
+     */
+    private void failPending(IOException cause) {
+        Iterator<Pending> requests = pending.values().iterator();
+        while (requests.hasNext()) {
+            Pending request = requests.next();
+            requests.remove();
+            request.result.completeExceptionally(cause);
+        }
+    }
+
+    /**
+     * A request sent and not yet answered.
+     */
+    private static final class Pending {
+        /** The request's opcode, which tells how to read its result */
+        private final byte opcode;
+        /** The future of the answer */
+        private final CompletableFuture<Object> result;
+
+        /**
+         * Constructs a request.
+         *
+         * @param opcode the request's opcode
+         */
+        Pending(byte opcode) {
+            this.opcode = opcode;
+            this.result = new CompletableFuture<Object>();
+        }
+    }
+
+    /**
+     * A page of the inventory.
+     */
+    public static final class Page {
+        /** Number of movies in the whole inventory */
+        private final int size;
+        /** The page's movies */
+        private final List<InventoryEntry> entries;
+
+        /**
+         * Constructs a page.
+         *
+         * @param size    number of movies in the whole inventory
+         * @param entries the page's movies
+         */
+        Page(int size, List<InventoryEntry> entries) {
+            this.size = size;
+            this.entries = Collections.unmodifiableList(entries);
+        }
+
+        /**
+         * Returns the number of movies in the whole inventory.
+         *
+         * @return the inventory's size
+         */
+        public int getSize() {
+            return size;
+        }
+
+        /**
+         * Returns the page's movies.
+         *
+         * @return the movies, in inventory order
+         */
+        public List<InventoryEntry> getEntries() {
+            return entries;
+        }
+    }
+
+    /**
+     * A customer's at home and reserve queues.
+     */
+    public static final class Queues {
+        /** Names of the movies at home */
+        private final List<String> atHome;
+        /** Names of the movies reserved */
+        private final List<String> reserves;
+        /** True if movies at the end of the queues were left out */
+        private final boolean truncated;
+
+        /**
+         * Constructs the queues.
+         *
+         * @param atHome    names of the movies at home
+         * @param reserves  names of the movies reserved
+         * @param truncated true if movies at the end of the queues were left out
+         */
+        Queues(List<String> atHome, List<String> reserves, boolean truncated) {
+            this.atHome = Collections.unmodifiableList(atHome);
+            this.reserves = Collections.unmodifiableList(reserves);
+            this.truncated = truncated;
+        }
+
+        /**
+         * Returns the names of the movies at home.
+         *
+         * @return the movies at home, in queue order
+         */
+        public List<String> getAtHome() {
+            return atHome;
+        }
+
+        /**
+         * Returns the names of the movies reserved.
+         *
+         * @return the movies reserved, in queue order
+         */
+        public List<String> getReserves() {
+            return reserves;
+        }
+
+        /**
+         * Returns true if movies at the end of the queues were left out
+         * because they would not fit in one answer.
+         *
+         * @return true if the queues are not complete
+         */
+        public boolean isTruncated() {
+            return truncated;
+        }
+    }
+}
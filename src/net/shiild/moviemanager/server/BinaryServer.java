@@ -0,0 +1,366 @@
+/**
+ *
+ */
+package net.shiild.moviemanager.server;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.concurrent.ExecutorService;
+
+import net.shiild.moviemanager.customer.SessionManager;
+import net.shiild.moviemanager.rental_system.MovieRentalSystem;
+
+/**
+ * Serves the rental system to terminals over the binary Protocol, with one
+ * Selector watching every connection.
+ * <p>
+ * The selector's thread only accepts connections and reads or writes when a
+ * connection is ready. Once a connection has a whole request, it stops
+ * watching the connection and a worker thread, a virtual thread where the
+ * JDK has them, takes the connection over: it answers every whole request
+ * that has arrived, as a client pipelining requests sends them, writes the
+ * answers together, and reads again without waiting for the selector, until
+ * no whole request is left. Then it hands the connection back to the selector,
+ * watching for more requests, or for room to write if the client is slow to
+ * read. So the requests of one connection are answered one at a time and in
+ * order, those of different connections side by side, and a request that
+ * waits for the disk, as a CustomerStore commit does, holds up only its own
+ * connection.
+ * <p>
+ * Each connection reads and writes through two direct buffers, taken from a
+ * pool when it is accepted and put back when it closes.
+ *
+ * @author StephenHildebrand
+ */
+public class BinaryServer implements Closeable {
+    /** Capacity of each connection's buffers, room for a frame and more */
+    private static final int BUFFER_SIZE = 2 * Protocol.MAX_FRAME;
+    /** Most buffers kept in the pool while not in use */
+    private static final int MAX_IDLE_BUFFERS = 256;
+
+    /** Answers the requests */
+    private final RequestHandler handler;
+    /** Watches the connections */
+    private final Selector selector;
+    /** Accepts the connections */
+    private final ServerSocketChannel acceptor;
+    /** Takes over connections with requests to answer */
+    private final ExecutorService workers;
+    /** The connections' buffers */
+    private final BufferPool buffers;
+    /** Runs the selector */
+    private final Thread selectorThread;
+    /** False once the server is closed */
+    private volatile boolean open;
+
+    /**
+     * Constructs a server of a rental system on the given address and starts
+     * it.
+     *
+     * @param rentalSystem the rental system
+     * @param sessions     the session manager of the rental system's users
+     * @param address      address to listen on, whose port may be 0 for any free port
+     * @throws IOException              if the server cannot listen on the address
+     * @throws IllegalArgumentException if an argument is null
+     */
+    public BinaryServer(MovieRentalSystem rentalSystem, SessionManager sessions, InetSocketAddress address)
+            throws IOException, IllegalArgumentException {
+        if (rentalSystem == null || sessions == null || address == null) {
+            throw new IllegalArgumentException();
+        }
+        this.handler = new RequestHandler(rentalSystem, sessions);
+        this.selector = Selector.open();
+        this.acceptor = ServerSocketChannel.open();
+        acceptor.bind(address);
+        acceptor.configureBlocking(false);
+        acceptor.register(selector, SelectionKey.OP_ACCEPT);
+        this.workers = RentalServer.newRequestExecutor();
+        this.buffers = new BufferPool(BUFFER_SIZE, MAX_IDLE_BUFFERS);
+        this.open = true;
+        this.selectorThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                select();
+            }
+        }, "BinaryServer-selector");
+        selectorThread.setDaemon(true);
+        selectorThread.start();
+    }
+
+    /**
+     * Returns the address the server listens on.
+     *
+     * @return the address
+     * @throws IOException if the address cannot be read
+     */
+    public InetSocketAddress getAddress() throws IOException {
+        return (InetSocketAddress) acceptor.getLocalAddress();
+    }
+
+    /**
+     * Stops the server and closes every connection.
+     *
+     * @throws IOException if the server's socket cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        open = false;
+        selector.wakeup();
+        try {
+            selectorThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (SelectionKey key : selector.keys()) {
+            key.channel().close();
+        }
+        selector.close();
+        workers.shutdown();
+    }
+
+    /**
+     * Runs the selector until the server is closed.
+     */
+    private void select() {
+        try {
+            while (open) {
+                selector.select();
+                Iterator<SelectionKey> selected = selector.selectedKeys().iterator();
+                while (selected.hasNext()) {
+                    SelectionKey key = selected.next();
+                    selected.remove();
+                    try {
+                        if (!key.isValid()) {
+                            continue;
+                        }
+                        if (key.isAcceptable()) {
+                            accept();
+                        } else if (key.isReadable()) {
+                            ((Connection) key.attachment()).readable();
+                        } else if (key.isWritable()) {
+                            ((Connection) key.attachment()).writable();
+                        }
+                    } catch (CancelledKeyException e) {
+                        // Closed by its worker meanwhile
+                    }
+                }
+            }
+        } catch (IOException e) {
+            open = false;
+        } catch (ClosedSelectorException e) {
+            open = false;
+        }
+    }
+
+    /**
+     * Accepts every connection waiting and starts watching each for requests.
+     *
+     * @throws IOException if the selector fails
+     */
+    private void accept() throws IOException {
+        SocketChannel channel;
+        while ((channel = acceptor.accept()) != null) {
+            try {
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                Connection connection = new Connection(channel);
+                connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+            } catch (IOException e) {
+                channel.close();
+            }
+        }
+    }
+
+    /**
+     * A client's connection. Its buffers belong to the selector's thread
+     * while the selector watches the connection, and to a worker while the
+     * worker has taken it over.
+     */
+    private final class Connection implements Runnable {
+        /** The connection's channel */
+        private final SocketChannel channel;
+        /** Requests read and not yet answered, ready to be written to */
+        private final ByteBuffer in;
+        /** Answers not yet written, ready to be written to */
+        private final ByteBuffer out;
+        /** The connection's key in the selector */
+        private SelectionKey key;
+
+        /**
+         * Constructs a connection and takes its buffers from the pool.
+         *
+         * @param channel the connection's channel
+         */
+        Connection(SocketChannel channel) {
+            this.channel = channel;
+            this.in = buffers.acquire();
+            this.out = buffers.acquire();
+        }
+
+        /**
+         * Reads what has arrived, on the selector's thread, and has a worker
+         * take the connection over if a whole request is in.
+         */
+        void readable() {
+            try {
+                if (channel.read(in) < 0) {
+                    close();
+                } else {
+                    int frame = nextFrame();
+                    if (frame < 0) {
+                        close();
+                    } else if (frame > 0) {
+                        key.interestOps(0);
+                        workers.execute(this);
+                    }
+                }
+            } catch (IOException e) {
+                close();
+            }
+        }
+
+        /**
+         * Has a worker take the connection over, on the selector's thread,
+         * once the answers that did not fit in the socket can be written.
+         */
+        void writable() {
+            key.interestOps(0);
+            workers.execute(this);
+        }
+
+        /**
+         * Answers the requests that have arrived and writes the answers,
+         * reading again until no whole request is left, then hands the
+         * connection back to the selector.
+         */
+        @Override
+        public void run() {
+            try {
+                while (true) {
+                    if (!flush()) {
+                        watch(SelectionKey.OP_WRITE);
+                        return;
+                    }
+                    in.flip();
+                    while (out.remaining() >= Protocol.MAX_FRAME + 4 && in.remaining() >= 4) {
+                        int length = in.getInt(in.position());
+                        if (length < 0 || length > Protocol.MAX_FRAME) {
+                            close();
+                            return;
+                        }
+                        if (in.remaining() < 4 + length) {
+                            break;
+                        }
+                        int frameEnd = in.position() + 4 + length;
+                        int limit = in.limit();
+                        in.position(in.position() + 4).limit(frameEnd);
+                        handler.answer(in, out);
+                        in.limit(limit).position(frameEnd);
+                    }
+                    in.compact();
+                    int frame = nextFrame();
+                    if (frame > 0) {
+                        continue; // The answers filled out; write them and go on
+                    }
+                    if (!flush()) {
+                        watch(SelectionKey.OP_WRITE);
+                        return;
+                    }
+                    if (frame == 0 && channel.read(in) < 0) {
+                        close();
+                        return;
+                    }
+                    frame = nextFrame();
+                    if (frame < 0) {
+                        close();
+                        return;
+                    }
+                    if (frame == 0) {
+                        watch(SelectionKey.OP_READ);
+                        return;
+                    }
+                }
+            } catch (IOException e) {
+                close();
+            } catch (RuntimeException e) {
+                close();
+                throw e;
+            }
+        }
+
+        /**
+         * Tells whether a whole request has been read.
+         *
+         * @return 1 if the first request read is whole, 0 if not, or -1 if its
+         *         length is not valid
+         */
+        private int nextFrame() {
+            if (in.position() < 4) {
+                return 0;
+            }
+            int length = in.getInt(0);
+            if (length < 0 || length > Protocol.MAX_FRAME) {
+                return -1;
+            }
+            return in.position() >= 4 + length ? 1 : 0;
+        }
+
+        /**
+         * Writes as many of the answers as the socket takes without waiting.
+         *
+         * @return true if every answer was written
+         * @throws IOException if the answers cannot be written
+         */
+        private boolean flush() throws IOException {
+            if (out.position() == 0) {
+                return true;
+            }
+            out.flip();
+            channel.write(out);
+            boolean written = !out.hasRemaining();
+            out.compact();
+            return written;
+        }
+
+        /**
+         * Hands the connection back to the selector, to be watched for the
+         * given operation. Nothing may touch the buffers after it.
+         *
+         * @param ops the operation
+         */
+        private void watch(int ops) {
+            try {
+                key.interestOps(ops);
+                selector.wakeup();
+            } catch (CancelledKeyException e) {
+                close();
+            }
+        }
+
+        /**
+         * Closes the connection and puts its buffers back in the pool.
+         */
+        private void close() {
+            key.cancel();
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // Closed anyway
+            }
+            if (open) {
+                buffers.release(in);
+                buffers.release(out);
+            }
+        }
+    }
+}
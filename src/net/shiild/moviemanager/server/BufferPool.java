@@ -0,0 +1,69 @@
+/**
+ *
+ */
+package net.shiild.moviemanager.server;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A pool of direct buffers of one size, so that the buffers of a connection
+ * that closes are used again by the next one instead of being allocated
+ * outside the heap and freed only when the collector gets to them.
+ *
+ * @author StephenHildebrand
+ */
+final class BufferPool {
+    /** Capacity of each buffer */
+    private final int capacity;
+    /** Most buffers kept while not in use */
+    private final int maxIdle;
+    /** Buffers not in use */
+    private final ConcurrentLinkedQueue<ByteBuffer> idle;
+    /** Number of buffers in idle, which the queue cannot count in constant time */
+    private final AtomicInteger idleCount;
+
+    /**
+     * Constructs an empty pool.
+     *
+     * @param capacity capacity of each buffer
+     * @param maxIdle  most buffers kept while not in use
+     */
+    BufferPool(int capacity, int maxIdle) {
+        this.capacity = capacity;
+        this.maxIdle = maxIdle;
+        this.idle = new ConcurrentLinkedQueue<ByteBuffer>();
+        this.idleCount = new AtomicInteger();
+    }
+
+    /**
+     * Takes a cleared buffer from the pool, or allocates one if the pool is
+     * empty.
+     *
+     * @return the buffer
+     */
+    ByteBuffer acquire() {
+        ByteBuffer buffer = idle.poll();
+        if (buffer == null) {
+            return ByteBuffer.allocateDirect(capacity);
+        }
+        idleCount.decrementAndGet();
+        buffer.clear();
+        return buffer;
+    }
+
+    /**
+     * Puts a buffer no longer in use back in the pool, unless the pool
+     * already keeps as many as it may.
+     *
+     * @param buffer the buffer, which must have come from acquire
+     */
+    void release(ByteBuffer buffer) {
+        if (idleCount.incrementAndGet() <= maxIdle) {
+            idle.offer(buffer);
+        } else {
+            idleCount.decrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,74 @@
+/**
+ *
+ */
+package net.shiild.moviemanager.server;
+
+/**
+ * Writes the few kinds of JSON values the RentalServer answers with into a
+ * StringBuilder, so that the server needs no library to write JSON.
+ *
+ * @author StephenHildebrand
+ */
+final class Json {
+    /** Hexadecimal digits, for escaping control characters */
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    /**
+     * There is nothing to instantiate.
+     */
+    private Json() {
+        // Only static methods
+    }
+
+    /**
+     * Appends a string as a JSON string, quoted and escaped.
+     *
+     * @param out   where to append the string
+     * @param value the string
+     * @return out
+     */
+    static StringBuilder string(StringBuilder out, String value) {
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                out.append('\\').append(c);
+            } else if (c == '\n') {
+                out.append("\\n");
+            } else if (c == '\r') {
+                out.append("\\r");
+            } else if (c == '\t') {
+                out.append("\\t");
+            } else if (c < 0x20) {
+                out.append("\\u00").append(HEX[c >> 4]).append(HEX[c & 0xF]);
+            } else {
+                out.append(c);
+            }
+        }
+        return out.append('"');
+    }
+
+    /**
+     * Appends the lines of a string, such as the movie names a traversal of a
+     * customer's queue returns, as a JSON array of strings.
+     *
+     * @param out   where to append the array
+     * @param lines lines each ended by a newline, or null for none
+     * @return out
+     */
+    static StringBuilder lines(StringBuilder out, String lines) {
+        out.append('[');
+        if (lines != null) {
+            int start = 0;
+            int end;
+            while ((end = lines.indexOf('\n', start)) >= 0) {
+                if (start > 0) {
+                    out.append(',');
+                }
+                string(out, lines.substring(start, end));
+                start = end + 1;
+            }
+        }
+        return out.append(']');
+    }
+}
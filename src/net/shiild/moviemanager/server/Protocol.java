@@ -0,0 +1,138 @@
+/**
+ *
+ */
+package net.shiild.moviemanager.server;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The compact binary protocol the BinaryServer speaks with BinaryClient, for
+ * terminals to which HTTP and JSON are too much overhead.
+ * <p>
+ * Every request and answer is a frame: its length as an int, not counting
+ * the int itself, and then the request's id as an int. A request goes on
+ * with an opcode byte and the opcode's arguments; an answer with a status
+ * byte and, if the status is OK, the opcode's result, or else an error
+ * message. A client may send many requests before reading their answers,
+ * and chooses the ids to match the answers to them; the answers on one
+ * connection come in the order of the requests. Ints are big-endian, and
+ * strings are an unsigned short count of UTF-8 bytes and then the bytes.
+ * <p>
+ * The opcodes and their arguments and results are:
+ * <ul>
+ * <li>LOGIN id, password: the session token</li>
+ * <li>LOGOUT token: nothing</li>
+ * <li>INVENTORY offset int, limit int: the inventory size as an int, the
+ * number of entries as an int and each entry as its position int, an
+ * available byte, its title and its display name; fewer entries than the
+ * limit are answered if they would not fit in a frame</li>
+ * <li>QUEUES token: the customer's queues, each as a count int and the
+ * movie names, and a truncated byte of 1 if movies at the end were left out
+ * because they would not fit in a frame</li>
+ * <li>RESERVE, MOVE_UP, UNRESERVE and RETURN token, position int: make the
+ * change as the RentalManager methods do, and answer the queues</li>
+ * <li>ADD_ACCOUNT token, id, password, max int: nothing</li>
+ * </ul>
+ *
+ * @author StephenHildebrand
+ */
+public final class Protocol {
+    /** Largest length of a frame, not counting the length itself */
+    public static final int MAX_FRAME = 32 * 1024;
+    /** Length of the fields before a request's arguments: length, id and opcode */
+    public static final int REQUEST_HEADER = 9;
+    /** Length of the fields before an answer's result: length, id and status */
+    public static final int ANSWER_HEADER = 9;
+
+    /** Logs in and starts a session */
+    public static final byte LOGIN = 1;
+    /** Ends a session */
+    public static final byte LOGOUT = 2;
+    /** Reads a page of the inventory */
+    public static final byte INVENTORY = 3;
+    /** Reads the customer's queues */
+    public static final byte QUEUES = 4;
+    /** Reserves the movie at a position of the inventory */
+    public static final byte RESERVE = 5;
+    /** Moves the movie at a position of the reserve queue ahead one */
+    public static final byte MOVE_UP = 6;
+    /** Removes the movie at a position of the reserve queue */
+    public static final byte UNRESERVE = 7;
+    /** Returns the movie at a position of the at home queue */
+    public static final byte RETURN = 8;
+    /** Adds a customer, in the administrator's session */
+    public static final byte ADD_ACCOUNT = 9;
+
+    /** The request was made */
+    public static final byte OK = 0;
+    /** The request's arguments are not valid, as an IllegalArgumentException */
+    public static final byte BAD_REQUEST = 1;
+    /** The login failed, or there is no such session */
+    public static final byte UNAUTHORIZED = 2;
+    /** The session may not make the request */
+    public static final byte FORBIDDEN = 3;
+    /** The request cannot be made now, as an IllegalStateException */
+    public static final byte CONFLICT = 4;
+    /** The request failed in the server, with the exception it threw */
+    public static final byte SERVER_ERROR = 5;
+
+    /**
+     * There is nothing to instantiate.
+     */
+    private Protocol() {
+        // Only constants and static methods
+    }
+
+    /**
+     * Writes a string as its length in UTF-8 bytes and the bytes.
+     *
+     * @param out    buffer to write to
+     * @param string the string, or null for an empty one
+     * @throws IllegalArgumentException if the string is longer than 65535 bytes in UTF-8
+     * @throws java.nio.BufferOverflowException if the buffer is too small
+     */
+    public static void putString(ByteBuffer out, String string) throws IllegalArgumentException {
+        byte[] bytes = string == null ? new byte[0] : string.getBytes(StandardCharsets.UTF_8);
+        putString(out, bytes);
+    }
+
+    /**
+     * Writes a string already encoded in UTF-8 as its length and the bytes.
+     *
+     * @param out   buffer to write to
+     * @param bytes the string's bytes
+     * @throws IllegalArgumentException if there are more than 65535 bytes
+     * @throws java.nio.BufferOverflowException if the buffer is too small
+     */
+    static void putString(ByteBuffer out, byte[] bytes) throws IllegalArgumentException {
+        if (bytes.length > 0xFFFF) {
+            throw new IllegalArgumentException("The string is too long.");
+        }
+        out.putShort((short) bytes.length);
+        out.put(bytes);
+    }
+
+    /**
+     * Reads a string written by putString.
+     *
+     * @param in buffer to read from
+     * @return the string
+     * @throws BufferUnderflowException if the buffer ends first
+     */
+    public static String getString(ByteBuffer in) {
+        int length = in.getShort() & 0xFFFF;
+        if (length > in.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        if (in.hasArray()) {
+            String string = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+            in.position(in.position() + length);
+            return string;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
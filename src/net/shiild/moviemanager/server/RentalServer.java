@@ -0,0 +1,557 @@
+/**
+ *
+ */
+package net.shiild.moviemanager.server;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import net.shiild.moviemanager.customer.CustomerStore;
+import net.shiild.moviemanager.customer.SessionManager;
+import net.shiild.moviemanager.rental_system.InventoryEntry;
+import net.shiild.moviemanager.rental_system.MovieRentalSystem;
+import net.shiild.moviemanager.rental_system.RentalManager;
+
+/**
+ * Serves the rental system over HTTP, as a headless alternative to
+ * MovieSystemGUI, using the HTTP server built into the JDK.
+ * <p>
+ * Users log in to sessions of a SessionManager, and every other request names
+ * its session with an "Authorization: Bearer" header holding the session's
+ * token. Parameters are read from the query string and, for POST requests,
+ * from a form encoded body. Every answer is JSON:
+ * <ul>
+ * <li>POST /login with id and password answers the token of a new session</li>
+ * <li>POST /logout ends the session</li>
+ * <li>GET /inventory with an optional offset and limit answers a page of the
+ * inventory, which may be browsed without logging in</li>
+ * <li>GET /queues answers the customer's at home and reserve queues</li>
+ * <li>POST /reserve, /move-up, /unreserve and /return with a position make
+ * the change, as the RentalManager methods do, and answer the queues</li>
+ * <li>POST /accounts with id, password and max adds a customer, if the
+ * administrator is logged in to the session</li>
+ * </ul>
+ * An IllegalArgumentException from the rental system is answered with status
+ * 400, a failed login or a missing or evicted session with 401, a session
+ * that may not make the request with 403, a body longer than MAX_BODY with
+ * 413, an IllegalStateException otherwise with 409, and any other exception
+ * with 500, each with the exception's message. Malformed parameters are an
+ * IllegalArgumentException.
+ * <p>
+ * Each request is handled on a virtual thread of its own where the JDK has
+ * them, found by reflection so that the server also runs on JDKs without
+ * them, and on a cached pool of threads otherwise.
+ *
+ * @author StephenHildebrand
+ */
+public class RentalServer implements Closeable {
+    /** Port the server listens on when none is given */
+    public static final int DEFAULT_PORT = 8080;
+    /** Number of movies in a page of the inventory when no limit is given */
+    private static final int DEFAULT_LIMIT = 50;
+    /** Prefix of the header naming a request's session */
+    private static final String BEARER = "Bearer ";
+    /** Longest request body read, in bytes */
+    static final int MAX_BODY = 16 * 1024;
+
+    /** The rental system whose inventory is browsed */
+    private final MovieRentalSystem rentalSystem;
+    /** The sessions of the users logged in */
+    private final SessionManager sessions;
+    /** The HTTP server */
+    private final HttpServer server;
+    /** Runs the requests */
+    private final ExecutorService executor;
+
+    static {
+        // Unless told otherwise, the JDK's server leaves Nagle's algorithm on, which holds each
+        //    answer's body back behind its headers until the client's delayed acknowledgement,
+        //    about 40 ms later. Must be set before the first server is created.
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    /**
+     * Constructs a server of a rental system on the given address and starts
+     * it.
+     *
+     * @param rentalSystem the rental system
+     * @param sessions     the session manager of the rental system's users
+     * @param address      address to listen on, whose port may be 0 for any free port
+     * @throws IOException              if the server cannot listen on the address
+     * @throws IllegalArgumentException if an argument is null
+     */
+    public RentalServer(MovieRentalSystem rentalSystem, SessionManager sessions, InetSocketAddress address)
+            throws IOException, IllegalArgumentException {
+        if (rentalSystem == null || sessions == null || address == null) {
+            throw new IllegalArgumentException();
+        }
+        this.rentalSystem = rentalSystem;
+        this.sessions = sessions;
+        this.server = HttpServer.create(address, 0);
+        this.executor = newRequestExecutor();
+        server.setExecutor(executor);
+        server.createContext("/login", new Endpoint("POST") {
+            @Override
+            String answer(HttpExchange exchange, Map<String, String> parameters) {
+                String token;
+                try {
+                    token = RentalServer.this.sessions.login(parameters.get("id"), parameters.get("password"));
+                } catch (IllegalArgumentException e) {
+                    throw new UnauthorizedException(e.getMessage());
+                }
+                StringBuilder out = new StringBuilder("{\"token\":");
+                Json.string(out, token);
+                return out.append(",\"admin\":").append(RentalServer.this.sessions.isAdmin(token)).append('}')
+                        .toString();
+            }
+        });
+        server.createContext("/logout", new Endpoint("POST") {
+            @Override
+            String answer(HttpExchange exchange, Map<String, String> parameters) {
+                RentalServer.this.sessions.logout(token(exchange));
+                return "{}";
+            }
+        });
+        server.createContext("/inventory", new Endpoint("GET") {
+            @Override
+            String answer(HttpExchange exchange, Map<String, String> parameters) {
+                int offset = intParameter(parameters, "offset", 0);
+                int limit = intParameter(parameters, "limit", DEFAULT_LIMIT);
+                List<InventoryEntry> page = RentalServer.this.rentalSystem.showInventory(offset, limit);
+                StringBuilder out = new StringBuilder(64 + page.size() * 64);
+                out.append("{\"size\":").append(RentalServer.this.rentalSystem.inventorySize());
+                out.append(",\"movies\":[");
+                for (int i = 0; i < page.size(); i++) {
+                    InventoryEntry entry = page.get(i);
+                    if (i > 0) {
+                        out.append(',');
+                    }
+                    out.append("{\"position\":").append(entry.getPosition()).append(",\"title\":");
+                    Json.string(out, entry.getTitle());
+                    out.append(",\"available\":").append(entry.isAvailable()).append('}');
+                }
+                return out.append("]}").toString();
+            }
+        });
+        server.createContext("/queues", new Endpoint("GET") {
+            @Override
+            String answer(HttpExchange exchange, Map<String, String> parameters) {
+                return queues(rentalManager(exchange));
+            }
+        });
+        server.createContext("/reserve", new Endpoint("POST") {
+            @Override
+            String answer(HttpExchange exchange, Map<String, String> parameters) {
+                RentalManager rentalManager = rentalManager(exchange);
+                rentalManager.addToCustomerQueue(intParameter(parameters, "position", -1));
+                return queues(rentalManager);
+            }
+        });
+        server.createContext("/move-up", new Endpoint("POST") {
+            @Override
+            String answer(HttpExchange exchange, Map<String, String> parameters) {
+                RentalManager rentalManager = rentalManager(exchange);
+                rentalManager.reserveMoveAheadOne(intParameter(parameters, "position", -1));
+                return queues(rentalManager);
+            }
+        });
+        server.createContext("/unreserve", new Endpoint("POST") {
+            @Override
+            String answer(HttpExchange exchange, Map<String, String> parameters) {
+                RentalManager rentalManager = rentalManager(exchange);
+                rentalManager.removeSelectedFromReserves(intParameter(parameters, "position", -1));
+                return queues(rentalManager);
+            }
+        });
+        server.createContext("/return", new Endpoint("POST") {
+            @Override
+            String answer(HttpExchange exchange, Map<String, String> parameters) {
+                RentalManager rentalManager = rentalManager(exchange);
+                rentalManager.returnItemToInventory(intParameter(parameters, "position", -1));
+                return queues(rentalManager);
+            }
+        });
+        server.createContext("/accounts", new Endpoint("POST") {
+            @Override
+            String answer(HttpExchange exchange, Map<String, String> parameters) {
+                String token = token(exchange);
+                try {
+                    if (!RentalServer.this.sessions.isAdmin(token)) {
+                        throw new ForbiddenException();
+                    }
+                } catch (IllegalStateException e) {
+                    throw new UnauthorizedException(e.getMessage());
+                }
+                RentalServer.this.sessions.addNewCustomer(token, parameters.get("id"), parameters.get("password"),
+                        intParameter(parameters, "max", -1));
+                return "{}";
+            }
+        });
+        server.start();
+    }
+
+    /**
+     * Returns the address the server listens on.
+     *
+     * @return the address
+     */
+    public InetSocketAddress getAddress() {
+        return server.getAddress();
+    }
+
+    /**
+     * Stops the server, letting requests being answered finish for up to a
+     * second.
+     */
+    @Override
+    public void close() {
+        server.stop(1);
+        executor.shutdown();
+    }
+
+    /**
+     * Starts a server of the movie list file named by the first argument on
+     * the port given by the second, or DEFAULT_PORT. As MovieSystemGUI does,
+     * the inventory is read from a binary snapshot kept next to the file when
+     * there is a current one, and the stock and customers are kept in stores
+     * in directories named after the file.
+     *
+     * @param args the movie list file and the port
+     * @throws IOException if the file, snapshot or stores cannot be read or the port used
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: RentalServer <movie file> [port]");
+            System.exit(2);
+        }
+        String fileName = args[0];
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_PORT;
+        Path file = Paths.get(fileName);
+        Path snapshot = Paths.get(fileName + ".snapshot");
+        Charset charset = Charset.defaultCharset();
+        // Falls back to the file, and writes a new snapshot, if it is missing or stale
+        MovieRentalSystem rentalSystem = new MovieRentalSystem(file, snapshot, charset);
+        rentalSystem.openStockStore(Paths.get(fileName + ".stock"));
+        CustomerStore store = rentalSystem.openCustomerStore(Paths.get(fileName + ".customers"));
+        SessionManager sessions = new SessionManager(rentalSystem, store, SessionManager.DEFAULT_IDLE_TIMEOUT,
+                TimeUnit.MILLISECONDS);
+        RentalServer server = new RentalServer(rentalSystem, sessions, new InetSocketAddress(port));
+        System.out.println("Serving " + fileName + " on port " + server.getAddress().getPort());
+    }
+
+    /**
+     * Returns an executor running each task on a new virtual thread if the
+     * JDK has them, or else on a cached pool of daemon threads.
+     *
+     * @return the executor
+     */
+    static ExecutorService newRequestExecutor() {
+        try {
+            Method virtual = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) virtual.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            // No virtual threads before Java 21
+            final AtomicInteger count = new AtomicInteger();
+            return Executors.newCachedThreadPool(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "RentalServer-request-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+    }
+
+    /**
+     * Returns the token of the session named by a request's Authorization
+     * header.
+     *
+     * @param exchange the request
+     * @return the token, or null if there is none
+     */
+    private static String token(HttpExchange exchange) {
+        String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+        if (authorization == null || !authorization.startsWith(BEARER)) {
+            return null;
+        }
+        return authorization.substring(BEARER.length()).trim();
+    }
+
+    /**
+     * Returns the RentalManager of the customer session named by a request.
+     *
+     * @param exchange the request
+     * @return the session's RentalManager
+     * @throws UnauthorizedException if there is no such customer session
+     */
+    private RentalManager rentalManager(HttpExchange exchange) throws UnauthorizedException {
+        try {
+            return sessions.getRentalManager(token(exchange));
+        } catch (IllegalStateException e) {
+            throw new UnauthorizedException(e.getMessage());
+        }
+    }
+
+    /**
+     * Returns a customer's queues as a JSON object.
+     *
+     * @param rentalManager the customer's RentalManager
+     * @return the at home and reserve queues
+     */
+    private static String queues(RentalManager rentalManager) {
+        StringBuilder out = new StringBuilder("{\"atHome\":");
+        Json.lines(out, rentalManager.traverseAtHomeQueue());
+        out.append(",\"reserves\":");
+        Json.lines(out, rentalManager.traverseReserveQueue());
+        return out.append('}').toString();
+    }
+
+    /**
+     * Returns an int parameter.
+     *
+     * @param parameters   the parameters of the request
+     * @param name         name of the parameter
+     * @param defaultValue value if the parameter is missing, or -1 if it must be given
+     * @return the value of the parameter
+     * @throws IllegalArgumentException if the parameter is missing and must be given, or is not an int
+     */
+    private static int intParameter(Map<String, String> parameters, String name, int defaultValue)
+            throws IllegalArgumentException {
+        String value = parameters.get(name);
+        if (value == null) {
+            if (defaultValue < 0) {
+                throw new IllegalArgumentException("Missing parameter " + name + ".");
+            }
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Parameter " + name + " is not a number.");
+        }
+    }
+
+    /**
+     * Adds the parameters of a query string or form encoded body to a map.
+     *
+     * @param encoded    the encoded parameters, or null
+     * @param parameters the map
+     * @throws IllegalArgumentException if a parameter is not validly encoded
+     */
+    private static void parseParameters(String encoded, Map<String, String> parameters) {
+        if (encoded == null || encoded.isEmpty()) {
+            return;
+        }
+        try {
+            for (String pair : encoded.split("&")) {
+                int equals = pair.indexOf('=');
+                if (equals < 0) {
+                    parameters.put(URLDecoder.decode(pair, "UTF-8"), "");
+                } else {
+                    parameters.put(URLDecoder.decode(pair.substring(0, equals), "UTF-8"),
+                            URLDecoder.decode(pair.substring(equals + 1), "UTF-8"));
+                }
+            }
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e); // UTF-8 is always supported
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("The parameters are not validly encoded.", e);
+        }
+    }
+
+    /**
+     * Reads the whole body of a request, refusing one longer than MAX_BODY
+     * before reading it if its length is declared, or once MAX_BODY bytes
+     * have been read otherwise.
+     *
+     * @param exchange the request
+     * @return the body as a string
+     * @throws IOException       if the body cannot be read
+     * @throws TooLargeException if the body is longer than MAX_BODY
+     */
+    private static String readBody(HttpExchange exchange) throws IOException, TooLargeException {
+        String length = exchange.getRequestHeaders().getFirst("Content-Length");
+        if (length != null) {
+            try {
+                if (Long.parseLong(length.trim()) > MAX_BODY) {
+                    throw new TooLargeException();
+                }
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Content-Length is not a number.");
+            }
+        }
+        InputStream in = exchange.getRequestBody();
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        int n;
+        while ((n = in.read(buffer)) > 0) {
+            if (body.size() + n > MAX_BODY) {
+                throw new TooLargeException();
+            }
+            body.write(buffer, 0, n);
+        }
+        return new String(body.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Thrown when a request names no session, or one that cannot make it.
+     */
+    private static class UnauthorizedException extends RuntimeException {
+        /** Serial version */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Constructs the exception.
+         *
+         * @param message why the request is refused
+         */
+        UnauthorizedException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * Thrown when a request's body is longer than MAX_BODY.
+     */
+    private static class TooLargeException extends RuntimeException {
+        /** Serial version */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Constructs the exception.
+         */
+        TooLargeException() {
+            super("The request body is longer than " + MAX_BODY + " bytes.");
+        }
+    }
+
+    /**
+     * Thrown when a request names a session that may not make it.
+     */
+    private static class ForbiddenException extends RuntimeException {
+        /** Serial version */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Constructs the exception.
+         */
+        ForbiddenException() {
+            super("The administrator is not logged in.");
+        }
+    }
+
+    /**
+     * Answers the requests to one path with JSON.
+     */
+    private abstract static class Endpoint implements HttpHandler {
+        /** The request method the path accepts */
+        private final String method;
+
+        /**
+         * Constructs an endpoint accepting one request method.
+         *
+         * @param method the request method
+         */
+        Endpoint(String method) {
+            this.method = method;
+        }
+
+        /**
+         * Makes the request and returns the answer.
+         *
+         * @param exchange   the request
+         * @param parameters the request's parameters
+         * @return the answer, a JSON object
+         */
+        abstract String answer(HttpExchange exchange, Map<String, String> parameters);
+
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            try {
+                int status = 200;
+                String answer;
+                if (!exchange.getRequestMethod().equals(method)) {
+                    status = 405;
+                    answer = error("Use " + method + ".");
+                } else {
+                    try {
+                        Map<String, String> parameters = new HashMap<String, String>();
+                        parseParameters(exchange.getRequestURI().getRawQuery(), parameters);
+                        if (method.equals("POST")) {
+                            parseParameters(readBody(exchange), parameters);
+                        }
+                        answer = answer(exchange, parameters);
+                    } catch (TooLargeException e) {
+                        status = 413;
+                        answer = error(e.getMessage());
+                    } catch (UnauthorizedException e) {
+                        status = 401;
+                        answer = error(e.getMessage());
+                    } catch (ForbiddenException e) {
+                        status = 403;
+                        answer = error(e.getMessage());
+                    } catch (IllegalArgumentException e) {
+                        status = 400;
+                        answer = error(e.getMessage());
+                    } catch (IllegalStateException e) {
+                        status = 409;
+                        answer = error(e.getMessage());
+                    } catch (RuntimeException e) {
+                        status = 500;
+                        answer = error(e.toString());
+                    }
+                }
+                byte[] bytes = answer.getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+                exchange.sendResponseHeaders(status, bytes.length);
+                OutputStream out = exchange.getResponseBody();
+                out.write(bytes);
+                out.flush();
+            } finally {
+                exchange.close();
+            }
+        }
+
+        /**
+         * Returns a JSON object holding an error message.
+         *
+         * @param message the message, or null
+         * @return the object
+         */
+        private static String error(String message) {
+            StringBuilder out = new StringBuilder("{\"error\":");
+            if (message == null) {
+                out.append("null");
+            } else {
+                Json.string(out, message);
+            }
+            return out.append('}').toString();
+        }
+    }
+}
@@ -0,0 +1,273 @@
+/**
+ *
+ */
+package net.shiild.moviemanager.server;
+
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import net.shiild.moviemanager.customer.SessionManager;
+import net.shiild.moviemanager.rental_system.InventoryEntry;
+import net.shiild.moviemanager.rental_system.MovieRentalSystem;
+import net.shiild.moviemanager.rental_system.RentalManager;
+
+/**
+ * Answers the requests of the binary Protocol by calling a SessionManager
+ * and the RentalManagers of its sessions, writing each answer into a buffer
+ * the caller sends. It keeps no state of its own, so it may answer requests
+ * on several threads at once.
+ *
+ * @author StephenHildebrand
+ */
+final class RequestHandler {
+    /** The rental system whose inventory is browsed */
+    private final MovieRentalSystem rentalSystem;
+    /** The sessions of the users logged in */
+    private final SessionManager sessions;
+
+    /**
+     * Constructs a handler of a rental system.
+     *
+     * @param rentalSystem the rental system
+     * @param sessions     the session manager of the rental system's users
+     */
+    RequestHandler(MovieRentalSystem rentalSystem, SessionManager sessions) {
+        this.rentalSystem = rentalSystem;
+        this.sessions = sessions;
+    }
+
+    /**
+     * Answers a request, writing the whole answer frame.
+     *
+     * @param in  the request from its id on, limited to the end of its frame
+     * @param out buffer to write the answer to, with room for a frame of
+     *            MAX_FRAME bytes and its length; an answer that would be
+     *            longer is replaced by an error
+     */
+    void answer(ByteBuffer in, ByteBuffer out) {
+        int start = out.position();
+        int id = in.remaining() >= 4 ? in.getInt() : 0;
+        out.putInt(0).putInt(id).put(Protocol.OK);
+        int result = out.position();
+        byte status = Protocol.OK;
+        String message = null;
+        try {
+            answer(in.get(), in, out, start + 4 + Protocol.MAX_FRAME);
+            if (out.position() > start + 4 + Protocol.MAX_FRAME) {
+                throw new BufferOverflowException();
+            }
+        } catch (BufferOverflowException e) {
+            status = Protocol.CONFLICT;
+            message = "The answer is too long.";
+        } catch (Refused e) {
+            status = e.status;
+            message = e.getMessage();
+        } catch (BufferUnderflowException e) {
+            status = Protocol.BAD_REQUEST;
+            message = "The request is not valid.";
+        } catch (IllegalArgumentException e) {
+            status = Protocol.BAD_REQUEST;
+            message = e.getMessage();
+        } catch (IllegalStateException e) {
+            status = Protocol.CONFLICT;
+            message = e.getMessage();
+        } catch (RuntimeException e) {
+            // Answered rather than thrown, so the connection's other requests go on
+            status = Protocol.SERVER_ERROR;
+            message = e.toString();
+        }
+        if (status != Protocol.OK) {
+            out.position(result);
+            out.put(start + 8, status);
+            Protocol.putString(out, message);
+        }
+        out.putInt(start, out.position() - start - 4);
+    }
+
+    /**
+     * Makes a request and writes its result.
+     *
+     * @param opcode the request's opcode
+     * @param in     the request's arguments
+     * @param out    buffer to write the result to
+     * @param end    position in out the answer may not go past
+     * @throws Refused                  if the request is refused
+     * @throws IllegalArgumentException if the arguments are not valid
+     * @throws IllegalStateException    if the request cannot be made now
+     */
+    private void answer(byte opcode, ByteBuffer in, ByteBuffer out, int end)
+            throws Refused, IllegalArgumentException, IllegalStateException {
+        String token;
+        switch (opcode) {
+        case Protocol.LOGIN:
+            String id = Protocol.getString(in);
+            String password = Protocol.getString(in);
+            try {
+                token = sessions.login(id, password);
+            } catch (IllegalArgumentException e) {
+                throw new Refused(Protocol.UNAUTHORIZED, e.getMessage());
+            }
+            Protocol.putString(out, token);
+            break;
+        case Protocol.LOGOUT:
+            sessions.logout(Protocol.getString(in));
+            break;
+        case Protocol.INVENTORY:
+            inventory(in.getInt(), in.getInt(), out, end);
+            break;
+        case Protocol.QUEUES:
+            queues(rentalManager(in), out, end);
+            break;
+        case Protocol.RESERVE:
+            RentalManager reserver = rentalManager(in);
+            reserver.addToCustomerQueue(in.getInt());
+            queues(reserver, out, end);
+            break;
+        case Protocol.MOVE_UP:
+            RentalManager mover = rentalManager(in);
+            mover.reserveMoveAheadOne(in.getInt());
+            queues(mover, out, end);
+            break;
+        case Protocol.UNRESERVE:
+            RentalManager unreserver = rentalManager(in);
+            unreserver.removeSelectedFromReserves(in.getInt());
+            queues(unreserver, out, end);
+            break;
+        case Protocol.RETURN:
+            RentalManager returner = rentalManager(in);
+            returner.returnItemToInventory(in.getInt());
+            queues(returner, out, end);
+            break;
+        case Protocol.ADD_ACCOUNT:
+            token = Protocol.getString(in);
+            try {
+                if (!sessions.isAdmin(token)) {
+                    throw new Refused(Protocol.FORBIDDEN, "The administrator is not logged in.");
+                }
+            } catch (IllegalStateException e) {
+                throw new Refused(Protocol.UNAUTHORIZED, e.getMessage());
+            }
+            sessions.addNewCustomer(token, Protocol.getString(in), Protocol.getString(in), in.getInt());
+            break;
+        default:
+            throw new IllegalArgumentException("Unknown opcode " + opcode + ".");
+        }
+    }
+
+    /**
+     * Returns the RentalManager of the customer session whose token is the
+     * next argument.
+     *
+     * @param in the request's arguments
+     * @return the session's RentalManager
+     * @throws Refused if there is no such customer session
+     */
+    private RentalManager rentalManager(ByteBuffer in) throws Refused {
+        try {
+            return sessions.getRentalManager(Protocol.getString(in));
+        } catch (IllegalStateException e) {
+            throw new Refused(Protocol.UNAUTHORIZED, e.getMessage());
+        }
+    }
+
+    /**
+     * Writes a page of the inventory, with as many of its entries as fit.
+     *
+     * @param offset position of the page's first movie
+     * @param limit  most movies on the page
+     * @param out    buffer to write to
+     * @param end    position in out the page may not go past
+     */
+    private void inventory(int offset, int limit, ByteBuffer out, int end) {
+        // No more entries than could fit, however large the limit asked for
+        List<InventoryEntry> page = rentalSystem.showInventory(offset, Math.min(limit, Protocol.MAX_FRAME / 13));
+        out.putInt(rentalSystem.inventorySize());
+        int countAt = out.position();
+        out.putInt(0);
+        int count = 0;
+        for (InventoryEntry entry : page) {
+            byte[] title = entry.getTitle().getBytes(StandardCharsets.UTF_8);
+            byte[] displayName = entry.getDisplayName().getBytes(StandardCharsets.UTF_8);
+            if (out.position() + 9 + title.length + displayName.length > end) {
+                break;
+            }
+            out.putInt(entry.getPosition()).put((byte) (entry.isAvailable() ? 1 : 0));
+            Protocol.putString(out, title);
+            Protocol.putString(out, displayName);
+            count++;
+        }
+        out.putInt(countAt, count);
+    }
+
+    /**
+     * Writes a customer's at home and reserve queues, with as many of their
+     * movies as fit, and whether any were left out. A change already made is
+     * so never answered as failed because its queues are too long.
+     *
+     * @param rentalManager the customer's RentalManager
+     * @param out           buffer to write to
+     * @param end           position in out the queues may not go past
+     */
+    private static void queues(RentalManager rentalManager, ByteBuffer out, int end) {
+        // Room is kept for the reserve queue's count and the truncated byte
+        boolean complete = lines(rentalManager.traverseAtHomeQueue(), out, end - 4 - 1);
+        complete = lines(complete ? rentalManager.traverseReserveQueue() : null, out, end - 1) && complete;
+        out.put((byte) (complete ? 0 : 1));
+    }
+
+    /**
+     * Writes the lines of a string as a count and as many of the lines as
+     * fit.
+     *
+     * @param lines lines each ended by a newline, or null for none
+     * @param out   buffer to write to
+     * @param limit position in out the lines may not go past
+     * @return true if every line was written
+     */
+    private static boolean lines(String lines, ByteBuffer out, int limit) {
+        int countAt = out.position();
+        out.putInt(0);
+        if (lines == null) {
+            return true;
+        }
+        int count = 0;
+        int start = 0;
+        int end;
+        while ((end = lines.indexOf('\n', start)) >= 0) {
+            byte[] line = lines.substring(start, end).getBytes(StandardCharsets.UTF_8);
+            if (out.position() + 2 + line.length > limit) {
+                out.putInt(countAt, count);
+                return false;
+            }
+            Protocol.putString(out, line);
+            count++;
+            start = end + 1;
+        }
+        out.putInt(countAt, count);
+        return true;
+    }
+
+    /**
+     * Thrown when a request is refused, with the status to answer.
+     */
+    private static class Refused extends RuntimeException {
+        /** Serial version */
+        private static final long serialVersionUID = 1L;
+        /** The status to answer */
+        private final byte status;
+
+        /**
+         * Constructs the exception.
+         *
+         * @param status  the status to answer
+         * @param message why the request is refused
+         */
+        Refused(byte status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+}
@@ -0,0 +1,166 @@
+/**
+ *
+ */
+package net.shiild.moviemanager.ui;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.swing.SwingWorker;
+
+/**
+ * Runs the calls MovieSystemGUI makes into the CustomerAccountManager and
+ * RentalManager, so that the event dispatch thread never waits for them.
+ * <p>
+ * The backend classes are not thread safe, so every call runs on the same
+ * single background thread, in the order it was submitted. Work is submitted
+ * as SwingWorkers, whose done and process methods run on the event dispatch
+ * thread; a SwingWorker's own execute method would run it on a shared pool of
+ * several threads instead.
+ * <p>
+ * Refreshes are coalesced: a refresh requested while the same refresh is
+ * still waiting to run is dropped, since the waiting one will read the state
+ * the new request would have read. One requested after the waiting refresh
+ * has started runs again once it is done, so the last change is always shown.
+ *
+ * @author StephenHildebrand
+ */
+class BackendExecutor {
+    /** Name of the background thread */
+    private static final String THREAD_NAME = "MovieSystem-backend";
+
+    /** The single background thread */
+    private final ExecutorService executor;
+
+    /**
+     * Constructs an executor with its background thread, which does not keep
+     * the program running.
+     */
+    BackendExecutor() {
+        executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, THREAD_NAME);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Runs a worker on the background thread after the work submitted before
+     * it.
+     *
+     * @param worker the worker to run
+     */
+    void execute(SwingWorker<?, ?> worker) {
+        executor.execute(worker);
+    }
+
+    /**
+     * Requests a refresh, unless the same refresh is already waiting to run.
+     * Must be called on the event dispatch thread.
+     *
+     * @param refresh the refresh to run
+     * @param <S>     type of the state noted on the event dispatch thread
+     * @param <T>     type of the result read on the background thread
+     * @return true if the refresh was submitted, false if it was coalesced
+     *         with one that is waiting
+     */
+    <S, T> boolean refresh(final Refresh<S, T> refresh) {
+        if (!refresh.waiting.compareAndSet(false, true)) {
+            return false;
+        }
+        final S state = refresh.prepare();
+        execute(new SwingWorker<T, Void>() {
+            @Override
+            protected T doInBackground() {
+                // A request from now on needs a refresh of its own
+                refresh.waiting.set(false);
+                return refresh.read(state);
+            }
+
+            @Override
+            protected void done() {
+                refresh.show(getResult(this));
+            }
+        });
+        return true;
+    }
+
+    /**
+     * Stops the background thread once the work already submitted is done.
+     */
+    void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * Returns the result of a worker that is done, rethrowing what the worker
+     * threw, such as the IllegalArgumentException of a backend call, as it
+     * was thrown.
+     *
+     * @param worker the worker
+     * @param <T>    type of the worker's result
+     * @return the worker's result
+     * @throws IllegalStateException if the worker was interrupted or cancelled
+     */
+    static <T> T getResult(SwingWorker<T, ?> worker) {
+        try {
+            return worker.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (CancellationException e) {
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    /**
+     * A refresh of part of the GUI from the backend, in three steps: noting
+     * what to read on the event dispatch thread, reading it on the background
+     * thread, and showing it on the event dispatch thread.
+     *
+     * @param <S> type of the state noted on the event dispatch thread
+     * @param <T> type of the result read on the background thread
+     */
+    abstract static class Refresh<S, T> {
+        /** True while a request for this refresh is waiting to run */
+        private final AtomicBoolean waiting = new AtomicBoolean();
+
+        /**
+         * Notes what to read, on the event dispatch thread.
+         *
+         * @return the state passed to read
+         */
+        protected abstract S prepare();
+
+        /**
+         * Reads from the backend, on the background thread.
+         *
+         * @param state the state noted by prepare
+         * @return the result passed to show
+         */
+        protected abstract T read(S state);
+
+        /**
+         * Shows what was read, on the event dispatch thread.
+         *
+         * @param result the result of read
+         */
+        protected abstract void show(T result);
+    }
+}
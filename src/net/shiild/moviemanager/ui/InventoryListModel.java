@@ -0,0 +1,241 @@
+/**
+ *
+ */
+package net.shiild.moviemanager.ui;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.swing.AbstractListModel;
+
+import net.shiild.moviemanager.rental_system.InventoryEntry;
+import net.shiild.moviemanager.rental_system.RentalManager;
+
+/**
+ * List model for the inventory list of MovieSystemGUI that reads the movies
+ * from the RentalManager a page at a time, as the list asks for them.
+ * <p>
+ * Only the pages the list has asked for most recently are kept, so the model
+ * holds a window of the inventory around the rows that are on the screen
+ * rather than every title. Refreshing the model reads just those pages again
+ * and fires contentsChanged for the rows whose display name changed, such as
+ * a movie that ran out of stock when it was reserved, instead of clearing and
+ * refilling the whole list. The JList showing the model should have a fixed
+ * cell size, for example from setPrototypeCellValue, or it will ask for every
+ * row to measure them.
+ * <p>
+ * Like every Swing model, it is meant to be used on the event dispatch thread.
+ *
+ * @author StephenHildebrand
+ */
+public class InventoryListModel extends AbstractListModel<String> {
+    /** ID number to be used for object serialization */
+    private static final long serialVersionUID = 1L;
+    /** Default number of movies read at a time */
+    public static final int DEFAULT_PAGE_SIZE = 100;
+    /** Default number of pages kept */
+    public static final int DEFAULT_MAX_PAGES = 8;
+
+    /** The rental system holding the inventory */
+    private final transient RentalManager rentals;
+    /** Number of movies read at a time */
+    private final int pageSize;
+    /** Pages read so far by page number, least recently used first */
+    private final transient Map<Integer, List<InventoryEntry>> pages;
+    /** Number of movies in the inventory when the model was last refreshed */
+    private int size;
+
+    /**
+     * Constructs a model of the inventory of the given rental system with the
+     * default page size and number of pages.
+     *
+     * @param rentals the rental system holding the inventory
+     * @throws IllegalArgumentException if rentals is null
+     */
+    public InventoryListModel(RentalManager rentals) throws IllegalArgumentException {
+        this(rentals, DEFAULT_PAGE_SIZE, DEFAULT_MAX_PAGES);
+    }
+
+    /**
+     * Constructs a model of the inventory of the given rental system.
+     *
+     * @param rentals  the rental system holding the inventory
+     * @param pageSize number of movies read at a time, at least 1
+     * @param maxPages number of pages kept, at least 1
+     * @throws IllegalArgumentException if rentals is null or pageSize or maxPages is less than 1
+     */
+    public InventoryListModel(RentalManager rentals, int pageSize, final int maxPages)
+            throws IllegalArgumentException {
+        if (rentals == null || pageSize < 1 || maxPages < 1) {
+            throw new IllegalArgumentException();
+        }
+        this.rentals = rentals;
+        this.pageSize = pageSize;
+        this.pages = new LinkedHashMap<Integer, List<InventoryEntry>>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, List<InventoryEntry>> eldest) {
+                return size() > maxPages;
+            }
+        };
+        this.size = rentals.inventorySize();
+    }
+
+    @Override
+    public int getSize() {
+        return size;
+    }
+
+    @Override
+    public String getElementAt(int index) {
+        return getEntry(index).getDisplayName();
+    }
+
+    /**
+     * Returns the entry for the movie at the given row, reading its page if it
+     * is not kept.
+     *
+     * @param index the row
+     * @return the movie's entry as last read
+     * @throws IndexOutOfBoundsException if index is not a row of the list
+     */
+    public InventoryEntry getEntry(int index) throws IndexOutOfBoundsException {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        int page = index / pageSize;
+        List<InventoryEntry> entries = pages.get(page);
+        if (entries == null) {
+            entries = rentals.showInventory(page * pageSize, pageSize);
+            pages.put(page, entries);
+        }
+        return entries.get(index - page * pageSize);
+    }
+
+    /**
+     * Returns the number of pages kept.
+     *
+     * @return the number of pages kept
+     */
+    int getCachedPageCount() {
+        return pages.size();
+    }
+
+    /**
+     * Reads the kept pages of the inventory again and fires contentsChanged
+     * for each run of rows whose display name has changed. If the size of the
+     * inventory has changed, every page is dropped and the list is told that
+     * all of its rows changed.
+     */
+    public void refresh() {
+        Update update = startRefresh();
+        update.read();
+        finishRefresh(update);
+    }
+
+    /**
+     * Starts a refresh by noting which pages are kept. The pages can then be
+     * read with Update.read on another thread, such as the one MovieSystemGUI
+     * calls the backend on, and the result applied with finishRefresh.
+     *
+     * @return the update to read
+     */
+    Update startRefresh() {
+        int[] pageNumbers = new int[pages.size()];
+        int i = 0;
+        for (Integer page : pages.keySet()) {
+            pageNumbers[i++] = page;
+        }
+        return new Update(pageNumbers);
+    }
+
+    /**
+     * Applies a refresh that has been read, replacing the pages that are still
+     * kept and firing contentsChanged for each run of rows whose display name
+     * has changed. Pages first read after the refresh was started are left as
+     * they are.
+     *
+     * @param update the update, after Update.read
+     */
+    void finishRefresh(Update update) {
+        if (update.size != size) {
+            int oldSize = size;
+            pages.clear();
+            size = update.size;
+            if (size < oldSize) {
+                fireIntervalRemoved(this, size, oldSize - 1);
+            } else {
+                fireIntervalAdded(this, oldSize, size - 1);
+            }
+            if (Math.min(oldSize, size) > 0) {
+                fireContentsChanged(this, 0, Math.min(oldSize, size) - 1);
+            }
+            return;
+        }
+        // Replace the pages first, then fire, so that listeners see the new rows
+        List<int[]> changed = new ArrayList<int[]>();
+        for (int p = 0; p < update.pageNumbers.length; p++) {
+            int page = update.pageNumbers[p];
+            List<InventoryEntry> oldEntries = pages.get(page);
+            if (oldEntries == null) {
+                continue; // dropped since the refresh started
+            }
+            List<InventoryEntry> newEntries = update.entries.get(p);
+            int first = page * pageSize;
+            int runStart = -1;
+            for (int i = 0; i < newEntries.size(); i++) {
+                boolean differs = i >= oldEntries.size()
+                        || !oldEntries.get(i).getDisplayName().equals(newEntries.get(i).getDisplayName());
+                if (differs && runStart < 0) {
+                    runStart = i;
+                } else if (!differs && runStart >= 0) {
+                    changed.add(new int[] {first + runStart, first + i - 1});
+                    runStart = -1;
+                }
+            }
+            if (runStart >= 0) {
+                changed.add(new int[] {first + runStart, first + newEntries.size() - 1});
+            }
+            pages.put(page, newEntries);
+        }
+        for (int[] run : changed) {
+            fireContentsChanged(this, run[0], run[1]);
+        }
+    }
+
+    /**
+     * The pages of a refresh, read apart from the event dispatch thread.
+     */
+    final class Update {
+        /** Numbers of the pages to read */
+        private final int[] pageNumbers;
+        /** The pages read, in the order of pageNumbers */
+        private final List<List<InventoryEntry>> entries = new ArrayList<List<InventoryEntry>>();
+        /** Number of movies in the inventory when the pages were read */
+        private int size;
+
+        /**
+         * Constructs an update of the given pages.
+         *
+         * @param pageNumbers numbers of the pages to read
+         */
+        private Update(int[] pageNumbers) {
+            this.pageNumbers = pageNumbers;
+        }
+
+        /**
+         * Reads the size of the inventory and the pages from the rental
+         * system. It touches nothing else of the model, so it may be called on
+         * any thread.
+         */
+        void read() {
+            size = rentals.inventorySize();
+            for (int page : pageNumbers) {
+                entries.add(rentals.showInventory(page * pageSize, pageSize));
+            }
+        }
+    }
+}
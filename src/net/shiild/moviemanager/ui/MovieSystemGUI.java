@@ -2,7 +2,17 @@ package net.shiild.moviemanager.ui;
 
 import java.awt.*;
 import java.awt.event.*;
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.Scanner;
 
 import javax.swing.*;
@@ -10,6 +20,7 @@ import javax.swing.border.*;
 
 import net.shiild.moviemanager.customer.CustomerAccountManager;
 import net.shiild.moviemanager.customer.CustomerAccountSystem;
+import net.shiild.moviemanager.customer.CustomerStore;
 import net.shiild.moviemanager.rental_system.MovieRentalSystem;
 import net.shiild.moviemanager.rental_system.RentalManager;
 
@@ -21,6 +32,11 @@ import net.shiild.moviemanager.rental_system.RentalManager;
  * It bases its actions on the RentalManager and CustomerAccountSystem.
  * Its rentals data member is of type RentalManager, and its accountManager data
  * member is of type CustomerAccountSystem.
+ * <p>
+ * The inventory is read and every call into the backend is made on a
+ * background thread through a BackendExecutor, so the window stays responsive
+ * however large the inventory is. The results are shown back on the event
+ * dispatch thread.
  *
  * @author StephenHildebrand
  */
@@ -58,6 +74,8 @@ public class MovieSystemGUI extends JFrame implements ActionListener {
     private static final String CHECKED_OUT_TITLE = "Movies At Home";
     /** Title of the main window */
     private static final String WINDOW_TITLE = "DVD Rental System";
+    /** Row whose size is used for every inventory row, so the list never measures them all */
+    private static final String INVENTORY_PROTOTYPE = "How to Train Your Dragon 2 (currently unavailable)";
 
     /** Button for adding a new customer to the customer database */
     private JButton btnAddNewCustomer = new JButton("Add New Customer");
@@ -84,11 +102,14 @@ public class MovieSystemGUI extends JFrame implements ActionListener {
 
     /** Default List Model to add a scrolling list for the reserveQueue */
     private DefaultListModel<String> dlmReserveQueueModel = new DefaultListModel<String>();
-    /** Default list Model to add a scrolling list for the Inventory */
-    private DefaultListModel<String> dlmInventoryModel = new DefaultListModel<String>();
+    /** List model reading the Inventory a page at a time, created with the backend */
+    private InventoryListModel inventoryModel;
     /** Default List Model to add a scrolling list for the atHomeQueue */
     private DefaultListModel<String> dlmAtHomeQueueModel = new DefaultListModel<String>();
 
+    /** Progress of reading the inventory, shown until it has been read */
+    private JProgressBar progressLoad = new JProgressBar(0, 100);
+
     /** Label for added to queue */
     private JLabel lblAddedToQueue = new JLabel(" ");
     /** Label for the user id text field */
@@ -101,7 +122,7 @@ public class MovieSystemGUI extends JFrame implements ActionListener {
     private JPasswordField pwdPassword = new JPasswordField(ID_AND_PASSWORD_WIDTH);
 
     // Lists that have scrolling functionality
-    private JList<String> listInventory = new JList<String>(dlmInventoryModel);
+    private JList<String> listInventory = new JList<String>();
     private JList<String> listReserveQueue = new JList<String>(dlmReserveQueueModel);
     private JList<String> listAtHomeQueue = new JList<String>(dlmAtHomeQueueModel);
     private JScrollPane scrollInventory = new JScrollPane(listInventory);
@@ -133,35 +154,42 @@ public class MovieSystemGUI extends JFrame implements ActionListener {
     // Backend
     private transient CustomerAccountManager accountManager;
     private transient RentalManager movieRentals;
+    /** Runs the backend calls off the event dispatch thread */
+    private transient BackendExecutor backend = new BackendExecutor();
+    /** Refresh of the at home and reserve queue lists */
+    private transient QueueRefresh queueRefresh = new QueueRefresh();
+    /** Refresh of the rows of the inventory list that have been read */
+    private transient InventoryRefresh inventoryRefresh = new InventoryRefresh();
 
     /**
-     * Constructor for MovieSystemGUI. Creates the MovieRentalSystem model and
-     * the administrative user. The GUI is initialized and set as visible.
+     * Constructor for MovieSystemGUI. The GUI is initialized and set as
+     * visible, and the MovieRentalSystem model and the administrative user are
+     * then created in the background while a progress bar shows how much of
+     * the inventory file has been read.
      *
      * @param fileName name of file that initializes the inventory
      * @throws FileNotFoundException if no file of the given filename exists
      */
     public MovieSystemGUI(String fileName) throws FileNotFoundException {
+        String inventoryFile = fileName;
         if (fileName == null) {
-            String userPickName = null;
             JFileChooser fc = new JFileChooser();
             fc.setFileSelectionMode(JFileChooser.FILES_AND_DIRECTORIES);
             int returnVal = fc.showOpenDialog(this);
             if (returnVal == JFileChooser.APPROVE_OPTION) {
-                userPickName = fc.getSelectedFile().getName();
+                inventoryFile = fc.getSelectedFile().getName();
             }
-            movieRentals = new MovieRentalSystem(userPickName);
-        } else {
-            movieRentals = new MovieRentalSystem(fileName);
         }
-        accountManager = new CustomerAccountSystem(movieRentals);
+        if (inventoryFile != null && !inventoryFile.equals("") && !new File(inventoryFile).isFile()) {
+            throw new FileNotFoundException(inventoryFile);
+        }
 
         // Use the frame constants to form the panel
         setSize(FRAME_WIDTH, FRAME_HEIGHT);
         setTitle(WINDOW_TITLE);
 
         // Set list content/behavior.
-        loadModel(listInventory, dlmInventoryModel, movieRentals.showInventory());
+        listInventory.setPrototypeCellValue(INVENTORY_PROTOTYPE);
         listInventory.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
         listReserveQueue.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
         listAtHomeQueue.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
@@ -197,6 +225,9 @@ public class MovieSystemGUI extends JFrame implements ActionListener {
         pnlMovies.add(boxQueue, "Show My Queue");
         mainWindow.add(pnlButtons, BorderLayout.NORTH);
         mainWindow.add(pnlMovies, BorderLayout.CENTER);
+        progressLoad.setStringPainted(true);
+        progressLoad.setString("Loading inventory...");
+        mainWindow.add(progressLoad, BorderLayout.SOUTH);
 
         // Enable buttons to respond to events.
         btnQuit.addActionListener(this);
@@ -211,7 +242,7 @@ public class MovieSystemGUI extends JFrame implements ActionListener {
         btnAddNewCustomer.addActionListener(this);
         btnCancelAccount.addActionListener(this);
 
-        toggleAdmin();
+        disableButtons();
         addWindowListener(new WindowAdapter() {
             public void windowClosing(WindowEvent e) {
                 stopExecution();
@@ -219,6 +250,103 @@ public class MovieSystemGUI extends JFrame implements ActionListener {
         });
 
         this.setVisible(true);
+        loadInventory(inventoryFile);
+    }
+
+    /**
+     * Reads the inventory and creates the backend on the background thread,
+     * showing the progress through the file, and enables the buttons once it
+     * is done. A binary snapshot of the inventory is kept next to the file,
+     * with ".snapshot" added to its name, and read instead of the file while
+     * the file is unchanged. The stock and the customer accounts are kept in
+     * a StockStore and a CustomerStore, in directories named after the file
+     * with ".stock" and ".customers" added; if they cannot be read, the
+     * accounts are kept in memory only.
+     *
+     * @param fileName name of file that initializes the inventory, or null
+     */
+    private void loadInventory(final String fileName) {
+        final SwingWorker<RentalManager, Void> loader = new SwingWorker<RentalManager, Void>() {
+            /** The account manager, created along with the rental system */
+            private CustomerAccountManager accounts;
+            /** Why the customer store could not be opened, or null */
+            private IOException storeError;
+
+            @Override
+            protected RentalManager doInBackground() throws IOException {
+                MovieRentalSystem rentals;
+                CustomerStore store = null;
+                if (fileName == null || fileName.equals("")) {
+                    rentals = new MovieRentalSystem(fileName);
+                } else if (Files.exists(Paths.get(fileName + ".snapshot"))) {
+                    // Falls back to the file, and writes a new snapshot, if it is stale
+                    rentals = new MovieRentalSystem(Paths.get(fileName), Paths.get(fileName + ".snapshot"),
+                            Charset.defaultCharset());
+                } else {
+                    File file = new File(fileName);
+                    final long length = file.length();
+                    InputStream in = new FilterInputStream(new FileInputStream(file)) {
+                        /** Number of bytes read so far */
+                        private long bytesRead;
+
+                        @Override
+                        public int read(byte[] b, int off, int len) throws IOException {
+                            int n = super.read(b, off, len);
+                            if (n > 0 && length > 0) {
+                                bytesRead += n;
+                                setProgress((int) Math.min(100, bytesRead * 100 / length));
+                            }
+                            return n;
+                        }
+                    };
+                    try {
+                        rentals = new MovieRentalSystem(in, file.toPath(), Paths.get(fileName + ".snapshot"),
+                                Charset.defaultCharset());
+                    } finally {
+                        in.close();
+                    }
+                }
+                if (fileName != null && !fileName.equals("")) {
+                    try {
+                        rentals.openStockStore(Paths.get(fileName + ".stock"));
+                        store = rentals.openCustomerStore(Paths.get(fileName + ".customers"));
+                    } catch (IOException e) {
+                        storeError = e;
+                    }
+                }
+                accounts = new CustomerAccountSystem(rentals, store);
+                return rentals;
+            }
+
+            @Override
+            protected void done() {
+                try {
+                    movieRentals = BackendExecutor.getResult(this);
+                } catch (IllegalArgumentException e) {
+                    JOptionPane.showMessageDialog(new JFrame(), "Incorrect Inventory File Specified");
+                    stopExecution();
+                    return;
+                }
+                if (storeError != null) {
+                    JOptionPane.showMessageDialog(new JFrame(),
+                            "Customer accounts could not be read and will not be saved");
+                }
+                accountManager = accounts;
+                inventoryModel = new InventoryListModel(movieRentals);
+                listInventory.setModel(inventoryModel);
+                mainWindow.remove(progressLoad);
+                mainWindow.revalidate();
+                toggleAdmin();
+            }
+        };
+        loader.addPropertyChangeListener(new PropertyChangeListener() {
+            public void propertyChange(PropertyChangeEvent e) {
+                if ("progress".equals(e.getPropertyName())) {
+                    progressLoad.setValue((Integer) e.getNewValue());
+                }
+            }
+        });
+        backend.execute(loader);
     }
 
     /**
@@ -241,36 +369,76 @@ public class MovieSystemGUI extends JFrame implements ActionListener {
         }
         // Add to my queue button
         if (actionEvent.getSource().equals(btnAddToQueue)) {
-            int k = listInventory.getSelectedIndex();
+            final int k = listInventory.getSelectedIndex();
             if (k >= 0) {
-                movieRentals.addToCustomerQueue(k);
-                lblAddedToQueue.setText("Added: " + (String) dlmInventoryModel.get(k));
-                refreshQueueAndAtHomeLists();
-                refreshInventoryList();
+                final String added = inventoryModel.getElementAt(k);
+                backend.execute(new BackendCall() {
+                    @Override
+                    protected void call() {
+                        movieRentals.addToCustomerQueue(k);
+                    }
+
+                    @Override
+                    protected void succeeded() {
+                        lblAddedToQueue.setText("Added: " + added);
+                        refreshQueueAndAtHomeLists();
+                        refreshInventoryList();
+                    }
+                });
             }
         }
         // Move to top button
         if (actionEvent.getSource().equals(btnMove)) {
-            int k = listReserveQueue.getSelectedIndex();
+            final int k = listReserveQueue.getSelectedIndex();
             if (k >= 0) {
-                movieRentals.reserveMoveAheadOne(k);
-                refreshQueueAndAtHomeLists();
+                backend.execute(new BackendCall() {
+                    @Override
+                    protected void call() {
+                        movieRentals.reserveMoveAheadOne(k);
+                    }
+
+                    @Override
+                    protected void succeeded() {
+                        refreshQueueAndAtHomeLists();
+                    }
+                });
             }
         }
         // Remove selected item button
         if (actionEvent.getSource().equals(btnRemove)) {
-            int k = listReserveQueue.getSelectedIndex();
-            if (k >= 0)
-                movieRentals.removeSelectedFromReserves(k);
-            refreshQueueAndAtHomeLists();
+            final int k = listReserveQueue.getSelectedIndex();
+            if (k >= 0) {
+                backend.execute(new BackendCall() {
+                    @Override
+                    protected void call() {
+                        movieRentals.removeSelectedFromReserves(k);
+                    }
+
+                    @Override
+                    protected void succeeded() {
+                        refreshQueueAndAtHomeLists();
+                    }
+                });
+            } else {
+                refreshQueueAndAtHomeLists();
+            }
         }
         // Return selected item button
         if (actionEvent.getSource().equals(btnReturn)) {
-            int k = listAtHomeQueue.getSelectedIndex();
+            final int k = listAtHomeQueue.getSelectedIndex();
             if (k >= 0) {
-                movieRentals.returnItemToInventory(k);
-                refreshQueueAndAtHomeLists();
-                refreshInventoryList();
+                backend.execute(new BackendCall() {
+                    @Override
+                    protected void call() {
+                        movieRentals.returnItemToInventory(k);
+                    }
+
+                    @Override
+                    protected void succeeded() {
+                        refreshQueueAndAtHomeLists();
+                        refreshInventoryList();
+                    }
+                });
             }
         }
         // Quit button
@@ -280,20 +448,35 @@ public class MovieSystemGUI extends JFrame implements ActionListener {
         // Logout button
         if (actionEvent.getSource().equals(btnLogout)) {
             cardLayout.show(pnlMovies, "Admin");
-            accountManager.logout();
-            toggleAdmin();
+            backend.execute(new BackendCall() {
+                @Override
+                protected void call() {
+                    accountManager.logout();
+                }
+
+                @Override
+                protected void succeeded() {
+                    toggleAdmin();
+                }
+            });
         }
         // Login button
         if (actionEvent.getSource().equals(btnLogin)) {
-            try {
-                accountManager.login(txtUserName.getText(), new String(pwdPassword.getPassword()));
-                toggleAdmin();
-                txtUserName.setText("");
-                pwdPassword.setText("");
-            } catch (IllegalArgumentException e) {
-                JOptionPane.showMessageDialog(new JFrame(), e.getMessage());
-            }
-
+            final String id = txtUserName.getText();
+            final String password = new String(pwdPassword.getPassword());
+            backend.execute(new BackendCall() {
+                @Override
+                protected void call() {
+                    accountManager.login(id, password);
+                }
+
+                @Override
+                protected void succeeded() {
+                    toggleAdmin();
+                    txtUserName.setText("");
+                    pwdPassword.setText("");
+                }
+            });
         }
 
         // Add new customer
@@ -303,11 +486,13 @@ public class MovieSystemGUI extends JFrame implements ActionListener {
 
         // Cancel Account
         if (actionEvent.getSource().equals(btnCancelAccount)) {
-            try {
-                accountManager.cancelAccount(cancelUserInfo());
-            } catch (IllegalArgumentException e) {
-                JOptionPane.showMessageDialog(new JFrame(), e.getMessage());
-            }
+            final String id = cancelUserInfo();
+            backend.execute(new BackendCall() {
+                @Override
+                protected void call() {
+                    accountManager.cancelAccount(id);
+                }
+            });
         }
     }
 
@@ -392,13 +577,14 @@ public class MovieSystemGUI extends JFrame implements ActionListener {
      * Add new customer to CustomerAccountSystem.
      */
     private void addNewCustomer() {
-        String[] info = newCustomerInfoDialog();
+        final String[] info = newCustomerInfoDialog();
         if (info != null) {
-            try {
-                accountManager.addNewCustomer(info[0], info[1], Integer.parseInt(info[2]));
-            } catch (Exception e) {
-                JOptionPane.showMessageDialog(new JFrame(), e.getMessage());
-            }
+            backend.execute(new BackendCall() {
+                @Override
+                protected void call() {
+                    accountManager.addNewCustomer(info[0], info[1], Integer.parseInt(info[2]));
+                }
+            });
         }
     }
 
@@ -478,14 +664,29 @@ public class MovieSystemGUI extends JFrame implements ActionListener {
         btnReturn.setEnabled(customerLoggedIn);
     }
 
+    /**
+     * Disables every button while the inventory is read.
+     */
+    private void disableButtons() {
+        JButton[] buttons = {btnAddNewCustomer, btnCancelAccount, btnBrowse, btnShowQueue, btnAddToQueue, btnMove,
+                btnRemove, btnReturn, btnLogin, btnQuit, btnLogout};
+        for (JButton button : buttons) {
+            button.setEnabled(false);
+        }
+    }
+
     /**
      * Loads model list from a string.
      *
      * @param jList     to be refreshed
      * @param modelList the default j list model
-     * @param info      string used to initialize the default model
+     * @param info      string used to initialize the default model, or null
+     *                  for an empty list
      */
     private void loadModel(JList<String> jList, DefaultListModel<String> modelList, String info) {
+        if (info == null) {
+            return;
+        }
         Scanner s = new Scanner(info);
         while (s.hasNext()) {
             modelList.addElement(s.nextLine());
@@ -494,25 +695,20 @@ public class MovieSystemGUI extends JFrame implements ActionListener {
     }
 
     /**
-     * Private Method - refreshes lists on the QUEUE card.
+     * Private Method - refreshes lists on the QUEUE card, in the background.
+     * Refreshes requested while one is waiting to run are coalesced.
      */
     private void refreshQueueAndAtHomeLists() {
-        dlmAtHomeQueueModel.clear();
-        dlmReserveQueueModel.clear();
-        try { // If Customer logged in
-            loadModel(listAtHomeQueue, dlmAtHomeQueueModel, movieRentals.traverseAtHomeQueue());
-            loadModel(listReserveQueue, dlmReserveQueueModel, movieRentals.traverseReserveQueue());
-        } catch (IllegalStateException e) {
-            // Customer  not logged in
-        }
+        backend.refresh(queueRefresh);
     }
 
     /**
-     * Refresh browse list
+     * Refresh browse list, in the background. Only the rows the model has read
+     * are read again, and refreshes requested while one is waiting to run are
+     * coalesced.
      */
     private void refreshInventoryList() {
-        dlmInventoryModel.clear();
-        loadModel(listInventory, dlmInventoryModel, movieRentals.showInventory());
+        backend.refresh(inventoryRefresh);
     }
 
     /**
@@ -538,4 +734,95 @@ public class MovieSystemGUI extends JFrame implements ActionListener {
             stopExecution();
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * A call into the backend, made on the background thread. Any
+     * RuntimeException it throws, such as an IllegalArgumentException for bad
+     * input or an IllegalStateException from a store that could not be
+     * written, is shown in a dialog.
+     */
+    private abstract class BackendCall extends SwingWorker<Void, Void> {
+        @Override
+        protected Void doInBackground() {
+            call();
+            return null;
+        }
+
+        @Override
+        protected void done() {
+            try {
+                BackendExecutor.getResult(this);
+            } catch (RuntimeException e) {
+                JOptionPane.showMessageDialog(new JFrame(), e.getMessage());
+                return;
+            }
+            succeeded();
+        }
+
+        /**
+         * Makes the call, on the background thread.
+         */
+        protected abstract void call();
+
+        /**
+         * Updates the GUI after the call succeeded, on the event dispatch
+         * thread. Does nothing unless overridden.
+         */
+        protected void succeeded() {
+            // Nothing to update
+        }
+    }
+
+    /**
+     * Reads the customer's at home and reserve queues in the background and
+     * shows them.
+     */
+    private class QueueRefresh extends BackendExecutor.Refresh<Void, String[]> {
+        @Override
+        protected Void prepare() {
+            return null;
+        }
+
+        @Override
+        protected String[] read(Void state) {
+            try {
+                return new String[] {movieRentals.traverseAtHomeQueue(), movieRentals.traverseReserveQueue()};
+            } catch (IllegalStateException e) {
+                return null; // Customer not logged in
+            }
+        }
+
+        @Override
+        protected void show(String[] queues) {
+            dlmAtHomeQueueModel.clear();
+            dlmReserveQueueModel.clear();
+            if (queues != null) {
+                loadModel(listAtHomeQueue, dlmAtHomeQueueModel, queues[0]);
+                loadModel(listReserveQueue, dlmReserveQueueModel, queues[1]);
+            }
+        }
+    }
+
+    /**
+     * Reads the pages the inventory list model holds in the background and
+     * applies them to the model.
+     */
+    private class InventoryRefresh
+            extends BackendExecutor.Refresh<InventoryListModel.Update, InventoryListModel.Update> {
+        @Override
+        protected InventoryListModel.Update prepare() {
+            return inventoryModel.startRefresh();
+        }
+
+        @Override
+        protected InventoryListModel.Update read(InventoryListModel.Update update) {
+            update.read();
+            return update;
+        }
+
+        @Override
+        protected void show(InventoryListModel.Update update) {
+            inventoryModel.finishRefresh(update);
+        }
+    }
+}
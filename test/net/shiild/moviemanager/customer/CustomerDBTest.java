@@ -5,6 +5,12 @@ package net.shiild.moviemanager.customer;
 
 import static org.junit.Assert.*;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
 import org.junit.Before;
 import org.junit.Test;
 
@@ -119,4 +125,86 @@ public class CustomerDBTest {
 			assertEquals("a\nb\nc\n", cDB.listAccounts());
 		}
 	}
+
+	/**
+	 * Test that the database holds more customers than its initial capacity,
+	 * keeps them in case-insensitive order by id, and finds each by its exact
+	 * id.
+	 */
+	@Test
+	public void testManyCustomers() {
+		CustomerDB db = new CustomerDB();
+		Random random = new Random(15);
+		List<String> ids = new ArrayList<String>();
+		for (int i = 0; i < 1000; i++) {
+			String id = (random.nextBoolean() ? "User" : "user") + random.nextInt(100000) + "_" + i;
+			ids.add(id);
+			db.addNewCustomer(id, "pw" + i, 1 + i % 5);
+		}
+		for (int i = 0; i < ids.size(); i++) {
+			assertEquals(ids.get(i), db.verifyCustomer(ids.get(i), "pw" + i).getId());
+		}
+		// Ids differing only in case are different accounts
+		try {
+			db.verifyCustomer(ids.get(0).toUpperCase(), "pw0");
+			fail("Customer found by an id in the wrong case.");
+		} catch (IllegalArgumentException e) {
+			// Expected
+		}
+
+		for (int i = 0; i < 500; i++) {
+			db.cancelAccount(ids.get(i));
+		}
+		List<String> remaining = new ArrayList<String>(ids.subList(500, ids.size()));
+		Collections.sort(remaining, String.CASE_INSENSITIVE_ORDER);
+		StringBuilder expected = new StringBuilder();
+		for (String id : remaining) {
+			expected.append(id).append('\n');
+		}
+		assertEquals(expected.toString(), db.listAccounts());
+		try {
+			db.verifyCustomer(ids.get(0), "pw0");
+			fail("Cancelled customer was verified.");
+		} catch (IllegalArgumentException e) {
+			// Expected
+		}
+		db.addNewCustomer(ids.get(0), "again", 2);
+		assertEquals(ids.get(0), db.verifyCustomer(ids.get(0), "again").getId());
+	}
+
+	/**
+	 * Test method for {@link CustomerDB#cancelAccounts(java.util.Collection)}:
+	 * customers are removed together, an id given twice is removed once, and
+	 * nothing is removed if any id is not in the database.
+	 */
+	@Test
+	public void testCancelAccounts() {
+		cDB.addNewCustomer("B", "pw6", 2);
+		cDB.addNewCustomer("d", "pw4", 2);
+		cDB.addNewCustomer("e", "pw5", 1);
+		assertEquals("a\nb\nB\nc\nd\ne\n", cDB.listAccounts());
+
+		try {
+			cDB.cancelAccounts(Arrays.asList("a", "x"));
+			fail("Missing account was cancelled.");
+		} catch (IllegalArgumentException e) {
+			assertEquals("a\nb\nB\nc\nd\ne\n", cDB.listAccounts());
+		}
+
+		cDB.cancelAccounts(Arrays.asList("e", "B", "a", "B"));
+		assertEquals("b\nc\nd\n", cDB.listAccounts());
+		assertEquals("b", cDB.verifyCustomer("b", "pw2").getId());
+		try {
+			cDB.verifyCustomer("B", "pw6");
+			fail("Cancelled customer was verified.");
+		} catch (IllegalArgumentException e) {
+			// Expected
+		}
+		cDB.cancelAccounts(Collections.<String>emptyList());
+		assertEquals("b\nc\nd\n", cDB.listAccounts());
+		cDB.cancelAccounts(Arrays.asList("b", "c", "d"));
+		assertEquals("", cDB.listAccounts());
+		cDB.addNewCustomer("B", "pw6", 2);
+		assertEquals("B\n", cDB.listAccounts());
+	}
 }
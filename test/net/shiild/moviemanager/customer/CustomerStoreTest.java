@@ -0,0 +1,300 @@
+/**
+ *
+ */
+package net.shiild.moviemanager.customer;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import net.shiild.moviemanager.inventory.Movie;
+import net.shiild.moviemanager.inventory.MovieDB;
+import net.shiild.moviemanager.inventory.StockStore;
+import net.shiild.moviemanager.persistence.WriteAheadLog;
+
+/**
+ * Test class for CustomerStore. Each test changes the customers of a store,
+ * then opens the store again over a freshly read inventory, as a restart
+ * would, and checks that the accounts, queues and stock are as they were.
+ *
+ * @author StephenHildebrand
+ */
+public class CustomerStoreTest {
+	/** Directory the store is kept in */
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+	/** Directory of the store */
+	Path directory;
+	/** The inventory the store was opened with */
+	MovieDB inventory;
+	/** The store under test */
+	CustomerStore store;
+
+	/**
+	 * Opens an empty store over the short movie list.
+	 *
+	 * @throws IOException if the store cannot be opened
+	 */
+	@Before
+	public void setUp() throws IOException {
+		directory = folder.getRoot().toPath().resolve("customers");
+		inventory = new MovieDB("movies-short.txt");
+		store = CustomerStore.open(directory, inventory, false, CustomerStore.DEFAULT_COMPACT_EVERY);
+	}
+
+	/**
+	 * Test that accounts, both queues and the stock taken by the movies at
+	 * home are restored when the store is opened again.
+	 *
+	 * @throws IOException if the store cannot be used
+	 */
+	@Test
+	public void testReopen() throws IOException {
+		makeChanges(store, inventory);
+		String accounts = store.getCustomers().listAccounts();
+		String atHome = customer(store, "a").traverseAtHomeQueue();
+		String reserves = customer(store, "a").traverseReserveQueue();
+		String stock = inventory.traverse();
+		store.close();
+
+		MovieDB reread = new MovieDB("movies-short.txt");
+		CustomerStore reopened = CustomerStore.open(directory, reread, false, CustomerStore.DEFAULT_COMPACT_EVERY);
+		assertEquals(accounts, reopened.getCustomers().listAccounts());
+		assertEquals(atHome, customer(reopened, "a").traverseAtHomeQueue());
+		assertEquals(reserves, customer(reopened, "a").traverseReserveQueue());
+		assertEquals(stock, reread.traverse());
+		assertNotNull(reopened.getCustomers().verifyCustomer("b", "pw2"));
+		assertNull(customer(reopened, "c"));
+
+		// Changes after recovery are logged too
+		customer(reopened, "a").unReserve(0);
+		reserves = customer(reopened, "a").traverseReserveQueue();
+		reopened.close();
+		reopened = CustomerStore.open(directory, new MovieDB("movies-short.txt"), false,
+				CustomerStore.DEFAULT_COMPACT_EVERY);
+		assertEquals(reserves, customer(reopened, "a").traverseReserveQueue());
+		reopened.close();
+	}
+
+	/**
+	 * Test that snapshots are taken as records are logged, the log starts
+	 * again after each, and the store opens the same from them.
+	 *
+	 * @throws IOException if the store cannot be used
+	 */
+	@Test
+	public void testCompaction() throws IOException {
+		store.close();
+		store = CustomerStore.open(directory, inventory, false, 4);
+		makeChanges(store, inventory);
+		assertTrue(Files.exists(directory.resolve(CustomerStore.SNAPSHOT_FILE)));
+		assertTrue(WriteAheadLog.generationOf(directory.resolve(CustomerStore.LOG_FILE)) > 0);
+		String atHome = customer(store, "a").traverseAtHomeQueue();
+		String reserves = customer(store, "a").traverseReserveQueue();
+		String stock = inventory.traverse();
+		store.close();
+
+		MovieDB reread = new MovieDB("movies-short.txt");
+		CustomerStore reopened = CustomerStore.open(directory, reread, false, 4);
+		assertEquals("a\nb\n", reopened.getCustomers().listAccounts());
+		assertEquals(atHome, customer(reopened, "a").traverseAtHomeQueue());
+		assertEquals(reserves, customer(reopened, "a").traverseReserveQueue());
+		assertEquals(stock, reread.traverse());
+		reopened.close();
+	}
+
+	/**
+	 * Test that a record only partly written when the program stopped is
+	 * dropped, keeping every change committed before it.
+	 *
+	 * @throws IOException if the store cannot be used
+	 */
+	@Test
+	public void testTornTail() throws IOException {
+		store.addNewCustomer("a", "pw1", 2);
+		store.close();
+		FileChannel channel = FileChannel.open(directory.resolve(CustomerStore.LOG_FILE), StandardOpenOption.WRITE,
+				StandardOpenOption.APPEND);
+		channel.write(ByteBuffer.wrap(new byte[] {0, 0, 0, 50, 1, 2}));
+		channel.close();
+
+		CustomerStore reopened = CustomerStore.open(directory, new MovieDB("movies-short.txt"));
+		assertEquals("a\n", reopened.getCustomers().listAccounts());
+		reopened.close();
+	}
+
+	/**
+	 * Test that a store cannot be opened with an inventory its movies are not
+	 * in.
+	 *
+	 * @throws IOException if the store cannot be written
+	 */
+	@Test
+	public void testOtherInventory() throws IOException {
+		makeChanges(store, inventory);
+		store.close();
+		MovieDB other = new MovieDB(
+				new ByteArrayInputStream("1 Alien\n1 Brazil\n1 Casablanca\n1 Dune\n1 Fargo\n".getBytes(StandardCharsets.UTF_8)),
+				StandardCharsets.UTF_8);
+		try {
+			CustomerStore.open(directory, other);
+			fail("IOException should have been thrown");
+		} catch (IOException e) {
+			assertEquals("The customer store does not match the inventory.", e.getMessage());
+		}
+	}
+
+	/**
+	 * Test that a store whose customers have more copies at home than the
+	 * inventory has cannot be opened, and that the copies it took before
+	 * finding out are given back.
+	 *
+	 * @throws IOException if the store cannot be written
+	 */
+	@Test
+	public void testStockShort() throws IOException {
+		store.close();
+		MovieDB restocked = new MovieDB(
+				new ByteArrayInputStream("1 Alien\n1 Brazil\n".getBytes(StandardCharsets.UTF_8)), StandardCharsets.UTF_8);
+		store = CustomerStore.open(directory, restocked);
+		store.addNewCustomer("a", "pw1", 2);
+		customer(store, "a").reserve(movie(restocked, "Alien"));
+		customer(store, "a").reserve(movie(restocked, "Brazil"));
+		store.close();
+
+		MovieDB shorter = new MovieDB(
+				new ByteArrayInputStream("1 Alien\n0 Brazil\n".getBytes(StandardCharsets.UTF_8)), StandardCharsets.UTF_8);
+		try {
+			CustomerStore.open(directory, shorter);
+			fail("IOException should have been thrown");
+		} catch (IOException e) {
+			assertEquals("The customer store does not match the inventory.", e.getMessage());
+		}
+		assertTrue(movie(shorter, "Alien").isAvailable());
+	}
+
+	/**
+	 * Test that adding an account that already exists is rejected and not
+	 * logged.
+	 *
+	 * @throws IOException if the store cannot be used
+	 */
+	@Test
+	public void testAddDuplicate() throws IOException {
+		store.addNewCustomer("a", "pw1", 2);
+		try {
+			store.addNewCustomer("a", "pw2", 3);
+			fail("IllegalArgumentException should have been thrown");
+		} catch (IllegalArgumentException e) {
+			// Expected
+		}
+		store.close();
+		CustomerStore reopened = CustomerStore.open(directory, new MovieDB("movies-short.txt"));
+		assertNotNull(reopened.getCustomers().verifyCustomer("a", "pw1"));
+		reopened.close();
+	}
+
+	/**
+	 * Test that with the stock kept in a StockStore, reopening restores the
+	 * queues without taking the copies at home a second time, including when
+	 * the StockStore is first opened over a store that already has customers.
+	 *
+	 * @throws IOException if the stores cannot be used
+	 */
+	@Test
+	public void testDurableStock() throws IOException {
+		makeChanges(store, inventory);
+		store.close();
+		Path stockDirectory = folder.getRoot().toPath().resolve("stock");
+
+		for (int restart = 0; restart < 3; restart++) {
+			MovieDB reread = new MovieDB("movies-short.txt");
+			StockStore stock = StockStore.open(stockDirectory, reread, false, StockStore.DEFAULT_COMPACT_EVERY);
+			assertEquals(restart == 0, stock.isNew());
+			CustomerStore reopened = CustomerStore.open(directory, reread, false,
+					CustomerStore.DEFAULT_COMPACT_EVERY);
+			assertEquals(inventory.traverse(), reread.traverse());
+			assertEquals(customer(store, "a").traverseAtHomeQueue(),
+					customer(reopened, "a").traverseAtHomeQueue());
+			reopened.close();
+			stock.close();
+		}
+
+		// A change made with both stores open is kept once
+		MovieDB reread = new MovieDB("movies-short.txt");
+		StockStore stock = StockStore.open(stockDirectory, reread);
+		CustomerStore reopened = CustomerStore.open(directory, reread);
+		customer(reopened, "b").reserve(movie(reread, "Frozen"));
+		String stockAfter = reread.traverse();
+		reopened.close();
+		stock.close();
+		reread = new MovieDB("movies-short.txt");
+		StockStore.open(stockDirectory, reread);
+		CustomerStore.open(directory, reread).close();
+		assertEquals(stockAfter, reread.traverse());
+		reread.getStockStore().close();
+	}
+
+	/**
+	 * Adds and cancels accounts and makes every kind of change to the queues
+	 * of customer a, leaving Gravity at home and Warcraft and Spectre on
+	 * reserve.
+	 *
+	 * @param store     the store
+	 * @param inventory the inventory the store was opened with
+	 */
+	private static void makeChanges(CustomerStore store, MovieDB inventory) {
+		store.addNewCustomer("a", "pw1", 2);
+		store.addNewCustomer("b", "pw2", 1);
+		store.addNewCustomer("c", "pw3", 1);
+		Customer a = customer(store, "a");
+		a.reserve(movie(inventory, "Frozen")); // checked out
+		a.reserve(movie(inventory, "Spectre")); // none in stock, reserved
+		a.reserve(movie(inventory, "Warcraft")); // none in stock, reserved
+		a.moveAheadOneInReserves(1); // Warcraft first
+		a.reserve(movie(inventory, "Gravity")); // checked out
+		a.returnDVD(0); // Frozen back, nothing on reserve in stock
+		customer(store, "c").reserve(movie(inventory, "Gravity"));
+		store.cancelAccounts(Arrays.asList("c")); // Gravity back
+	}
+
+	/**
+	 * Returns the customer with the given id in a store.
+	 *
+	 * @param store the store
+	 * @param id    the customer's id
+	 * @return the customer, or null
+	 */
+	private static Customer customer(CustomerStore store, String id) {
+		return store.getCustomers().findCustomer(id);
+	}
+
+	/**
+	 * Returns the movie with the given name in an inventory.
+	 *
+	 * @param inventory the inventory
+	 * @param name      the movie's name
+	 * @return the movie
+	 */
+	private static Movie movie(MovieDB inventory, String name) {
+		for (Movie movie : inventory.findItemsAt(0, inventory.size())) {
+			if (movie.getName().equals(name)) {
+				return movie;
+			}
+		}
+		throw new IllegalArgumentException(name);
+	}
+}
@@ -5,6 +5,9 @@ package net.shiild.moviemanager.customer;
 
 import static org.junit.Assert.*;
 
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+
 import net.shiild.moviemanager.customer.Customer;
 import net.shiild.moviemanager.inventory.Movie;
 import net.shiild.moviemanager.list_util.MultiPurposeList;
@@ -51,6 +54,25 @@ public class CustomerTest {
 
 	}
 
+	/**
+	 * Test method for {@link Customer#traverseReserveQueue(Appendable)} and
+	 * {@link Customer#traverseAtHomeQueue(Appendable)}.
+	 *
+	 * @throws IOException if the queues cannot be appended
+	 */
+	@Test
+	public void testTraverseQueueAppendable() throws IOException {
+		StringBuilder out = new StringBuilder();
+		c1.traverseReserveQueue(out);
+		assertEquals(c1.traverseReserveQueue(), out.toString());
+		out.setLength(0);
+		c1.traverseAtHomeQueue(out);
+		assertEquals(c1.traverseAtHomeQueue(), out.toString());
+		out.setLength(0);
+		c2.traverseAtHomeQueue(out);
+		assertEquals("", out.toString());
+	}
+
 	/**
 	 * Test method for
 	 * {@link Customer#Customer(java.lang.String, java.lang.String, int)}
@@ -146,6 +168,15 @@ public class CustomerTest {
 		// Try to remove another movie -- nothing should happen
 		c1.returnDVD(0);
 		assertNull(c1.traverseAtHomeQueue());
+
+		// Return from just past the end of the queue -- throws exception
+		c2.reserve(movie2);
+		try {
+			c2.returnDVD(1);
+			fail("Position out of bounds.");
+		} catch (IllegalArgumentException e) {
+			assertEquals("Gravity\n", c2.traverseAtHomeQueue());
+		}
 	}
 
 	/**
@@ -190,6 +221,12 @@ public class CustomerTest {
 			// Exception thrown if attempt to unreserve a movie outside
 			// reserveQueue bounds
 		}
+		try {
+			c1.unReserve(1);
+			fail("Position out of bounds.");
+		} catch (IllegalArgumentException e) {
+			assertEquals("Spectre\n", c1.traverseReserveQueue());
+		}
 	}
 
 	/**
@@ -211,4 +248,74 @@ public class CustomerTest {
 			// Exception should be thrown if a null movie is reserved
 		}
 	}
+
+	/**
+	 * Test that many customers, each on its own thread, reserving the one
+	 * popular title at once check out exactly as many copies as there are,
+	 * and the rest have it on reserve.
+	 *
+	 * @throws InterruptedException if interrupted while waiting for the threads
+	 */
+	@Test
+	public void testConcurrentReserve() throws InterruptedException {
+		final int copies = 10;
+		final int customers = 64;
+		final Movie popular = new Movie(copies + " Popular");
+		final Customer[] all = new Customer[customers];
+		final CountDownLatch start = new CountDownLatch(1);
+		Thread[] workers = new Thread[customers];
+		for (int i = 0; i < customers; i++) {
+			final Customer customer = new Customer("customer" + i, "pw", 1);
+			all[i] = customer;
+			workers[i] = new Thread() {
+				@Override
+				public void run() {
+					try {
+						start.await();
+					} catch (InterruptedException e) {
+						return;
+					}
+					customer.reserve(popular);
+				}
+			};
+			workers[i].start();
+		}
+		start.countDown();
+		for (Thread worker : workers) {
+			worker.join();
+		}
+		int atHome = 0;
+		int reserved = 0;
+		for (Customer customer : all) {
+			if (customer.traverseAtHomeQueue() != null) {
+				assertEquals("Popular\n", customer.traverseAtHomeQueue());
+				assertNull(customer.traverseReserveQueue());
+				atHome++;
+			} else {
+				assertEquals("Popular\n", customer.traverseReserveQueue());
+				reserved++;
+			}
+		}
+		assertEquals(copies, atHome);
+		assertEquals(customers - copies, reserved);
+		assertFalse(popular.isAvailable());
+
+		// Returned copies go to customers with it on reserve as they log in
+		for (Customer customer : all) {
+			if (customer.traverseAtHomeQueue() != null) {
+				customer.returnDVD(0);
+			}
+		}
+		for (Customer customer : all) {
+			customer.login();
+		}
+		atHome = 0;
+		for (Customer customer : all) {
+			if (customer.traverseAtHomeQueue() != null) {
+				atHome++;
+			}
+		}
+		assertEquals(copies, atHome);
+		assertFalse(popular.isAvailable());
+	}
 }
@@ -0,0 +1,259 @@
+/**
+ *
+ */
+package net.shiild.moviemanager.customer;
+
+import static org.junit.Assert.*;
+
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import net.shiild.moviemanager.inventory.MovieDB;
+import net.shiild.moviemanager.rental_system.MovieRentalSystem;
+import net.shiild.moviemanager.rental_system.RentalManager;
+
+/**
+ * Test class for SessionManager, over the short movie list: Frozen (3
+ * copies), Gravity (2), How to Train Your Dragon 2 (3), Spectre (0) and
+ * Warcraft (0).
+ *
+ * @author StephenHildebrand
+ */
+public class SessionManagerTest {
+	/** Directory a store is kept in */
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+	/** The rental system the sessions use */
+	MovieRentalSystem rentalSystem;
+	/** Customers kept in memory */
+	CustomerDB customers;
+	/** The session manager under test */
+	SessionManager sessions;
+
+	/**
+	 * Sets up a session manager with two customers.
+	 */
+	@Before
+	public void setUp() {
+		rentalSystem = new MovieRentalSystem("movies-short.txt");
+		customers = new CustomerDB();
+		customers.addNewCustomer("a", "pw1", 2);
+		customers.addNewCustomer("b", "pw2", 1);
+		sessions = new SessionManager(rentalSystem, customers, SessionManager.DEFAULT_IDLE_TIMEOUT,
+				TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Stops the session manager.
+	 */
+	@After
+	public void tearDown() {
+		sessions.close();
+	}
+
+	/**
+	 * Test that customers logged in at the same time each change their own
+	 * queues through their session's RentalManager.
+	 */
+	@Test
+	public void testLogin() {
+		String a = sessions.login("a", "pw1");
+		String b = sessions.login("b", "pw2");
+		assertNotEquals(a, b);
+		assertEquals(2, sessions.size());
+		assertFalse(sessions.isAdmin(a));
+
+		sessions.getRentalManager(a).addToCustomerQueue(0);
+		sessions.getRentalManager(b).addToCustomerQueue(1);
+		sessions.getRentalManager(b).addToCustomerQueue(3);
+		assertEquals("Frozen\n", sessions.getRentalManager(a).traverseAtHomeQueue());
+		assertNull(sessions.getRentalManager(a).traverseReserveQueue());
+		assertEquals("Gravity\n", sessions.getRentalManager(b).traverseAtHomeQueue());
+		assertEquals("Spectre\n", sessions.getRentalManager(b).traverseReserveQueue());
+
+		// A second session of the same customer sees the same queues
+		String a2 = sessions.login("a", "pw1");
+		assertEquals("Frozen\n", sessions.getRentalManager(a2).traverseAtHomeQueue());
+
+		sessions.logout(a);
+		assertEquals(2, sessions.size());
+		try {
+			sessions.getRentalManager(a);
+			fail();
+		} catch (IllegalStateException e) {
+			// Logged out
+		}
+		try {
+			sessions.login("a", "wrong");
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertEquals(2, sessions.size());
+		}
+	}
+
+	/**
+	 * Test that only the administrator's session may add and cancel
+	 * accounts, and that cancelling an account ends its sessions.
+	 */
+	@Test
+	public void testAdmin() {
+		String admin = sessions.login("admin", "admin");
+		String b = sessions.login("b", "pw2");
+		assertTrue(sessions.isAdmin(admin));
+		try {
+			sessions.getRentalManager(admin);
+			fail();
+		} catch (IllegalStateException e) {
+			// The administrator has no queues
+		}
+		try {
+			sessions.addNewCustomer(b, "c", "pw3", 1);
+			fail();
+		} catch (IllegalStateException e) {
+			assertEquals("a\nb\n", sessions.listAccounts());
+		}
+
+		sessions.addNewCustomer(admin, "c", "pw3", 1);
+		assertEquals("a\nb\nc\n", sessions.listAccounts());
+		RentalManager view = sessions.getRentalManager(b);
+		view.addToCustomerQueue(0);
+		sessions.cancelAccount(admin, "b");
+		assertEquals("a\nc\n", sessions.listAccounts());
+		assertEquals(1, sessions.size());
+		try {
+			sessions.getRentalManager(b);
+			fail();
+		} catch (IllegalStateException e) {
+			// The session ended with the account
+		}
+		try {
+			view.addToCustomerQueue(1);
+			fail();
+		} catch (IllegalStateException e) {
+			// A view kept from the session no longer changes the account
+		}
+	}
+
+	/**
+	 * Test that sessions unused for longer than the idle timeout are evicted,
+	 * and that using a session keeps it.
+	 *
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	@Test
+	public void testEvictIdle() throws InterruptedException {
+		sessions.close();
+		sessions = new SessionManager(rentalSystem, customers, 200, TimeUnit.MILLISECONDS);
+		String a = sessions.login("a", "pw1");
+		String b = sessions.login("b", "pw2");
+		Thread.sleep(120);
+		sessions.getRentalManager(a);
+		Thread.sleep(120);
+		assertEquals(1, sessions.evictIdle());
+		assertEquals(1, sessions.size());
+		assertNotNull(sessions.getRentalManager(a));
+		try {
+			sessions.getRentalManager(b);
+			fail();
+		} catch (IllegalStateException e) {
+			// Evicted
+		}
+		Thread.sleep(250);
+		try {
+			sessions.getRentalManager(a);
+			fail();
+		} catch (IllegalStateException e) {
+			assertEquals(0, sessions.size());
+		}
+	}
+
+	/**
+	 * Test that customers changing their queues in sessions on many threads
+	 * at once, while a small compaction interval makes the store take
+	 * snapshots between their operations, leave a store that reopens to the
+	 * same accounts, queues and stock.
+	 *
+	 * @throws Exception if the store cannot be used or a thread fails
+	 */
+	@Test
+	public void testConcurrentStore() throws Exception {
+		final int threads = 16;
+		final int rounds = 200;
+		Path directory = folder.getRoot().toPath().resolve("customers");
+		CustomerStore store = rentalSystem.openCustomerStore(directory, false, 50);
+		sessions.close();
+		sessions = new SessionManager(rentalSystem, store, SessionManager.DEFAULT_IDLE_TIMEOUT,
+				TimeUnit.MILLISECONDS);
+		String admin = sessions.login("admin", "admin");
+		for (int i = 0; i < threads; i++) {
+			sessions.addNewCustomer(admin, "customer" + i, "pw", 2);
+		}
+
+		final CountDownLatch start = new CountDownLatch(1);
+		final Set<Throwable> failures = new HashSet<Throwable>();
+		Thread[] workers = new Thread[threads];
+		for (int i = 0; i < threads; i++) {
+			final String id = "customer" + i;
+			workers[i] = new Thread() {
+				@Override
+				public void run() {
+					try {
+						start.await();
+						String token = sessions.login(id, "pw");
+						for (int round = 0; round < rounds; round++) {
+							RentalManager view = sessions.getRentalManager(token);
+							view.addToCustomerQueue(round % 3);
+							if (view.traverseAtHomeQueue() != null) {
+								view.returnItemToInventory(0);
+							}
+							if (view.traverseReserveQueue() != null && round % 2 == 0) {
+								view.removeSelectedFromReserves(0);
+							}
+						}
+						sessions.logout(token);
+					} catch (Throwable e) {
+						synchronized (failures) {
+							failures.add(e);
+						}
+					}
+				}
+			};
+			workers[i].start();
+		}
+		start.countDown();
+		for (Thread worker : workers) {
+			worker.join();
+		}
+		assertEquals(new HashSet<Throwable>(), failures);
+		assertEquals(1, sessions.size());
+
+		String[] atHome = new String[threads];
+		String[] reserves = new String[threads];
+		for (int i = 0; i < threads; i++) {
+			Customer customer = store.getCustomers().findCustomer("customer" + i);
+			atHome[i] = customer.traverseAtHomeQueue();
+			reserves[i] = customer.traverseReserveQueue();
+		}
+		String stock = rentalSystem.showInventory();
+		store.close();
+
+		MovieDB reread = new MovieDB("movies-short.txt");
+		CustomerStore reopened = CustomerStore.open(directory, reread, false, 50);
+		for (int i = 0; i < threads; i++) {
+			Customer customer = reopened.getCustomers().findCustomer("customer" + i);
+			assertEquals(atHome[i], customer.traverseAtHomeQueue());
+			assertEquals(reserves[i], customer.traverseReserveQueue());
+		}
+		assertEquals(stock, reread.traverse());
+		reopened.close();
+	}
+}
@@ -5,10 +5,26 @@ package net.shiild.moviemanager.inventory;
 
 import static org.junit.Assert.*;
 
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
 import org.junit.Before;
 import org.junit.Test;
 
 import net.shiild.moviemanager.inventory.MovieDB;
+import net.shiild.moviemanager.list_util.ListType;
 
 /**
  * Test class for MovieDB.
@@ -62,6 +78,29 @@ public class MovieDBTest {
 		assertEquals(expectedDB, shortDB.traverse());
 	}
 
+	/**
+	 * Test method for
+	 * {@link MovieDB#traverse(Appendable)}: the movies written to a Writer
+	 * are the string traverse returns, and nothing is written for an empty
+	 * database.
+	 *
+	 * @throws IOException if the file cannot be written
+	 */
+	@Test
+	public void testTraverseAppendable() throws IOException {
+		StringWriter out = new StringWriter();
+		mDB.traverse(out);
+		assertEquals(mDB.traverse(), out.toString());
+
+		File empty = File.createTempFile("movies-empty", ".txt");
+		empty.deleteOnExit();
+		MovieDB emptyDB = new MovieDB(empty.getPath());
+		assertNull(emptyDB.traverse());
+		out = new StringWriter();
+		emptyDB.traverse(out);
+		assertEquals("", out.toString());
+	}
+
 	/**
 	 * Test method for
 	 * {@link MovieDB#findItemA(int)}.
@@ -78,4 +117,263 @@ public class MovieDBTest {
 			assertEquals("12 Years a Slave", mDB.findItemAt(0).getName());
 		}
 	}
+
+	/**
+	 * Test method for
+	 * {@link MovieDB#findItemsAt(int, int)} and {@link MovieDB#size()}, for
+	 * every list type.
+	 */
+	@Test
+	public void testFindItemsAt() {
+		for (ListType listType : ListType.values()) {
+			MovieDB typedDB = new MovieDB("movies.txt", listType);
+			int size = typedDB.size();
+			assertEquals(mDB.size(), size);
+			for (int psn = 0; psn <= size; psn += 3) {
+				List<Movie> page = typedDB.findItemsAt(psn, 5);
+				assertEquals(Math.min(5, size - psn), page.size());
+				for (int i = 0; i < page.size(); i++) {
+					assertSame(typedDB.findItemAt(psn + i), page.get(i));
+				}
+			}
+			assertEquals(size, typedDB.findItemsAt(0, size + 10).size());
+			assertTrue(typedDB.findItemsAt(2, 0).isEmpty());
+		}
+		int[][] invalid = { { -1, 5 }, { mDB.size() + 1, 5 }, { 0, -1 } };
+		for (int[] args : invalid) {
+			try {
+				mDB.findItemsAt(args[0], args[1]);
+				fail("IllegalArgumentException should have been thrown");
+			} catch (IllegalArgumentException e) {
+				assertEquals("12 Years a Slave", mDB.findItemAt(0).getName());
+			}
+		}
+	}
+
+	/**
+	 * Test method for
+	 * {@link MovieDB#MovieDB(java.lang.String, net.shiild.moviemanager.list_util.ListType)}
+	 * .
+	 */
+	@Test
+	public void testMovieDBListType() {
+		MovieDB unrolledDB = new MovieDB("movies.txt", ListType.UNROLLED);
+		assertEquals(mDB.traverse(), unrolledDB.traverse());
+		assertEquals("The Amazing Spider-man 2", unrolledDB.findItemAt(4).getName());
+		try {
+			new MovieDB("movies.txt", null);
+			fail("IllegalArgumentException should have been thrown");
+		} catch (IllegalArgumentException e) {
+			assertEquals("12 Years a Slave", mDB.findItemAt(0).getName());
+		}
+	}
+
+	/**
+	 * Test method for
+	 * {@link MovieDB#MovieDB(java.nio.file.Path, java.nio.charset.Charset)}:
+	 * titles outside ASCII are read correctly in the file's charset.
+	 *
+	 * @throws IOException if the file cannot be written
+	 */
+	@Test
+	public void testMovieDBPathCharset() throws IOException {
+		String text = "2 Amélie\r\n1 Das Boot\r\n\r\n0 Crouching Tiger, Hidden Dragon 臥虎藏龍\r\n";
+		for (Charset charset : new Charset[] { StandardCharsets.UTF_8, StandardCharsets.UTF_16 }) {
+			File file = File.createTempFile("movies-charset", ".txt");
+			file.deleteOnExit();
+			FileOutputStream out = new FileOutputStream(file);
+			out.write(text.getBytes(charset));
+			out.close();
+
+			MovieDB charsetDB = new MovieDB(file.toPath(), charset);
+			assertEquals("Amélie\nCrouching Tiger, Hidden Dragon 臥虎藏龍 (currently unavailable)\nDas Boot\n",
+					charsetDB.traverse());
+		}
+		try {
+			new MovieDB(new File("missing-movies.txt").toPath(), StandardCharsets.UTF_8);
+			fail("IllegalArgumentException should have been thrown");
+		} catch (IllegalArgumentException e) {
+			assertEquals("12 Years a Slave", mDB.findItemAt(0).getName());
+		}
+		try {
+			new MovieDB(new File("movies.txt").toPath(), null);
+			fail("IllegalArgumentException should have been thrown");
+		} catch (IllegalArgumentException e) {
+			assertEquals("12 Years a Slave", mDB.findItemAt(0).getName());
+		}
+	}
+
+	/**
+	 * Test method for
+	 * {@link MovieDB#MovieDB(java.io.InputStream, java.nio.charset.Charset, int)}:
+	 * a stream read through buffers of any size, down to lines longer than
+	 * the buffer, gives the same database as the file.
+	 *
+	 * @throws IOException if the file cannot be read
+	 */
+	@Test
+	public void testMovieDBInputStream() throws IOException {
+		byte[] contents = Files.readAllBytes(new File("movies.txt").toPath());
+		for (int bufferSize = 16; bufferSize < contents.length + 100; bufferSize += 37) {
+			MovieDB streamDB = new MovieDB(new ByteArrayInputStream(contents), StandardCharsets.UTF_8, bufferSize);
+			assertEquals(mDB.traverse(), streamDB.traverse());
+		}
+		assertEquals(mDB.traverse(), new MovieDB(new ByteArrayInputStream(contents), StandardCharsets.UTF_8).traverse());
+		try {
+			new MovieDB(new ByteArrayInputStream(contents), StandardCharsets.UTF_8, 15);
+			fail("IllegalArgumentException should have been thrown");
+		} catch (IllegalArgumentException e) {
+			assertEquals("12 Years a Slave", mDB.findItemAt(0).getName());
+		}
+		try {
+			new MovieDB((InputStream) null, StandardCharsets.UTF_8);
+			fail("IllegalArgumentException should have been thrown");
+		} catch (IllegalArgumentException e) {
+			assertEquals("12 Years a Slave", mDB.findItemAt(0).getName());
+		}
+	}
+
+	/**
+	 * Test that loading with {@link LoadStrategy#BULK_SORT} produces exactly
+	 * the same order as {@link LoadStrategy#INSERT_IN_ORDER} for randomized
+	 * files with many ties. Titles such as "The Frozen", "Frozen" and "A Frozen"
+	 * compare as equal, so their names show the order the ties were kept in.
+	 *
+	 * @throws IOException if the test file cannot be written
+	 */
+	@Test
+	public void testLoadStrategyParity() throws IOException {
+		String[] articles = { "", "A ", "An ", "The ", "a ", "the " };
+		String[] words = { "Frozen", "Gravity", "Selma", "Aloha", "frozen" };
+		Random random = new Random(2017);
+		for (int round = 0; round < 20; round++) {
+			File file = File.createTempFile("movies-parity", ".txt");
+			file.deleteOnExit();
+			PrintWriter out = new PrintWriter(new FileWriter(file));
+			int lines = random.nextInt(300);
+			for (int i = 0; i < lines; i++) {
+				out.println((random.nextInt(7) - 2) + " " + articles[random.nextInt(articles.length)]
+						+ words[random.nextInt(words.length)] + (random.nextBoolean() ? "" : " 2"));
+				if (random.nextInt(20) == 0) {
+					out.println();
+				}
+			}
+			out.close();
+
+			MovieDB inserted = new MovieDB(file.getPath(), ListType.LINKED, LoadStrategy.INSERT_IN_ORDER);
+			MovieDB bulk = new MovieDB(file.getPath(), ListType.LINKED, LoadStrategy.BULK_SORT);
+			MovieDB tree = new MovieDB(file.getPath());
+			MovieDB parallel = new MovieDB(file.getPath(), ListType.TREE, LoadStrategy.PARALLEL_MAPPED);
+			for (int psn = 0; psn < lines; psn++) {
+				String expected = inserted.findItemAt(psn).getName();
+				assertEquals(expected, bulk.findItemAt(psn).getName());
+				assertEquals(expected, tree.findItemAt(psn).getName());
+				assertEquals(expected, parallel.findItemAt(psn).getName());
+			}
+			assertEquals(inserted.traverse(), bulk.traverse());
+			assertEquals(inserted.traverse(), tree.traverse());
+			assertEquals(inserted.traverse(), parallel.traverse());
+		}
+	}
+
+	/**
+	 * Test method for
+	 * {@link MovieDB#load(java.nio.file.Path, java.nio.file.Path, java.nio.charset.Charset)}:
+	 * the first load reads the text file and writes a snapshot, later loads
+	 * read the snapshot, and a snapshot that is stale or corrupt is passed
+	 * over for the text file and replaced.
+	 *
+	 * @throws IOException if the files cannot be written
+	 */
+	@Test
+	public void testLoadSnapshot() throws IOException {
+		File file = File.createTempFile("movies-snapshot", ".txt");
+		file.deleteOnExit();
+		Files.write(file.toPath(), Files.readAllBytes(new File("movies.txt").toPath()));
+		File snapshot = new File(file.getPath() + ".snapshot");
+		snapshot.deleteOnExit();
+		assertFalse(snapshot.exists());
+
+		MovieDB loaded = MovieDB.load(file.toPath(), snapshot.toPath(), StandardCharsets.UTF_8);
+		assertEquals(mDB.traverse(), loaded.traverse());
+		assertTrue(snapshot.exists());
+		MovieDB fromSnapshot = MovieDB.load(file.toPath(), snapshot.toPath(), StandardCharsets.UTF_8);
+		assertEquals(mDB.traverse(), fromSnapshot.traverse());
+		assertEquals(mDB.size(), fromSnapshot.size());
+
+		// A snapshot with one copy out shows that the snapshot is what is read
+		Movie first = loaded.findItemAt(0);
+		while (first.isAvailable()) {
+			first.removeOneCopyFromInventory();
+		}
+		loaded.writeSnapshot(snapshot.toPath(), file.toPath(), StandardCharsets.UTF_8);
+		fromSnapshot = MovieDB.load(file.toPath(), snapshot.toPath(), StandardCharsets.UTF_8);
+		assertEquals(loaded.traverse(), fromSnapshot.traverse());
+		assertFalse(fromSnapshot.findItemAt(0).isAvailable());
+
+		// Read in another charset, it is stale
+		assertEquals(mDB.traverse(), MovieDB.load(file.toPath(), snapshot.toPath(), StandardCharsets.ISO_8859_1)
+				.traverse());
+
+		// Changed on disk, it is stale, and is replaced
+		loaded.writeSnapshot(snapshot.toPath(), file.toPath(), StandardCharsets.UTF_8);
+		Files.write(file.toPath(), "3 Frozen\n0 Spectre\n".getBytes(StandardCharsets.UTF_8));
+		assertEquals("Frozen\nSpectre (currently unavailable)\n",
+				MovieDB.load(file.toPath(), snapshot.toPath(), StandardCharsets.UTF_8).traverse());
+		assertEquals("Frozen\nSpectre (currently unavailable)\n",
+				MovieDB.load(file.toPath(), snapshot.toPath(), StandardCharsets.UTF_8).traverse());
+
+		// Corrupt, it is passed over
+		byte[] bytes = Files.readAllBytes(snapshot.toPath());
+		bytes[bytes.length - 1] ^= 1;
+		Files.write(snapshot.toPath(), bytes);
+		assertEquals("Frozen\nSpectre (currently unavailable)\n",
+				MovieDB.load(file.toPath(), snapshot.toPath(), StandardCharsets.UTF_8).traverse());
+		assertFalse(Arrays.equals(bytes, Files.readAllBytes(snapshot.toPath())));
+		file.delete();
+		snapshot.delete();
+	}
+
+	/**
+	 * Test method for
+	 * {@link MovieDB#load(java.io.InputStream, java.nio.file.Path, java.nio.file.Path, java.nio.charset.Charset)}:
+	 * a stream of the file is read and a snapshot written for the next load,
+	 * stamped with the file as it was before the read, so a file changed
+	 * while it is read leaves a stale snapshot.
+	 *
+	 * @throws IOException if the files cannot be written
+	 */
+	@Test
+	public void testLoadStream() throws IOException {
+		File file = File.createTempFile("movies-stream", ".txt");
+		file.deleteOnExit();
+		File snapshot = new File(file.getPath() + ".snapshot");
+		snapshot.deleteOnExit();
+		Files.write(file.toPath(), "3 Frozen\n".getBytes(StandardCharsets.UTF_8));
+		InputStream in = new ByteArrayInputStream("3 Frozen\n".getBytes(StandardCharsets.UTF_8));
+		assertEquals("Frozen\n", MovieDB.load(in, file.toPath(), snapshot.toPath(), StandardCharsets.UTF_8)
+				.traverse());
+		assertTrue(snapshot.exists());
+		assertEquals("Frozen\n", MovieDB.load(file.toPath(), snapshot.toPath(), StandardCharsets.UTF_8).traverse());
+
+		// Changed while it is read, the snapshot of the old contents is stale
+		final File changing = file;
+		in = new ByteArrayInputStream("3 Frozen\n".getBytes(StandardCharsets.UTF_8)) {
+			@Override
+			public synchronized int read(byte[] b, int off, int len) {
+				try {
+					Files.write(changing.toPath(), "0 Spectre\n".getBytes(StandardCharsets.UTF_8));
+				} catch (IOException e) {
+					throw new AssertionError(e);
+				}
+				return super.read(b, off, len);
+			}
+		};
+		assertEquals("Frozen\n", MovieDB.load(in, file.toPath(), snapshot.toPath(), StandardCharsets.UTF_8)
+				.traverse());
+		assertEquals("Spectre (currently unavailable)\n",
+				MovieDB.load(file.toPath(), snapshot.toPath(), StandardCharsets.UTF_8).traverse());
+		file.delete();
+		snapshot.delete();
+	}
 }
@@ -0,0 +1,134 @@
+/**
+ *
+ */
+package net.shiild.moviemanager.inventory;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Test class for MovieParser. Besides a few fixed lines, these tests parse
+ * random lines with both the parser and the Movie(String) constructor and check
+ * that the two always agree.
+ *
+ * @author StephenHildebrand
+ */
+public class MovieParserTest {
+	/** Characters random lines are made of, weighted toward digits and signs */
+	private static final String ALPHABET = "0123456789000111---+++,,,    \t\t\n\r"
+			+ "abcXYZ.:'()   \u0085٠٩é";
+
+	/**
+	 * Test method for {@link MovieParser#parse(CharSequence)} with valid lines.
+	 */
+	@Test
+	public void testParse() {
+		Movie movie = MovieParser.parse("1 Movie Name");
+		assertEquals("Movie Name", movie.getName());
+		assertEquals(1, movie.getInStock());
+
+		movie = MovieParser.parse("  \t12\t  The 10 Angry Men  ");
+		assertEquals("The 10 Angry Men", movie.getName());
+		assertEquals(12, movie.getInStock());
+		assertEquals(0, movie.compareToByName(new Movie("1 10 Angry Men")));
+
+		assertEquals(0, MovieParser.parse("-3 Name").getInStock());
+		assertEquals(0, MovieParser.parse("-2147483648 Name").getInStock());
+		assertEquals(2147483647, MovieParser.parse("+2147483647 Name").getInStock());
+		assertEquals(7, MovieParser.parse("0007 Name").getInStock());
+
+		// Only the characters between the indexes are parsed
+		movie = MovieParser.parse("3 First\n4 Second\n", 8, 17);
+		assertEquals("Second", movie.getName());
+		assertEquals(4, movie.getInStock());
+	}
+
+	/**
+	 * Test method for {@link MovieParser#parse(CharSequence)} with invalid
+	 * lines.
+	 */
+	@Test
+	public void testParseInvalid() {
+		String[] invalid = { null, "", "   ", "5", "5   \t", "Name", "five Name", "5x Name", "- Name",
+				"2147483648 Name", "-2147483649 Name", "99999999999999999999 Name" };
+		for (String line : invalid) {
+			try {
+				MovieParser.parse(line);
+				fail("IllegalArgumentException should have been thrown for " + line);
+			} catch (IllegalArgumentException e) {
+				// Expected
+			}
+		}
+	}
+
+	/**
+	 * Parses many random lines with both the parser and the Movie(String)
+	 * constructor: each line is either rejected by both or read as the same
+	 * name and stock by both.
+	 */
+	@Test
+	public void testMatchesConstructor() {
+		Random random = new Random(8);
+		for (int i = 0; i < 50000; i++) {
+			String line = randomLine(random);
+			Movie expected = null;
+			try {
+				expected = new Movie(line);
+			} catch (IllegalArgumentException e) {
+				// Rejected by the constructor
+			}
+			Movie actual = null;
+			try {
+				actual = MovieParser.parse(line);
+			} catch (IllegalArgumentException e) {
+				// Rejected by the parser
+			}
+			String message = "Line \"" + line + "\"";
+			if (expected == null) {
+				assertNull(message, actual);
+			} else {
+				assertNotNull(message, actual);
+				assertEquals(message, expected.getName(), actual.getName());
+				assertEquals(message, expected.getInStock(), actual.getInStock());
+				assertEquals(message, 0, expected.compareToByName(actual));
+			}
+		}
+	}
+
+	/**
+	 * Returns a random line that usually looks something like a movie list
+	 * file line.
+	 *
+	 * @param random source of randomness
+	 * @return the line
+	 */
+	private static String randomLine(Random random) {
+		StringBuilder line = new StringBuilder();
+		if (random.nextInt(4) == 0) {
+			line.append(random.nextBoolean() ? ' ' : '\t');
+		}
+		if (random.nextInt(3) > 0) {
+			// A number, sometimes signed, long or grouped
+			if (random.nextInt(4) == 0) {
+				line.append(random.nextBoolean() ? '-' : '+');
+			}
+			if (random.nextInt(5) == 0) {
+				line.append(random.nextInt(999) + 1);
+				for (int groups = random.nextInt(3) + 1; groups > 0; groups--) {
+					line.append(',').append(String.format("%03d", random.nextInt(1000)));
+				}
+			} else {
+				line.append(random.nextInt(5) == 0 ? Long.toString(random.nextLong()) : Integer.toString(random.nextInt(100)));
+			}
+			line.append(random.nextInt(4) == 0 ? "\t" : " ");
+		}
+		int length = random.nextInt(12);
+		for (int i = 0; i < length; i++) {
+			line.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+		}
+		return line.toString();
+	}
+}
@@ -5,6 +5,10 @@ package net.shiild.moviemanager.inventory;
 
 import static org.junit.Assert.*;
 
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import org.junit.Before;
 import org.junit.Test;
 
@@ -121,6 +125,22 @@ public class MovieTest {
 		assertEquals("Name (currently unavailable)", mZeroStock.getDisplayName());
 	}
 
+	/**
+	 * Test method for {@link Movie#appendDisplayName(Appendable)} and
+	 * {@link Movie#getDisplayNameLength()}.
+	 *
+	 * @throws IOException if the display name cannot be appended
+	 */
+	@Test
+	public void testAppendDisplayName() throws IOException {
+		StringBuilder out = new StringBuilder("> ");
+		mValid.appendDisplayName(out);
+		mZeroStock.appendDisplayName(out);
+		assertEquals("> Movie NameName (currently unavailable)", out.toString());
+		assertEquals(mValid.getDisplayName().length(), mValid.getDisplayNameLength());
+		assertEquals(mZeroStock.getDisplayName().length(), mZeroStock.getDisplayNameLength());
+	}
+
 	/**
 	 * Note: in lexical order, "a" is less than "b". Test method for
 	 * {@link Movie#compareToByName(Movie)}
@@ -149,6 +169,11 @@ public class MovieTest {
 
 		// Check that article "The" at beginning of a movie is ignored
 		assertTrue(movieTheH.compareToByName(movieS) < 0);
+		// Articles are ignored in either case, but only when followed by a space
+		assertEquals(0, new Movie("1 an Apple").compareToByName(new Movie("2 Apple")));
+		assertEquals(0, new Movie("1 the Apple").compareToByName(new Movie("2 A Apple")));
+		assertTrue(new Movie("1 Anapple").compareToByName(new Movie("1 Apple")) < 0);
+		assertTrue(new Movie("1 THE Apple").compareToByName(new Movie("1 Apple")) > 0);
 	}
 
 	/**
@@ -169,4 +194,65 @@ public class MovieTest {
 			assertEquals(movieTemp, mZeroStock);
 		}
 	}
+
+	/**
+	 * Test method for {@link Movie#tryRemoveOneCopy()}.
+	 */
+	@Test
+	public void testTryRemoveOneCopy() {
+		Movie movie = new Movie("2 Popular");
+		assertTrue(movie.tryRemoveOneCopy());
+		assertTrue(movie.tryRemoveOneCopy());
+		assertFalse(movie.tryRemoveOneCopy());
+		assertFalse(movie.isAvailable());
+		assertFalse(mZeroStock.tryRemoveOneCopy());
+		movie.backToInventory();
+		assertTrue(movie.tryRemoveOneCopy());
+	}
+
+	/**
+	 * Test that threads taking and returning copies of one movie at once
+	 * never take more copies than there are, and leave the stock as the
+	 * copies they kept say.
+	 *
+	 * @throws InterruptedException if interrupted while waiting for the threads
+	 */
+	@Test
+	public void testConcurrentStock() throws InterruptedException {
+		final int copies = 1000;
+		final int threads = 16;
+		final Movie movie = new Movie(copies + " Popular");
+		final AtomicInteger taken = new AtomicInteger();
+		final CountDownLatch start = new CountDownLatch(1);
+		Thread[] workers = new Thread[threads];
+		for (int t = 0; t < threads; t++) {
+			workers[t] = new Thread() {
+				@Override
+				public void run() {
+					try {
+						start.await();
+					} catch (InterruptedException e) {
+						return;
+					}
+					for (int i = 0; i < copies; i++) {
+						if (movie.tryRemoveOneCopy()) {
+							// Give every other copy back, so the stock goes up as well as down
+							if (i % 2 == 0) {
+								movie.backToInventory();
+							} else {
+								taken.incrementAndGet();
+							}
+						}
+					}
+				}
+			};
+			workers[t].start();
+		}
+		start.countDown();
+		for (Thread worker : workers) {
+			worker.join();
+		}
+		assertEquals(copies, taken.get() + movie.getInStock());
+		assertTrue(movie.getInStock() >= 0);
+	}
 }
@@ -0,0 +1,161 @@
+/**
+ *
+ */
+package net.shiild.moviemanager.inventory;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test class for ParallelCatalogueLoader. Chunks of a few bytes are used so
+ * that even small files are split into many chunks.
+ *
+ * @author StephenHildebrand
+ */
+public class ParallelCatalogueLoaderTest {
+	/** Orders movies as Movie.compareToByName does */
+	private static final Comparator<Movie> BY_NAME = new Comparator<Movie>() {
+		@Override
+		public int compare(Movie movie, Movie otherMovie) {
+			return movie.compareToByName(otherMovie);
+		}
+	};
+
+	/** Pool of four threads the loaders read in */
+	ForkJoinPool pool;
+
+	/**
+	 * Creates the pool.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception {
+		pool = new ForkJoinPool(4);
+	}
+
+	/**
+	 * Shuts the pool down.
+	 */
+	@After
+	public void tearDown() {
+		pool.shutdown();
+	}
+
+	/**
+	 * Loads random files with every line ending and chunk size and checks
+	 * that the movies come back in the order of a stable sort of the file.
+	 *
+	 * @throws IOException if a file cannot be written or read
+	 */
+	@Test
+	public void testLoadMatchesStableSort() throws IOException {
+		String[] titles = { "Frozen", "The Frozen", "A Frozen", "Gravity", "An Aloha", "Sélma", "frozen" };
+		String[] endings = { "\n", "\r\n", "\r" };
+		Random random = new Random(9);
+		for (int round = 0; round < 60; round++) {
+			StringBuilder text = new StringBuilder();
+			List<Movie> expected = new ArrayList<Movie>();
+			int lines = random.nextInt(200);
+			for (int i = 0; i < lines; i++) {
+				String line = random.nextInt(5) + " " + titles[random.nextInt(titles.length)] + " " + i;
+				expected.add(MovieParser.parse(line));
+				text.append(line).append(endings[random.nextInt(endings.length)]);
+				if (random.nextInt(10) == 0) {
+					text.append('\n'); // empty line
+				}
+			}
+			if (lines > 0 && random.nextBoolean()) {
+				text.setLength(text.length() - 1); // no line ending after the last line
+				if (text.charAt(text.length() - 1) == '\r') {
+					text.setLength(text.length() - 1);
+				}
+			}
+			Collections.sort(expected, BY_NAME);
+
+			File file = write(text.toString(), StandardCharsets.UTF_8);
+			ParallelCatalogueLoader loader = new ParallelCatalogueLoader(pool, 1 + random.nextInt(64), BY_NAME);
+			List<Movie> actual = loader.load(file.toPath(), StandardCharsets.UTF_8);
+			assertEquals(expected.size(), actual.size());
+			for (int i = 0; i < expected.size(); i++) {
+				assertEquals(expected.get(i).getName(), actual.get(i).getName());
+				assertEquals(expected.get(i).getInStock(), actual.get(i).getInStock());
+			}
+		}
+	}
+
+	/**
+	 * Test that a file in a charset that does not encode a newline as one
+	 * byte is read as a single chunk.
+	 *
+	 * @throws IOException if the file cannot be written or read
+	 */
+	@Test
+	public void testLoadUtf16() throws IOException {
+		File file = write("2 Gravity\n1 The Frozen\n3 Aloha\n", StandardCharsets.UTF_16LE);
+		List<Movie> movies = new ParallelCatalogueLoader(pool, 1, BY_NAME).load(file.toPath(),
+				StandardCharsets.UTF_16LE);
+		assertEquals(3, movies.size());
+		assertEquals("Aloha", movies.get(0).getName());
+		assertEquals("The Frozen", movies.get(1).getName());
+		assertEquals("Gravity", movies.get(2).getName());
+	}
+
+	/**
+	 * Test that an invalid line or a missing file is rejected.
+	 *
+	 * @throws IOException if the file cannot be written
+	 */
+	@Test
+	public void testLoadInvalid() throws IOException {
+		File file = write("1 Aloha\n2 Gravity\nFrozen\n3 Selma\n", StandardCharsets.UTF_8);
+		try {
+			new ParallelCatalogueLoader(pool, 4, BY_NAME).load(file.toPath(), StandardCharsets.UTF_8);
+			fail("IllegalArgumentException should have been thrown");
+		} catch (IllegalArgumentException e) {
+			// Expected
+		}
+		try {
+			new ParallelCatalogueLoader(pool, 4, BY_NAME).load(new File(file.getPath() + ".missing").toPath(),
+					StandardCharsets.UTF_8);
+			fail("IOException should have been thrown");
+		} catch (IOException e) {
+			// Expected
+		}
+	}
+
+	/**
+	 * Writes text to a temporary file.
+	 *
+	 * @param text    the file contents
+	 * @param charset charset to encode the text in
+	 * @return the file, deleted when the JVM exits
+	 * @throws IOException if the file cannot be written
+	 */
+	private static File write(String text, Charset charset) throws IOException {
+		File file = File.createTempFile("movies-parallel", ".txt");
+		file.deleteOnExit();
+		FileOutputStream out = new FileOutputStream(file);
+		try {
+			out.write(text.getBytes(charset));
+		} finally {
+			out.close();
+		}
+		return file;
+	}
+}
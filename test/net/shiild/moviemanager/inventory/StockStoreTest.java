@@ -0,0 +1,241 @@
+/**
+ *
+ */
+package net.shiild.moviemanager.inventory;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import net.shiild.moviemanager.persistence.WriteAheadLog;
+
+/**
+ * Test class for StockStore. Each test changes the stock of an inventory,
+ * then opens the store again over a freshly read inventory, as a restart
+ * would.
+ *
+ * @author StephenHildebrand
+ */
+public class StockStoreTest {
+	/** Directory the store is kept in */
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+	/** Directory of the store */
+	Path directory;
+	/** The inventory the store was opened with */
+	MovieDB inventory;
+
+	/**
+	 * Reads the short movie list.
+	 */
+	@Before
+	public void setUp() {
+		directory = folder.getRoot().toPath().resolve("stock");
+		inventory = new MovieDB("movies-short.txt");
+	}
+
+	/**
+	 * Test that flushed changes to the stock are applied over the inventory
+	 * file when the store is opened again.
+	 *
+	 * @throws IOException if the store cannot be used
+	 */
+	@Test
+	public void testReopen() throws IOException {
+		StockStore store = StockStore.open(directory, inventory, false, StockStore.DEFAULT_COMPACT_EVERY);
+		assertTrue(store.isNew());
+		assertSame(store, inventory.getStockStore());
+		String original = inventory.traverse();
+		takeAll(inventory, "Frozen");
+		store.flush();
+		movie(inventory, "Gravity").removeOneCopyFromInventory();
+		movie(inventory, "Spectre").backToInventory();
+		store.close();
+		String changed = inventory.traverse();
+		assertFalse(original.equals(changed));
+
+		MovieDB reread = new MovieDB("movies-short.txt");
+		assertEquals(original, reread.traverse());
+		store = StockStore.open(directory, reread, false, StockStore.DEFAULT_COMPACT_EVERY);
+		assertFalse(store.isNew());
+		assertEquals(changed, reread.traverse());
+		assertEquals(1, movie(reread, "Gravity").getInStock());
+		store.close();
+	}
+
+	/**
+	 * Test that snapshots replace the logs before them, and the store opens
+	 * the same from them.
+	 *
+	 * @throws IOException if the store cannot be used
+	 */
+	@Test
+	public void testCompaction() throws IOException {
+		StockStore store = StockStore.open(directory, inventory, false, 3);
+		for (int i = 0; i < 10; i++) {
+			movie(inventory, "Frozen").backToInventory();
+			store.flush();
+		}
+		store.compact();
+		movie(inventory, "Gravity").removeOneCopyFromInventory();
+		store.close();
+		assertTrue(Files.exists(directory.resolve(StockStore.SNAPSHOT_FILE)));
+		assertEquals(1, logs().size());
+
+		MovieDB reread = new MovieDB("movies-short.txt");
+		store = StockStore.open(directory, reread, false, 3);
+		assertEquals(13, movie(reread, "Frozen").getInStock());
+		assertEquals(1, movie(reread, "Gravity").getInStock());
+		store.close();
+	}
+
+	/**
+	 * Test that a record only partly written when the program stopped is
+	 * dropped, keeping every flush before it.
+	 *
+	 * @throws IOException if the store cannot be used
+	 */
+	@Test
+	public void testTornTail() throws IOException {
+		StockStore store = StockStore.open(directory, inventory, false, StockStore.DEFAULT_COMPACT_EVERY);
+		movie(inventory, "Gravity").removeOneCopyFromInventory();
+		store.close();
+		FileChannel channel = FileChannel.open(logs().get(0), StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+		channel.write(ByteBuffer.wrap(new byte[] {0, 0, 0, 9, 1}));
+		channel.close();
+
+		MovieDB reread = new MovieDB("movies-short.txt");
+		StockStore.open(directory, reread).close();
+		assertEquals(1, movie(reread, "Gravity").getInStock());
+	}
+
+	/**
+	 * Test that a newest log left with only its header, as a crash just after
+	 * creating it could once leave, is given its catalogue record, so the
+	 * store opens again after changes are logged to it.
+	 *
+	 * @throws IOException if the store cannot be used
+	 */
+	@Test
+	public void testHeaderOnlyLog() throws IOException {
+		StockStore store = StockStore.open(directory, inventory, false, StockStore.DEFAULT_COMPACT_EVERY);
+		movie(inventory, "Gravity").removeOneCopyFromInventory();
+		store.close();
+		WriteAheadLog.create(directory.resolve(StockStore.LOG_PREFIX + 1 + StockStore.LOG_SUFFIX), 1, false).close();
+
+		MovieDB reread = new MovieDB("movies-short.txt");
+		store = StockStore.open(directory, reread, false, StockStore.DEFAULT_COMPACT_EVERY);
+		movie(reread, "Frozen").removeOneCopyFromInventory();
+		store.close();
+		for (int i = 0; i < 2; i++) {
+			reread = new MovieDB("movies-short.txt");
+			StockStore.open(directory, reread, false, StockStore.DEFAULT_COMPACT_EVERY).close();
+			assertEquals(1, movie(reread, "Gravity").getInStock());
+			assertEquals(2, movie(reread, "Frozen").getInStock());
+		}
+	}
+
+	/**
+	 * Test that a store cannot be opened over another catalogue.
+	 *
+	 * @throws IOException if the store cannot be written
+	 */
+	@Test
+	public void testOtherCatalogue() throws IOException {
+		StockStore.open(directory, inventory).close();
+		MovieDB otherDB = new MovieDB(new ByteArrayInputStream("3 Frozen\n2 Gravity\n".getBytes(StandardCharsets.UTF_8)),
+				StandardCharsets.UTF_8);
+		try {
+			StockStore.open(directory, otherDB);
+			fail("IOException should have been thrown");
+		} catch (IOException e) {
+			assertEquals("The stock store does not match the inventory.", e.getMessage());
+		}
+	}
+
+	/**
+	 * Test that copies added to the inventory file, as a restock does, are
+	 * added to the stock recovered from both the logs and a snapshot.
+	 *
+	 * @throws IOException if the store cannot be used
+	 */
+	@Test
+	public void testRestock() throws IOException {
+		StockStore store = StockStore.open(directory, inventory, false, StockStore.DEFAULT_COMPACT_EVERY);
+		movie(inventory, "Frozen").removeOneCopyFromInventory();
+		store.flush();
+		store.compact();
+		movie(inventory, "Frozen").removeOneCopyFromInventory();
+		store.close();
+
+		String shortList = new String(Files.readAllBytes(Paths.get("movies-short.txt")), StandardCharsets.UTF_8);
+		String restocked = shortList.replaceFirst("3 Frozen", "5 Frozen");
+		MovieDB reread = new MovieDB(new ByteArrayInputStream(restocked.getBytes(StandardCharsets.UTF_8)),
+				StandardCharsets.UTF_8);
+		store = StockStore.open(directory, reread, false, StockStore.DEFAULT_COMPACT_EVERY);
+		assertEquals(3, movie(reread, "Frozen").getInStock());
+		assertEquals(2, movie(reread, "Gravity").getInStock());
+		store.close();
+	}
+
+	/**
+	 * Returns the log files of the store.
+	 *
+	 * @return the log files
+	 * @throws IOException if the directory cannot be read
+	 */
+	private List<Path> logs() throws IOException {
+		List<Path> logs = new ArrayList<Path>();
+		DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + StockStore.LOG_SUFFIX);
+		for (Path file : files) {
+			logs.add(file);
+		}
+		files.close();
+		return logs;
+	}
+
+	/**
+	 * Takes every copy of a movie.
+	 *
+	 * @param db   the inventory
+	 * @param name the movie's name
+	 */
+	private static void takeAll(MovieDB db, String name) {
+		Movie movie = movie(db, name);
+		while (movie.isAvailable()) {
+			movie.removeOneCopyFromInventory();
+		}
+	}
+
+	/**
+	 * Returns the movie with the given name in an inventory.
+	 *
+	 * @param db   the inventory
+	 * @param name the movie's name
+	 * @return the movie
+	 */
+	private static Movie movie(MovieDB db, String name) {
+		for (Movie movie : db.findItemsAt(0, db.size())) {
+			if (movie.getName().equals(name)) {
+				return movie;
+			}
+		}
+		throw new IllegalArgumentException(name);
+	}
+}
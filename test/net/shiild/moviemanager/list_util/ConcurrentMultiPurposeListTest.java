@@ -0,0 +1,404 @@
+/**
+ *
+ */
+package net.shiild.moviemanager.list_util;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test class for ConcurrentMultiPurposeList. Besides the single-threaded
+ * behavior shared with MultiPurposeList, these tests run reserve (addToRear),
+ * unreserve (remove) and move-up (moveAheadOne) operations from several
+ * threads at once and check that every recorded history is linearizable.
+ *
+ * @author StephenHildebrand
+ */
+public class ConcurrentMultiPurposeListTest extends PositionalListContractTest {
+	/** Number of threads in each linearizability round */
+	private static final int THREADS = 3;
+	/** Operations per thread in each linearizability round */
+	private static final int OPS_PER_THREAD = 3;
+	/** Number of linearizability rounds */
+	private static final int ROUNDS = 400;
+
+	/** List of five elements, 0 to 4 */
+	ConcurrentMultiPurposeList<Integer> list;
+
+	/**
+	 * Instantiates the list to be used for testing.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception {
+		list = new ConcurrentMultiPurposeList<Integer>();
+		for (int i = 0; i < 5; i++) {
+			list.addToRear(i);
+		}
+	}
+
+	@Override
+	PositionalList<Integer> newList() {
+		return new ConcurrentMultiPurposeList<Integer>();
+	}
+
+	/**
+	 * Test the single-threaded positional operations.
+	 */
+	@Test
+	public void testPositionalOperations() {
+		list.addItem(-1, 10);
+		list.addItem(3, 11);
+		list.addItem(99, 12);
+		list.addToRear(null);
+		assertEquals(8, list.size());
+		assertEquals(Integer.valueOf(10), list.lookAtItemN(0));
+		assertEquals(Integer.valueOf(11), list.lookAtItemN(3));
+		assertEquals(Integer.valueOf(12), list.lookAtItemN(7));
+		assertNull(list.lookAtItemN(8));
+
+		list.moveAheadOne(0); // no change
+		list.moveAheadOne(7);
+		assertEquals(Integer.valueOf(12), list.lookAtItemN(6));
+		assertEquals(Integer.valueOf(4), list.lookAtItemN(7));
+
+		assertEquals(Integer.valueOf(10), list.remove(0));
+		assertNull(list.remove(7));
+		assertEquals(7, list.size());
+
+		list.resetIterator();
+		assertEquals(Integer.valueOf(0), list.next());
+		while (list.hasNext()) {
+			list.next();
+		}
+		assertNull(list.next());
+	}
+
+	/**
+	 * Test that iterators traverse the list as it was when they were created,
+	 * and that removing through one removes from the current list.
+	 */
+	@Test
+	public void testIterator() {
+		Iterator<Integer> it = list.iterator();
+		list.remove(0);
+		list.addToRear(5);
+		int expected = 0;
+		while (it.hasNext()) {
+			Integer value = it.next();
+			assertEquals(Integer.valueOf(expected++), value);
+			if (value.intValue() == 3) {
+				it.remove();
+			}
+		}
+		assertEquals(5, expected);
+		assertEquals(4, list.size());
+		assertEquals(Integer.valueOf(2), list.lookAtItemN(1));
+		assertEquals(Integer.valueOf(4), list.lookAtItemN(2));
+	}
+
+	/**
+	 * Many threads reserve at once: every element ends up in the list exactly
+	 * once, and each thread's elements stay in the order it added them.
+	 *
+	 * @throws InterruptedException if interrupted while waiting for the threads
+	 */
+	@Test
+	public void testConcurrentReserve() throws InterruptedException {
+		final int threads = 8;
+		final int perThread = 2000;
+		final ConcurrentMultiPurposeList<Integer> queue = new ConcurrentMultiPurposeList<Integer>();
+		runConcurrently(threads, new Task() {
+			@Override
+			public void run(int thread) {
+				for (int i = 0; i < perThread; i++) {
+					queue.addToRear(thread * perThread + i);
+				}
+			}
+		});
+		assertEquals(threads * perThread, queue.size());
+		int[] lastSeen = new int[threads];
+		Arrays.fill(lastSeen, -1);
+		for (Integer value : queue) {
+			int thread = value / perThread;
+			assertTrue(value > lastSeen[thread]);
+			lastSeen[thread] = value;
+		}
+	}
+
+	/**
+	 * Threads reserve, unreserve and move up at random at once: no element is
+	 * lost or duplicated, so the list and the removed elements together are
+	 * exactly the elements that were added.
+	 *
+	 * @throws InterruptedException if interrupted while waiting for the threads
+	 */
+	@Test
+	public void testConcurrentMixedOperations() throws InterruptedException {
+		final int threads = 8;
+		final int perThread = 3000;
+		final ConcurrentMultiPurposeList<Integer> queue = new ConcurrentMultiPurposeList<Integer>();
+		final int[] added = new int[threads];
+		final List<List<Integer>> removed = new ArrayList<List<Integer>>();
+		for (int t = 0; t < threads; t++) {
+			removed.add(new ArrayList<Integer>());
+		}
+		runConcurrently(threads, new Task() {
+			@Override
+			public void run(int thread) {
+				Random random = new Random(thread);
+				for (int i = 0; i < perThread; i++) {
+					int psn = random.nextInt(queue.size() + 1);
+					switch (random.nextInt(3)) {
+					case 0:
+						queue.addToRear(thread * perThread + i);
+						added[thread]++;
+						break;
+					case 1:
+						Integer value = queue.remove(psn);
+						if (value != null) {
+							removed.get(thread).add(value);
+						}
+						break;
+					default:
+						queue.moveAheadOne(psn);
+						break;
+					}
+				}
+			}
+		});
+		Set<Integer> seen = new HashSet<Integer>();
+		for (Integer value : queue) {
+			assertTrue("duplicate " + value, seen.add(value));
+		}
+		for (List<Integer> values : removed) {
+			for (Integer value : values) {
+				assertTrue("duplicate " + value, seen.add(value));
+			}
+		}
+		// Every value seen was added, and every added value was seen
+		int totalAdded = 0;
+		for (int count : added) {
+			totalAdded += count;
+		}
+		for (Integer value : seen) {
+			assertTrue(value >= 0 && value < threads * perThread);
+		}
+		assertEquals(totalAdded, seen.size());
+	}
+
+	/**
+	 * Repeatedly runs a few reserve, unreserve, move-up and look operations
+	 * from several threads at once, recording when each one started and
+	 * finished and what it returned, and checks that each history is
+	 * linearizable: some order of the operations that respects real time
+	 * produces the same results and the same final list when the operations
+	 * are run one at a time on an ArrayList.
+	 *
+	 * @throws InterruptedException if interrupted while waiting for the threads
+	 */
+	@Test
+	public void testLinearizable() throws InterruptedException {
+		for (int round = 0; round < ROUNDS; round++) {
+			final ConcurrentMultiPurposeList<Integer> queue = new ConcurrentMultiPurposeList<Integer>();
+			List<Integer> initial = new ArrayList<Integer>();
+			for (int i = 0; i < 4; i++) {
+				queue.addToRear(i);
+				initial.add(i);
+			}
+			final Random random = new Random(round);
+			final Op[][] ops = new Op[THREADS][OPS_PER_THREAD];
+			for (int t = 0; t < THREADS; t++) {
+				for (int i = 0; i < OPS_PER_THREAD; i++) {
+					ops[t][i] = new Op(random.nextInt(4), random.nextInt(5), 100 + t * OPS_PER_THREAD + i);
+				}
+			}
+			runConcurrently(THREADS, new Task() {
+				@Override
+				public void run(int thread) {
+					for (Op op : ops[thread]) {
+						op.runOn(queue);
+					}
+				}
+			});
+			List<Op> history = new ArrayList<Op>();
+			for (Op[] threadOps : ops) {
+				for (Op op : threadOps) {
+					history.add(op);
+				}
+			}
+			List<Integer> actual = new ArrayList<Integer>();
+			for (Integer value : queue) {
+				actual.add(value);
+			}
+			assertTrue("History of round " + round + " is not linearizable",
+					linearize(initial, history, new boolean[history.size()], 0, actual));
+		}
+	}
+
+	/**
+	 * Searches for an order of the remaining operations in which each
+	 * operation starts no later than every remaining operation finishes, its
+	 * sequential result matches the recorded one, and the final list matches.
+	 *
+	 * @param state    the list after the operations done so far
+	 * @param history  all of the operations
+	 * @param done     which operations have been placed in the order
+	 * @param doneCount number of operations placed
+	 * @param actual   the list after the concurrent run
+	 * @return true if such an order exists
+	 */
+	private boolean linearize(List<Integer> state, List<Op> history, boolean[] done, int doneCount,
+			List<Integer> actual) {
+		if (doneCount == history.size()) {
+			return state.equals(actual);
+		}
+		long earliestEnd = Long.MAX_VALUE;
+		for (int i = 0; i < history.size(); i++) {
+			if (!done[i]) {
+				earliestEnd = Math.min(earliestEnd, history.get(i).end);
+			}
+		}
+		for (int i = 0; i < history.size(); i++) {
+			Op op = history.get(i);
+			// op may go next only if no remaining op finished before it began
+			if (!done[i] && op.start <= earliestEnd) {
+				List<Integer> next = new ArrayList<Integer>(state);
+				if (op.matches(next)) {
+					done[i] = true;
+					if (linearize(next, history, done, doneCount + 1, actual)) {
+						return true;
+					}
+					done[i] = false;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * One operation of a linearizability round and what it returned.
+	 */
+	private static class Op {
+		/** 0 reserve, 1 unreserve, 2 move up, 3 look */
+		private final int kind;
+		/** Position used by unreserve, move up and look */
+		private final int psn;
+		/** Element added by reserve */
+		private final Integer value;
+		/** Element returned by unreserve or look */
+		private Integer result;
+		/** When the operation was invoked */
+		private long start;
+		/** When the operation returned */
+		private long end;
+
+		private Op(int kind, int psn, int value) {
+			this.kind = kind;
+			this.psn = psn;
+			this.value = value;
+		}
+
+		private void runOn(ConcurrentMultiPurposeList<Integer> queue) {
+			start = System.nanoTime();
+			switch (kind) {
+			case 0:
+				queue.addToRear(value);
+				break;
+			case 1:
+				result = queue.remove(psn);
+				break;
+			case 2:
+				queue.moveAheadOne(psn);
+				break;
+			default:
+				result = queue.lookAtItemN(psn);
+				break;
+			}
+			end = System.nanoTime();
+		}
+
+		/**
+		 * Applies the operation to a sequential list.
+		 *
+		 * @param state the list to change
+		 * @return true if the sequential result matches the recorded one
+		 */
+		private boolean matches(List<Integer> state) {
+			boolean inRange = psn >= 0 && psn < state.size();
+			switch (kind) {
+			case 0:
+				state.add(value);
+				return true;
+			case 1:
+				return equal(result, inRange ? state.remove(psn) : null);
+			case 2:
+				if (psn > 0 && inRange) {
+					state.add(psn - 1, state.remove(psn));
+				}
+				return true;
+			default:
+				return equal(result, inRange ? state.get(psn) : null);
+			}
+		}
+
+		private static boolean equal(Integer a, Integer b) {
+			return a == null ? b == null : a.equals(b);
+		}
+	}
+
+	/**
+	 * Work done by one thread of a concurrent run.
+	 */
+	private interface Task {
+		void run(int thread);
+	}
+
+	/**
+	 * Starts the given number of threads running a task together and waits
+	 * for all of them to finish.
+	 *
+	 * @param threads number of threads
+	 * @param task    the task each thread runs
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	private static void runConcurrently(int threads, final Task task) throws InterruptedException {
+		final CountDownLatch start = new CountDownLatch(1);
+		final Throwable[] failure = new Throwable[1];
+		Thread[] workers = new Thread[threads];
+		for (int t = 0; t < threads; t++) {
+			final int thread = t;
+			workers[t] = new Thread() {
+				@Override
+				public void run() {
+					try {
+						start.await();
+						task.run(thread);
+					} catch (Throwable e) {
+						failure[0] = e;
+					}
+				}
+			};
+			workers[t].start();
+		}
+		start.countDown();
+		for (Thread worker : workers) {
+			worker.join();
+		}
+		if (failure[0] != null) {
+			throw new AssertionError(failure[0]);
+		}
+	}
+}
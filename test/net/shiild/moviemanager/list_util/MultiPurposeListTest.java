@@ -5,6 +5,10 @@ package net.shiild.moviemanager.list_util;
 
 import static org.junit.Assert.*;
 
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
 import org.junit.Before;
 import org.junit.Test;
 
@@ -16,7 +20,7 @@ import net.shiild.moviemanager.list_util.MultiPurposeList;
  * 
  * @author StephenHildebrand
  */
-public class MultiPurposeListTest {
+public class MultiPurposeListTest extends PositionalListContractTest {
 	/** Declare nine test Movies */
 	Movie movie1, movie2, movie3, movie4, movie5, movie6, movie7, movie8, movieNull;
 	/** Declare the movies MultiPurposeList */
@@ -51,6 +55,11 @@ public class MultiPurposeListTest {
 		movieList.addToRear(movie5);
 	}
 
+	@Override
+	PositionalList<Integer> newList() {
+		return new MultiPurposeList<Integer>();
+	}
+
 	/**
 	 * Test method for
 	 * {@link MultiPurposeList#MultiPurposeList()}
@@ -245,4 +254,125 @@ public class MultiPurposeListTest {
 		// Check that movieList now has 6 elements
 		assertEquals(6, movieList.size());
 	}
+
+	/**
+	 * Test that the rear of the list stays correct after removing or moving
+	 * the last element, since {@link MultiPurposeList#addToRear(Object)} no
+	 * longer walks the list.
+	 */
+	@Test
+	public void testAddToRearAfterRemoveAndMove() {
+		// Remove movie5 from the end, then append movie6
+		assertEquals(movie5, movieList.remove(4));
+		movieList.addToRear(movie6);
+		assertEquals(5, movieList.size());
+		assertEquals(movie4, movieList.lookAtItemN(3));
+		assertEquals(movie6, movieList.lookAtItemN(4));
+
+		// Move movie6 ahead of movie4, so movie4 is now last
+		movieList.moveAheadOne(4);
+		movieList.addToRear(movie7);
+		assertEquals(movie6, movieList.lookAtItemN(3));
+		assertEquals(movie4, movieList.lookAtItemN(4));
+		assertEquals(movie7, movieList.lookAtItemN(5));
+
+		// Empty the list, then append again
+		while (!movieList.isEmpty()) {
+			movieList.remove(0);
+		}
+		assertEquals(0, movieList.size());
+		movieList.addToRear(movie8);
+		movieList.addItem(1, movie1);
+		assertEquals(movie8, movieList.lookAtItemN(0));
+		assertEquals(movie1, movieList.lookAtItemN(1));
+		assertEquals(2, movieList.size());
+	}
+
+	/**
+	 * Test method for
+	 * {@link MultiPurposeList#iterator()}.
+	 */
+	@Test
+	public void testIterator() {
+		// Two iterators and the built-in cursor move independently
+		Iterator<Movie> first = movieList.iterator();
+		Iterator<Movie> second = movieList.iterator();
+		movieList.resetIterator();
+		assertEquals(movie1, first.next());
+		assertEquals(movie2, first.next());
+		assertEquals(movie1, second.next());
+		assertEquals(movie1, movieList.next());
+		int count = 0;
+		for (Movie movie : movieList) {
+			assertNotNull(movie);
+			count++;
+		}
+		assertEquals(5, count);
+
+		// Changing the list makes both iterators fail fast
+		movieList.addToRear(movie6);
+		try {
+			first.next();
+			fail("ConcurrentModificationException should have been thrown");
+		} catch (ConcurrentModificationException e) {
+			assertEquals(6, movieList.size());
+		}
+		try {
+			second.remove();
+			fail("ConcurrentModificationException should have been thrown");
+		} catch (ConcurrentModificationException e) {
+			assertEquals(6, movieList.size());
+		}
+
+		// Running off the end
+		Iterator<Movie> empty = new MultiPurposeList<Movie>().iterator();
+		assertFalse(empty.hasNext());
+		try {
+			empty.next();
+			fail("NoSuchElementException should have been thrown");
+		} catch (NoSuchElementException e) {
+			assertFalse(empty.hasNext());
+		}
+	}
+
+	/**
+	 * Test method for removing through an iterator.
+	 */
+	@Test
+	public void testIteratorRemove() {
+		Iterator<Movie> it = movieList.iterator();
+		try {
+			it.remove();
+			fail("IllegalStateException should have been thrown");
+		} catch (IllegalStateException e) {
+			assertEquals(5, movieList.size());
+		}
+		// Remove the front, a middle element and the rear
+		assertEquals(movie1, it.next());
+		it.remove();
+		assertEquals(movie2, it.next());
+		assertEquals(movie3, it.next());
+		it.remove();
+		assertEquals(movie4, it.next());
+		assertEquals(movie5, it.next());
+		it.remove();
+		assertFalse(it.hasNext());
+		assertEquals(2, movieList.size());
+		assertEquals(movie2, movieList.lookAtItemN(0));
+		assertEquals(movie4, movieList.lookAtItemN(1));
+
+		// The rear of the list is still correct
+		movieList.addToRear(movie6);
+		assertEquals(movie6, movieList.lookAtItemN(2));
+
+		// Remove everything
+		it = movieList.iterator();
+		while (it.hasNext()) {
+			it.next();
+			it.remove();
+		}
+		assertTrue(movieList.isEmpty());
+		movieList.addToRear(movie7);
+		assertEquals(movie7, movieList.lookAtItemN(0));
+	}
 }
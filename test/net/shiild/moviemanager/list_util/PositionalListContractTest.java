@@ -0,0 +1,60 @@
+/**
+ *
+ */
+package net.shiild.moviemanager.list_util;
+
+import static org.junit.Assert.*;
+
+import java.util.Iterator;
+
+import org.junit.Test;
+
+/**
+ * Tests of the PositionalList contract that every implementation must meet,
+ * run by the test class of each implementation, which extends this one.
+ *
+ * @author StephenHildebrand
+ */
+public abstract class PositionalListContractTest {
+	/**
+	 * Returns a new, empty list of the implementation under test.
+	 *
+	 * @return the list
+	 */
+	abstract PositionalList<Integer> newList();
+
+	/**
+	 * Test method for
+	 * {@link PositionalList#iterator(int)}: from every position, and out of range,
+	 * the iterator returns the elements from that position on, and removes
+	 * only the elements it has returned.
+	 */
+	@Test
+	public void testIteratorFromPosition() {
+		PositionalList<Integer> ints = newList();
+		for (int i = 0; i < 23; i++) {
+			ints.addToRear(i);
+		}
+		for (int start = -2; start <= 25; start++) {
+			Iterator<Integer> it = ints.iterator(start);
+			for (int psn = Math.max(0, start); psn < 23; psn++) {
+				assertEquals(Integer.valueOf(psn), it.next());
+			}
+			assertFalse(it.hasNext());
+		}
+
+		Iterator<Integer> it = ints.iterator(9);
+		try {
+			it.remove();
+			fail("IllegalStateException should have been thrown");
+		} catch (IllegalStateException e) {
+			assertEquals(23, ints.size());
+		}
+		assertEquals(Integer.valueOf(9), it.next());
+		it.remove();
+		assertEquals(Integer.valueOf(10), it.next());
+		assertEquals(22, ints.size());
+		assertEquals(Integer.valueOf(8), ints.lookAtItemN(8));
+		assertEquals(Integer.valueOf(10), ints.lookAtItemN(9));
+	}
+}
@@ -0,0 +1,216 @@
+/**
+ *
+ */
+package net.shiild.moviemanager.list_util;
+
+import static org.junit.Assert.*;
+
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test class for TreeMultiPurposeList.
+ *
+ * @author StephenHildebrand
+ */
+public class TreeMultiPurposeListTest extends PositionalListContractTest {
+	/** Orders strings by their first character only, so ties are common */
+	private static final Comparator<String> BY_FIRST_CHAR = new Comparator<String>() {
+		@Override
+		public int compare(String a, String b) {
+			return a.charAt(0) - b.charAt(0);
+		}
+	};
+
+	/** List of ten elements, 0 to 9 */
+	TreeMultiPurposeList<Integer> list;
+
+	/**
+	 * Instantiates the list to be used for testing.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception {
+		list = new TreeMultiPurposeList<Integer>();
+		for (int i = 0; i < 10; i++) {
+			list.addToRear(i);
+		}
+	}
+
+	@Override
+	PositionalList<Integer> newList() {
+		return new TreeMultiPurposeList<Integer>();
+	}
+
+	/**
+	 * Test the positional operations at the ends and out of range.
+	 */
+	@Test
+	public void testPositionalOperations() {
+		assertTrue(new TreeMultiPurposeList<Integer>().isEmpty());
+		assertEquals(10, list.size());
+		assertEquals(Integer.valueOf(0), list.lookAtItemN(0));
+		assertEquals(Integer.valueOf(9), list.lookAtItemN(9));
+		assertNull(list.lookAtItemN(10));
+		assertNull(list.lookAtItemN(-1));
+
+		list.addItem(-5, 10);
+		list.addItem(50, 11);
+		list.addItem(4, null);
+		assertEquals(12, list.size());
+		assertEquals(Integer.valueOf(10), list.lookAtItemN(0));
+		assertEquals(Integer.valueOf(11), list.lookAtItemN(11));
+
+		list.moveAheadOne(0);
+		list.moveAheadOne(11);
+		assertEquals(Integer.valueOf(11), list.lookAtItemN(10));
+		assertEquals(Integer.valueOf(9), list.lookAtItemN(11));
+
+		assertNull(list.remove(12));
+		assertEquals(Integer.valueOf(10), list.remove(0));
+		assertEquals(Integer.valueOf(9), list.remove(10));
+		assertEquals(10, list.size());
+
+		list.resetIterator();
+		for (int i = 0; i < 9; i++) {
+			assertEquals(Integer.valueOf(i), list.next());
+		}
+		assertEquals(Integer.valueOf(11), list.next());
+		assertFalse(list.hasNext());
+		assertNull(list.next());
+	}
+
+	/**
+	 * Test method for
+	 * {@link TreeMultiPurposeList#addInOrder(Object, Comparator)}: an element
+	 * goes after all elements that compare as equal to it, as it does for the
+	 * default method used by MultiPurposeList.
+	 */
+	@Test
+	public void testAddInOrder() {
+		TreeMultiPurposeList<String> tree = new TreeMultiPurposeList<String>();
+		MultiPurposeList<String> linked = new MultiPurposeList<String>();
+		UnrolledMultiPurposeList<String> unrolled = new UnrolledMultiPurposeList<String>(4);
+		Random random = new Random(7);
+		for (int i = 0; i < 500; i++) {
+			String s = (char) ('a' + random.nextInt(10)) + Integer.toString(i);
+			int psn = tree.addInOrder(s, BY_FIRST_CHAR);
+			assertEquals(psn, linked.addInOrder(s, BY_FIRST_CHAR));
+			assertEquals(psn, unrolled.addInOrder(s, BY_FIRST_CHAR));
+			assertSame(s, tree.lookAtItemN(psn));
+		}
+		assertEquals(-1, tree.addInOrder(null, BY_FIRST_CHAR));
+		Iterator<String> it = linked.iterator();
+		Iterator<String> unrolledIt = unrolled.iterator();
+		String previous = null;
+		for (String s : tree) {
+			assertSame(it.next(), s);
+			assertSame(unrolledIt.next(), s);
+			if (previous != null && previous.charAt(0) == s.charAt(0)) {
+				// Equal elements stay in the order they were added
+				assertTrue(Integer.parseInt(previous.substring(1)) < Integer.parseInt(s.substring(1)));
+			}
+			previous = s;
+		}
+	}
+
+	/**
+	 * Runs the same random operations on a TreeMultiPurposeList and a
+	 * MultiPurposeList and checks that the two lists always match.
+	 */
+	@Test
+	public void testMatchesMultiPurposeList() {
+		Random random = new Random(42);
+		TreeMultiPurposeList<Integer> tree = new TreeMultiPurposeList<Integer>();
+		MultiPurposeList<Integer> linked = new MultiPurposeList<Integer>();
+		for (int op = 0; op < 5000; op++) {
+			int psn = random.nextInt(tree.size() + 3) - 1;
+			switch (random.nextInt(4)) {
+			case 0:
+				tree.addItem(psn, op);
+				linked.addItem(psn, op);
+				break;
+			case 1:
+				tree.addToRear(op);
+				linked.addToRear(op);
+				break;
+			case 2:
+				assertEquals(linked.remove(psn), tree.remove(psn));
+				break;
+			default:
+				tree.moveAheadOne(psn);
+				linked.moveAheadOne(psn);
+				break;
+			}
+			assertEquals(linked.size(), tree.size());
+			assertEquals(linked.lookAtItemN(psn), tree.lookAtItemN(psn));
+		}
+		Iterator<Integer> it = linked.iterator();
+		for (Integer value : tree) {
+			assertEquals(it.next(), value);
+		}
+		assertFalse(it.hasNext());
+	}
+
+	/**
+	 * Test method for
+	 * {@link TreeMultiPurposeList#iterator()}, including removal.
+	 */
+	@Test
+	public void testIterator() {
+		Iterator<Integer> it = list.iterator();
+		try {
+			it.remove();
+			fail("IllegalStateException should have been thrown");
+		} catch (IllegalStateException e) {
+			assertEquals(10, list.size());
+		}
+		// Remove the odd elements
+		while (it.hasNext()) {
+			if (it.next().intValue() % 2 == 1) {
+				it.remove();
+			}
+		}
+		assertEquals(5, list.size());
+		int expected = 0;
+		for (Integer value : list) {
+			assertEquals(Integer.valueOf(expected), value);
+			expected += 2;
+		}
+
+		it = list.iterator();
+		it.next();
+		list.addToRear(20);
+		try {
+			it.next();
+			fail("ConcurrentModificationException should have been thrown");
+		} catch (ConcurrentModificationException e) {
+			assertEquals(6, list.size());
+		}
+	}
+
+	/**
+	 * Test that a large list built in sorted and reverse order stays
+	 * balanced enough to be built and traversed quickly.
+	 */
+	@Test(timeout = 5000)
+	public void testLargeList() {
+		TreeMultiPurposeList<Integer> large = new TreeMultiPurposeList<Integer>();
+		for (int i = 0; i < 200000; i++) {
+			large.addItem(0, i);
+		}
+		assertEquals(200000, large.size());
+		assertEquals(Integer.valueOf(199999), large.lookAtItemN(0));
+		assertEquals(Integer.valueOf(0), large.lookAtItemN(199999));
+		int expected = 199999;
+		for (Integer value : large) {
+			assertEquals(expected--, value.intValue());
+		}
+	}
+}
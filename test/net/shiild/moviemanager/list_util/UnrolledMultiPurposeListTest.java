@@ -0,0 +1,246 @@
+/**
+ *
+ */
+package net.shiild.moviemanager.list_util;
+
+import static org.junit.Assert.*;
+
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test class for UnrolledMultiPurposeList. A chunk capacity of 4 is used so
+ * that small lists already span several chunks.
+ *
+ * @author StephenHildebrand
+ */
+public class UnrolledMultiPurposeListTest extends PositionalListContractTest {
+	/** List of ten elements, 0 to 9, spread over several chunks */
+	UnrolledMultiPurposeList<Integer> list;
+
+	/**
+	 * Instantiates the list to be used for testing.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception {
+		list = new UnrolledMultiPurposeList<Integer>(4);
+		for (int i = 0; i < 10; i++) {
+			list.addToRear(i);
+		}
+	}
+
+	@Override
+	PositionalList<Integer> newList() {
+		return new UnrolledMultiPurposeList<Integer>(4);
+	}
+
+	/**
+	 * Test method for
+	 * {@link UnrolledMultiPurposeList#UnrolledMultiPurposeList(int)}.
+	 */
+	@Test
+	public void testUnrolledMultiPurposeList() {
+		assertTrue(new UnrolledMultiPurposeList<Integer>().isEmpty());
+		assertEquals(10, list.size());
+		try {
+			new UnrolledMultiPurposeList<Integer>(1);
+			fail("Chunk capacity of 1 should not be accepted");
+		} catch (IllegalArgumentException e) {
+			assertEquals(10, list.size());
+		}
+	}
+
+	/**
+	 * Test method for both
+	 * {@link UnrolledMultiPurposeList#hasNext()} and
+	 * {@link UnrolledMultiPurposeList#next()}.
+	 */
+	@Test
+	public void testHasNextNext() {
+		list.resetIterator();
+		for (int i = 0; i < 10; i++) {
+			assertTrue(list.hasNext());
+			assertEquals(Integer.valueOf(i), list.next());
+		}
+		assertFalse(list.hasNext());
+		assertNull(list.next());
+	}
+
+	/**
+	 * Test method for
+	 * {@link UnrolledMultiPurposeList#addItem(int, Object)}.
+	 */
+	@Test
+	public void testAddItem() {
+		list.addItem(-2, 100); // front
+		list.addItem(5, 101); // middle of a full chunk
+		list.addItem(50, 102); // past the end
+		list.addItem(3, null); // ignored
+		assertEquals(13, list.size());
+		assertEquals(Integer.valueOf(100), list.lookAtItemN(0));
+		assertEquals(Integer.valueOf(3), list.lookAtItemN(4));
+		assertEquals(Integer.valueOf(101), list.lookAtItemN(5));
+		assertEquals(Integer.valueOf(4), list.lookAtItemN(6));
+		assertEquals(Integer.valueOf(102), list.lookAtItemN(12));
+	}
+
+	/**
+	 * Test method for
+	 * {@link UnrolledMultiPurposeList#lookAtItemN(int)}.
+	 */
+	@Test
+	public void testLookAtItemN() {
+		assertEquals(Integer.valueOf(0), list.lookAtItemN(0));
+		assertEquals(Integer.valueOf(4), list.lookAtItemN(4));
+		assertEquals(Integer.valueOf(9), list.lookAtItemN(9));
+		assertNull(list.lookAtItemN(10));
+		assertNull(list.lookAtItemN(-1));
+	}
+
+	/**
+	 * Test method for
+	 * {@link UnrolledMultiPurposeList#remove(int)}.
+	 */
+	@Test
+	public void testRemove() {
+		assertEquals(Integer.valueOf(0), list.remove(0));
+		assertEquals(Integer.valueOf(9), list.remove(8));
+		assertNull(list.remove(8));
+		assertEquals(Integer.valueOf(4), list.remove(3));
+		assertEquals(7, list.size());
+		assertEquals(Integer.valueOf(5), list.lookAtItemN(3));
+
+		// Empty the list, then add to it again
+		while (!list.isEmpty()) {
+			list.remove(list.size() - 1);
+		}
+		assertNull(list.remove(0));
+		list.addToRear(7);
+		list.addItem(0, 6);
+		assertEquals(Integer.valueOf(6), list.lookAtItemN(0));
+		assertEquals(Integer.valueOf(7), list.lookAtItemN(1));
+	}
+
+	/**
+	 * Test method for
+	 * {@link UnrolledMultiPurposeList#moveAheadOne(int)}.
+	 */
+	@Test
+	public void testMoveAheadOne() {
+		list.moveAheadOne(0); // no change
+		list.moveAheadOne(10); // no change
+		list.moveAheadOne(4); // first element of the second chunk
+		list.moveAheadOne(9); // last element
+		assertEquals(Integer.valueOf(4), list.lookAtItemN(3));
+		assertEquals(Integer.valueOf(3), list.lookAtItemN(4));
+		assertEquals(Integer.valueOf(9), list.lookAtItemN(8));
+		assertEquals(Integer.valueOf(8), list.lookAtItemN(9));
+		assertEquals(10, list.size());
+	}
+
+	/**
+	 * Runs the same random operations on an UnrolledMultiPurposeList and a
+	 * MultiPurposeList and checks that the two lists always hold the same
+	 * elements, so that splitting and merging chunks never loses or reorders
+	 * an element.
+	 */
+	@Test
+	public void testMatchesMultiPurposeList() {
+		Random random = new Random(42);
+		UnrolledMultiPurposeList<Integer> unrolled = new UnrolledMultiPurposeList<Integer>(4);
+		MultiPurposeList<Integer> linked = new MultiPurposeList<Integer>();
+		for (int op = 0; op < 5000; op++) {
+			int psn = random.nextInt(unrolled.size() + 3) - 1;
+			switch (random.nextInt(4)) {
+			case 0:
+				unrolled.addItem(psn, op);
+				linked.addItem(psn, op);
+				break;
+			case 1:
+				unrolled.addToRear(op);
+				linked.addToRear(op);
+				break;
+			case 2:
+				assertEquals(linked.remove(psn), unrolled.remove(psn));
+				break;
+			default:
+				unrolled.moveAheadOne(psn);
+				linked.moveAheadOne(psn);
+				break;
+			}
+			assertEquals(linked.size(), unrolled.size());
+			assertEquals(linked.lookAtItemN(psn), unrolled.lookAtItemN(psn));
+		}
+		unrolled.resetIterator();
+		linked.resetIterator();
+		while (linked.hasNext()) {
+			assertEquals(linked.next(), unrolled.next());
+		}
+		assertFalse(unrolled.hasNext());
+	}
+
+	/**
+	 * Test method for
+	 * {@link UnrolledMultiPurposeList#iterator()}.
+	 */
+	@Test
+	public void testIterator() {
+		Iterator<Integer> first = list.iterator();
+		Iterator<Integer> second = list.iterator();
+		for (int i = 0; i < 6; i++) {
+			assertEquals(Integer.valueOf(i), first.next());
+		}
+		assertEquals(Integer.valueOf(0), second.next());
+		int expected = 0;
+		for (Integer value : list) {
+			assertEquals(Integer.valueOf(expected++), value);
+		}
+		assertEquals(10, expected);
+
+		list.moveAheadOne(3);
+		try {
+			first.next();
+			fail("ConcurrentModificationException should have been thrown");
+		} catch (ConcurrentModificationException e) {
+			assertEquals(10, list.size());
+		}
+	}
+
+	/**
+	 * Test method for removing through an iterator, including emptying whole
+	 * chunks.
+	 */
+	@Test
+	public void testIteratorRemove() {
+		// Remove every element but the multiples of three
+		Iterator<Integer> it = list.iterator();
+		while (it.hasNext()) {
+			if (it.next().intValue() % 3 != 0) {
+				it.remove();
+			}
+		}
+		assertEquals(4, list.size());
+		for (int i = 0; i < 4; i++) {
+			assertEquals(Integer.valueOf(i * 3), list.lookAtItemN(i));
+		}
+		list.addToRear(10);
+		assertEquals(Integer.valueOf(10), list.lookAtItemN(4));
+
+		// Remove everything
+		it = list.iterator();
+		while (it.hasNext()) {
+			it.next();
+			it.remove();
+		}
+		assertTrue(list.isEmpty());
+		assertFalse(list.iterator().hasNext());
+		list.addToRear(11);
+		assertEquals(Integer.valueOf(11), list.lookAtItemN(0));
+	}
+}
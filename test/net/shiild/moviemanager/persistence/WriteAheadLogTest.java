@@ -0,0 +1,258 @@
+/**
+ *
+ */
+package net.shiild.moviemanager.persistence;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Test class for WriteAheadLog.
+ *
+ * @author StephenHildebrand
+ */
+public class WriteAheadLogTest {
+	/** Directory the log is written in */
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+	/** Path of the log file */
+	Path path;
+
+	/**
+	 * Sets up the path of the log.
+	 */
+	@Before
+	public void setUp() {
+		path = folder.getRoot().toPath().resolve("test.log");
+	}
+
+	/**
+	 * Test that committed records are replayed in order with the generation
+	 * they were written with.
+	 *
+	 * @throws IOException if the log cannot be used
+	 */
+	@Test
+	public void testRoundTrip() throws IOException {
+		assertEquals(-1, WriteAheadLog.generationOf(path));
+		WriteAheadLog log = WriteAheadLog.create(path, 7, true);
+		assertEquals(1, log.append(bytes("one")));
+		assertEquals(2, log.append(bytes("two")));
+		log.commit();
+		assertEquals(3, log.append(new byte[0]));
+		log.close();
+
+		assertEquals(7, WriteAheadLog.generationOf(path));
+		List<String> records = new ArrayList<String>();
+		log = WriteAheadLog.recover(path, collector(records), true);
+		assertEquals(7, log.getGeneration());
+		assertEquals(3, records.size());
+		assertEquals("one", records.get(0));
+		assertEquals("two", records.get(1));
+		assertEquals("", records.get(2));
+		log.close();
+	}
+
+	/**
+	 * Test that records the log is created with are replayed before those
+	 * appended to it.
+	 *
+	 * @throws IOException if the log cannot be used
+	 */
+	@Test
+	public void testCreateWithRecords() throws IOException {
+		WriteAheadLog log = WriteAheadLog.create(path, 2, false, bytes("first"), bytes("second"));
+		log.append(bytes("third"));
+		log.close();
+
+		List<String> records = new ArrayList<String>();
+		log = WriteAheadLog.recover(path, collector(records), false);
+		assertEquals(2, log.getGeneration());
+		assertEquals("[first, second, third]", records.toString());
+		log.close();
+	}
+
+	/**
+	 * Test that a record only partly written is cut off, and that records
+	 * appended after recovery follow the last valid one.
+	 *
+	 * @throws IOException if the log cannot be used
+	 */
+	@Test
+	public void testTornTail() throws IOException {
+		WriteAheadLog log = WriteAheadLog.create(path, 0, false);
+		log.append(bytes("kept"));
+		log.close();
+		long validSize = size();
+		// A length and checksum with only part of the record after them
+		write(size(), new byte[] {0, 0, 0, 10, 1, 2, 3, 4, 'p', 'a'});
+
+		List<String> records = new ArrayList<String>();
+		log = WriteAheadLog.recover(path, collector(records), false);
+		assertEquals(Collections.singletonList("kept"), records);
+		assertEquals(validSize, log.size());
+		log.append(bytes("after"));
+		log.close();
+
+		records.clear();
+		WriteAheadLog.recover(path, collector(records), false).close();
+		assertEquals(2, records.size());
+		assertEquals("after", records.get(1));
+	}
+
+	/**
+	 * Test that a record whose checksum does not match ends the log.
+	 *
+	 * @throws IOException if the log cannot be used
+	 */
+	@Test
+	public void testCorruptRecord() throws IOException {
+		WriteAheadLog log = WriteAheadLog.create(path, 0, false);
+		log.append(bytes("first"));
+		log.append(bytes("second"));
+		log.append(bytes("third"));
+		log.close();
+		// Change the last byte of "second"
+		write(size() - "third".length() - 8 - 1, new byte[] {'X'});
+
+		List<String> records = new ArrayList<String>();
+		WriteAheadLog.recover(path, collector(records), false).close();
+		assertEquals(Collections.singletonList("first"), records);
+	}
+
+	/**
+	 * Test that many threads committing at once have every record written,
+	 * in no more batches than there were commits.
+	 *
+	 * @throws Exception if the log cannot be used or a thread is interrupted
+	 */
+	@Test
+	public void testGroupCommit() throws Exception {
+		final int threads = 8;
+		final int commits = 100;
+		final WriteAheadLog log = WriteAheadLog.create(path, 0, true);
+		final List<Throwable> errors = Collections.synchronizedList(new ArrayList<Throwable>());
+		Thread[] workers = new Thread[threads];
+		for (int t = 0; t < threads; t++) {
+			final int id = t;
+			workers[t] = new Thread() {
+				@Override
+				public void run() {
+					try {
+						for (int i = 0; i < commits; i++) {
+							log.commit(log.append(bytes(id + ":" + i)));
+						}
+					} catch (Throwable e) {
+						errors.add(e);
+					}
+				}
+			};
+			workers[t].start();
+		}
+		for (Thread worker : workers) {
+			worker.join();
+		}
+		assertTrue(errors.toString(), errors.isEmpty());
+		long batches = log.getBatchCount();
+		assertTrue(batches > 0 && batches <= threads * commits);
+		log.close();
+
+		List<String> records = new ArrayList<String>();
+		WriteAheadLog.recover(path, collector(records), false).close();
+		assertEquals(threads * commits, records.size());
+		// Each thread's records are in the order it appended them
+		int[] next = new int[threads];
+		for (String record : records) {
+			String[] parts = record.split(":");
+			int id = Integer.parseInt(parts[0]);
+			assertEquals(next[id]++, Integer.parseInt(parts[1]));
+		}
+	}
+
+	/**
+	 * Test that a closed log cannot be appended to.
+	 *
+	 * @throws IOException if the log cannot be used
+	 */
+	@Test
+	public void testAppendAfterClose() throws IOException {
+		WriteAheadLog log = WriteAheadLog.create(path, 0, false);
+		log.close();
+		try {
+			log.append(bytes("late"));
+			fail("IllegalStateException should have been thrown");
+		} catch (IllegalStateException e) {
+			assertEquals("The log is not open.", e.getMessage());
+		}
+	}
+
+	/**
+	 * Returns a handler adding each record to a list as a string.
+	 *
+	 * @param records the list
+	 * @return the handler
+	 */
+	private static WriteAheadLog.RecordHandler collector(final List<String> records) {
+		return new WriteAheadLog.RecordHandler() {
+			@Override
+			public void record(byte[] record) {
+				records.add(new String(record, StandardCharsets.UTF_8));
+			}
+		};
+	}
+
+	/**
+	 * Returns the UTF-8 bytes of a string.
+	 *
+	 * @param s the string
+	 * @return the bytes
+	 */
+	private static byte[] bytes(String s) {
+		return s.getBytes(StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Returns the size of the log file.
+	 *
+	 * @return the size in bytes
+	 * @throws IOException if the size cannot be read
+	 */
+	private long size() throws IOException {
+		FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+		try {
+			return channel.size();
+		} finally {
+			channel.close();
+		}
+	}
+
+	/**
+	 * Writes bytes into the log file at an offset.
+	 *
+	 * @param offset offset to write at
+	 * @param data   the bytes
+	 * @throws IOException if the file cannot be written
+	 */
+	private void write(long offset, byte[] data) throws IOException {
+		FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE);
+		try {
+			channel.write(ByteBuffer.wrap(data), offset);
+		} finally {
+			channel.close();
+		}
+	}
+}
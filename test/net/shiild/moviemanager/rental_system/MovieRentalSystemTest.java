@@ -5,6 +5,10 @@ package net.shiild.moviemanager.rental_system;
 
 import static org.junit.Assert.*;
 
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.List;
+
 import org.junit.Before;
 import org.junit.Test;
 
@@ -65,4 +69,59 @@ public class MovieRentalSystemTest {
 				"Frozen\nGravity\nHow to Train Your Dragon 2\nSpectre (currently unavailable)\nWarcraft (currently unavailable)\n",
 				inventory.showInventory());
 	}
+
+	/**
+	 * Test method for
+	 * {@link MovieRentalSystem#showInventory(int, int)} and
+	 * {@link MovieRentalSystem#inventorySize()}: pages carry the position,
+	 * title and availability of each movie, and a position from a page can be
+	 * used to reserve the movie.
+	 */
+	@Test
+	public void testShowInventoryPage() {
+		assertEquals(5, inventory.inventorySize());
+		List<InventoryEntry> page = inventory.showInventory(2, 2);
+		assertEquals(2, page.size());
+		assertEquals(2, page.get(0).getPosition());
+		assertEquals("How to Train Your Dragon 2", page.get(0).getTitle());
+		assertTrue(page.get(0).isAvailable());
+		assertEquals(3, page.get(1).getPosition());
+		assertEquals("Spectre", page.get(1).getTitle());
+		assertEquals("Spectre (currently unavailable)", page.get(1).getDisplayName());
+		assertFalse(page.get(1).isAvailable());
+
+		assertEquals(1, inventory.showInventory(4, 10).size());
+		assertTrue(inventory.showInventory(5, 10).isEmpty());
+		assertTrue(inventory.showInventory(50, 10).isEmpty());
+		assertTrue(inventory.showInventory(0, 0).isEmpty());
+
+		Customer c1 = new Customer("id1", "pw1", 2);
+		inventory.setCustomer(c1);
+		inventory.addToCustomerQueue(inventory.showInventory(0, 1).get(0).getPosition());
+		assertEquals("Frozen\n", inventory.traverseAtHomeQueue());
+
+		try {
+			inventory.showInventory(-1, 2);
+			fail("IllegalArgumentException should have been thrown");
+		} catch (IllegalArgumentException e) {
+			assertEquals(5, inventory.inventorySize());
+		}
+		MovieRentalSystem empty = new MovieRentalSystem(null);
+		assertEquals(0, empty.inventorySize());
+		assertTrue(empty.showInventory(0, 10).isEmpty());
+	}
+
+	/**
+	 * Test method for
+	 * {@link MovieRentalSystem#showInventory(Appendable)}
+	 * .
+	 *
+	 * @throws IOException if the inventory cannot be written
+	 */
+	@Test
+	public void testShowInventoryAppendable() throws IOException {
+		StringWriter out = new StringWriter();
+		inventory.showInventory(out);
+		assertEquals(inventory.showInventory(), out.toString());
+	}
 }
@@ -0,0 +1,259 @@
+/**
+ *
+ */
+package net.shiild.moviemanager.server;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import net.shiild.moviemanager.customer.CustomerDB;
+import net.shiild.moviemanager.customer.SessionManager;
+import net.shiild.moviemanager.rental_system.InventoryEntry;
+import net.shiild.moviemanager.rental_system.MovieRentalSystem;
+import net.shiild.moviemanager.rental_system.RentalManager;
+
+/**
+ * Test class for BinaryServer and BinaryClient, over the short movie list:
+ * Frozen (3 copies), Gravity (2), How to Train Your Dragon 2 (3), Spectre (0)
+ * and Warcraft (0).
+ *
+ * @author StephenHildebrand
+ */
+public class BinaryServerTest {
+	/** The session manager served */
+	SessionManager sessions;
+	/** The server under test */
+	BinaryServer server;
+	/** A client of the server */
+	BinaryClient client;
+
+	/**
+	 * Starts a server with one customer on any free port and connects to it.
+	 *
+	 * @throws IOException if the server cannot start
+	 */
+	@Before
+	public void setUp() throws IOException {
+		MovieRentalSystem rentalSystem = new MovieRentalSystem("movies-short.txt");
+		CustomerDB customers = new CustomerDB();
+		customers.addNewCustomer("a", "pw1", 1);
+		sessions = new SessionManager(rentalSystem, customers, SessionManager.DEFAULT_IDLE_TIMEOUT,
+				TimeUnit.MILLISECONDS);
+		server = new BinaryServer(rentalSystem, sessions, new InetSocketAddress("localhost", 0));
+		client = new BinaryClient(server.getAddress());
+	}
+
+	/**
+	 * Closes the client and stops the server.
+	 *
+	 * @throws IOException if the server cannot be stopped
+	 */
+	@After
+	public void tearDown() throws IOException {
+		client.close();
+		server.close();
+		sessions.close();
+	}
+
+	/**
+	 * Test that a customer can log in, browse, reserve, move up, unreserve
+	 * and return, and log out.
+	 *
+	 * @throws Exception if a request fails
+	 */
+	@Test
+	public void testCustomer() throws Exception {
+		String token = client.login("a", "pw1").get();
+
+		BinaryClient.Page page = client.inventory(3, 2).get();
+		assertEquals(5, page.getSize());
+		assertEquals(2, page.getEntries().size());
+		InventoryEntry spectre = page.getEntries().get(0);
+		assertEquals(3, spectre.getPosition());
+		assertEquals("Spectre", spectre.getTitle());
+		assertFalse(spectre.isAvailable());
+		assertEquals("Warcraft (currently unavailable)", page.getEntries().get(1).getDisplayName());
+
+		BinaryClient.Queues queues = client.reserve(token, 0).get();
+		assertEquals(Arrays.asList("Frozen"), queues.getAtHome());
+		assertEquals(Arrays.asList(), queues.getReserves());
+		assertFalse(queues.isTruncated());
+		client.reserve(token, 3);
+		queues = client.reserve(token, 4).get();
+		assertEquals(Arrays.asList("Spectre", "Warcraft"), queues.getReserves());
+		assertEquals(Arrays.asList("Warcraft", "Spectre"), client.moveUp(token, 1).get().getReserves());
+		assertEquals(Arrays.asList("Spectre"), client.unreserve(token, 0).get().getReserves());
+		queues = client.returnItem(token, 0).get();
+		assertEquals(Arrays.asList(), queues.getAtHome());
+		assertEquals(Arrays.asList("Spectre"), client.queues(token).get().getReserves());
+
+		client.logout(token).get();
+		assertFailure(IllegalStateException.class, "Not logged in.", client.queues(token));
+	}
+
+	/**
+	 * Test the errors of requests that cannot be made.
+	 *
+	 * @throws Exception if a request fails
+	 */
+	@Test
+	public void testErrors() throws Exception {
+		assertFailure(IllegalStateException.class, "The account doesn't exist.", client.login("a", "wrong"));
+		assertFailure(IllegalStateException.class, "Not logged in.", client.reserve("nonsense", 0));
+
+		String token = client.login("a", "pw1").get();
+		assertFailure(IllegalArgumentException.class, null, client.reserve(token, 99));
+		assertFailure(IllegalStateException.class, "The administrator is not logged in.",
+				client.addAccount(token, "b", "pw2", 1));
+
+		String admin = client.login("admin", "admin").get();
+		client.addAccount(admin, "b", "pw2", 1).get();
+		assertEquals("a\nb\n", sessions.listAccounts());
+		assertFailure(IllegalStateException.class, null, client.queues(admin));
+	}
+
+	/**
+	 * Test that a change whose queues are too long for one answer is
+	 * answered as made, with the queues cut short, rather than as failed.
+	 *
+	 * @throws Exception if a request fails
+	 */
+	@Test
+	public void testQueuesTooLong() throws Exception {
+		String token = client.login("a", "pw1").get();
+		RentalManager view = sessions.getRentalManager(token);
+		int reserves = Protocol.MAX_FRAME / 9 + 10; // Longer than a frame of "Spectre"s
+		for (int i = 0; i < reserves; i++) {
+			view.addToCustomerQueue(3);
+		}
+		BinaryClient.Queues queues = client.reserve(token, 4).get();
+		assertTrue(queues.isTruncated());
+		assertTrue(queues.getReserves().size() < reserves);
+		assertEquals("Spectre", queues.getReserves().get(0));
+		assertTrue(view.traverseReserveQueue().endsWith("Spectre\nWarcraft\n"));
+		assertTrue(client.unreserve(token, reserves).get().isTruncated());
+		assertFalse(view.traverseReserveQueue().contains("Warcraft"));
+	}
+
+	/**
+	 * Test that a request failing with an unexpected exception is answered
+	 * with an error, and the requests after it on the connection still are.
+	 *
+	 * @throws Exception if a request fails
+	 */
+	@Test
+	public void testServerError() throws Exception {
+		MovieRentalSystem rentalSystem = new MovieRentalSystem("movies-short.txt");
+		SessionManager broken = new SessionManager(rentalSystem, new CustomerDB(),
+				SessionManager.DEFAULT_IDLE_TIMEOUT, TimeUnit.MILLISECONDS) {
+			@Override
+			public RentalManager getRentalManager(String token) {
+				throw new UnsupportedOperationException("Broken.");
+			}
+		};
+		BinaryServer brokenServer = new BinaryServer(rentalSystem, broken, new InetSocketAddress("localhost", 0));
+		BinaryClient brokenClient = new BinaryClient(brokenServer.getAddress());
+		try {
+			CompletableFuture<?> queues = brokenClient.queues("token");
+			CompletableFuture<BinaryClient.Page> inventory = brokenClient.inventory(0, 0);
+			assertFailure(IllegalStateException.class, "java.lang.UnsupportedOperationException: Broken.", queues);
+			assertEquals(5, inventory.get().getSize());
+		} finally {
+			brokenClient.close();
+			brokenServer.close();
+			broken.close();
+		}
+	}
+
+	/**
+	 * Test that requests sent before their answers are read are answered in
+	 * order, on connections of their own and on a shared one.
+	 *
+	 * @throws Exception if a request fails
+	 */
+	@Test
+	public void testPipelining() throws Exception {
+		String token = client.login("a", "pw1").get();
+		List<CompletableFuture<BinaryClient.Queues>> changes = new ArrayList<CompletableFuture<BinaryClient.Queues>>();
+		changes.add(client.reserve(token, 3));
+		changes.add(client.reserve(token, 4));
+		changes.add(client.moveUp(token, 1));
+		changes.add(client.unreserve(token, 1));
+		List<CompletableFuture<BinaryClient.Page>> pages = new ArrayList<CompletableFuture<BinaryClient.Page>>();
+		for (int i = 0; i < 500; i++) {
+			pages.add(client.inventory(i % 5, 1));
+		}
+		assertEquals(Arrays.asList("Spectre"), changes.get(0).get().getReserves());
+		assertEquals(Arrays.asList("Spectre", "Warcraft"), changes.get(1).get().getReserves());
+		assertEquals(Arrays.asList("Warcraft", "Spectre"), changes.get(2).get().getReserves());
+		assertEquals(Arrays.asList("Warcraft"), changes.get(3).get().getReserves());
+		for (int i = 0; i < pages.size(); i++) {
+			assertEquals(i % 5, pages.get(i).get().getEntries().get(0).getPosition());
+		}
+
+		BinaryClient other = new BinaryClient(server.getAddress());
+		try {
+			assertEquals(Arrays.asList("Warcraft"), other.queues(token).get(5, TimeUnit.SECONDS).getReserves());
+		} finally {
+			other.close();
+		}
+	}
+
+	/**
+	 * Test that a frame longer than the protocol allows closes the connection
+	 * without harming the server.
+	 *
+	 * @throws Exception if a request fails
+	 */
+	@Test
+	public void testFrameTooLong() throws Exception {
+		Socket socket = new Socket("localhost", server.getAddress().getPort());
+		try {
+			OutputStream out = socket.getOutputStream();
+			out.write(new byte[] { 0x7F, 0, 0, 0, 0, 0, 0, 1 });
+			out.flush();
+			InputStream in = socket.getInputStream();
+			socket.setSoTimeout(5000);
+			assertEquals(-1, in.read());
+		} finally {
+			socket.close();
+		}
+		assertEquals(5, client.inventory(0, 0).get().getSize());
+	}
+
+	/**
+	 * Asserts that a future fails with the given exception and message.
+	 *
+	 * @param type    type of the exception
+	 * @param message the exception's message, or null for any
+	 * @param future  the future
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	private static void assertFailure(Class<? extends Exception> type, String message, CompletableFuture<?> future)
+			throws InterruptedException {
+		try {
+			future.get();
+			fail();
+		} catch (ExecutionException e) {
+			assertEquals(type, e.getCause().getClass());
+			if (message != null) {
+				assertEquals(message, e.getCause().getMessage());
+			}
+		}
+	}
+}
@@ -0,0 +1,176 @@
+/**
+ *
+ */
+package net.shiild.moviemanager.server;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import net.shiild.moviemanager.customer.CustomerDB;
+import net.shiild.moviemanager.customer.SessionManager;
+import net.shiild.moviemanager.rental_system.MovieRentalSystem;
+
+/**
+ * Test class for RentalServer, over the short movie list: Frozen (3 copies),
+ * Gravity (2), How to Train Your Dragon 2 (3), Spectre (0) and Warcraft (0).
+ *
+ * @author StephenHildebrand
+ */
+public class RentalServerTest {
+	/** The session manager served */
+	SessionManager sessions;
+	/** The server under test */
+	RentalServer server;
+	/** Status of the last request */
+	int status;
+
+	/**
+	 * Starts a server with one customer on any free port.
+	 *
+	 * @throws IOException if the server cannot start
+	 */
+	@Before
+	public void setUp() throws IOException {
+		MovieRentalSystem rentalSystem = new MovieRentalSystem("movies-short.txt");
+		CustomerDB customers = new CustomerDB();
+		customers.addNewCustomer("a", "pw1", 1);
+		sessions = new SessionManager(rentalSystem, customers, SessionManager.DEFAULT_IDLE_TIMEOUT,
+				TimeUnit.MILLISECONDS);
+		server = new RentalServer(rentalSystem, sessions, new InetSocketAddress("localhost", 0));
+	}
+
+	/**
+	 * Stops the server.
+	 */
+	@After
+	public void tearDown() {
+		server.close();
+		sessions.close();
+	}
+
+	/**
+	 * Test that a customer can log in, browse, reserve, move up, unreserve
+	 * and return, and log out.
+	 *
+	 * @throws IOException if a request fails
+	 */
+	@Test
+	public void testCustomer() throws IOException {
+		String login = request("POST", "/login", null, "id=a&password=pw1");
+		assertEquals(200, status);
+		assertTrue(login.endsWith(",\"admin\":false}"));
+		String token = login.substring("{\"token\":\"".length(), login.indexOf("\","));
+
+		assertEquals("{\"size\":5,\"movies\":[{\"position\":3,\"title\":\"Spectre\",\"available\":false}]}",
+				request("GET", "/inventory?offset=3&limit=1", null, null));
+		assertEquals("{\"atHome\":[\"Frozen\"],\"reserves\":[]}",
+				request("POST", "/reserve", token, "position=0"));
+		request("POST", "/reserve", token, "position=3");
+		assertEquals("{\"atHome\":[\"Frozen\"],\"reserves\":[\"Spectre\",\"Warcraft\"]}",
+				request("POST", "/reserve?position=4", token, null));
+		assertEquals("{\"atHome\":[\"Frozen\"],\"reserves\":[\"Warcraft\",\"Spectre\"]}",
+				request("POST", "/move-up", token, "position=1"));
+		assertEquals("{\"atHome\":[\"Frozen\"],\"reserves\":[\"Spectre\"]}",
+				request("POST", "/unreserve", token, "position=0"));
+		assertEquals("{\"atHome\":[],\"reserves\":[\"Spectre\"]}",
+				request("POST", "/return", token, "position=0"));
+		assertEquals("{\"atHome\":[],\"reserves\":[\"Spectre\"]}", request("GET", "/queues", token, null));
+
+		request("POST", "/logout", token, null);
+		assertEquals(200, status);
+		request("GET", "/queues", token, null);
+		assertEquals(401, status);
+	}
+
+	/**
+	 * Test the statuses of requests that cannot be made.
+	 *
+	 * @throws IOException if a request fails
+	 */
+	@Test
+	public void testErrors() throws IOException {
+		assertEquals("{\"error\":\"The account doesn't exist.\"}",
+				request("POST", "/login", null, "id=a&password=wrong"));
+		assertEquals(401, status);
+		request("POST", "/reserve", "nonsense", "position=0");
+		assertEquals(401, status);
+		request("GET", "/reserve", null, null);
+		assertEquals(405, status);
+
+		String login = request("POST", "/login", null, "id=a&password=pw1");
+		String token = login.substring("{\"token\":\"".length(), login.indexOf("\","));
+		assertEquals("{\"error\":\"Missing parameter position.\"}", request("POST", "/reserve", token, null));
+		assertEquals(400, status);
+		request("POST", "/reserve", token, "position=0");
+		assertEquals("{\"error\":\"Position out of bounds\"}", request("POST", "/return", token, "position=1"));
+		assertEquals(400, status);
+		assertEquals("{\"error\":\"The parameters are not validly encoded.\"}",
+				request("POST", "/reserve", token, "position=%zz"));
+		assertEquals(400, status);
+		char[] padding = new char[RentalServer.MAX_BODY];
+		Arrays.fill(padding, '0');
+		request("POST", "/reserve", token, "position=" + new String(padding));
+		assertEquals(413, status);
+		request("POST", "/accounts", token, "id=b&password=pw2&max=1");
+		assertEquals(403, status);
+
+		login = request("POST", "/login", null, "id=admin&password=admin");
+		assertTrue(login.endsWith(",\"admin\":true}"));
+		String admin = login.substring("{\"token\":\"".length(), login.indexOf("\","));
+		request("POST", "/accounts", admin, "id=b&password=pw2&max=1");
+		assertEquals(200, status);
+		assertEquals("a\nb\n", sessions.listAccounts());
+		request("GET", "/queues", admin, null);
+		assertEquals(401, status);
+	}
+
+	/**
+	 * Makes a request and returns the body of the answer, setting status.
+	 *
+	 * @param method request method
+	 * @param path   path and query
+	 * @param token  session token, or null
+	 * @param body   form encoded body, or null
+	 * @return the body of the answer
+	 * @throws IOException if the request fails
+	 */
+	private String request(String method, String path, String token, String body) throws IOException {
+		URL url = new URL("http", "localhost", server.getAddress().getPort(), path);
+		HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+		connection.setRequestMethod(method);
+		if (token != null) {
+			connection.setRequestProperty("Authorization", "Bearer " + token);
+		}
+		if (body != null) {
+			connection.setDoOutput(true);
+			connection.setRequestProperty("Content-Type", "application/x-www-form-urlencoded");
+			OutputStream out = connection.getOutputStream();
+			out.write(body.getBytes(StandardCharsets.UTF_8));
+			out.close();
+		}
+		status = connection.getResponseCode();
+		InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+		ByteArrayOutputStream answer = new ByteArrayOutputStream();
+		byte[] buffer = new byte[1024];
+		int n;
+		while ((n = in.read(buffer)) > 0) {
+			answer.write(buffer, 0, n);
+		}
+		in.close();
+		return new String(answer.toByteArray(), StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,203 @@
+/**
+ *
+ */
+package net.shiild.moviemanager.ui;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.swing.SwingUtilities;
+import javax.swing.SwingWorker;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test class for BackendExecutor. The background thread is held busy by a
+ * worker waiting on a latch, so that requests can be made while a refresh is
+ * known to be waiting.
+ *
+ * @author StephenHildebrand
+ */
+public class BackendExecutorTest {
+	/** The executor under test */
+	BackendExecutor backend;
+	/** Released to let the blocking worker finish */
+	CountDownLatch release;
+
+	/**
+	 * Creates the executor.
+	 */
+	@Before
+	public void setUp() {
+		backend = new BackendExecutor();
+		release = new CountDownLatch(1);
+	}
+
+	/**
+	 * Stops the executor.
+	 */
+	@After
+	public void tearDown() {
+		release.countDown();
+		backend.shutdown();
+	}
+
+	/**
+	 * Test method for
+	 * {@link BackendExecutor#refresh(BackendExecutor.Refresh)}: requests made
+	 * while a refresh is waiting are coalesced with it, and the result is
+	 * shown on the event dispatch thread.
+	 *
+	 * @throws Exception if the event dispatch thread cannot be reached
+	 */
+	@Test
+	public void testRefreshCoalesced() throws Exception {
+		final CountingRefresh refresh = new CountingRefresh();
+		block();
+		final List<Boolean> submitted = new ArrayList<Boolean>();
+		SwingUtilities.invokeAndWait(new Runnable() {
+			@Override
+			public void run() {
+				for (int i = 0; i < 100; i++) {
+					submitted.add(backend.refresh(refresh));
+				}
+			}
+		});
+		assertTrue(submitted.get(0));
+		for (int i = 1; i < submitted.size(); i++) {
+			assertFalse(submitted.get(i));
+		}
+		release.countDown();
+		assertTrue(refresh.shown.await(5, TimeUnit.SECONDS));
+		assertEquals(1, refresh.reads.get());
+		assertEquals(1, refresh.prepares.get());
+		assertTrue(refresh.shownOnEventDispatchThread);
+	}
+
+	/**
+	 * Test that a refresh requested after the waiting one has started runs
+	 * again, so it reads the state after the work submitted before it.
+	 *
+	 * @throws Exception if the event dispatch thread cannot be reached
+	 */
+	@Test
+	public void testRefreshAfterStartRunsAgain() throws Exception {
+		final CountingRefresh refresh = new CountingRefresh();
+		refresh.shown = new CountDownLatch(2);
+		SwingUtilities.invokeAndWait(new Runnable() {
+			@Override
+			public void run() {
+				assertTrue(backend.refresh(refresh));
+			}
+		});
+		// Wait until the first refresh has been read, then ask again
+		waitFor(refresh.reads, 1);
+		SwingUtilities.invokeAndWait(new Runnable() {
+			@Override
+			public void run() {
+				assertTrue(backend.refresh(refresh));
+			}
+		});
+		assertTrue(refresh.shown.await(5, TimeUnit.SECONDS));
+		assertEquals(2, refresh.reads.get());
+	}
+
+	/**
+	 * Test method for {@link BackendExecutor#getResult(SwingWorker)}: what the
+	 * worker threw is rethrown as it was.
+	 *
+	 * @throws Exception if the worker cannot be waited for
+	 */
+	@Test
+	public void testGetResult() throws Exception {
+		SwingWorker<String, Void> worker = new SwingWorker<String, Void>() {
+			@Override
+			protected String doInBackground() {
+				throw new IllegalArgumentException("Invalid");
+			}
+		};
+		backend.execute(worker);
+		try {
+			worker.get(5, TimeUnit.SECONDS);
+		} catch (Exception e) {
+			// Checked below
+		}
+		try {
+			BackendExecutor.getResult(worker);
+			fail("IllegalArgumentException should have been thrown");
+		} catch (IllegalArgumentException e) {
+			assertEquals("Invalid", e.getMessage());
+		}
+	}
+
+	/**
+	 * Submits a worker that holds the background thread until release is
+	 * counted down.
+	 *
+	 * @throws InterruptedException if interrupted while waiting for it to start
+	 */
+	private void block() throws InterruptedException {
+		final CountDownLatch started = new CountDownLatch(1);
+		backend.execute(new SwingWorker<Void, Void>() {
+			@Override
+			protected Void doInBackground() throws InterruptedException {
+				started.countDown();
+				release.await();
+				return null;
+			}
+		});
+		assertTrue(started.await(5, TimeUnit.SECONDS));
+	}
+
+	/**
+	 * Waits until a counter reaches a value.
+	 *
+	 * @param counter the counter
+	 * @param value   the value to wait for
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	private static void waitFor(AtomicInteger counter, int value) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (counter.get() < value && System.nanoTime() < deadline) {
+			Thread.sleep(1);
+		}
+		assertEquals(value, counter.get());
+	}
+
+	/**
+	 * A refresh that counts its steps.
+	 */
+	private static class CountingRefresh extends BackendExecutor.Refresh<Integer, Integer> {
+		/** Number of times prepare was called */
+		final AtomicInteger prepares = new AtomicInteger();
+		/** Number of times read was called */
+		final AtomicInteger reads = new AtomicInteger();
+		/** Counted down each time a result is shown */
+		volatile CountDownLatch shown = new CountDownLatch(1);
+		/** True if every result was shown on the event dispatch thread */
+		volatile boolean shownOnEventDispatchThread = true;
+
+		@Override
+		protected Integer prepare() {
+			return prepares.incrementAndGet();
+		}
+
+		@Override
+		protected Integer read(Integer state) {
+			return reads.incrementAndGet();
+		}
+
+		@Override
+		protected void show(Integer result) {
+			shownOnEventDispatchThread &= SwingUtilities.isEventDispatchThread();
+			shown.countDown();
+		}
+	}
+}
@@ -0,0 +1,136 @@
+/**
+ *
+ */
+package net.shiild.moviemanager.ui;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.swing.event.ListDataEvent;
+import javax.swing.event.ListDataListener;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import net.shiild.moviemanager.customer.Customer;
+import net.shiild.moviemanager.rental_system.MovieRentalSystem;
+
+/**
+ * Test class for InventoryListModel. Pages of two movies are used so that the
+ * five movies of movies-short.txt span three pages.
+ *
+ * @author StephenHildebrand
+ */
+public class InventoryListModelTest {
+	/** The rental system holding the inventory */
+	MovieRentalSystem rentals;
+	/** The model under test */
+	InventoryListModel model;
+	/** Events fired by the model */
+	List<ListDataEvent> events;
+
+	/**
+	 * Loads the inventory and records the model's events.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception {
+		rentals = new MovieRentalSystem("movies-short.txt");
+		model = new InventoryListModel(rentals, 2, 2);
+		events = new ArrayList<ListDataEvent>();
+		model.addListDataListener(new ListDataListener() {
+			@Override
+			public void intervalAdded(ListDataEvent e) {
+				events.add(e);
+			}
+
+			@Override
+			public void intervalRemoved(ListDataEvent e) {
+				events.add(e);
+			}
+
+			@Override
+			public void contentsChanged(ListDataEvent e) {
+				events.add(e);
+			}
+		});
+	}
+
+	/**
+	 * Test method for {@link InventoryListModel#getElementAt(int)}: rows are
+	 * read a page at a time and only the most recently used pages are kept.
+	 */
+	@Test
+	public void testGetElementAt() {
+		assertEquals(5, model.getSize());
+		assertEquals(0, model.getCachedPageCount());
+		assertEquals("Frozen", model.getElementAt(0));
+		assertEquals(1, model.getCachedPageCount());
+		assertEquals("Gravity", model.getElementAt(1));
+		assertEquals(1, model.getCachedPageCount());
+		assertEquals("Spectre (currently unavailable)", model.getElementAt(3));
+		assertEquals("Warcraft (currently unavailable)", model.getElementAt(4));
+		assertEquals(2, model.getCachedPageCount());
+		assertEquals("Spectre", model.getEntry(3).getTitle());
+		assertEquals(3, model.getEntry(3).getPosition());
+
+		try {
+			model.getElementAt(5);
+			fail("IndexOutOfBoundsException should have been thrown");
+		} catch (IndexOutOfBoundsException e) {
+			assertEquals(5, model.getSize());
+		}
+		try {
+			new InventoryListModel(null);
+			fail("IllegalArgumentException should have been thrown");
+		} catch (IllegalArgumentException e) {
+			// Expected
+		}
+	}
+
+	/**
+	 * Test method for {@link InventoryListModel#refresh()}: only rows whose
+	 * availability changed are reported, and only for the pages that are
+	 * kept.
+	 */
+	@Test
+	public void testRefresh() {
+		rentals.setCustomer(new Customer("id1", "pw1", 5));
+		assertEquals("Frozen", model.getElementAt(0));
+		assertEquals("How to Train Your Dragon 2", model.getElementAt(2));
+
+		model.refresh();
+		assertTrue(events.isEmpty());
+
+		// Gravity has two copies, so it is unavailable once both are rented
+		rentals.addToCustomerQueue(1);
+		model.refresh();
+		assertTrue(events.isEmpty());
+		rentals.addToCustomerQueue(1);
+		model.refresh();
+		assertEquals(1, events.size());
+		assertEquals(ListDataEvent.CONTENTS_CHANGED, events.get(0).getType());
+		assertEquals(1, events.get(0).getIndex0());
+		assertEquals(1, events.get(0).getIndex1());
+		assertEquals("Gravity (currently unavailable)", model.getElementAt(1));
+
+		// Reading the last page drops the page least recently used, so a change
+		// there fires nothing and is seen when the page is read again
+		assertEquals("Warcraft (currently unavailable)", model.getElementAt(4));
+		assertEquals(2, model.getCachedPageCount());
+		events.clear();
+		rentals.returnItemToInventory(0);
+		rentals.addToCustomerQueue(2);
+		rentals.addToCustomerQueue(2);
+		rentals.addToCustomerQueue(2);
+		model.refresh();
+		assertEquals(1, events.size());
+		assertEquals(1, events.get(0).getIndex0());
+		assertEquals(1, events.get(0).getIndex1());
+		assertEquals("Gravity", model.getElementAt(1));
+		assertEquals("How to Train Your Dragon 2 (currently unavailable)", model.getElementAt(2));
+	}
+}